@@ -0,0 +1,440 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decouples a listener from the SDK's observation thread: events are copied into a
+ * bounded ring and delivered to the wrapped listener on its own executor, in order.
+ * Created by {@link CatalystFacade#addCatalystEventListener(ICatalystEventListener, int, OverflowPolicy)}.
+ *
+ * Position records are copied into preallocated slots, so queueing an epoch does not
+ * allocate; the other events are immutable and queued by reference.
+ */
+public final class AsyncCatalystEventListener implements ICatalystEventListener, IPositionRecordListener,
+        IPositionFieldSubscriber {
+
+    private static final int SENSOR_STATE = 0;
+    private static final int USB_CONNECTION_ERROR = 1;
+    private static final int SUBSCRIPTION_EXPIRED = 2;
+    private static final int POSITION = 3;
+    private static final int SATELLITES = 4;
+    private static final int RTK_SERVICE_AVAILABLE = 5;
+    private static final int RTX_SERVICE_AVAILABLE = 6;
+    private static final int RTK_CONNECTION_STATUS = 7;
+    private static final int SURVEY_TYPE = 8;
+    private static final int OUTSIDE_GEOFENCE = 9;
+    private static final int IMU_STATE = 10;
+    private static final int POWER = 11;
+
+    private static final class Event {
+        int kind;
+        Object value;
+        int satellitesInView;
+        long enqueuedNanos;
+        final PositionRecord position = new PositionRecord();
+
+        void copyFrom(Event other) {
+            kind = other.kind;
+            value = other.value;
+            satellitesInView = other.satellitesInView;
+            enqueuedNanos = other.enqueuedNanos;
+            if (kind == POSITION) {
+                position.copyFrom(other.position);
+            }
+        }
+    }
+
+    private final ICatalystEventListener listener;
+    private final Object source;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    // Guarded by ring
+    private final Event[] ring;
+    private int head = 0;
+    private int count = 0;
+    private boolean scheduled = false;
+    private boolean closed = false;
+
+    // Only touched by the draining task
+    private final Event delivering = new Event();
+
+    private volatile int maxQueueDepth = 0;
+    private volatile long droppedEvents = 0;
+    private volatile long coalescedEvents = 0;
+    private volatile long deliveredEvents = 0;
+    private volatile long failedEvents = 0;
+    private volatile long lastLagNanos = 0;
+    private volatile long maxLagNanos = 0;
+
+    private final Runnable drainTask = this::drain;
+
+    AsyncCatalystEventListener(ICatalystEventListener listener, Object source, int capacity,
+                               OverflowPolicy overflowPolicy, Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.listener = listener;
+        this.source = source;
+        this.overflowPolicy = overflowPolicy;
+        if (executor != null) {
+            this.executor = executor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CatalystListener-" + listener.getClass().getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        }
+        this.ring = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Event();
+        }
+    }
+
+    /**
+     * Get the wrapped listener
+     * @return listener the events are delivered to
+     */
+    public ICatalystEventListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Get the overflow policy
+     * @return what happens when the queue is full
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Get the queue capacity
+     * @return maximum number of queued events
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Get the queue depth
+     * @return number of events waiting for delivery
+     */
+    public int getQueueDepth() {
+        synchronized (ring) {
+            return count;
+        }
+    }
+
+    /**
+     * Get the high-water mark of the queue
+     * @return largest queue depth seen
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Get the number of dropped events
+     * @return events discarded by {@link OverflowPolicy#DropOldest} (or its fallback)
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Get the number of coalesced events
+     * @return queued events overwritten by {@link OverflowPolicy#CoalesceLatest}
+     */
+    public long getCoalescedEvents() {
+        return coalescedEvents;
+    }
+
+    /**
+     * Get the number of delivered events
+     * @return events handed to the listener
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents;
+    }
+
+    /**
+     * Get the number of failed deliveries
+     * @return events for which the listener threw
+     */
+    public long getFailedEvents() {
+        return failedEvents;
+    }
+
+    /**
+     * Get the lag of the last delivered event
+     * @return nanoseconds between queueing and delivery
+     */
+    public long getLastLagNanos() {
+        return lastLagNanos;
+    }
+
+    /**
+     * Get the largest lag seen
+     * @return nanoseconds between queueing and delivery
+     */
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    @Override
+    public Set<PositionFieldGroup> getPositionFieldGroups() {
+        if (listener instanceof IPositionFieldSubscriber) {
+            return ((IPositionFieldSubscriber) listener).getPositionFieldGroups();
+        }
+        return EnumSet.allOf(PositionFieldGroup.class);
+    }
+
+    /**
+     * Stops delivery, discards queued events and shuts down the executor if it was created here.
+     */
+    void close() {
+        synchronized (ring) {
+            closed = true;
+            for (int i = 0; i < count; i++) {
+                ring[(head + i) % ring.length].value = null;
+            }
+            count = 0;
+            ring.notifyAll();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public void onSensorStateChanged(SensorStateEvent sensorStateEvent) {
+        enqueue(SENSOR_STATE, sensorStateEvent, 0, null);
+    }
+
+    @Override
+    public void onUsbConnectionErrorOccured() {
+        enqueue(USB_CONNECTION_ERROR, null, 0, null);
+    }
+
+    @Override
+    public void onSubscriptionHasExpired() {
+        enqueue(SUBSCRIPTION_EXPIRED, null, 0, null);
+    }
+
+    @Override
+    public void onPositionRecord(PositionRecord positionRecord) {
+        enqueue(POSITION, null, 0, positionRecord);
+    }
+
+    @Override
+    public void onPositionUpdate(PositionUpdate positionUpdate) {
+        // The facade calls onPositionRecord on IPositionRecordListeners
+        enqueue(POSITION, positionUpdate, 0, null);
+    }
+
+    @Override
+    public void onSatelliteUpdate(SatelliteUpdate satelliteUpdate, int satellitesInView) {
+        enqueue(SATELLITES, satelliteUpdate, satellitesInView, null);
+    }
+
+    @Override
+    public void onRtkServiceAvailable() {
+        enqueue(RTK_SERVICE_AVAILABLE, null, 0, null);
+    }
+
+    @Override
+    public void onRtxServiceAvailable() {
+        enqueue(RTX_SERVICE_AVAILABLE, null, 0, null);
+    }
+
+    @Override
+    public void onRtkConnectionStatusUpdate(RtkConnectionStatus rtkConnectionStatus) {
+        enqueue(RTK_CONNECTION_STATUS, rtkConnectionStatus, 0, null);
+    }
+
+    @Override
+    public void onSurveyTypeUpdate(SurveyType surveyType) {
+        enqueue(SURVEY_TYPE, surveyType, 0, null);
+    }
+
+    @Override
+    public void onSensorOutsideGeofence() {
+        enqueue(OUTSIDE_GEOFENCE, null, 0, null);
+    }
+
+    @Override
+    public void onImuStateChanged(ImuStateEvent imuStateEvent) {
+        enqueue(IMU_STATE, imuStateEvent, 0, null);
+    }
+
+    @Override
+    public void onPowerUpdate(PowerSourceState powerSourceState) {
+        enqueue(POWER, powerSourceState, 0, null);
+    }
+
+    private void enqueue(int kind, Object value, int satellitesInView, PositionRecord position) {
+        boolean schedule = false;
+        synchronized (ring) {
+            if (closed) {
+                return;
+            }
+            Event slot = null;
+            if (count == ring.length) {
+                switch (overflowPolicy) {
+                    case Block:
+                        while (count == ring.length && !closed) {
+                            try {
+                                ring.wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                droppedEvents++;
+                                return;
+                            }
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        break;
+                    case CoalesceLatest:
+                        for (int i = count - 1; i >= 0 && slot == null; i--) {
+                            Event queued = ring[(head + i) % ring.length];
+                            if (queued.kind == kind) {
+                                slot = queued;
+                            }
+                        }
+                        if (slot != null) {
+                            // Keeps the original enqueue time, so lag still covers the wait
+                            coalescedEvents++;
+                            break;
+                        }
+                        // fall through
+                    case DropOldest:
+                        ring[head].value = null;
+                        head = (head + 1) % ring.length;
+                        count--;
+                        droppedEvents++;
+                        break;
+                }
+            }
+            if (slot == null) {
+                slot = ring[(head + count) % ring.length];
+                slot.enqueuedNanos = System.nanoTime();
+                count++;
+                if (count > maxQueueDepth) {
+                    maxQueueDepth = count;
+                }
+            }
+            slot.kind = kind;
+            slot.value = value;
+            slot.satellitesInView = satellitesInView;
+            if (position != null) {
+                slot.position.copyFrom(position);
+            }
+            if (!scheduled) {
+                scheduled = schedule = true;
+            }
+        }
+        if (schedule) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                synchronized (ring) {
+                    scheduled = false;
+                }
+                android.util.Log.e(CatalystFacade.TAG, "AsyncCatalystEventListener:", e);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            synchronized (ring) {
+                if (count == 0 || closed) {
+                    scheduled = false;
+                    return;
+                }
+                Event slot = ring[head];
+                delivering.copyFrom(slot);
+                slot.value = null;
+                head = (head + 1) % ring.length;
+                count--;
+                if (overflowPolicy == OverflowPolicy.Block) {
+                    ring.notifyAll();
+                }
+            }
+
+            long lag = System.nanoTime() - delivering.enqueuedNanos;
+            lastLagNanos = lag;
+            if (lag > maxLagNanos) {
+                maxLagNanos = lag;
+            }
+            try {
+                deliver(delivering);
+                deliveredEvents++;
+            } catch (RuntimeException e) {
+                failedEvents++;
+                android.util.Log.e(CatalystFacade.TAG, "AsyncCatalystEventListener:", e);
+            }
+            delivering.value = null;
+        }
+    }
+
+    private void deliver(Event event) {
+        if (listener instanceof IEnqueueTimeAware) {
+            ((IEnqueueTimeAware) listener).stampNextEvent(event.enqueuedNanos);
+        }
+        switch (event.kind) {
+            case SENSOR_STATE:
+                listener.onSensorStateChanged((SensorStateEvent) event.value);
+                break;
+            case USB_CONNECTION_ERROR:
+                listener.onUsbConnectionErrorOccured();
+                break;
+            case SUBSCRIPTION_EXPIRED:
+                listener.onSubscriptionHasExpired();
+                break;
+            case POSITION:
+                if (event.value != null) {
+                    listener.onPositionUpdate((PositionUpdate) event.value);
+                } else if (listener instanceof IPositionRecordListener) {
+                    ((IPositionRecordListener) listener).onPositionRecord(event.position);
+                } else {
+                    listener.onPositionUpdate(event.position.toPositionUpdate(source));
+                }
+                break;
+            case SATELLITES:
+                listener.onSatelliteUpdate((SatelliteUpdate) event.value, event.satellitesInView);
+                break;
+            case RTK_SERVICE_AVAILABLE:
+                listener.onRtkServiceAvailable();
+                break;
+            case RTX_SERVICE_AVAILABLE:
+                listener.onRtxServiceAvailable();
+                break;
+            case RTK_CONNECTION_STATUS:
+                listener.onRtkConnectionStatusUpdate((RtkConnectionStatus) event.value);
+                break;
+            case SURVEY_TYPE:
+                listener.onSurveyTypeUpdate((SurveyType) event.value);
+                break;
+            case OUTSIDE_GEOFENCE:
+                listener.onSensorOutsideGeofence();
+                break;
+            case IMU_STATE:
+                listener.onImuStateChanged((ImuStateEvent) event.value);
+                break;
+            case POWER:
+                listener.onPowerUpdate((PowerSourceState) event.value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout of the event streams written by {@link CatalystEventRecorder} and read by
+ * {@link CatalystEventReplayer}.
+ *
+ * A stream is a header (magic, version, wall clock time of the first event) followed by
+ * events. Each event is a type byte, the nanoseconds since the previous event as an
+ * unsigned varint, and a type specific body. Multi-byte values are big-endian; enums are
+ * stored as ordinal + 1 (0 for null).
+ */
+final class CatalystEventLogFormat {
+
+    static final int MAGIC = 0x43455652; // "CEVR"
+    static final short VERSION = 1;
+
+    static final byte POSITION = 1;
+    static final byte SATELLITES = 2;
+    static final byte POWER = 3;
+    static final byte SENSOR_STATE = 4;
+    static final byte IMU_STATE = 5;
+    static final byte RTK_CONNECTION_STATUS = 6;
+    static final byte SURVEY_TYPE = 7;
+    static final byte RTK_SERVICE_AVAILABLE = 8;
+    static final byte RTX_SERVICE_AVAILABLE = 9;
+    static final byte SENSOR_OUTSIDE_GEOFENCE = 10;
+    static final byte USB_CONNECTION_ERROR = 11;
+    static final byte SUBSCRIPTION_EXPIRED = 12;
+
+    // Satellite flags
+    static final int SATELLITE_ENABLED = 1;
+    static final int SATELLITE_USED = 2;
+
+    private CatalystEventLogFormat() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static int ordinal(Enum<?> value) {
+        return value != null ? value.ordinal() + 1 : 0;
+    }
+
+    static <T> T fromOrdinal(T[] values, int stored) {
+        return stored > 0 && stored <= values.length ? values[stored - 1] : null;
+    }
+}
@@ -0,0 +1,280 @@
+package trimble.jssi.android.catalystfacade;
+
+import static trimble.jssi.android.catalystfacade.CatalystEventLogFormat.*;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+import trimble.jssi.interfaces.gnss.satellites.ISatellite;
+
+/**
+ * Records the events of a {@link CatalystFacade} to a compact binary stream that
+ * {@link CatalystEventReplayer} can play back without a receiver.
+ *
+ * Register it with {@link CatalystFacade#addCatalystEventListener(ICatalystEventListener, int, OverflowPolicy)}
+ * so file writes stay off the SDK's observation thread; events are then timed from when
+ * they reached the queue.
+ * Positions are recorded with all field groups; reference frames are not recorded and
+ * replay as null. Satellites keep their system, enabled and used flags and SNR.
+ *
+ * Events are written on the thread that delivers them, into a buffer; a write error is
+ * logged once and stops the recording rather than reaching the facade.
+ */
+public final class CatalystEventRecorder implements ICatalystEventListener, IPositionRecordListener, IEnqueueTimeAware, Closeable {
+
+    public static final String FILE_EXTENSION = ".cev";
+
+    private final DataOutputStream out;
+    // Scratch for legacy onPositionUpdate calls, so both paths share one encoder
+    private final PositionRecord scratch = new PositionRecord();
+    private long lastEventNanos;
+    // Arrival time of the next event when it was queued first; 0 to take the time on delivery
+    private long nextEventNanos;
+    private boolean started;
+    private boolean failed;
+    private boolean closed;
+    private long events;
+
+    public CatalystEventRecorder(File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    public CatalystEventRecorder(OutputStream outputStream) {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+    }
+
+    /**
+     * Get the number of events recorded so far
+     * @return recorded events
+     */
+    public synchronized long getRecordedEvents() {
+        return events;
+    }
+
+    /**
+     * Get whether recording stopped because of a write error
+     * @return true if a write failed
+     */
+    public synchronized boolean hasFailed() {
+        return failed;
+    }
+
+    @Override
+    public synchronized void onPositionRecord(PositionRecord r) {
+        if (!begin(POSITION)) {
+            return;
+        }
+        try {
+            out.writeByte(ordinal(r.getSolution()));
+            out.writeByte(ordinal(r.getGroundPositionType()));
+            out.writeByte(ordinal(r.getInertialMeasurementUnitState()));
+            out.writeBoolean(r.getDatumTransformationApplied());
+            out.writeDouble(r.getLatitude());
+            out.writeDouble(r.getLongitude());
+            out.writeDouble(r.getHeight());
+            out.writeDouble(r.getElevation());
+            out.writeFloat((float) r.getHeading());
+            out.writeFloat((float) r.getHorizontalVelocity());
+            out.writeFloat((float) r.getVerticalVelocity());
+            out.writeFloat((float) r.getHPrecision());
+            out.writeFloat((float) r.getVPrecision());
+            out.writeFloat((float) r.getSigmaSemiMajorAxis());
+            out.writeFloat((float) r.getSigmaSemiMinorAxis());
+            out.writeFloat((float) r.getSigmaOrientation());
+            out.writeFloat((float) r.getPitch());
+            out.writeFloat((float) r.getRoll());
+            out.writeFloat((float) r.getYaw());
+            out.writeFloat((float) r.getPitchPrecision());
+            out.writeFloat((float) r.getRollPrecision());
+            out.writeFloat((float) r.getYawPrecision());
+            out.writeFloat((float) r.getPdop());
+            out.writeFloat((float) r.getHdop());
+            out.writeFloat((float) r.getVdop());
+            out.writeFloat((float) r.getCorrectionAge());
+            out.writeLong(r.getGpsTimeMillis());
+            out.writeLong(r.getUtcTimeMillis());
+            writeVarLong(out, r.getNumberSatellites());
+            writeVarLong(out, r.getNumberTrackedSatellites());
+            writeVarLong(out, r.getStaticEpochs());
+            writeVarLong(out, r.getReceivedCorrectionData());
+            writeVarLong(out, r.getStationId());
+            out.writeUTF(r.getGeoidModel() != null ? r.getGeoidModel() : "");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onPositionUpdate(PositionUpdate p) {
+        scratch.set(p.getSolution(), p.getLatitude(), p.getLongitude(), p.getHeight(), p.getGroundPositionType(),
+                p.getHeading(), p.getHorizontalVelocity(), p.getVerticalVelocity(), p.getHPrecision(), p.getVPrecision(),
+                p.getSigmaSemiMajorAxis(), p.getSigmaSemiMinorAxis(), p.getSigmaOrientation(), p.getInertialMeasurementUnitState(),
+                p.getPitch(), p.getRoll(), p.getYaw(), p.getPitchPrecision(), p.getRollPrecision(), p.getYawPrecision(),
+                p.getPdop(), p.getHdop(), p.getVdop(), millis(p.getGpsTime()), millis(p.getUtcTime()),
+                p.getNumberSatellites(), p.getNumberTrackedSatellites(), p.getStaticEpochs(), p.getCorrectionAge(),
+                p.getReceivedCorrectionData(), p.getStationId(), p.getDatumTransformationApplied(),
+                null, null, p.getElevation(), p.getGeoidModel());
+        onPositionRecord(scratch);
+    }
+
+    @Override
+    public synchronized void onSatelliteUpdate(SatelliteUpdate satelliteUpdate, int satellitesInView) {
+        if (!begin(SATELLITES)) {
+            return;
+        }
+        try {
+            List<ISatellite> satellites = satelliteUpdate.getSatellites();
+            writeVarLong(out, satellitesInView);
+            writeVarLong(out, satellites != null ? satellites.size() : 0);
+            if (satellites != null) {
+                for (ISatellite satellite : satellites) {
+                    out.writeChar(satellite.getSatelliteTypeChar());
+                    out.writeByte((satellite.getEnabled() ? SATELLITE_ENABLED : 0) | (satellite.getUsed() ? SATELLITE_USED : 0));
+                    out.writeFloat((float) satellite.getSNR1());
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onPowerUpdate(PowerSourceState powerSourceState) {
+        if (!begin(POWER)) {
+            return;
+        }
+        try {
+            out.writeInt(powerSourceState.getBatteryLevel());
+            out.writeBoolean(powerSourceState.isCharging());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onSensorStateChanged(SensorStateEvent sensorStateEvent) {
+        writeEnum(SENSOR_STATE, sensorStateEvent.getSensorState());
+    }
+
+    @Override
+    public synchronized void onImuStateChanged(ImuStateEvent imuStateEvent) {
+        writeEnum(IMU_STATE, imuStateEvent.getImuState());
+    }
+
+    @Override
+    public synchronized void onRtkConnectionStatusUpdate(RtkConnectionStatus rtkConnectionStatus) {
+        writeEnum(RTK_CONNECTION_STATUS, rtkConnectionStatus);
+    }
+
+    @Override
+    public synchronized void onSurveyTypeUpdate(SurveyType surveyType) {
+        writeEnum(SURVEY_TYPE, surveyType);
+    }
+
+    @Override
+    public synchronized void onRtkServiceAvailable() {
+        begin(RTK_SERVICE_AVAILABLE);
+    }
+
+    @Override
+    public synchronized void onRtxServiceAvailable() {
+        begin(RTX_SERVICE_AVAILABLE);
+    }
+
+    @Override
+    public synchronized void onSensorOutsideGeofence() {
+        begin(SENSOR_OUTSIDE_GEOFENCE);
+    }
+
+    @Override
+    public synchronized void onUsbConnectionErrorOccured() {
+        begin(USB_CONNECTION_ERROR);
+    }
+
+    @Override
+    public synchronized void onSubscriptionHasExpired() {
+        begin(SUBSCRIPTION_EXPIRED);
+    }
+
+    /**
+     * Writes out buffered events.
+     */
+    public synchronized void flush() {
+        if (closed || failed) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        out.close();
+    }
+
+    // Keep the spacing the events arrived with, not the one they were delivered with
+    @Override
+    public synchronized void stampNextEvent(long enqueuedNanos) {
+        nextEventNanos = enqueuedNanos;
+    }
+
+    // Writes the header on first use and the type and time of an event; false if not recording
+    private boolean begin(byte type) {
+        if (closed || failed) {
+            return false;
+        }
+        try {
+            long now = nextEventNanos != 0 ? nextEventNanos : System.nanoTime();
+            nextEventNanos = 0;
+            if (!started) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                lastEventNanos = now;
+                started = true;
+            }
+            out.writeByte(type);
+            writeVarLong(out, now - lastEventNanos);
+            lastEventNanos = now;
+            events++;
+            return true;
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    private void writeEnum(byte type, Enum<?> value) {
+        if (!begin(type)) {
+            return;
+        }
+        try {
+            out.writeByte(ordinal(value));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        android.util.Log.e(CatalystFacade.TAG, "CatalystEventRecorder: recording stopped after " + events + " events", e);
+    }
+
+    private static long millis(Date date) {
+        return date != null ? date.getTime() : 0L;
+    }
+}
@@ -0,0 +1,270 @@
+package trimble.jssi.android.catalystfacade;
+
+import static trimble.jssi.android.catalystfacade.CatalystEventLogFormat.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import trimble.jssi.connection.ConnectionState;
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType;
+import trimble.jssi.interfaces.gnss.positioning.SolutionType;
+import trimble.jssi.interfaces.gnss.satellites.ISatellite;
+
+/**
+ * Plays a stream recorded by {@link CatalystEventRecorder} into an {@link ICatalystEventListener},
+ * the way {@link CatalystFacade} would deliver it: a listener that implements
+ * {@link IPositionRecordListener} gets one reused {@link PositionRecord}, others a new
+ * {@link PositionUpdate} per epoch.
+ *
+ * Events are paced by their recorded spacing divided by the speed; {@link #MAX_SPEED}
+ * delivers them back to back. {@link #replay(ICatalystEventListener, double)} runs on the
+ * calling thread until the end of the stream or {@link #stop()}.
+ */
+public final class CatalystEventReplayer {
+
+    /** Original timing */
+    public static final double ORIGINAL_SPEED = 1.0;
+    /** No pacing; as fast as the listener takes the events */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private final File file;
+    private final PositionRecord positionRecord = new PositionRecord();
+    private volatile boolean stopped;
+    private volatile long replayedEvents;
+    private volatile long maxLagNanos;
+    private long recordingStartMillis;
+
+    public CatalystEventReplayer(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the number of events delivered by the current or last replay
+     * @return replayed events
+     */
+    public long getReplayedEvents() {
+        return replayedEvents;
+    }
+
+    /**
+     * Get the largest delay of an event behind its paced time, i.e. how far the listener fell behind
+     * @return max lag in nanoseconds
+     */
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    /**
+     * Get the wall clock time at which the recording started
+     * @return time in milliseconds, valid once replay has started
+     */
+    public long getRecordingStartMillis() {
+        return recordingStartMillis;
+    }
+
+    /**
+     * Ends a running replay after the event being delivered.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Delivers the recorded events to {@code listener}.
+     * @param listener listener to drive
+     * @param speed playback speed; {@link #ORIGINAL_SPEED}, a factor above 1 to accelerate, or {@link #MAX_SPEED}
+     * @return number of events delivered
+     */
+    public long replay(ICatalystEventListener listener, double speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        stopped = false;
+        replayedEvents = 0;
+        maxLagNanos = 0;
+        try (InputStream stream = new FileInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + ": not a Catalyst event recording");
+            }
+            recordingStartMillis = in.readLong();
+
+            boolean paced = speed != MAX_SPEED;
+            long startNanos = System.nanoTime();
+            long recordedNanos = 0;
+            while (!stopped) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                recordedNanos += readVarLong(in);
+                if (paced) {
+                    long due = startNanos + (long) (recordedNanos / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    } else if (-wait > maxLagNanos) {
+                        maxLagNanos = -wait;
+                    }
+                }
+                dispatch((byte) type, in, listener);
+                replayedEvents++;
+            }
+        } catch (EOFException e) {
+            // Recording cut short, e.g. the app died before the recorder was closed
+        }
+        return replayedEvents;
+    }
+
+    private void dispatch(byte type, DataInputStream in, ICatalystEventListener listener) throws IOException {
+        switch (type) {
+            case POSITION:
+                readPosition(in);
+                if (listener instanceof IPositionRecordListener) {
+                    ((IPositionRecordListener) listener).onPositionRecord(positionRecord);
+                } else {
+                    listener.onPositionUpdate(positionRecord.toPositionUpdate(this));
+                }
+                break;
+            case SATELLITES:
+                int satellitesInView = (int) readVarLong(in);
+                int count = (int) readVarLong(in);
+                List<ISatellite> satellites = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    char typeChar = in.readChar();
+                    int flags = in.readUnsignedByte();
+                    float snr = in.readFloat();
+                    satellites.add(recordedSatellite(typeChar, (flags & SATELLITE_ENABLED) != 0, (flags & SATELLITE_USED) != 0, snr));
+                }
+                listener.onSatelliteUpdate(new SatelliteUpdate(this, satellites), satellitesInView);
+                break;
+            case POWER:
+                int batteryLevel = in.readInt();
+                listener.onPowerUpdate(new PowerSourceState(batteryLevel, in.readBoolean()));
+                break;
+            case SENSOR_STATE:
+                listener.onSensorStateChanged(new SensorStateEvent(this, fromOrdinal(ConnectionState.values(), in.readUnsignedByte())));
+                break;
+            case IMU_STATE:
+                listener.onImuStateChanged(new ImuStateEvent(this, fromOrdinal(ImuState.values(), in.readUnsignedByte())));
+                break;
+            case RTK_CONNECTION_STATUS:
+                listener.onRtkConnectionStatusUpdate(fromOrdinal(RtkConnectionStatus.values(), in.readUnsignedByte()));
+                break;
+            case SURVEY_TYPE:
+                listener.onSurveyTypeUpdate(fromOrdinal(SurveyType.values(), in.readUnsignedByte()));
+                break;
+            case RTK_SERVICE_AVAILABLE:
+                listener.onRtkServiceAvailable();
+                break;
+            case RTX_SERVICE_AVAILABLE:
+                listener.onRtxServiceAvailable();
+                break;
+            case SENSOR_OUTSIDE_GEOFENCE:
+                listener.onSensorOutsideGeofence();
+                break;
+            case USB_CONNECTION_ERROR:
+                listener.onUsbConnectionErrorOccured();
+                break;
+            case SUBSCRIPTION_EXPIRED:
+                listener.onSubscriptionHasExpired();
+                break;
+            default:
+                throw new IOException(file + ": unknown event type " + type);
+        }
+    }
+
+    private void readPosition(DataInputStream in) throws IOException {
+        SolutionType solution = fromOrdinal(SolutionType.values(), in.readUnsignedByte());
+        GroundPositionType groundPositionType = fromOrdinal(GroundPositionType.values(), in.readUnsignedByte());
+        ImuState imuState = fromOrdinal(ImuState.values(), in.readUnsignedByte());
+        boolean datumTransformationApplied = in.readBoolean();
+        double latitude = in.readDouble();
+        double longitude = in.readDouble();
+        double height = in.readDouble();
+        double elevation = in.readDouble();
+        double heading = in.readFloat();
+        double horizontalVelocity = in.readFloat();
+        double verticalVelocity = in.readFloat();
+        double hPrecision = in.readFloat();
+        double vPrecision = in.readFloat();
+        double sigmaSemiMajorAxis = in.readFloat();
+        double sigmaSemiMinorAxis = in.readFloat();
+        double sigmaOrientation = in.readFloat();
+        double pitch = in.readFloat();
+        double roll = in.readFloat();
+        double yaw = in.readFloat();
+        double pitchPrecision = in.readFloat();
+        double rollPrecision = in.readFloat();
+        double yawPrecision = in.readFloat();
+        double pdop = in.readFloat();
+        double hdop = in.readFloat();
+        double vdop = in.readFloat();
+        double correctionAge = in.readFloat();
+        long gpsTimeMillis = in.readLong();
+        long utcTimeMillis = in.readLong();
+        int numberSatellites = (int) readVarLong(in);
+        int numberTrackedSatellites = (int) readVarLong(in);
+        int staticEpochs = (int) readVarLong(in);
+        long receivedCorrectionData = readVarLong(in);
+        int stationId = (int) readVarLong(in);
+        String geoidModel = in.readUTF();
+        positionRecord.set(solution, latitude, longitude, height, groundPositionType, heading, horizontalVelocity,
+                verticalVelocity, hPrecision, vPrecision, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, imuState,
+                pitch, roll, yaw, pitchPrecision, rollPrecision, yawPrecision, pdop, hdop, vdop, gpsTimeMillis, utcTimeMillis,
+                numberSatellites, numberTrackedSatellites, staticEpochs, correctionAge, receivedCorrectionData, stationId,
+                datumTransformationApplied, null, null, elevation, geoidModel);
+    }
+
+    // ISatellite belongs to the SDK; a proxy answers the getters the recorder keeps and zero/null otherwise
+    private static ISatellite recordedSatellite(char typeChar, boolean enabled, boolean used, float snr) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Class<?> returnType = method.getReturnType();
+                switch (method.getName()) {
+                    case "getSatelliteTypeChar":
+                        return typeChar;
+                    case "getEnabled":
+                        return enabled;
+                    case "getUsed":
+                        return used;
+                    case "getSNR1":
+                        return number(returnType, snr);
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "RecordedSatellite[" + typeChar + ", snr=" + snr + "]";
+                    default:
+                        return returnType.isPrimitive() ? number(returnType, 0) : null;
+                }
+            }
+        };
+        return (ISatellite) Proxy.newProxyInstance(ISatellite.class.getClassLoader(), new Class<?>[] { ISatellite.class }, handler);
+    }
+
+    private static Object number(Class<?> type, double value) {
+        if (type == double.class) return value;
+        if (type == float.class) return (float) value;
+        if (type == long.class) return (long) value;
+        if (type == int.class) return (int) value;
+        if (type == short.class) return (short) value;
+        if (type == byte.class) return (byte) value;
+        if (type == char.class) return (char) value;
+        if (type == boolean.class) return value != 0;
+        return null;
+    }
+}
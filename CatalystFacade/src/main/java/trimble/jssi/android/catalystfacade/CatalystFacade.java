@@ -12,12 +12,13 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import trimble.jssi.android.communicators.ASerialCommunicator;
 import trimble.jssi.android.communicators.BluetoothCommunicator;
@@ -52,7 +53,6 @@ import trimble.jssi.interfaces.SsiException;
 import trimble.jssi.interfaces.SsiInterfaceType;
 import trimble.jssi.interfaces.USBConnectionException;
 import trimble.jssi.interfaces.optioncode.ISsiOptionCode;
-import trimble.jssi.interfaces.gnss.Coordinates;
 import trimble.jssi.interfaces.gnss.PositionRate;
 import trimble.jssi.interfaces.gnss.antenna.AntennaHeightConfiguration;
 import trimble.jssi.interfaces.gnss.antenna.AntennaType;
@@ -62,7 +62,6 @@ import trimble.jssi.interfaces.gnss.inertialnavigation.ISsiInertialNavigation;
 import trimble.jssi.interfaces.gnss.inertialnavigation.InertialNavigationMode;
 import trimble.jssi.interfaces.gnss.positioning.GNSSObservationContainer;
 import trimble.jssi.interfaces.gnss.positioning.GNSSObservationType;
-import trimble.jssi.interfaces.gnss.positioning.IMUAlignmentStatus;
 import trimble.jssi.interfaces.gnss.positioning.IPositionListener;
 import trimble.jssi.interfaces.gnss.positioning.IPositioningParameter;
 import trimble.jssi.interfaces.gnss.positioning.IPositioningParameterMotionState;
@@ -73,7 +72,6 @@ import trimble.jssi.interfaces.gnss.positioning.MotionState;
 import trimble.jssi.interfaces.gnss.positioning.PositioningObservationEvent;
 import trimble.jssi.interfaces.gnss.positioning.PositioningParameterType;
 import trimble.jssi.interfaces.gnss.positioning.PositioningSettings;
-import trimble.jssi.interfaces.gnss.positioning.RTKErrorStatus;
 import trimble.jssi.interfaces.gnss.positioning.RTKProgressStatus;
 import trimble.jssi.interfaces.gnss.positioning.SolutionType;
 import trimble.jssi.interfaces.gnss.positioning.GroundPositionType;
@@ -146,7 +144,12 @@ public class CatalystFacade {
     private double reducedAntennaHeight = 0.0;
     private long receivedCorrectionData = 0;
     private int stationId = 0;
-    private final ArrayList<ICatalystEventListener> catalystEventListeners = new ArrayList<>();
+    // Copy-on-write so the trigger methods iterate a snapshot without locking
+    private final CopyOnWriteArrayList<ICatalystEventListener> catalystEventListeners = new CopyOnWriteArrayList<>();
+    // Decodes the union of the PositionFieldGroups the listeners read; recomputed when listeners change
+    private final PositionObservationDecoder positionDecoder = new PositionObservationDecoder();
+    // Reused for every epoch; see IPositionRecordListener
+    private final PositionRecord positionRecord = new PositionRecord();
     private final String appGuid;
     private final Context context;
     private IDriverManager driverManager;
@@ -763,17 +766,85 @@ public class CatalystFacade {
         return new ReturnCode(DriverReturnCode.Success);
     }
 
+    /**
+     * Adds a listener that is called directly on the SDK's observation thread.
+     * @param catalystEventListener listener
+     */
     public void addCatalystEventListener(ICatalystEventListener catalystEventListener) {
         synchronized (catalystEventListeners) {
-            if (!catalystEventListeners.contains(catalystEventListener))
-                catalystEventListeners.add(catalystEventListener);
+            catalystEventListeners.addIfAbsent(catalystEventListener);
+            updatePositionFieldMask();
+        }
+    }
+
+    /**
+     * Adds a listener that is called on its own thread through a bounded queue, so a slow
+     * listener neither stalls the SDK nor the other listeners.
+     * @param catalystEventListener listener
+     * @param queueCapacity maximum number of events waiting for the listener
+     * @param overflowPolicy what to do when the queue is full
+     * @return the dispatcher, for queue depth and lag metrics
+     */
+    public AsyncCatalystEventListener addCatalystEventListener(ICatalystEventListener catalystEventListener, int queueCapacity,
+                                                               OverflowPolicy overflowPolicy) {
+        return addCatalystEventListener(catalystEventListener, queueCapacity, overflowPolicy, null);
+    }
+
+    /**
+     * Same as {@link #addCatalystEventListener(ICatalystEventListener, int, OverflowPolicy)}, delivering on
+     * the given executor instead of a dedicated thread. Events are still delivered one at a time, in order.
+     * @param catalystEventListener listener
+     * @param queueCapacity maximum number of events waiting for the listener
+     * @param overflowPolicy what to do when the queue is full
+     * @param executor executor to deliver on, or null for a dedicated thread
+     * @return the dispatcher, for queue depth and lag metrics
+     */
+    public AsyncCatalystEventListener addCatalystEventListener(ICatalystEventListener catalystEventListener, int queueCapacity,
+                                                               OverflowPolicy overflowPolicy, Executor executor) {
+        synchronized (catalystEventListeners) {
+            for (ICatalystEventListener registered : catalystEventListeners) {
+                if (registered instanceof AsyncCatalystEventListener
+                        && ((AsyncCatalystEventListener) registered).getListener() == catalystEventListener) {
+                    return (AsyncCatalystEventListener) registered;
+                }
+            }
+            AsyncCatalystEventListener asyncListener =
+                    new AsyncCatalystEventListener(catalystEventListener, this, queueCapacity, overflowPolicy, executor);
+            catalystEventListeners.add(asyncListener);
+            updatePositionFieldMask();
+            return asyncListener;
         }
     }
 
+    /**
+     * Removes a listener added by any of the addCatalystEventListener overloads.
+     * @param catalystEventListener listener
+     */
     public void removeCatalystEventListener(ICatalystEventListener catalystEventListener) {
         synchronized (catalystEventListeners) {
-            catalystEventListeners.remove(catalystEventListener);
+            for (ICatalystEventListener registered : catalystEventListeners) {
+                if (registered == catalystEventListener) {
+                    catalystEventListeners.remove(registered);
+                } else if (registered instanceof AsyncCatalystEventListener
+                        && ((AsyncCatalystEventListener) registered).getListener() == catalystEventListener) {
+                    catalystEventListeners.remove(registered);
+                    ((AsyncCatalystEventListener) registered).close();
+                }
+            }
+            updatePositionFieldMask();
+        }
+    }
+
+    private void updatePositionFieldMask() {
+        int mask = 0;
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            if (catalystEventListener instanceof IPositionFieldSubscriber) {
+                mask |= PositionFieldGroup.maskOf(((IPositionFieldSubscriber) catalystEventListener).getPositionFieldGroups());
+            } else {
+                mask = PositionFieldGroup.ALL;
+            }
         }
+        positionDecoder.setMask(mask);
     }
 
     private void subscribeSensorEvents() {
@@ -925,189 +996,13 @@ public class CatalystFacade {
         @Override
         public void onPostitionObservation(PositioningObservationEvent positioningObservationEvent) {
             GNSSObservationContainer obs = positioningObservationEvent.getObservationContainer();
-           
-            // Solution type
-            SolutionType solutionType = SolutionType.Autonomous;
-            if (obs.hasObservation(GNSSObservationType.SolutionType))
-            {
-              solutionType = obs.getObservation(GNSSObservationType.SolutionType).getSolutionType();
-            }
-
-            double latitude = Double.NaN;
-            double longitude = Double.NaN;
-            double height = Double.NaN;
-            double elevation = Double.NaN;
-            String geoidModel = "";
-            GroundPositionType groundPositionType = GroundPositionType.Init;
-
-            if (obs.hasObservation(GNSSObservationType.GroundCoordinate)) {
-                Coordinates coordinates = obs.getObservation(GNSSObservationType.GroundCoordinate).getCoordinates();
-                latitude = coordinates.getLatitude();
-                longitude = coordinates.getLongitude();
-                height = coordinates.getHeight();
-                groundPositionType = obs.getObservation(GNSSObservationType.GroundCoordinate).getGroundPositionType();
-            }
-            else if (obs.hasObservation(GNSSObservationType.Coordinate)) {
-                Coordinates coordinates = obs.getObservation(GNSSObservationType.Coordinate).getCoordinates();
-                latitude = coordinates.getLatitude();
-                longitude = coordinates.getLongitude();
-                height = coordinates.getHeight();
-            }
-
-            if (obs.hasObservation(GNSSObservationType.GeoidUndulation)) {
-                double N = obs.getObservation(GNSSObservationType.GeoidUndulation).getDeviation();
-                if( !Double.isNaN(height) && !Double.isNaN(N))
-                {
-                    elevation = height - N;
-                    geoidModel = obs.getObservation(GNSSObservationType.GeoidUndulation).getGeoidModel();
+            synchronized (positionRecord) {
+                if (positionDecoder.decode(obs, positionRecord, receivedCorrectionData, stationId)) {
+                    triggerSensorOutsideGeofence();
                 }
+                dispatchPositionRecord();
             }
 
-
-            double heading = Double.NaN;
-            double horizontalVelocity = Double.NaN;
-            double verticalVelocity = Double.NaN;
-
-            if (obs.hasObservation(GNSSObservationType.Velocity)) {
-                heading = obs.getObservation(GNSSObservationType.Velocity).getHeading();
-                horizontalVelocity = obs.getObservation(GNSSObservationType.Velocity).getHorizontal();
-                verticalVelocity = obs.getObservation(GNSSObservationType.Velocity).getVertical();
-            }
-
-            double haPrec = Double.NaN;
-            double vaPrec = Double.NaN;
-
-            if (obs.hasObservation(GNSSObservationType.Precision)) {
-                haPrec = obs.getObservation(GNSSObservationType.Precision).getHorizontalPrecision();
-                vaPrec = obs.getObservation(GNSSObservationType.Precision).getVerticalPrecision();
-            }
-
-            double sigmaSemiMajorAxis = Double.NaN;
-            double sigmaSemiMinorAxis = Double.NaN;
-            double sigmaOrientation = Double.NaN;
-
-            if (obs.hasObservation(GNSSObservationType.PositionSigma)) {
-                sigmaSemiMajorAxis = obs.getObservation(GNSSObservationType.PositionSigma).getSemiMajorAxis();
-                sigmaSemiMinorAxis = obs.getObservation(GNSSObservationType.PositionSigma).getSemiMinorAxis();
-                sigmaOrientation = obs.getObservation(GNSSObservationType.PositionSigma).getOrientation();
-            }
-
-            double Pdop = Double.NaN;
-            double Hdop = Double.NaN;
-            double Vdop = Double.NaN;
-
-            if (obs.hasObservation(GNSSObservationType.DilutionOfPrecision)) {
-                Pdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getPDOP();
-                Hdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getHDOP();
-                Vdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getVDOP();
-            } else if (obs.hasObservation(GNSSObservationType.ExtendedDilutionOfPrecision)) {
-                Pdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getPDOP();
-                Hdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getHDOP();
-                Vdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getVDOP();
-            }
-
-            double pitch = Double.NaN;
-            double roll = Double.NaN;
-            double yaw = Double.NaN;
-            double pitchPrecision = Double.NaN;
-            double rollPrecision = Double.NaN;
-            double yawPrecision = Double.NaN;
-
-            if (obs.hasObservation (GNSSObservationType.Tilt))
-            {
-                pitch = obs.getObservation(GNSSObservationType.Tilt).getPitch();
-                roll = obs.getObservation(GNSSObservationType.Tilt).getRoll();
-                yaw = obs.getObservation(GNSSObservationType.Tilt).getYaw();
-
-                if (obs.hasObservation(GNSSObservationType.TiltPrecision))
-                {
-                    pitchPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getPitchPrecision();
-                    rollPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getRollPrecision();
-                    yawPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getYawPrecision();
-                }
-            }
-
-            int numberOfSatellites = 0;
-            int numberOfTrackedSatellites = 0;
-            if (obs.hasObservation(GNSSObservationType.Satellites)) {
-                numberOfSatellites = obs.getObservation(GNSSObservationType.Satellites).getNumberOfSatellites();
-                numberOfTrackedSatellites = obs.getObservation(GNSSObservationType.Satellites).getNumberOfTrackedSatellites();
-            }
-
-            double age = Double.NaN;
-            if (obs.hasObservation(GNSSObservationType.CorrectionAge)) {
-                age = obs.getObservation(GNSSObservationType.CorrectionAge).getAge().getTotalSeconds();
-            }
-
-            boolean datumTransformationApplied = obs.hasObservation(GNSSObservationType.ReferenceSource);
-
-            IReferenceSystem sourceFrame = null;
-
-            if (obs.hasObservation(GNSSObservationType.ReferenceSource)) {
-                sourceFrame = obs.getObservation(GNSSObservationType.ReferenceSource).getReferenceSystem();
-            }
-
-            IReferenceSystem frame = null;
-
-            if (obs.hasObservation(GNSSObservationType.ReferenceSystem)) {
-                frame = obs.getObservation(GNSSObservationType.ReferenceSystem).getReferenceSystem();
-            }
-
-            Date gpsTime = new Date(0);
-            Date utcTime = new Date(0);
-            if (obs.hasObservation(GNSSObservationType.GPSTime)) {
-                gpsTime = obs.getObservation(GNSSObservationType.GPSTime).getGpsTime();
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(gpsTime);
-                cal.add(Calendar.SECOND, -obs.getObservation(GNSSObservationType.GPSTime).getGpsUtcOffset());
-                utcTime = cal.getTime();
-            }
-
-            int staticEpochs = 0;
-            if (obs.hasObservation(GNSSObservationType.Epoch))
-            {
-                staticEpochs = obs.getObservation(GNSSObservationType.Epoch).getEpoch();
-            }
-
-            ImuState imuState = ImuState.NotAvailable;
-
-            if (obs.hasObservation(GNSSObservationType.RTKStatus)) {
-                RTKErrorStatus error = obs.getObservation(GNSSObservationType.RTKStatus).getRTKErrorStatus();
-                switch (error)
-                {
-                    case NoRTXOffshore:
-                        triggerSensorOutsideGeofence();
-                        break;
-                    case ImuError:
-                        imuState = ImuState.ErrorHasBeenDetected;
-                        break;
-                    case ImuExcessiveBias:
-                        imuState = ImuState.ExcessiveBiasHasBeenDetected;
-                        break;
-                }
-            }
-
-            if(imuState == ImuState.NotAvailable) {
-                if(obs.hasObservation(GNSSObservationType.IMUAlignmentStatus)) {
-                    IMUAlignmentStatus imu = obs.getObservation(GNSSObservationType.IMUAlignmentStatus).getAlignmentStatus();
-                    switch (imu) {
-                        case Fine:
-                            imuState = ImuState.Running;
-                            break;
-                        case Unaligned:
-                        case Coarse:
-                            imuState = ImuState.NeedsMovement;
-                            break;
-                    }
-                }
-            }
-
-            triggerPositionUpdate(solutionType, latitude, longitude, height, groundPositionType, heading, horizontalVelocity, verticalVelocity, haPrec, vaPrec,
-                    sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, imuState, pitch, roll, yaw,
-                    pitchPrecision, rollPrecision, yawPrecision, Pdop, Hdop, Vdop,
-                    gpsTime, utcTime, numberOfSatellites, numberOfTrackedSatellites, staticEpochs, age, CatalystFacade.this.receivedCorrectionData, CatalystFacade.this.stationId,
-                    datumTransformationApplied, sourceFrame, frame, elevation, geoidModel);
-
             if (obs.hasObservation(GNSSObservationType.RTKProgress)) {
                 RTKProgressStatus status = obs.getObservation(GNSSObservationType.RTKProgress).getRTKProgressStatus();
                 if(status == RTKProgressStatus.RtkAvailable || status == RTKProgressStatus.RtxAvailable) {
@@ -1852,55 +1747,80 @@ public class CatalystFacade {
 										 boolean datumTransformationApplied, IReferenceSystem sourceFrame, IReferenceSystem targetFrame,
 										 double elevation, String geoidModel) {
 
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onPositionUpdate(new PositionUpdate(this, solutionType, l, g, h, groundPositionType, heading, horizontalVelocity,
-                        verticalVelocity, haPrec, vaPrec, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, inertialMeasurementUnitState, pitch, roll, yaw,
-                        pitchPrecision, rollPrecision, yawPrecision, pdop, hdop, vdop, gpsTime, utcTime,
-                        numberOfSatellites, numberTrackedSatellites, staticEpochs, age, receivedCorrectionData, stationId,
-                        datumTransformationApplied, sourceFrame, targetFrame,  elevation, geoidModel));
+        triggerPositionRecord(solutionType, l, g, h, groundPositionType, heading, horizontalVelocity,
+                verticalVelocity, haPrec, vaPrec, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, inertialMeasurementUnitState, pitch, roll, yaw,
+                pitchPrecision, rollPrecision, yawPrecision, pdop, hdop, vdop, gpsTime.getTime(), utcTime.getTime(),
+                numberOfSatellites, numberTrackedSatellites, staticEpochs, age, receivedCorrectionData, stationId,
+                datumTransformationApplied, sourceFrame, targetFrame, elevation, geoidModel);
+    }
+
+    /**
+     * Fills the shared {@link PositionRecord} and hands it to every listener.
+     * {@link IPositionRecordListener}s get the record itself; the others share one
+     * {@link PositionUpdate}, created only if at least one of them is registered.
+     */
+    protected void triggerPositionRecord(SolutionType solutionType, double l, double g, double h, GroundPositionType groundPositionType, double heading, double horizontalVelocity,
+                                         double verticalVelocity, double haPrec, double vaPrec, double sigmaSemiMajorAxis, double sigmaSemiMinorAxis, double sigmaOrientation,
+                                         ImuState inertialMeasurementUnitState, double pitch, double roll, double yaw, double pitchPrecision, double rollPrecision, double yawPrecision,
+                                         double pdop, double hdop, double vdop, long gpsTime, long utcTime, int numberOfSatellites, int numberTrackedSatellites,
+                                         int staticEpochs, double age, long receivedCorrectionData, int stationId,
+                                         boolean datumTransformationApplied, IReferenceSystem sourceFrame, IReferenceSystem targetFrame,
+                                         double elevation, String geoidModel) {
+
+        // The record is shared across epochs; the lock only matters if a subclass triggers from another thread
+        synchronized (positionRecord) {
+            positionRecord.set(solutionType, l, g, h, groundPositionType, heading, horizontalVelocity,
+                    verticalVelocity, haPrec, vaPrec, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, inertialMeasurementUnitState, pitch, roll, yaw,
+                    pitchPrecision, rollPrecision, yawPrecision, pdop, hdop, vdop, gpsTime, utcTime,
+                    numberOfSatellites, numberTrackedSatellites, staticEpochs, age, receivedCorrectionData, stationId,
+                    datumTransformationApplied, sourceFrame, targetFrame, elevation, geoidModel);
+            dispatchPositionRecord();
+        }
+    }
+
+    // Call with the positionRecord lock held
+    private void dispatchPositionRecord() {
+        // PositionUpdate is immutable, so one instance can serve every legacy listener
+        PositionUpdate positionUpdate = null;
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            if (catalystEventListener instanceof IPositionRecordListener) {
+                ((IPositionRecordListener) catalystEventListener).onPositionRecord(positionRecord);
+            } else {
+                if (positionUpdate == null) {
+                    positionUpdate = positionRecord.toPositionUpdate(this);
+                }
+                catalystEventListener.onPositionUpdate(positionUpdate);
             }
         }
-
     }
 
     protected void triggerSensorOutsideGeofence() {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onSensorOutsideGeofence();
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onSensorOutsideGeofence();
         }
     }
 
     protected void triggerRtkServiceAvailable() {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onRtkServiceAvailable();
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onRtkServiceAvailable();
         }
     }
 
     protected void triggerSurveyTypeUpdate(SurveyType surveyType) {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onSurveyTypeUpdate(surveyType);
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onSurveyTypeUpdate(surveyType);
         }
     }
 
     protected void triggerRtxServiceAvailable() {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onRtxServiceAvailable();
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onRtxServiceAvailable();
         }
     }
 
     protected void triggerSatelliteUpdate(List<ISatellite> satellites, int satellitesInView) {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onSatelliteUpdate(new SatelliteUpdate(this, satellites), satellitesInView);
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onSatelliteUpdate(new SatelliteUpdate(this, satellites), satellitesInView);
         }
     }
 
@@ -1934,36 +1854,28 @@ public class CatalystFacade {
             };
 
     protected void triggerRtkConnectionStatusUpdate(GPRSNTRIPStartStatus gprsntripStartStatus) {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onRtkConnectionStatusUpdate(rtkConnectionStatusMap.mapKeyToValue(gprsntripStartStatus));
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onRtkConnectionStatusUpdate(rtkConnectionStatusMap.mapKeyToValue(gprsntripStartStatus));
         }
     }
 
     protected void triggerStateChanged(ConnectionState connectionState) {
 
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onSensorStateChanged(new SensorStateEvent(this, connectionState));
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onSensorStateChanged(new SensorStateEvent(this, connectionState));
         }
     }
 
     protected void triggerUsbConnectionErrorOccured() {
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onUsbConnectionErrorOccured();
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onUsbConnectionErrorOccured();
         }
     }
 
     protected void triggerSubscriptionHasExpired() {
 
-        synchronized (catalystEventListeners) {
-            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                catalystEventListener.onSubscriptionHasExpired();
-            }
+        for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+            catalystEventListener.onSubscriptionHasExpired();
         }
     }
 
@@ -1985,10 +1897,8 @@ public class CatalystFacade {
         }
 
         if (state != null) {
-            synchronized (catalystEventListeners) {
-                for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
-                    catalystEventListener.onPowerUpdate(state);
-                }
+            for (ICatalystEventListener catalystEventListener : catalystEventListeners) {
+                catalystEventListener.onPowerUpdate(state);
             }
         }
     }
@@ -0,0 +1,16 @@
+package trimble.jssi.android.catalystfacade;
+
+/**
+ * Optional extension of {@link ICatalystEventListener} for listeners that care when an event
+ * was raised rather than when it reached them. When such a listener is registered with a
+ * queue, {@link AsyncCatalystEventListener} passes the time each event was queued just
+ * before delivering it.
+ */
+public interface IEnqueueTimeAware {
+
+    /**
+     * Called on the delivering thread right before the next event callback
+     * @param enqueuedNanos {@link System#nanoTime()} when that event was queued
+     */
+    void stampNextEvent(long enqueuedNanos);
+}
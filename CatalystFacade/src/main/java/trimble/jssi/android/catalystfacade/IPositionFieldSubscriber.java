@@ -0,0 +1,19 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.util.Set;
+
+/**
+ * Optional extension of {@link ICatalystEventListener} that narrows what is decoded per epoch.
+ *
+ * The facade decodes the union of the groups declared by its listeners; a listener that does
+ * not implement this interface counts as wanting every group. The groups are read when the
+ * listener is added, so re-add it to change them.
+ */
+public interface IPositionFieldSubscriber {
+
+    /**
+     * Get the position fields this listener reads
+     * @return field groups to decode
+     */
+    Set<PositionFieldGroup> getPositionFieldGroups();
+}
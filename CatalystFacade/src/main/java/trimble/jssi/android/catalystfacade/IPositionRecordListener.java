@@ -0,0 +1,18 @@
+package trimble.jssi.android.catalystfacade;
+
+/**
+ * Optional extension of {@link ICatalystEventListener} for allocation-free position updates.
+ *
+ * A listener that also implements this interface gets {@link #onPositionRecord(PositionRecord)}
+ * instead of {@link ICatalystEventListener#onPositionUpdate(PositionUpdate)}. The record is
+ * shared by all such listeners and reused for the next epoch, so it must not be modified
+ * and must be copied if it is kept after the callback returns.
+ */
+public interface IPositionRecordListener {
+
+    /**
+     * Triggered on new position update
+     * @param positionRecord Position Record, valid only during this call
+     */
+    void onPositionRecord(PositionRecord positionRecord);
+}
@@ -0,0 +1,20 @@
+package trimble.jssi.android.catalystfacade;
+
+/**
+ * What an {@link AsyncCatalystEventListener} does when an event arrives and its queue is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued event to make room.
+     */
+    DropOldest,
+    /**
+     * Overwrite the newest queued event of the same kind (e.g. the previous position
+     * with the new one); falls back to {@link #DropOldest} when there is none.
+     */
+    CoalesceLatest,
+    /**
+     * Wait on the caller's (the SDK's) thread until the listener catches up.
+     */
+    Block
+}
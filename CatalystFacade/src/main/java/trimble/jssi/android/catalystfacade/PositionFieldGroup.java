@@ -0,0 +1,50 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.util.Collection;
+
+/**
+ * Groups of {@link PositionUpdate} / {@link PositionRecord} fields that are decoded
+ * from each observation only if some listener asks for them (see {@link IPositionFieldSubscriber}).
+ * Solution type and latitude/longitude/height are always decoded; fields of a group
+ * nobody asked for keep their defaults (NaN, 0, null).
+ */
+public enum PositionFieldGroup {
+    /** Elevation and geoid model */
+    Elevation,
+    /** Heading, horizontal and vertical velocity */
+    Velocity,
+    /** Horizontal and vertical precision */
+    Precision,
+    /** Error ellipse semi-major/minor axis and orientation */
+    PositionSigma,
+    /** PDOP, HDOP, VDOP */
+    DilutionOfPrecision,
+    /** Pitch, roll, yaw and their precisions */
+    Tilt,
+    /** Number of used and tracked satellites */
+    Satellites,
+    /** Age of corrections */
+    CorrectionAge,
+    /** Datum transformation flag, source and target reference frames */
+    ReferenceFrames,
+    /** GPS and UTC time */
+    Time,
+    /** Static epoch counter */
+    StaticEpochs,
+    /** IMU state from the alignment status */
+    Imu;
+
+    static final int ALL = (1 << values().length) - 1;
+
+    int bit() {
+        return 1 << ordinal();
+    }
+
+    static int maskOf(Collection<PositionFieldGroup> groups) {
+        int mask = 0;
+        for (PositionFieldGroup group : groups) {
+            mask |= group.bit();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,232 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.util.Collection;
+import trimble.jssi.interfaces.gnss.Coordinates;
+import trimble.jssi.interfaces.gnss.positioning.GNSSObservationContainer;
+import trimble.jssi.interfaces.gnss.positioning.GNSSObservationType;
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType;
+import trimble.jssi.interfaces.gnss.positioning.IMUAlignmentStatus;
+import trimble.jssi.interfaces.gnss.positioning.IReferenceSystem;
+import trimble.jssi.interfaces.gnss.positioning.RTKErrorStatus;
+import trimble.jssi.interfaces.gnss.positioning.SolutionType;
+
+/**
+ * Copies one positioning observation into a {@link PositionRecord}, decoding only the
+ * {@link PositionFieldGroup}s in its mask. Solution type, coordinates and the RTK status
+ * are always decoded. Split out of the facade's position listener so the decode can be
+ * measured on its own.
+ */
+public final class PositionObservationDecoder {
+
+    private volatile int mask;
+
+    /** A decoder for every field group. */
+    public PositionObservationDecoder() {
+        this.mask = PositionFieldGroup.ALL;
+    }
+
+    /** A decoder for the given field groups. */
+    public PositionObservationDecoder(Collection<PositionFieldGroup> groups) {
+        this.mask = PositionFieldGroup.maskOf(groups);
+    }
+
+    void setMask(int mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Decodes {@code obs} into {@code record}.
+     * @return true if the RTK status reports the receiver outside the RTX geofence
+     */
+    public boolean decode(GNSSObservationContainer obs, PositionRecord record, long receivedCorrectionData, int stationId) {
+        int mask = this.mask;
+
+        // Solution type
+        SolutionType solutionType = SolutionType.Autonomous;
+        if (obs.hasObservation(GNSSObservationType.SolutionType))
+        {
+          solutionType = obs.getObservation(GNSSObservationType.SolutionType).getSolutionType();
+        }
+
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        double height = Double.NaN;
+        double elevation = Double.NaN;
+        String geoidModel = "";
+        GroundPositionType groundPositionType = GroundPositionType.Init;
+
+        if (obs.hasObservation(GNSSObservationType.GroundCoordinate)) {
+            Coordinates coordinates = obs.getObservation(GNSSObservationType.GroundCoordinate).getCoordinates();
+            latitude = coordinates.getLatitude();
+            longitude = coordinates.getLongitude();
+            height = coordinates.getHeight();
+            groundPositionType = obs.getObservation(GNSSObservationType.GroundCoordinate).getGroundPositionType();
+        }
+        else if (obs.hasObservation(GNSSObservationType.Coordinate)) {
+            Coordinates coordinates = obs.getObservation(GNSSObservationType.Coordinate).getCoordinates();
+            latitude = coordinates.getLatitude();
+            longitude = coordinates.getLongitude();
+            height = coordinates.getHeight();
+        }
+
+        if (isRequested(mask, PositionFieldGroup.Elevation) && obs.hasObservation(GNSSObservationType.GeoidUndulation)) {
+            double N = obs.getObservation(GNSSObservationType.GeoidUndulation).getDeviation();
+            if( !Double.isNaN(height) && !Double.isNaN(N))
+            {
+                elevation = height - N;
+                geoidModel = obs.getObservation(GNSSObservationType.GeoidUndulation).getGeoidModel();
+            }
+        }
+
+
+        double heading = Double.NaN;
+        double horizontalVelocity = Double.NaN;
+        double verticalVelocity = Double.NaN;
+
+        if (isRequested(mask, PositionFieldGroup.Velocity) && obs.hasObservation(GNSSObservationType.Velocity)) {
+            heading = obs.getObservation(GNSSObservationType.Velocity).getHeading();
+            horizontalVelocity = obs.getObservation(GNSSObservationType.Velocity).getHorizontal();
+            verticalVelocity = obs.getObservation(GNSSObservationType.Velocity).getVertical();
+        }
+
+        double haPrec = Double.NaN;
+        double vaPrec = Double.NaN;
+
+        if (isRequested(mask, PositionFieldGroup.Precision) && obs.hasObservation(GNSSObservationType.Precision)) {
+            haPrec = obs.getObservation(GNSSObservationType.Precision).getHorizontalPrecision();
+            vaPrec = obs.getObservation(GNSSObservationType.Precision).getVerticalPrecision();
+        }
+
+        double sigmaSemiMajorAxis = Double.NaN;
+        double sigmaSemiMinorAxis = Double.NaN;
+        double sigmaOrientation = Double.NaN;
+
+        if (isRequested(mask, PositionFieldGroup.PositionSigma) && obs.hasObservation(GNSSObservationType.PositionSigma)) {
+            sigmaSemiMajorAxis = obs.getObservation(GNSSObservationType.PositionSigma).getSemiMajorAxis();
+            sigmaSemiMinorAxis = obs.getObservation(GNSSObservationType.PositionSigma).getSemiMinorAxis();
+            sigmaOrientation = obs.getObservation(GNSSObservationType.PositionSigma).getOrientation();
+        }
+
+        double Pdop = Double.NaN;
+        double Hdop = Double.NaN;
+        double Vdop = Double.NaN;
+
+        if (isRequested(mask, PositionFieldGroup.DilutionOfPrecision) && obs.hasObservation(GNSSObservationType.DilutionOfPrecision)) {
+            Pdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getPDOP();
+            Hdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getHDOP();
+            Vdop = obs.getObservation(GNSSObservationType.DilutionOfPrecision).getVDOP();
+        } else if (isRequested(mask, PositionFieldGroup.DilutionOfPrecision) && obs.hasObservation(GNSSObservationType.ExtendedDilutionOfPrecision)) {
+            Pdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getPDOP();
+            Hdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getHDOP();
+            Vdop = obs.getObservation(GNSSObservationType.ExtendedDilutionOfPrecision).getVDOP();
+        }
+
+        double pitch = Double.NaN;
+        double roll = Double.NaN;
+        double yaw = Double.NaN;
+        double pitchPrecision = Double.NaN;
+        double rollPrecision = Double.NaN;
+        double yawPrecision = Double.NaN;
+
+        if (isRequested(mask, PositionFieldGroup.Tilt) && obs.hasObservation (GNSSObservationType.Tilt))
+        {
+            pitch = obs.getObservation(GNSSObservationType.Tilt).getPitch();
+            roll = obs.getObservation(GNSSObservationType.Tilt).getRoll();
+            yaw = obs.getObservation(GNSSObservationType.Tilt).getYaw();
+
+            if (obs.hasObservation(GNSSObservationType.TiltPrecision))
+            {
+                pitchPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getPitchPrecision();
+                rollPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getRollPrecision();
+                yawPrecision = obs.getObservation(GNSSObservationType.TiltPrecision).getYawPrecision();
+            }
+        }
+
+        int numberOfSatellites = 0;
+        int numberOfTrackedSatellites = 0;
+        if (isRequested(mask, PositionFieldGroup.Satellites) && obs.hasObservation(GNSSObservationType.Satellites)) {
+            numberOfSatellites = obs.getObservation(GNSSObservationType.Satellites).getNumberOfSatellites();
+            numberOfTrackedSatellites = obs.getObservation(GNSSObservationType.Satellites).getNumberOfTrackedSatellites();
+        }
+
+        double age = Double.NaN;
+        if (isRequested(mask, PositionFieldGroup.CorrectionAge) && obs.hasObservation(GNSSObservationType.CorrectionAge)) {
+            age = obs.getObservation(GNSSObservationType.CorrectionAge).getAge().getTotalSeconds();
+        }
+
+        boolean datumTransformationApplied = false;
+        IReferenceSystem sourceFrame = null;
+        IReferenceSystem frame = null;
+
+        if (isRequested(mask, PositionFieldGroup.ReferenceFrames)) {
+            datumTransformationApplied = obs.hasObservation(GNSSObservationType.ReferenceSource);
+
+            if (datumTransformationApplied) {
+                sourceFrame = obs.getObservation(GNSSObservationType.ReferenceSource).getReferenceSystem();
+            }
+
+            if (obs.hasObservation(GNSSObservationType.ReferenceSystem)) {
+                frame = obs.getObservation(GNSSObservationType.ReferenceSystem).getReferenceSystem();
+            }
+        }
+
+        long gpsTime = 0;
+        long utcTime = 0;
+        if (isRequested(mask, PositionFieldGroup.Time) && obs.hasObservation(GNSSObservationType.GPSTime)) {
+            gpsTime = obs.getObservation(GNSSObservationType.GPSTime).getGpsTime().getTime();
+            utcTime = gpsTime - obs.getObservation(GNSSObservationType.GPSTime).getGpsUtcOffset() * 1000L;
+        }
+
+        int staticEpochs = 0;
+        if (isRequested(mask, PositionFieldGroup.StaticEpochs) && obs.hasObservation(GNSSObservationType.Epoch))
+        {
+            staticEpochs = obs.getObservation(GNSSObservationType.Epoch).getEpoch();
+        }
+
+        ImuState imuState = ImuState.NotAvailable;
+        boolean outsideGeofence = false;
+
+        // Decoded regardless of the mask: it also drives the geofence event
+        if (obs.hasObservation(GNSSObservationType.RTKStatus)) {
+            RTKErrorStatus error = obs.getObservation(GNSSObservationType.RTKStatus).getRTKErrorStatus();
+            switch (error)
+            {
+                case NoRTXOffshore:
+                    outsideGeofence = true;
+                    break;
+                case ImuError:
+                    imuState = ImuState.ErrorHasBeenDetected;
+                    break;
+                case ImuExcessiveBias:
+                    imuState = ImuState.ExcessiveBiasHasBeenDetected;
+                    break;
+            }
+        }
+
+        if(imuState == ImuState.NotAvailable && isRequested(mask, PositionFieldGroup.Imu)) {
+            if(obs.hasObservation(GNSSObservationType.IMUAlignmentStatus)) {
+                IMUAlignmentStatus imu = obs.getObservation(GNSSObservationType.IMUAlignmentStatus).getAlignmentStatus();
+                switch (imu) {
+                    case Fine:
+                        imuState = ImuState.Running;
+                        break;
+                    case Unaligned:
+                    case Coarse:
+                        imuState = ImuState.NeedsMovement;
+                        break;
+                }
+            }
+        }
+
+        record.set(solutionType, latitude, longitude, height, groundPositionType, heading, horizontalVelocity, verticalVelocity,
+                haPrec, vaPrec, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, imuState, pitch, roll, yaw,
+                pitchPrecision, rollPrecision, yawPrecision, Pdop, Hdop, Vdop,
+                gpsTime, utcTime, numberOfSatellites, numberOfTrackedSatellites, staticEpochs, age, receivedCorrectionData, stationId,
+                datumTransformationApplied, sourceFrame, frame, elevation, geoidModel);
+        return outsideGeofence;
+    }
+
+    private static boolean isRequested(int mask, PositionFieldGroup group) {
+        return (mask & group.bit()) != 0;
+    }
+}
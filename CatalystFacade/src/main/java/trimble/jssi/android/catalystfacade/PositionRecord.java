@@ -0,0 +1,420 @@
+package trimble.jssi.android.catalystfacade;
+
+import java.util.Date;
+
+import trimble.jssi.interfaces.gnss.positioning.IReferenceSystem;
+import trimble.jssi.interfaces.gnss.positioning.SolutionType;
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType;
+
+/**
+ * Mutable position record reused by {@link CatalystFacade} for every epoch.
+ *
+ * Listeners implementing {@link IPositionRecordListener} receive the same instance
+ * for each update; it is only valid for the duration of the callback. Use
+ * {@link #copy()}, {@link #copyFrom(PositionRecord)} or {@link #toPositionUpdate(Object)}
+ * to keep the values beyond that.
+ */
+public final class PositionRecord {
+    /**
+     * Get the solution type
+     * @return solution type
+     */
+    public SolutionType getSolution() {
+        return solution;
+    }
+    /**
+     * Get the latitude
+     * @return latitude in radian
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+    /**
+     * Get the longitude
+     * @return longitude in radian
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+    /**
+     * Get the height
+     * @return height in meter including reduced antenna height
+     */
+    public double getHeight() {
+        return height;
+    }
+    /**
+     * Get the ground position type
+     * @return ground position type.
+     */
+    public GroundPositionType getGroundPositionType() {
+        return groundPositionType;
+    }
+    /**
+     * Get the heading
+     * @return heading is the WGS84 referenced true north heading in radian.
+     */
+    public double getHeading() {
+        return heading;
+    }
+    /**
+     * Get the horizontal velocity
+     * @return horizontal velocity in meters per second.
+     */
+    public double getHorizontalVelocity() {
+        return horizontalVelocity;
+    }
+    /**
+     * Get the vertical velocity
+     * @return vertical velocity in meters per second.
+     */
+    public double getVerticalVelocity() {
+        return verticalVelocity;
+    }
+    /**
+     * Get the horizontal precision
+     * @return horizontal precision in meter
+     */
+    public double getHPrecision() {
+        return hPrecision;
+    }
+    /**
+     * Get the vertical precision
+     * @return vertical precision in meter
+     */
+    public double getVPrecision() {
+        return vPrecision;
+    }
+    /**
+     * Get the semi major axis
+     * @return The error ellipse semi-major axis sigma error in meter
+     */
+    public double getSigmaSemiMajorAxis() {
+        return sigmaSemiMajorAxis;
+    }
+    /**
+     * Get the semi minor axis
+     * @return The error ellipse semi-minor axis sigma error in meter
+     */
+    public double getSigmaSemiMinorAxis() {
+        return sigmaSemiMinorAxis;
+    }
+    /**
+     * Get the error ellipse orientation
+     * @return The error ellipse orientation in radian
+     */
+    public double getSigmaOrientation() {
+        return sigmaOrientation;
+    }
+    /**
+     * Get the inertial measurement unit state
+     * @return IMU state
+     */
+    public ImuState getInertialMeasurementUnitState() {
+        return inertialMeasurementUnitState;
+    }
+    /**
+     * Get the pitch
+     * @return pitch in radian
+     */
+    public double getPitch() {
+        return pitch;
+    }
+    /**
+     * Get the roll
+     * @return roll in radian
+     */
+    public double getRoll() {
+        return roll;
+    }
+    /**
+     * Get the yaw
+     * @return yaw in radian
+     */
+    public double getYaw() {
+        return yaw;
+    }
+    /**
+     * Get the pitch precision
+     * @return The pitch standard deviation in radian.
+     */
+    public double getPitchPrecision() {
+        return pitchPrecision;
+    }
+    /**
+     * Get the roll precision
+     * @return The roll standard deviation in radian.
+     */
+    public double getRollPrecision() {
+        return rollPrecision;
+    }
+    /**
+     * Get the yaw precision
+     * @return The yaw standard deviation in radian.
+     */
+    public double getYawPrecision() {
+        return yawPrecision;
+    }
+    /**
+     * Get the position dilution of precision.
+     * @return pdop
+     */
+    public double getPdop() {
+        return pdop;
+    }
+    /**
+     * Get the horizontal dilution of precision.
+     * @return hdop
+     */
+    public double getHdop() {
+        return hdop;
+    }
+    /**
+     * Get the vertical dilution of precision.
+     * @return vdop
+     */
+    public double getVdop() {
+        return vdop;
+    }
+    /**
+     * Get the GPS time
+     * @return GPS time in milliseconds since the epoch, 0 if not available
+     */
+    public long getGpsTimeMillis() {
+        return gpsTimeMillis;
+    }
+    /**
+     * Get the UTC time
+     * @return UTC time in milliseconds since the epoch, 0 if not available
+     */
+    public long getUtcTimeMillis() {
+        return utcTimeMillis;
+    }
+    /**
+     * Number of used satellites in position
+     * @return int number of used satellites
+     */
+    public int getNumberSatellites() {
+        return numberSatellites;
+    }
+    /**
+     * Number of tracked satellites
+     * @return int number of tracked satellites
+     */
+    public int getNumberTrackedSatellites() {
+        return numberTrackedSatellites;
+    }
+    /**
+     * Get number of static epochs
+     * @return static epoch
+     */
+    public int getStaticEpochs() {
+        return staticEpochs;
+    }
+    /**
+     * Get the correction age
+     * @return age of the correction data in seconds
+     */
+    public double getCorrectionAge() {
+        return correctionAge;
+    }
+    /**
+     * Get current received correction data
+     * @return received correction data sum in bytes
+     */
+    public long getReceivedCorrectionData() {
+        return receivedCorrectionData;
+    }
+    /**
+     * Get current RTCM station ID
+     * @return station ID
+     */
+    public int getStationId() {
+        return stationId;
+    }
+    /**
+     * Is a datum transformation applied?
+     * @return datum applied
+     */
+    public boolean getDatumTransformationApplied() {
+        return datumTransformationApplied;
+    }
+    /**
+     * Get the source reference frame of current position
+     * @return source reference frame
+     */
+    public IReferenceSystem getSourceReferenceFrame() {
+        return sourceReferenceFrame;
+    }
+    /**
+     * Get the reference frame of current position
+     * @return reference frame
+     */
+    public IReferenceSystem getReferenceFrame() {
+        return referenceFrame;
+    }
+    /**
+     * Get current Elevation above MSL is computed from height above ellipsoid,
+     * using local or global geoid model (GGF file).
+     * @return elevation
+     */
+    public double getElevation() {
+        return elevation;
+    }
+    /**
+     * Get the geoid model name
+     * @return geoid model name
+     */
+    public String getGeoidModel() {
+        return geoidModel;
+    }
+    /**
+     * Copies the values of another record into this one, without allocating.
+     * @param other record to copy
+     */
+    public void copyFrom(PositionRecord other) {
+        this.solution = other.solution;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+        this.height = other.height;
+        this.groundPositionType = other.groundPositionType;
+        this.heading = other.heading;
+        this.horizontalVelocity = other.horizontalVelocity;
+        this.verticalVelocity = other.verticalVelocity;
+        this.hPrecision = other.hPrecision;
+        this.vPrecision = other.vPrecision;
+        this.sigmaSemiMajorAxis = other.sigmaSemiMajorAxis;
+        this.sigmaSemiMinorAxis = other.sigmaSemiMinorAxis;
+        this.sigmaOrientation = other.sigmaOrientation;
+        this.inertialMeasurementUnitState = other.inertialMeasurementUnitState;
+        this.pitch = other.pitch;
+        this.roll = other.roll;
+        this.yaw = other.yaw;
+        this.pitchPrecision = other.pitchPrecision;
+        this.rollPrecision = other.rollPrecision;
+        this.yawPrecision = other.yawPrecision;
+        this.pdop = other.pdop;
+        this.hdop = other.hdop;
+        this.vdop = other.vdop;
+        this.gpsTimeMillis = other.gpsTimeMillis;
+        this.utcTimeMillis = other.utcTimeMillis;
+        this.numberSatellites = other.numberSatellites;
+        this.numberTrackedSatellites = other.numberTrackedSatellites;
+        this.staticEpochs = other.staticEpochs;
+        this.correctionAge = other.correctionAge;
+        this.receivedCorrectionData = other.receivedCorrectionData;
+        this.stationId = other.stationId;
+        this.datumTransformationApplied = other.datumTransformationApplied;
+        this.sourceReferenceFrame = other.sourceReferenceFrame;
+        this.referenceFrame = other.referenceFrame;
+        this.elevation = other.elevation;
+        this.geoidModel = other.geoidModel;
+    }
+
+    /**
+     * Get a detached copy of this record.
+     * @return new record with the same values
+     */
+    public PositionRecord copy() {
+        PositionRecord copy = new PositionRecord();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Get an immutable {@link PositionUpdate} with the values of this record.
+     * @param source event source
+     * @return new position update
+     */
+    public PositionUpdate toPositionUpdate(Object source) {
+        return new PositionUpdate(source, solution, latitude, longitude, height, groundPositionType, heading, horizontalVelocity,
+                verticalVelocity, hPrecision, vPrecision, sigmaSemiMajorAxis, sigmaSemiMinorAxis, sigmaOrientation, inertialMeasurementUnitState,
+                pitch, roll, yaw, pitchPrecision, rollPrecision, yawPrecision, pdop, hdop, vdop, new Date(gpsTimeMillis), new Date(utcTimeMillis),
+                numberSatellites, numberTrackedSatellites, staticEpochs, correctionAge, receivedCorrectionData, stationId,
+                datumTransformationApplied, sourceReferenceFrame, referenceFrame, elevation, geoidModel);
+    }
+
+    void set(SolutionType solution, double latitude, double longitude, double height,
+             GroundPositionType groundPositionType, double heading, double horizontalVelocity, double verticalVelocity,
+             double hPrecision, double vPrecision, double sigmaSemiMajorAxis, double sigmaSemiMinorAxis,
+             double sigmaOrientation, ImuState inertialMeasurementUnitState, double pitch, double roll,
+             double yaw, double pitchPrecision, double rollPrecision, double yawPrecision,
+             double pdop, double hdop, double vdop, long gpsTimeMillis,
+             long utcTimeMillis, int numberSatellites, int numberTrackedSatellites, int staticEpochs,
+             double correctionAge, long receivedCorrectionData, int stationId, boolean datumTransformationApplied,
+             IReferenceSystem sourceReferenceFrame, IReferenceSystem referenceFrame, double elevation, String geoidModel) {
+        this.solution = solution;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.height = height;
+        this.groundPositionType = groundPositionType;
+        this.heading = heading;
+        this.horizontalVelocity = horizontalVelocity;
+        this.verticalVelocity = verticalVelocity;
+        this.hPrecision = hPrecision;
+        this.vPrecision = vPrecision;
+        this.sigmaSemiMajorAxis = sigmaSemiMajorAxis;
+        this.sigmaSemiMinorAxis = sigmaSemiMinorAxis;
+        this.sigmaOrientation = sigmaOrientation;
+        this.inertialMeasurementUnitState = inertialMeasurementUnitState;
+        this.pitch = pitch;
+        this.roll = roll;
+        this.yaw = yaw;
+        this.pitchPrecision = pitchPrecision;
+        this.rollPrecision = rollPrecision;
+        this.yawPrecision = yawPrecision;
+        this.pdop = pdop;
+        this.hdop = hdop;
+        this.vdop = vdop;
+        this.gpsTimeMillis = gpsTimeMillis;
+        this.utcTimeMillis = utcTimeMillis;
+        this.numberSatellites = numberSatellites;
+        this.numberTrackedSatellites = numberTrackedSatellites;
+        this.staticEpochs = staticEpochs;
+        this.correctionAge = correctionAge;
+        this.receivedCorrectionData = receivedCorrectionData;
+        this.stationId = stationId;
+        this.datumTransformationApplied = datumTransformationApplied;
+        this.sourceReferenceFrame = sourceReferenceFrame;
+        this.referenceFrame = referenceFrame;
+        this.elevation = elevation;
+        this.geoidModel = geoidModel;
+    }
+
+    private SolutionType solution = SolutionType.Autonomous;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double height = Double.NaN;
+    private GroundPositionType groundPositionType = GroundPositionType.Init;
+    private double heading = Double.NaN;
+    private double horizontalVelocity = Double.NaN;
+    private double verticalVelocity = Double.NaN;
+    private double hPrecision = Double.NaN;
+    private double vPrecision = Double.NaN;
+    private double sigmaSemiMajorAxis = Double.NaN;
+    private double sigmaSemiMinorAxis = Double.NaN;
+    private double sigmaOrientation = Double.NaN;
+    private ImuState inertialMeasurementUnitState = ImuState.NotAvailable;
+    private double pitch = Double.NaN;
+    private double roll = Double.NaN;
+    private double yaw = Double.NaN;
+    private double pitchPrecision = Double.NaN;
+    private double rollPrecision = Double.NaN;
+    private double yawPrecision = Double.NaN;
+    private double pdop = Double.NaN;
+    private double hdop = Double.NaN;
+    private double vdop = Double.NaN;
+    private long gpsTimeMillis;
+    private long utcTimeMillis;
+    private int numberSatellites;
+    private int numberTrackedSatellites;
+    private int staticEpochs;
+    private double correctionAge = Double.NaN;
+    private long receivedCorrectionData;
+    private int stationId;
+    private boolean datumTransformationApplied;
+    private IReferenceSystem sourceReferenceFrame;
+    private IReferenceSystem referenceFrame;
+    private double elevation = Double.NaN;
+    private String geoidModel = "";
+}
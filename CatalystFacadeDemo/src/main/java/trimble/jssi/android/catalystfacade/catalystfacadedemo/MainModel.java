@@ -13,20 +13,17 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
 import java.util.EventObject;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Properties;
 import java.util.Stack;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -188,7 +185,7 @@ public class MainModel implements ICatalystEventListener {
 
     private File configFile;
     private File mountPointCacheFile;
-    private File positionLogFile;
+    private PositionLogWriter positionLogWriter;
     private Context applicationContext;
     private CatalystFacade catalystFacade;
     private StatusUpdate licStatusUpdate;
@@ -205,7 +202,6 @@ public class MainModel implements ICatalystEventListener {
     private final Object progressLock = new Object();
     private final ArrayList<StatusUpdateListener> statusUpdateListeners = new ArrayList<>();
     private String pointName;
-    private final LinkedBlockingQueue<String> positionUpdates = new LinkedBlockingQueue<>();
     private final Stack<String> progressMessages = new Stack<>();
     private final ExecutorService threadExecutor;
     private boolean licReady;
@@ -225,46 +221,6 @@ public class MainModel implements ICatalystEventListener {
 
     private MainModel() {
         threadExecutor = Executors.newSingleThreadExecutor();
-        try {
-            positionUpdates.put(
-                    "LogTimeStamp,GpsTime,PointName,Solution,Lat,Lon,Height,GroundPositionType,HPrecision,VPrecision,SigmaSemiMajorAxis,SigmaSemiMinorAxis,SigmaOrientation," +
-                            "InertialMeasurementUnitState,Pitch,Roll,Yaw,PitchPrecision,RollPrecision,YawPrecision,Satellites,SatellitesTracked,StaticEpochs,CorrectionAge," +
-                            "CorrectionDataCount,IsTransformationApplied,ReferenceFrameID,Epoch,MSLHeight");
-        } catch (InterruptedException e1) {
-            e1.printStackTrace();
-        }
-        Runnable runnable = () -> {
-            String line = "";
-            BufferedWriter bufferedWriter = null;
-            try {
-                do {
-                    try {
-                        line = positionUpdates.take();
-
-                        if (bufferedWriter == null) {
-                            bufferedWriter = new BufferedWriter(new FileWriter(getPositionLogFile(), true));
-                        }
-                        bufferedWriter.write(line);
-                        bufferedWriter.newLine();
-                        // flush after each line so that we have the most recent data on disk in case of a crash
-                        bufferedWriter.flush();
-                    } catch (InterruptedException | IOException e) {
-                        e.printStackTrace();
-                    }
-                } while (!line.equals("***END*POSITION*UPDATES***"));
-            } finally {
-                if (bufferedWriter != null) {
-                    try {
-                        bufferedWriter.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-                // Reset for next log
-                isGoStatic = false;
-            }
-        };
-        runOnThread(runnable,true);
     }
 
 
@@ -316,12 +272,6 @@ public class MainModel implements ICatalystEventListener {
         return files.length;
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        positionUpdates.put("***END*POSITION*UPDATES***");
-        super.finalize();
-    }
-
     public StatusUpdate getLicStatusUpdate() {
         return licStatusUpdate;
     }
@@ -370,15 +320,23 @@ public class MainModel implements ICatalystEventListener {
         return mountPointCacheFile;
     }
 
-    public File getPositionLogFile() {
-        if (positionLogFile == null) {
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyyMMddHHmmss",Locale.getDefault());
-            String filePath = applicationContext.getExternalFilesDir(null).getAbsolutePath() + File.separator
-                    + "PositionLog" + File.separator + "position_log_" + simpleDateFormat.format(new Date()) + ".csv";
-            positionLogFile = new File(filePath);
-            positionLogFile.getParentFile().mkdirs();
+    public File getPositionLogDirectory() {
+        return new File(applicationContext.getExternalFilesDir(null), "PositionLog");
+    }
+
+    private synchronized PositionLogWriter getPositionLogWriter() {
+        if (positionLogWriter == null) {
+            positionLogWriter = new PositionLogWriter(getPositionLogDirectory());
         }
-        return positionLogFile;
+        return positionLogWriter;
+    }
+
+    /**
+     * Get the binary log being written
+     * @return current position log, or null if nothing has been logged yet
+     */
+    public File getPositionLogFile() {
+        return getPositionLogWriter().getCurrentFile();
     }
 
     public String getProgressMessage() {
@@ -1144,11 +1102,7 @@ public class MainModel implements ICatalystEventListener {
                 }
             });
         }
-        try {
-            positionUpdates.put(createPositionLog("Sensor:" + sensorStateEvent.getSensorState().toString()));
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        logEvent("Sensor:" + sensorStateEvent.getSensorState().toString());
     }
 
     @Override
@@ -1175,27 +1129,12 @@ public class MainModel implements ICatalystEventListener {
         });
     }
 
-    private static double radToDeg(double rad) {
-        return rad * 180 / Math.PI;
-    }
-
     @Override
     public void onPositionUpdate(final PositionUpdate positionUpdate) {
         try {
-
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",Locale.getDefault());
-            positionUpdates.put(createPositionLog(
-                    String.format(Locale.ROOT, "%s,%s,%s,%.8f,%.8f,%.4f,%s,%.3f,%.3f,%.3f,%.3f,%.3f,%s,%.8f,%.8f,%.8f,%.8f,%.8f,%.8f,%d,%d,%d,%f,%d,%s,%s,%.2f,%.4f",
-                            simpleDateFormat.format(positionUpdate.getGpsTime()), pointName != null ? pointName : "Roving", positionUpdate.getSolution().toString(),
-                            radToDeg(positionUpdate.getLatitude()), radToDeg(positionUpdate.getLongitude()), positionUpdate.getHeight(), positionUpdate.getGroundPositionType().toString(),
-                            positionUpdate.getHPrecision(), positionUpdate.getVPrecision(),
-                            positionUpdate.getSigmaSemiMajorAxis(), positionUpdate.getSigmaSemiMinorAxis(), radToDeg(positionUpdate.getSigmaOrientation()),
-                            positionUpdate.getInertialMeasurementUnitState().toString(), radToDeg (positionUpdate.getPitch()), radToDeg(positionUpdate.getRoll()), radToDeg(positionUpdate.getYaw()),
-                            radToDeg (positionUpdate.getPitchPrecision()), radToDeg(positionUpdate.getRollPrecision()), radToDeg(positionUpdate.getYawPrecision()),
-                            positionUpdate.getNumberSatellites(), positionUpdate.getNumberTrackedSatellites(),positionUpdate.getStaticEpochs(), positionUpdate.getCorrectionAge(),
-                            positionUpdate.getReceivedCorrectionData(), (positionUpdate.getDatumTransformationApplied() ? "Yes" : "No"),
-                            getReferenceFrameName(positionUpdate.getReferenceFrame()), getReferenceFrameEpoch(positionUpdate.getReferenceFrame()),
-                            positionUpdate.getElevation())));
+            IReferenceSystem referenceFrame = positionUpdate.getReferenceFrame();
+            getPositionLogWriter().appendPosition(System.currentTimeMillis(), positionUpdate, pointName,
+                    referenceFrame != null ? referenceFrame.getName() : null, getReferenceFrameEpoch(referenceFrame));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1349,30 +1288,25 @@ public class MainModel implements ICatalystEventListener {
     }
 
     public void marksPoints(String pointName) {
-        try {
-            positionUpdates.put(createPositionLog(String.format("Start Position Marking:%s", pointName)));
-            this.pointName = pointName;
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        logEvent(String.format("Start Position Marking:%s", pointName));
+        this.pointName = pointName;
     }
 
     public void clearMarking() {
-        try {
-            positionUpdates.put(createPositionLog(String.format("End Position Marking:%s", pointName)));
-            pointName = null;
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        logEvent(String.format("End Position Marking:%s", pointName));
+        pointName = null;
     }
 
     public String getPointName() {
         return pointName;
     }
 
-    private static String createPositionLog(String msg) {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",Locale.getDefault());
-        return String.format("%s,%s", simpleDateFormat.format(new Date()), msg);
+    private void logEvent(String msg) {
+        try {
+            getPositionLogWriter().appendEvent(System.currentTimeMillis(), msg);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
     
     public void goStatic(boolean bIsGoStatic)
@@ -1390,14 +1324,10 @@ public class MainModel implements ICatalystEventListener {
             });
         }
         else {
-            try {
-                if (this.isGoStatic == bIsGoStatic) return;
-                this.isGoStatic = bIsGoStatic;
+            if (this.isGoStatic == bIsGoStatic) return;
+            this.isGoStatic = bIsGoStatic;
 
-                positionUpdates.put(createPositionLog(bIsGoStatic ? "Start static mode" : "Stop static mode"));
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            }
+            logEvent(bIsGoStatic ? "Start static mode" : "Stop static mode");
         }
     }
 
@@ -1503,14 +1433,11 @@ public class MainModel implements ICatalystEventListener {
     public void Maillog(Activity activity)
     {
         try {
-            FileReader reader = new FileReader(getPositionLogFile());
-            BufferedReader br = new BufferedReader(reader);
-
-            String currentLine;
-            StringBuilder text = new StringBuilder();
-            while ((currentLine = br.readLine()) != null)
-            {
-                text.append(currentLine);
+            File logFile = getPositionLogFile();
+            StringWriter text = new StringWriter();
+            if (logFile != null) {
+                getPositionLogWriter().flush();
+                PositionLogReader.exportCsv(new File[] { logFile }, text);
             }
             Intent sendIntent = new Intent();
             sendIntent.setAction(Intent.ACTION_SEND);
@@ -0,0 +1,108 @@
+package trimble.jssi.android.catalystfacade.catalystfacadedemo;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the binary position log (*.tplg) shared by {@link PositionLogWriter} and
+ * {@link PositionLogReader}.
+ *
+ * A file is a 64 byte header followed by blocks. Each block is an 8 byte block header
+ * (record count, CRC32 of those records) and room for {@link #RECORDS_PER_BLOCK} fixed
+ * size records. The block header is rewritten after every record, so the records it
+ * covers are always complete; a block whose CRC does not match is discarded as a whole.
+ * A block with a count of zero marks the end of the log. Multi-byte values are big-endian.
+ */
+final class PositionLogFormat {
+
+    static final int MAGIC = 0x54504C47; // "TPLG"
+    static final short VERSION = 1;
+
+    static final int FILE_HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 128;
+    static final int RECORDS_PER_BLOCK = 64;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int BLOCK_SIZE = BLOCK_HEADER_SIZE + RECORDS_PER_BLOCK * RECORD_SIZE;
+
+    static final String FILE_EXTENSION = ".tplg";
+
+    // File header
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_RECORD_SIZE = 6;
+    static final int HEADER_RECORDS_PER_BLOCK = 8;
+    static final int HEADER_CREATED = 16;
+
+    // Record types
+    static final byte TYPE_POSITION = 1;
+    static final byte TYPE_EVENT = 2;
+    // The point name / reference frame name of the following positions; written when they change
+    static final byte TYPE_POINT_NAME = 3;
+    static final byte TYPE_REFERENCE_FRAME = 4;
+
+    // Common to all records
+    static final int TYPE = 0;
+    static final int LOG_TIME = 8;
+
+    // Position record; enums are stored as ordinal + 1 (0 for null), angles in radians
+    static final int SOLUTION = 1;
+    static final int GROUND_POSITION_TYPE = 2;
+    static final int IMU_STATE = 3;
+    static final int FLAGS = 4;
+    static final int SATELLITES = 5;
+    static final int TRACKED_SATELLITES = 6;
+    static final int GPS_TIME = 16;
+    static final int LATITUDE = 24;
+    static final int LONGITUDE = 32;
+    static final int HEIGHT = 40;
+    static final int ELEVATION = 48;
+    static final int CORRECTION_DATA = 56;
+    static final int STATIC_EPOCHS = 64;
+    static final int H_PRECISION = 68;
+    static final int V_PRECISION = 72;
+    static final int SIGMA_SEMI_MAJOR = 76;
+    static final int SIGMA_SEMI_MINOR = 80;
+    static final int SIGMA_ORIENTATION = 84;
+    static final int PITCH = 88;
+    static final int ROLL = 92;
+    static final int YAW = 96;
+    static final int PITCH_PRECISION = 100;
+    static final int ROLL_PRECISION = 104;
+    static final int YAW_PRECISION = 108;
+    static final int CORRECTION_AGE = 112;
+    static final int REFERENCE_FRAME_EPOCH = 116;
+    static final int PDOP = 120;
+    static final int HDOP = 124;
+
+    static final int FLAG_DATUM_TRANSFORMATION = 1;
+    static final int FLAG_MARKING = 2;
+
+    // Text records
+    static final int TEXT_LENGTH = 1;
+    static final int TEXT = 16;
+    static final int MAX_TEXT_BYTES = RECORD_SIZE - TEXT;
+
+    private PositionLogFormat() {
+    }
+
+    /**
+     * UTF-8 bytes of {@code text}, cut at a character boundary to fit a text record.
+     */
+    static byte[] encodeText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_TEXT_BYTES) {
+            return bytes;
+        }
+        int length = MAX_TEXT_BYTES;
+        // Step back over continuation bytes (10xxxxxx)
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(bytes, 0, truncated, 0, length);
+        return truncated;
+    }
+
+    static long blockOffset(int block) {
+        return FILE_HEADER_SIZE + (long) block * BLOCK_SIZE;
+    }
+}
@@ -0,0 +1,338 @@
+package trimble.jssi.android.catalystfacade.catalystfacadedemo;
+
+import static trimble.jssi.android.catalystfacade.catalystfacadedemo.PositionLogFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+import trimble.jssi.android.catalystfacade.ImuState;
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType;
+import trimble.jssi.interfaces.gnss.positioning.SolutionType;
+
+/**
+ * Reads binary position logs written by {@link PositionLogWriter} and exports them as CSV
+ * (the columns of the old text log) or GeoJSON.
+ *
+ * Blocks are verified against their CRC; a block that fails, typically the last one after
+ * a crash or power loss, is skipped and reported in the {@link Result}.
+ */
+public final class PositionLogReader {
+
+    public static final String CSV_HEADER =
+            "LogTimeStamp,GpsTime,PointName,Solution,Lat,Lon,Height,GroundPositionType,HPrecision,VPrecision,SigmaSemiMajorAxis,SigmaSemiMinorAxis,SigmaOrientation," +
+                    "InertialMeasurementUnitState,Pitch,Roll,Yaw,PitchPrecision,RollPrecision,YawPrecision,Satellites,SatellitesTracked,StaticEpochs,CorrectionAge," +
+                    "CorrectionDataCount,IsTransformationApplied,ReferenceFrameID,Epoch,MSLHeight";
+
+    public interface Visitor {
+        /**
+         * Called for every position; the record is reused for the next one.
+         */
+        void onPosition(Record record);
+
+        void onEvent(long logTimeMillis, String message);
+    }
+
+    public static final class Result {
+        public int records;
+        public int blocks;
+        public int discardedBlocks;
+        /** True if the last block holding data failed its check, i.e. the log was cut short */
+        public boolean tornTail;
+    }
+
+    /**
+     * A position record, read in place from the block buffer.
+     */
+    public static final class Record {
+        private ByteBuffer buffer;
+        private int offset;
+        private String pointName;
+        private String referenceFrameName;
+
+        public long getLogTimeMillis() { return buffer.getLong(offset + LOG_TIME); }
+        public long getGpsTimeMillis() { return buffer.getLong(offset + GPS_TIME); }
+        public SolutionType getSolution() { return enumAt(SolutionType.values(), SOLUTION); }
+        public GroundPositionType getGroundPositionType() { return enumAt(GroundPositionType.values(), GROUND_POSITION_TYPE); }
+        public ImuState getInertialMeasurementUnitState() { return enumAt(ImuState.values(), IMU_STATE); }
+        public boolean getDatumTransformationApplied() { return (buffer.get(offset + FLAGS) & FLAG_DATUM_TRANSFORMATION) != 0; }
+        public int getNumberSatellites() { return buffer.get(offset + SATELLITES) & 0xFF; }
+        public int getNumberTrackedSatellites() { return buffer.get(offset + TRACKED_SATELLITES) & 0xFF; }
+        public double getLatitude() { return buffer.getDouble(offset + LATITUDE); }
+        public double getLongitude() { return buffer.getDouble(offset + LONGITUDE); }
+        public double getHeight() { return buffer.getDouble(offset + HEIGHT); }
+        public double getElevation() { return buffer.getDouble(offset + ELEVATION); }
+        public long getReceivedCorrectionData() { return buffer.getLong(offset + CORRECTION_DATA); }
+        public int getStaticEpochs() { return buffer.getInt(offset + STATIC_EPOCHS); }
+        public double getHPrecision() { return buffer.getFloat(offset + H_PRECISION); }
+        public double getVPrecision() { return buffer.getFloat(offset + V_PRECISION); }
+        public double getSigmaSemiMajorAxis() { return buffer.getFloat(offset + SIGMA_SEMI_MAJOR); }
+        public double getSigmaSemiMinorAxis() { return buffer.getFloat(offset + SIGMA_SEMI_MINOR); }
+        public double getSigmaOrientation() { return buffer.getFloat(offset + SIGMA_ORIENTATION); }
+        public double getPitch() { return buffer.getFloat(offset + PITCH); }
+        public double getRoll() { return buffer.getFloat(offset + ROLL); }
+        public double getYaw() { return buffer.getFloat(offset + YAW); }
+        public double getPitchPrecision() { return buffer.getFloat(offset + PITCH_PRECISION); }
+        public double getRollPrecision() { return buffer.getFloat(offset + ROLL_PRECISION); }
+        public double getYawPrecision() { return buffer.getFloat(offset + YAW_PRECISION); }
+        public double getCorrectionAge() { return buffer.getFloat(offset + CORRECTION_AGE); }
+        public double getReferenceFrameEpoch() { return buffer.getFloat(offset + REFERENCE_FRAME_EPOCH); }
+        public double getPdop() { return buffer.getFloat(offset + PDOP); }
+        public double getHdop() { return buffer.getFloat(offset + HDOP); }
+        /** Point being marked, or null while roving */
+        public String getPointName() { return pointName; }
+        /** Name of the reference frame, or null if none is applied */
+        public String getReferenceFrameName() { return referenceFrameName; }
+
+        private <T> T enumAt(T[] values, int field) {
+            int ordinal = (buffer.get(offset + field) & 0xFF) - 1;
+            return ordinal >= 0 && ordinal < values.length ? values[ordinal] : null;
+        }
+    }
+
+    private PositionLogReader() {
+    }
+
+    /**
+     * Lists the logs in {@code directory}, oldest first.
+     */
+    public static File[] listLogFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    public static Result read(File file, Visitor visitor) throws IOException {
+        Result result = new Result();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            if (length < FILE_HEADER_SIZE) {
+                throw new IOException(file + ": not a position log");
+            }
+            byte[] header = new byte[FILE_HEADER_SIZE];
+            input.readFully(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            if (headerBuffer.getInt(HEADER_MAGIC) != MAGIC
+                    || headerBuffer.getShort(HEADER_RECORD_SIZE) != RECORD_SIZE
+                    || headerBuffer.getShort(HEADER_RECORDS_PER_BLOCK) != RECORDS_PER_BLOCK) {
+                throw new IOException(file + ": not a position log or unsupported layout");
+            }
+
+            byte[] block = new byte[BLOCK_SIZE];
+            ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+            CRC32 crc = new CRC32();
+            Record record = new Record();
+            record.buffer = blockBuffer;
+
+            for (int b = 0; blockOffset(b) + BLOCK_HEADER_SIZE <= length; b++) {
+                input.seek(blockOffset(b));
+                int available = (int) Math.min(BLOCK_SIZE, length - blockOffset(b));
+                input.readFully(block, 0, available);
+                long blockHeader = blockBuffer.getLong(0);
+                int count = (int) (blockHeader >>> 32);
+                if (count == 0) {
+                    break;
+                }
+                boolean lastBlock = count < RECORDS_PER_BLOCK || blockOffset(b + 1) + BLOCK_HEADER_SIZE > length;
+                int bytes = count * RECORD_SIZE;
+                boolean valid = count <= RECORDS_PER_BLOCK && BLOCK_HEADER_SIZE + bytes <= available;
+                if (valid) {
+                    crc.reset();
+                    crc.update(block, BLOCK_HEADER_SIZE, bytes);
+                    valid = (int) crc.getValue() == (int) blockHeader;
+                }
+                if (!valid) {
+                    result.discardedBlocks++;
+                    result.tornTail = lastBlock;
+                    if (lastBlock) {
+                        break;
+                    }
+                    continue;
+                }
+
+                result.blocks++;
+                for (int i = 0; i < count; i++) {
+                    int offset = BLOCK_HEADER_SIZE + i * RECORD_SIZE;
+                    byte type = block[offset + TYPE];
+                    if (type == TYPE_POSITION) {
+                        record.offset = offset;
+                        visitor.onPosition(record);
+                        result.records++;
+                    } else if (type == TYPE_EVENT || type == TYPE_POINT_NAME || type == TYPE_REFERENCE_FRAME) {
+                        int textLength = Math.min(block[offset + TEXT_LENGTH] & 0xFF, MAX_TEXT_BYTES);
+                        String text = new String(block, offset + TEXT, textLength, StandardCharsets.UTF_8);
+                        if (type == TYPE_POINT_NAME) {
+                            record.pointName = text.isEmpty() ? null : text;
+                        } else if (type == TYPE_REFERENCE_FRAME) {
+                            record.referenceFrameName = text.isEmpty() ? null : text;
+                        } else {
+                            visitor.onEvent(blockBuffer.getLong(offset + LOG_TIME), text);
+                        }
+                        result.records++;
+                    }
+                }
+                if (lastBlock) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes {@code files} as CSV, one row per position or event, as the old text log did.
+     */
+    public static Result exportCsv(File[] files, Writer out) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+        Date date = new Date();
+        Result total = new Result();
+        IOException[] failure = new IOException[1];
+        out.write(CSV_HEADER);
+        out.write('\n');
+        for (File file : files) {
+            add(total, read(file, new Visitor() {
+                @Override
+                public void onPosition(Record r) {
+                    date.setTime(r.getLogTimeMillis());
+                    String logTime = dateFormat.format(date);
+                    date.setTime(r.getGpsTimeMillis());
+                    write(String.format(Locale.ROOT, "%s,%s,%s,%s,%.8f,%.8f,%.4f,%s,%.3f,%.3f,%.3f,%.3f,%.3f,%s,%.8f,%.8f,%.8f,%.8f,%.8f,%.8f,%d,%d,%d,%f,%d,%s,%s,%.2f,%.4f",
+                            logTime, dateFormat.format(date), r.getPointName() != null ? r.getPointName() : "Roving", r.getSolution(),
+                            Math.toDegrees(r.getLatitude()), Math.toDegrees(r.getLongitude()), r.getHeight(), r.getGroundPositionType(),
+                            r.getHPrecision(), r.getVPrecision(),
+                            r.getSigmaSemiMajorAxis(), r.getSigmaSemiMinorAxis(), Math.toDegrees(r.getSigmaOrientation()),
+                            r.getInertialMeasurementUnitState(), Math.toDegrees(r.getPitch()), Math.toDegrees(r.getRoll()), Math.toDegrees(r.getYaw()),
+                            Math.toDegrees(r.getPitchPrecision()), Math.toDegrees(r.getRollPrecision()), Math.toDegrees(r.getYawPrecision()),
+                            r.getNumberSatellites(), r.getNumberTrackedSatellites(), r.getStaticEpochs(), r.getCorrectionAge(),
+                            r.getReceivedCorrectionData(), r.getDatumTransformationApplied() ? "Yes" : "No",
+                            r.getReferenceFrameName() != null ? r.getReferenceFrameName() : "Off", r.getReferenceFrameEpoch(),
+                            r.getElevation()));
+                }
+
+                @Override
+                public void onEvent(long logTimeMillis, String message) {
+                    date.setTime(logTimeMillis);
+                    write(dateFormat.format(date) + "," + message);
+                }
+
+                private void write(String line) {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        out.write(line);
+                        out.write('\n');
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+            }));
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Writes the positions of {@code files} as a GeoJSON FeatureCollection of points
+     * (longitude, latitude, ellipsoidal height); positions without coordinates are left out.
+     */
+    public static Result exportGeoJson(File[] files, Writer out) throws IOException {
+        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date date = new Date();
+        Result total = new Result();
+        IOException[] failure = new IOException[1];
+        boolean[] first = {true};
+        out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (File file : files) {
+            add(total, read(file, new Visitor() {
+                @Override
+                public void onPosition(Record r) {
+                    if (failure[0] != null || Double.isNaN(r.getLatitude()) || Double.isNaN(r.getLongitude())) {
+                        return;
+                    }
+                    date.setTime(r.getGpsTimeMillis());
+                    StringBuilder feature = new StringBuilder(256);
+                    if (!first[0]) {
+                        feature.append(',');
+                    }
+                    first[0] = false;
+                    feature.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+                            .append(String.format(Locale.ROOT, "%.9f,%.9f", Math.toDegrees(r.getLongitude()), Math.toDegrees(r.getLatitude())));
+                    if (!Double.isNaN(r.getHeight())) {
+                        feature.append(String.format(Locale.ROOT, ",%.4f", r.getHeight()));
+                    }
+                    feature.append("]},\"properties\":{\"gpsTime\":\"").append(isoFormat.format(date))
+                            .append("\",\"solution\":\"").append(r.getSolution()).append('"');
+                    appendNumber(feature, "hPrecision", r.getHPrecision());
+                    appendNumber(feature, "vPrecision", r.getVPrecision());
+                    appendNumber(feature, "pdop", r.getPdop());
+                    feature.append(",\"satellites\":").append(r.getNumberSatellites());
+                    if (r.getPointName() != null) {
+                        feature.append(",\"pointName\":");
+                        appendString(feature, r.getPointName());
+                    }
+                    feature.append("}}");
+                    try {
+                        out.write(feature.toString());
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+
+                @Override
+                public void onEvent(long logTimeMillis, String message) {
+                }
+            }));
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        out.write("]}");
+        return total;
+    }
+
+    private static void add(Result total, Result file) {
+        total.records += file.records;
+        total.blocks += file.blocks;
+        total.discardedBlocks += file.discardedBlocks;
+        total.tornTail |= file.tornTail;
+    }
+
+    // JSON has no NaN, so unknown values are left out
+    private static void appendNumber(StringBuilder json, String name, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        json.append(",\"").append(name).append("\":").append(String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,239 @@
+package trimble.jssi.android.catalystfacade.catalystfacadedemo;
+
+import static trimble.jssi.android.catalystfacade.catalystfacadedemo.PositionLogFormat.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import trimble.jssi.android.catalystfacade.PositionUpdate;
+
+/**
+ * Appends position records to memory-mapped binary log files (see {@link PositionLogFormat}).
+ *
+ * Each record is a handful of stores into the mapping, so it is written on the caller's
+ * thread; data reaches the page cache immediately and survives a crash of the app. The
+ * mapping is forced to disk whenever a block is complete. A new file is started when the
+ * current one is full or the local date changes.
+ */
+public final class PositionLogWriter implements Closeable {
+
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+    private final File directory;
+    private final long maxFileBytes;
+
+    // Record staging area; copied to the mapping and fed to the CRC in one go
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    private final CRC32 blockCrc = new CRC32();
+
+    private File currentFile;
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer mapping;
+    private int blockCount;
+    private int block;
+    private int recordsInBlock;
+    private long nextDayMillis;
+
+    // Texts already written to the current file, so positions only repeat them on change
+    private String pointName;
+    private String referenceFrameName;
+
+    public PositionLogWriter(File directory) {
+        this(directory, DEFAULT_MAX_FILE_BYTES);
+    }
+
+    public PositionLogWriter(File directory, long maxFileBytes) {
+        if (maxFileBytes < FILE_HEADER_SIZE + BLOCK_SIZE || maxFileBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxFileBytes out of range: " + maxFileBytes);
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Get the file being written
+     * @return current log file, or null before the first record
+     */
+    public synchronized File getCurrentFile() {
+        return currentFile;
+    }
+
+    public synchronized void appendPosition(long logTimeMillis, PositionUpdate positionUpdate, String pointName,
+                                            String referenceFrameName, double referenceFrameEpoch) throws IOException {
+        prepare(logTimeMillis);
+        if (!equal(pointName, this.pointName)) {
+            writeText(TYPE_POINT_NAME, logTimeMillis, pointName != null ? pointName : "");
+            this.pointName = pointName;
+        }
+        if (!equal(referenceFrameName, this.referenceFrameName)) {
+            writeText(TYPE_REFERENCE_FRAME, logTimeMillis, referenceFrameName != null ? referenceFrameName : "");
+            this.referenceFrameName = referenceFrameName;
+        }
+
+        ByteBuffer r = recordBuffer;
+        r.put(TYPE, TYPE_POSITION);
+        r.put(SOLUTION, ordinal(positionUpdate.getSolution()));
+        r.put(GROUND_POSITION_TYPE, ordinal(positionUpdate.getGroundPositionType()));
+        r.put(IMU_STATE, ordinal(positionUpdate.getInertialMeasurementUnitState()));
+        r.put(FLAGS, (byte) ((positionUpdate.getDatumTransformationApplied() ? FLAG_DATUM_TRANSFORMATION : 0)
+                | (pointName != null ? FLAG_MARKING : 0)));
+        r.put(SATELLITES, (byte) Math.min(positionUpdate.getNumberSatellites(), 255));
+        r.put(TRACKED_SATELLITES, (byte) Math.min(positionUpdate.getNumberTrackedSatellites(), 255));
+        r.putLong(LOG_TIME, logTimeMillis);
+        Date gpsTime = positionUpdate.getGpsTime();
+        r.putLong(GPS_TIME, gpsTime != null ? gpsTime.getTime() : 0L);
+        r.putDouble(LATITUDE, positionUpdate.getLatitude());
+        r.putDouble(LONGITUDE, positionUpdate.getLongitude());
+        r.putDouble(HEIGHT, positionUpdate.getHeight());
+        r.putDouble(ELEVATION, positionUpdate.getElevation());
+        r.putLong(CORRECTION_DATA, positionUpdate.getReceivedCorrectionData());
+        r.putInt(STATIC_EPOCHS, positionUpdate.getStaticEpochs());
+        r.putFloat(H_PRECISION, (float) positionUpdate.getHPrecision());
+        r.putFloat(V_PRECISION, (float) positionUpdate.getVPrecision());
+        r.putFloat(SIGMA_SEMI_MAJOR, (float) positionUpdate.getSigmaSemiMajorAxis());
+        r.putFloat(SIGMA_SEMI_MINOR, (float) positionUpdate.getSigmaSemiMinorAxis());
+        r.putFloat(SIGMA_ORIENTATION, (float) positionUpdate.getSigmaOrientation());
+        r.putFloat(PITCH, (float) positionUpdate.getPitch());
+        r.putFloat(ROLL, (float) positionUpdate.getRoll());
+        r.putFloat(YAW, (float) positionUpdate.getYaw());
+        r.putFloat(PITCH_PRECISION, (float) positionUpdate.getPitchPrecision());
+        r.putFloat(ROLL_PRECISION, (float) positionUpdate.getRollPrecision());
+        r.putFloat(YAW_PRECISION, (float) positionUpdate.getYawPrecision());
+        r.putFloat(CORRECTION_AGE, (float) positionUpdate.getCorrectionAge());
+        r.putFloat(REFERENCE_FRAME_EPOCH, (float) referenceFrameEpoch);
+        r.putFloat(PDOP, (float) positionUpdate.getPdop());
+        r.putFloat(HDOP, (float) positionUpdate.getHdop());
+        commitRecord();
+    }
+
+    public synchronized void appendEvent(long logTimeMillis, String message) throws IOException {
+        prepare(logTimeMillis);
+        writeText(TYPE_EVENT, logTimeMillis, message);
+    }
+
+    /**
+     * Forces the written records to disk.
+     */
+    public synchronized void flush() {
+        if (mapping != null) {
+            mapping.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeFile();
+    }
+
+    private void prepare(long logTimeMillis) throws IOException {
+        if (mapping != null && logTimeMillis >= nextDayMillis) {
+            closeFile();
+        }
+        // Room for this record and a point name and frame record ahead of it
+        if (mapping != null && recordsInBlock + 3 > RECORDS_PER_BLOCK && block + 1 >= blockCount) {
+            closeFile();
+        }
+        if (mapping == null) {
+            openFile(logTimeMillis);
+        }
+    }
+
+    private void writeText(byte type, long logTimeMillis, String text) {
+        byte[] bytes = encodeText(text);
+        java.util.Arrays.fill(record, (byte) 0);
+        recordBuffer.put(TYPE, type);
+        recordBuffer.put(TEXT_LENGTH, (byte) bytes.length);
+        recordBuffer.putLong(LOG_TIME, logTimeMillis);
+        System.arraycopy(bytes, 0, record, TEXT, bytes.length);
+        commitRecord();
+    }
+
+    private void commitRecord() {
+        if (recordsInBlock == RECORDS_PER_BLOCK) {
+            block++;
+            recordsInBlock = 0;
+            blockCrc.reset();
+        }
+        int blockStart = (int) blockOffset(block);
+        // Record first, then the header that covers it: a crash in between loses only this record
+        mapping.position(blockStart + BLOCK_HEADER_SIZE + recordsInBlock * RECORD_SIZE);
+        mapping.put(record);
+        blockCrc.update(record, 0, RECORD_SIZE);
+        recordsInBlock++;
+        mapping.putLong(blockStart, ((long) recordsInBlock << 32) | (blockCrc.getValue() & 0xFFFFFFFFL));
+        if (recordsInBlock == RECORDS_PER_BLOCK) {
+            mapping.force();
+        }
+    }
+
+    private void openFile(long logTimeMillis) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMddHHmmss", Locale.getDefault()).format(new Date(logTimeMillis));
+        File file = new File(directory, "position_log_" + stamp + FILE_EXTENSION);
+        for (int i = 1; file.exists(); i++) {
+            file = new File(directory, "position_log_" + stamp + "_" + i + FILE_EXTENSION);
+        }
+
+        blockCount = (int) ((maxFileBytes - FILE_HEADER_SIZE) / BLOCK_SIZE);
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        mapping = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, blockOffset(blockCount));
+        mapping.putInt(HEADER_MAGIC, MAGIC);
+        mapping.putShort(HEADER_VERSION, VERSION);
+        mapping.putShort(HEADER_RECORD_SIZE, (short) RECORD_SIZE);
+        mapping.putShort(HEADER_RECORDS_PER_BLOCK, (short) RECORDS_PER_BLOCK);
+        mapping.putLong(HEADER_CREATED, logTimeMillis);
+
+        currentFile = file;
+        block = 0;
+        recordsInBlock = 0;
+        blockCrc.reset();
+        pointName = null;
+        referenceFrameName = null;
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(logTimeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        nextDayMillis = calendar.getTimeInMillis();
+    }
+
+    private void closeFile() throws IOException {
+        if (mapping == null) {
+            return;
+        }
+        mapping.force();
+        mapping = null;
+        try {
+            // Drop the preallocated tail; the reader also stops at the first empty block
+            long used = recordsInBlock == 0 ? blockOffset(block) : blockOffset(block + 1);
+            randomAccessFile.setLength(used);
+        } finally {
+            randomAccessFile.close();
+            randomAccessFile = null;
+        }
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return (byte) (value != null ? value.ordinal() + 1 : 0);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,167 @@
+package trimble.jssi.android.catalystfacade.catalystfacadedemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static trimble.jssi.android.catalystfacade.catalystfacadedemo.PositionLogFormat.*;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Damage a log the way a crash or power loss would and check what {@link PositionLogReader}
+ * recovers: every block that passes its CRC, and nothing from the one that does not.
+ */
+public class PositionLogRecoveryTest {
+
+    // One full block and most of a second
+    private static final int RECORDS = RECORDS_PER_BLOCK + 36;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File log;
+
+    @Before
+    public void writeLog() throws IOException {
+        // Midday, so the writer does not roll over to a new file for the date
+        Calendar noon = Calendar.getInstance();
+        noon.set(Calendar.HOUR_OF_DAY, 12);
+        long start = noon.getTimeInMillis();
+
+        PositionLogWriter writer = new PositionLogWriter(folder.getRoot());
+        for (int i = 0; i < RECORDS; i++) {
+            writer.appendEvent(start + i * 50L, "event-" + i);
+        }
+        log = writer.getCurrentFile();
+        writer.close();
+    }
+
+    @Test
+    public void intactLogReadsEveryRecord() throws IOException {
+        List<String> events = new ArrayList<>();
+        PositionLogReader.Result result = read(events);
+
+        assertEquals(RECORDS, result.records);
+        assertEquals(2, result.blocks);
+        assertEquals(0, result.discardedBlocks);
+        assertFalse(result.tornTail);
+        assertEquals("event-" + (RECORDS - 1), events.get(events.size() - 1));
+    }
+
+    @Test
+    public void cutMidBlockKeepsTheCompleteBlocks() throws IOException {
+        truncate(blockOffset(1) + BLOCK_HEADER_SIZE + 20 * RECORD_SIZE + RECORD_SIZE / 2);
+
+        List<String> events = new ArrayList<>();
+        PositionLogReader.Result result = read(events);
+
+        assertTrue(result.tornTail);
+        assertEquals(1, result.discardedBlocks);
+        assertEquals(RECORDS_PER_BLOCK, result.records);
+        assertEquals("event-" + (RECORDS_PER_BLOCK - 1), events.get(events.size() - 1));
+    }
+
+    @Test
+    public void cutInsideTheBlockHeaderEndsTheLog() throws IOException {
+        truncate(blockOffset(1) + BLOCK_HEADER_SIZE / 2);
+
+        PositionLogReader.Result result = read(new ArrayList<>());
+
+        assertEquals(RECORDS_PER_BLOCK, result.records);
+        assertEquals(1, result.blocks);
+    }
+
+    @Test
+    public void recordBeyondTheHeaderCountIsIgnored() throws IOException {
+        // Crash after writing a record but before its block header was updated
+        writeRecordAt(1, 36, "lost");
+
+        List<String> events = new ArrayList<>();
+        PositionLogReader.Result result = read(events);
+
+        assertEquals(RECORDS, result.records);
+        assertFalse(result.tornTail);
+        assertFalse(events.contains("lost"));
+    }
+
+    @Test
+    public void headerCountingAnUnwrittenRecordFailsTheCrc() throws IOException {
+        // The reverse order: the header covers a record whose bytes never arrived
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(blockOffset(1));
+            long header = file.readLong();
+            file.seek(blockOffset(1));
+            file.writeLong(header + (1L << 32));
+        }
+
+        PositionLogReader.Result result = read(new ArrayList<>());
+
+        assertTrue(result.tornTail);
+        assertEquals(1, result.discardedBlocks);
+        assertEquals(RECORDS_PER_BLOCK, result.records);
+    }
+
+    @Test
+    public void corruptBlockInTheMiddleIsSkipped() throws IOException {
+        flipByte(blockOffset(0) + BLOCK_HEADER_SIZE + 10 * RECORD_SIZE + TEXT);
+
+        List<String> events = new ArrayList<>();
+        PositionLogReader.Result result = read(events);
+
+        assertFalse(result.tornTail);
+        assertEquals(1, result.discardedBlocks);
+        assertEquals(1, result.blocks);
+        assertEquals(RECORDS - RECORDS_PER_BLOCK, result.records);
+        assertEquals("event-" + RECORDS_PER_BLOCK, events.get(0));
+    }
+
+    private PositionLogReader.Result read(List<String> events) throws IOException {
+        return PositionLogReader.read(log, new PositionLogReader.Visitor() {
+            @Override
+            public void onPosition(PositionLogReader.Record record) {
+            }
+
+            @Override
+            public void onEvent(long logTimeMillis, String message) {
+                events.add(message);
+            }
+        });
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(length);
+        }
+    }
+
+    private void flipByte(long offset) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+    }
+
+    private void writeRecordAt(int block, int index, String text) throws IOException {
+        byte[] record = new byte[RECORD_SIZE];
+        byte[] bytes = encodeText(text);
+        record[TYPE] = TYPE_EVENT;
+        record[TEXT_LENGTH] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, record, TEXT, bytes.length);
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(blockOffset(block) + BLOCK_HEADER_SIZE + (long) index * RECORD_SIZE);
+            file.write(record);
+        }
+    }
+}
@@ -66,6 +66,11 @@ signingConfigs {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+
+    testOptions {
+        // Local unit tests run pure-JVM classes that log through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 repositories {
@@ -122,6 +127,9 @@ dependencies {
 
     // Testing
    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    // android.jar only has stubs of org.json
+    testImplementation("org.json:json:20240303")
     androidTestImplementation("androidx.test.ext:junit:1.2.1")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.6.1")
 }
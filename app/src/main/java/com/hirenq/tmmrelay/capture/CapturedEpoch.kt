@@ -0,0 +1,79 @@
+package com.hirenq.tmmrelay.capture
+
+import trimble.jssi.android.catalystfacade.PositionRecord
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import trimble.jssi.interfaces.gnss.positioning.SolutionType
+
+/**
+ * The parts of a Catalyst epoch the relay uses, in a slot that is reused rather than
+ * reallocated. Angles are radians, as delivered by the SDK.
+ */
+class CapturedEpoch {
+    /** `System.nanoTime()` when the epoch reached the app */
+    var receivedAtNanos = 0L
+    var utcTimeMillis = 0L
+    var solution: SolutionType? = null
+    var latitude = Double.NaN
+    var longitude = Double.NaN
+    var height = Double.NaN
+    var hPrecision = Double.NaN
+    var vPrecision = Double.NaN
+    var pdop = Double.NaN
+    var hdop = Double.NaN
+    var vdop = Double.NaN
+    var heading = Double.NaN
+    var horizontalVelocity = Double.NaN
+    var staticEpochs = 0
+
+    fun copyFrom(record: PositionRecord, receivedAtNanos: Long) {
+        this.receivedAtNanos = receivedAtNanos
+        utcTimeMillis = record.utcTimeMillis
+        solution = record.solution
+        latitude = record.latitude
+        longitude = record.longitude
+        height = record.height
+        hPrecision = record.hPrecision
+        vPrecision = record.vPrecision
+        pdop = record.pdop
+        hdop = record.hdop
+        vdop = record.vdop
+        heading = record.heading
+        horizontalVelocity = record.horizontalVelocity
+        staticEpochs = record.staticEpochs
+    }
+
+    /** For listeners that get a [PositionUpdate] per epoch instead of the shared record */
+    fun copyFrom(update: PositionUpdate, receivedAtNanos: Long) {
+        this.receivedAtNanos = receivedAtNanos
+        utcTimeMillis = update.utcTime?.time ?: 0L
+        solution = update.solution
+        latitude = update.latitude
+        longitude = update.longitude
+        height = update.height
+        hPrecision = update.hPrecision
+        vPrecision = update.vPrecision
+        pdop = update.pdop
+        hdop = update.hdop
+        vdop = update.vdop
+        heading = update.heading
+        horizontalVelocity = update.horizontalVelocity
+        staticEpochs = update.staticEpochs
+    }
+
+    fun copyFrom(other: CapturedEpoch) {
+        receivedAtNanos = other.receivedAtNanos
+        utcTimeMillis = other.utcTimeMillis
+        solution = other.solution
+        latitude = other.latitude
+        longitude = other.longitude
+        height = other.height
+        hPrecision = other.hPrecision
+        vPrecision = other.vPrecision
+        pdop = other.pdop
+        hdop = other.hdop
+        vdop = other.vdop
+        heading = other.heading
+        horizontalVelocity = other.horizontalVelocity
+        staticEpochs = other.staticEpochs
+    }
+}
@@ -0,0 +1,102 @@
+package com.hirenq.tmmrelay.capture
+
+import com.hirenq.tmmrelay.model.DecimationMode
+import kotlin.math.PI
+
+/**
+ * Collects the epochs of one output interval and reduces them to a single epoch
+ * according to [mode]. Holds at most [capacity] epochs; past that the oldest are
+ * overwritten. Not thread-safe: owned by the decimation loop.
+ */
+class EpochDecimator(private val mode: DecimationMode, capacity: Int) {
+
+    private val window = Array(capacity.coerceAtLeast(1)) { CapturedEpoch() }
+    private var next = 0
+    private var count = 0
+
+    // Scratch for the median, one value per epoch in the window
+    private val values = DoubleArray(window.size)
+
+    /** Number of epochs the last [emit] was computed from. */
+    var lastWindowSize = 0
+        private set
+
+    fun add(epoch: CapturedEpoch) {
+        window[next].copyFrom(epoch)
+        next = (next + 1) % window.size
+        if (count < window.size) count++
+    }
+
+    /**
+     * Writes the reduced epoch into [out] and starts a new window. Returns false, leaving
+     * [out] untouched, if no epoch arrived since the last call.
+     */
+    fun emit(out: CapturedEpoch): Boolean {
+        if (count == 0) return false
+        val latest = window[(next - 1 + window.size) % window.size]
+        when (mode) {
+            DecimationMode.BEST_PRECISION -> out.copyFrom(best() ?: latest)
+            DecimationMode.AVERAGE, DecimationMode.MEDIAN -> {
+                // Velocity, DOPs, time and solution stay those of the newest epoch
+                out.copyFrom(latest)
+                out.latitude = combine(latest) { it.latitude }
+                out.longitude = normaliseLongitude(latest.longitude + combine(latest) { longitudeOffset(it, latest) })
+                out.height = combine(latest) { it.height }
+                out.hPrecision = combine(latest) { it.hPrecision }
+                out.vPrecision = combine(latest) { it.vPrecision }
+            }
+        }
+        lastWindowSize = count
+        count = 0
+        next = 0
+        return true
+    }
+
+    fun reset() {
+        count = 0
+        next = 0
+    }
+
+    private fun best(): CapturedEpoch? {
+        var best: CapturedEpoch? = null
+        for (i in 0 until count) {
+            val epoch = window[i]
+            if (epoch.hPrecision.isNaN()) continue
+            // <= so the newer of two equal epochs wins
+            if (best == null || epoch.hPrecision <= best.hPrecision) best = epoch
+        }
+        return best
+    }
+
+    /**
+     * Mean or median of [field] over the epochs with the same solution as [latest], ignoring
+     * NaNs, so a window straddling e.g. a float-to-fixed transition is not smeared.
+     */
+    private inline fun combine(latest: CapturedEpoch, field: (CapturedEpoch) -> Double): Double {
+        var n = 0
+        var sum = 0.0
+        for (i in 0 until count) {
+            val epoch = window[i]
+            if (epoch.solution != latest.solution) continue
+            val value = field(epoch)
+            if (value.isNaN()) continue
+            values[n++] = value
+            sum += value
+        }
+        if (n == 0) return field(latest)
+        if (mode == DecimationMode.AVERAGE) return sum / n
+        java.util.Arrays.sort(values, 0, n)
+        return if (n % 2 == 1) values[n / 2] else (values[n / 2 - 1] + values[n / 2]) / 2
+    }
+
+    // Relative to the newest epoch, so windows across the antimeridian combine correctly
+    private fun longitudeOffset(epoch: CapturedEpoch, latest: CapturedEpoch): Double =
+        normaliseLongitude(epoch.longitude - latest.longitude)
+
+    private fun normaliseLongitude(radians: Double): Double {
+        var value = radians
+        while (value > PI) value -= 2 * PI
+        while (value < -PI) value += 2 * PI
+        return value
+    }
+}
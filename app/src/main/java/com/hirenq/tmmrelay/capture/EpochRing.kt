@@ -0,0 +1,67 @@
+package com.hirenq.tmmrelay.capture
+
+import trimble.jssi.android.catalystfacade.PositionRecord
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Lock-free single-producer/single-consumer ring of [CapturedEpoch] slots: the Catalyst
+ * listener thread offers, the decimation loop drains. Neither side blocks or allocates.
+ * When the consumer is a full ring behind, new epochs are dropped (and counted) rather
+ * than overwriting slots it may be reading.
+ */
+class EpochRing(capacity: Int) {
+
+    private val slots: Array<CapturedEpoch>
+    private val mask: Int
+
+    // Next slot to read; written by the consumer only
+    private val head = AtomicLong()
+    // Next slot to write; written by the producer only
+    private val tail = AtomicLong()
+
+    @Volatile
+    var dropped = 0L
+        private set
+
+    init {
+        require(capacity > 0) { "capacity must be positive" }
+        var size = 1
+        while (size < capacity) size = size shl 1
+        slots = Array(size) { CapturedEpoch() }
+        mask = size - 1
+    }
+
+    val capacity: Int
+        get() = slots.size
+
+    val size: Int
+        get() = (tail.get() - head.get()).toInt()
+
+    /** Producer side. Returns false if the ring is full and the epoch was dropped. */
+    fun offer(record: PositionRecord, receivedAtNanos: Long): Boolean {
+        val t = tail.get()
+        if (t - head.get() == slots.size.toLong()) {
+            dropped++
+            return false
+        }
+        slots[(t and mask.toLong()).toInt()].copyFrom(record, receivedAtNanos)
+        tail.lazySet(t + 1)
+        return true
+    }
+
+    /**
+     * Consumer side. Passes every queued epoch to [action] in order; the slot is only
+     * valid during the call. Returns the number of epochs drained.
+     */
+    fun drain(action: (CapturedEpoch) -> Unit): Int {
+        val h = head.get()
+        val t = tail.get()
+        var i = h
+        while (i < t) {
+            action(slots[(i and mask.toLong()).toInt()])
+            i++
+        }
+        head.lazySet(t)
+        return (t - h).toInt()
+    }
+}
@@ -0,0 +1,101 @@
+package com.hirenq.tmmrelay.capture
+
+import android.util.Log
+import com.hirenq.tmmrelay.model.CaptureConfig
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import trimble.jssi.android.catalystfacade.PositionRecord
+
+/**
+ * High-rate capture path: epochs arriving at [CaptureConfig.positionRateHz] are queued
+ * in an [EpochRing] by the listener thread and, every [CaptureConfig.outputIntervalMs],
+ * reduced by an [EpochDecimator] and handed to [onEpoch] on a background coroutine.
+ *
+ * Latency is measured from the arrival of the newest epoch in a window to the return
+ * of [onEpoch], i.e. up to the payload having been handed on.
+ */
+class HighRateCapture(
+    private val config: CaptureConfig,
+    private val onEpoch: (CapturedEpoch) -> Unit
+) {
+
+    private val TAG = "HighRateCapture"
+
+    // Room for two output intervals, in case a tick is late
+    private val epochsPerInterval =
+        (config.positionRateHz * config.outputIntervalMs / 1000L).toInt().coerceAtLeast(1)
+    private val ring = EpochRing(epochsPerInterval * 2)
+    private val decimator = EpochDecimator(config.decimation, epochsPerInterval * 2)
+    private val output = CapturedEpoch()
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private var job: Job? = null
+
+    @Volatile
+    var emitted = 0L
+        private set
+    @Volatile
+    var lastLatencyMs = 0L
+        private set
+    @Volatile
+    var maxLatencyMs = 0L
+        private set
+
+    val droppedEpochs: Long
+        get() = ring.dropped
+
+    /** Number of epochs the last relayed position was reduced from. */
+    val lastWindowSize: Int
+        get() = decimator.lastWindowSize
+
+    /** Called on the Catalyst listener thread for every epoch. */
+    fun offer(record: PositionRecord) {
+        ring.offer(record, System.nanoTime())
+    }
+
+    fun start() {
+        if (job != null) return
+        job = scope.launch {
+            var nextTick = System.nanoTime()
+            while (isActive) {
+                nextTick += config.outputIntervalMs * 1_000_000L
+                delay(((nextTick - System.nanoTime()) / 1_000_000L).coerceAtLeast(0L))
+                try {
+                    tick()
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error relaying decimated epoch", e)
+                }
+            }
+        }
+    }
+
+    private fun tick() {
+        var newestArrival = 0L
+        ring.drain {
+            decimator.add(it)
+            newestArrival = it.receivedAtNanos
+        }
+        if (!decimator.emit(output)) return
+        onEpoch(output)
+        val latency = (System.nanoTime() - newestArrival) / 1_000_000L
+        lastLatencyMs = latency
+        if (latency > maxLatencyMs) maxLatencyMs = latency
+        emitted++
+    }
+
+    fun stop() {
+        job = null
+        scope.cancel()
+        Log.i(
+            TAG,
+            "Capture at ${config.positionRateHz} Hz (${config.decimation}): emitted=$emitted, " +
+                "dropped=$droppedEpochs, lastWindow=$lastWindowSize, lastLatencyMs=$lastLatencyMs, maxLatencyMs=$maxLatencyMs"
+        )
+    }
+}
@@ -0,0 +1,173 @@
+package com.hirenq.tmmrelay.capture
+
+/**
+ * Summary of the epochs in a time window of a [TrackStore]. Precision and DOP
+ * aggregates skip unknown (NaN) values and are NaN if none were known.
+ */
+data class TrackWindowStats(
+    val count: Int,
+    val fromMillis: Long,
+    val toMillis: Long,
+    val minHPrecision: Double,
+    val maxHPrecision: Double,
+    val meanHPrecision: Double,
+    val meanVPrecision: Double,
+    val meanPdop: Double,
+    val minSatellites: Int
+)
+
+/**
+ * Fixed-capacity ring of recent epochs kept as parallel primitive columns, so appending
+ * does not allocate and a day of 1 Hz history (the default capacity) costs a few MB
+ * instead of one object graph per epoch.
+ *
+ * Times are expected to be non-decreasing; windowed queries binary-search them. An epoch
+ * older than the newest one (receiver restart, clock step) starts the history afresh.
+ */
+class TrackStore(val capacity: Int = DEFAULT_CAPACITY) {
+
+    companion object {
+        const val DEFAULT_CAPACITY = 24 * 60 * 60
+
+        // Per epoch: one long, eight doubles, two bytes
+        private const val BYTES_PER_EPOCH = 8 + 8 * 8 + 2
+    }
+
+    private val time = LongArray(capacity)
+    private val latitude = DoubleArray(capacity)
+    private val longitude = DoubleArray(capacity)
+    private val height = DoubleArray(capacity)
+    private val hPrecision = DoubleArray(capacity)
+    private val vPrecision = DoubleArray(capacity)
+    private val pdop = DoubleArray(capacity)
+    private val hdop = DoubleArray(capacity)
+    private val vdop = DoubleArray(capacity)
+    private val satellites = ByteArray(capacity)
+    // SolutionType ordinal + 1; 0 when unknown
+    private val solution = ByteArray(capacity)
+
+    // Index of the oldest epoch and number of epochs held
+    private var start = 0
+    private var count = 0
+
+    init {
+        require(capacity > 0) { "capacity must be positive" }
+    }
+
+    /** Approximate heap used by the columns. */
+    val memoryBytes: Long
+        get() = capacity.toLong() * BYTES_PER_EPOCH
+
+    val size: Int
+        @Synchronized get() = count
+
+    /**
+     * Appends [epoch] (angles in radians, as delivered by the SDK). [timeMillis] defaults to
+     * the epoch's UTC time, or the wall clock if the receiver has not reported one.
+     */
+    @Synchronized
+    fun append(epoch: CapturedEpoch, satellitesInView: Int, timeMillis: Long = epoch.utcTimeMillis) {
+        val t = if (timeMillis > 0) timeMillis else System.currentTimeMillis()
+        if (count > 0 && t < time[physical(count - 1)]) {
+            clear()
+        }
+        val i: Int
+        if (count < capacity) {
+            i = physical(count)
+            count++
+        } else {
+            i = start
+            start = (start + 1) % capacity
+        }
+        time[i] = t
+        latitude[i] = epoch.latitude
+        longitude[i] = epoch.longitude
+        height[i] = epoch.height
+        hPrecision[i] = epoch.hPrecision
+        vPrecision[i] = epoch.vPrecision
+        pdop[i] = epoch.pdop
+        hdop[i] = epoch.hdop
+        vdop[i] = epoch.vdop
+        satellites[i] = satellitesInView.coerceIn(0, Byte.MAX_VALUE.toInt()).toByte()
+        solution[i] = ((epoch.solution?.ordinal ?: -1) + 1).toByte()
+    }
+
+    @Synchronized
+    fun clear() {
+        start = 0
+        count = 0
+    }
+
+    /** Time of the newest epoch, or null if the store is empty. */
+    @Synchronized
+    fun latestTimeMillis(): Long? = if (count == 0) null else time[physical(count - 1)]
+
+    /**
+     * Statistics over the epochs from `toMillis - windowMs` to [toMillis] inclusive, or null
+     * if there are none. [toMillis] defaults to the newest epoch's time.
+     */
+    @Synchronized
+    fun windowStats(windowMs: Long, toMillis: Long = latestTimeMillis() ?: 0L): TrackWindowStats? {
+        if (count == 0) return null
+        val fromMillis = toMillis - windowMs
+        var n = 0
+        var minH = Double.NaN
+        var maxH = Double.NaN
+        var sumH = 0.0
+        var nH = 0
+        var sumV = 0.0
+        var nV = 0
+        var sumPdop = 0.0
+        var nPdop = 0
+        var minSats = Int.MAX_VALUE
+        var k = firstAtOrAfter(fromMillis)
+        while (k < count) {
+            val i = physical(k++)
+            if (time[i] > toMillis) break
+            n++
+            val h = hPrecision[i]
+            if (!h.isNaN()) {
+                if (minH.isNaN() || h < minH) minH = h
+                if (maxH.isNaN() || h > maxH) maxH = h
+                sumH += h
+                nH++
+            }
+            val v = vPrecision[i]
+            if (!v.isNaN()) {
+                sumV += v
+                nV++
+            }
+            val p = pdop[i]
+            if (!p.isNaN()) {
+                sumPdop += p
+                nPdop++
+            }
+            if (satellites[i] < minSats) minSats = satellites[i].toInt()
+        }
+        if (n == 0) return null
+        return TrackWindowStats(
+            count = n,
+            fromMillis = fromMillis,
+            toMillis = toMillis,
+            minHPrecision = minH,
+            maxHPrecision = maxH,
+            meanHPrecision = if (nH > 0) sumH / nH else Double.NaN,
+            meanVPrecision = if (nV > 0) sumV / nV else Double.NaN,
+            meanPdop = if (nPdop > 0) sumPdop / nPdop else Double.NaN,
+            minSatellites = minSats
+        )
+    }
+
+    // Logical position (0 = oldest) of the first epoch at or after [timeMillis]
+    private fun firstAtOrAfter(timeMillis: Long): Int {
+        var lo = 0
+        var hi = count
+        while (lo < hi) {
+            val mid = (lo + hi) ushr 1
+            if (time[physical(mid)] < timeMillis) lo = mid + 1 else hi = mid
+        }
+        return lo
+    }
+
+    private fun physical(logical: Int): Int = (start + logical) % capacity
+}
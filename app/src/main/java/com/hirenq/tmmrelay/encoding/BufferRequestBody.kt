@@ -0,0 +1,27 @@
+package com.hirenq.tmmrelay.encoding
+
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okio.Buffer
+import okio.BufferedSink
+
+/**
+ * Request body backed by an already-encoded [Buffer].
+ *
+ * Unlike `ByteString.toRequestBody()` the bytes are not copied into a fresh array,
+ * and the buffer is left intact so OkHttp can replay the body on a retry.
+ */
+class BufferRequestBody(
+    private val buffer: Buffer,
+    private val contentType: MediaType?
+) : RequestBody() {
+
+    override fun contentType(): MediaType? = contentType
+
+    override fun contentLength(): Long = buffer.size
+
+    override fun writeTo(sink: BufferedSink) {
+        buffer.copyTo(sink.buffer, 0L, buffer.size)
+        sink.emitCompleteSegments()
+    }
+}
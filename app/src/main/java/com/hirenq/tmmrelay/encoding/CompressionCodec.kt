@@ -0,0 +1,26 @@
+package com.hirenq.tmmrelay.encoding
+
+import okio.Buffer
+import okio.GzipSink
+import okio.buffer
+
+/**
+ * Request body compression used by [com.hirenq.tmmrelay.service.CompressionInterceptor].
+ * [encoding] is sent as the `Content-Encoding` header value.
+ */
+interface CompressionCodec {
+    val encoding: String
+
+    /** Compresses [source] into [sink]; [source] is left untouched. */
+    fun compress(source: Buffer, sink: Buffer)
+}
+
+object GzipCodec : CompressionCodec {
+    override val encoding: String = "gzip"
+
+    override fun compress(source: Buffer, sink: Buffer) {
+        GzipSink(sink).buffer().use { gzip ->
+            source.copyTo(gzip.buffer, 0L, source.size)
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.FLAG_KEYFRAME
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.FLAG_RAW_TIMESTAMP
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.NUMBER_FIELDS
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.STRING_FIELDS
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.Snapshot
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.numberBit
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.readString
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.readVarint
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.stringBit
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.unzigzag
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.BufferedSource
+import java.io.IOException
+
+/**
+ * Reads back the stream written by [TelemetryDeltaEncoder]. Coordinates, accuracies
+ * and DOPs come back at the precision the encoder scales them to. Not thread-safe.
+ */
+class TelemetryDeltaDecoder {
+
+    private val state = Snapshot()
+    private var synced = false
+
+    /** Decodes the next frame, or returns null once [source] is exhausted. */
+    fun decode(source: BufferedSource): TelemetryPayload? {
+        if (source.exhausted()) return null
+        val mask = readVarint(source).toInt()
+        if (mask and FLAG_KEYFRAME != 0) {
+            state.clear()
+            synced = true
+        } else if (!synced) {
+            throw IOException("Delta frame before the first keyframe")
+        }
+
+        state.latE9 += unzigzag(readVarint(source))
+        state.lonE9 += unzigzag(readVarint(source))
+        if (mask and FLAG_RAW_TIMESTAMP != 0) {
+            state.rawTimestamp = readString(source)
+        } else {
+            state.rawTimestamp = null
+            state.timeUs += unzigzag(readVarint(source))
+        }
+
+        for (field in 0 until STRING_FIELDS) {
+            if (mask and stringBit(field) != 0) state.strings[field] = readString(source)
+        }
+        for (field in 0 until NUMBER_FIELDS) {
+            if (mask and numberBit(field) == 0) continue
+            val encoded = readVarint(source)
+            when {
+                encoded == 0L -> state.setNumber(field, null)
+                state.hasNumber(field) -> state.setNumber(field, state.numbers[field] + unzigzag(encoded - 1))
+                else -> state.setNumber(field, unzigzag(encoded - 1))
+            }
+        }
+        return state.toPayload()
+    }
+
+    fun decodeAll(source: BufferedSource): List<TelemetryPayload> {
+        val payloads = ArrayList<TelemetryPayload>()
+        while (true) payloads.add(decode(source) ?: return payloads)
+    }
+}
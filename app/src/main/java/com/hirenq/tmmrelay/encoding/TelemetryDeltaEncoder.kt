@@ -0,0 +1,89 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.FLAG_KEYFRAME
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.FLAG_RAW_TIMESTAMP
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.NUMBER_FIELDS
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.STRING_FIELDS
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.Snapshot
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.numberBit
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.stringBit
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.writeString
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.writeVarint
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaFormat.zigzag
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.BufferedSink
+
+/**
+ * Writes consecutive [TelemetryPayload]s as a delta stream (see [TelemetryDeltaFormat]):
+ * a full keyframe every [keyframeInterval] records and, in between, only the
+ * coordinate/time deltas plus the fields that changed.
+ *
+ * Frames only make sense in order from the last keyframe, so a stream must reach
+ * the decoder whole; call [reset] before starting a new request body. Not thread-safe.
+ */
+class TelemetryDeltaEncoder(
+    private val keyframeInterval: Int = DEFAULT_KEYFRAME_INTERVAL
+) {
+
+    private val previous = Snapshot()
+    private val current = Snapshot()
+    private var sinceKeyframe = -1
+
+    init {
+        require(keyframeInterval > 0) { "keyframeInterval must be positive" }
+    }
+
+    /** Makes the next frame a keyframe. */
+    fun reset() {
+        sinceKeyframe = -1
+    }
+
+    fun encode(payload: TelemetryPayload, sink: BufferedSink) {
+        val keyframe = sinceKeyframe < 0 || sinceKeyframe + 1 >= keyframeInterval
+        if (keyframe) {
+            previous.clear()
+            sinceKeyframe = 0
+        } else {
+            sinceKeyframe++
+        }
+        current.load(payload)
+        if (current.rawTimestamp != null) current.timeUs = previous.timeUs
+
+        var mask = if (keyframe) FLAG_KEYFRAME else 0
+        if (current.rawTimestamp != null) mask = mask or FLAG_RAW_TIMESTAMP
+        for (field in 0 until STRING_FIELDS) {
+            if (current.strings[field] != previous.strings[field]) mask = mask or stringBit(field)
+        }
+        for (field in 0 until NUMBER_FIELDS) {
+            if (current.hasNumber(field) != previous.hasNumber(field) ||
+                current.numbers[field] != previous.numbers[field]
+            ) {
+                mask = mask or numberBit(field)
+            }
+        }
+
+        writeVarint(sink, mask.toLong())
+        writeVarint(sink, zigzag(current.latE9 - previous.latE9))
+        writeVarint(sink, zigzag(current.lonE9 - previous.lonE9))
+        val rawTimestamp = current.rawTimestamp
+        if (rawTimestamp != null) writeString(sink, rawTimestamp)
+        else writeVarint(sink, zigzag(current.timeUs - previous.timeUs))
+
+        for (field in 0 until STRING_FIELDS) {
+            if (mask and stringBit(field) != 0) writeString(sink, current.strings[field])
+        }
+        for (field in 0 until NUMBER_FIELDS) {
+            if (mask and numberBit(field) == 0) continue
+            when {
+                !current.hasNumber(field) -> writeVarint(sink, 0L)
+                previous.hasNumber(field) -> writeVarint(sink, zigzag(current.numbers[field] - previous.numbers[field]) + 1)
+                else -> writeVarint(sink, zigzag(current.numbers[field]) + 1)
+            }
+        }
+        previous.copyFrom(current)
+    }
+
+    companion object {
+        const val DEFAULT_KEYFRAME_INTERVAL = 30
+    }
+}
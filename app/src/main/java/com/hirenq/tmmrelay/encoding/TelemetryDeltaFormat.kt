@@ -0,0 +1,209 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.utf8Size
+import java.io.IOException
+import java.time.Instant
+import kotlin.math.roundToLong
+
+/**
+ * Shared definitions for the delta/keyframe stream written by [TelemetryDeltaEncoder]
+ * and read back by [TelemetryDeltaDecoder].
+ *
+ * Each frame is a delta against the previous record:
+ * ```
+ * frame := varint mask, zigzag dLatE9, zigzag dLonE9, [zigzag dTimeUs | string timestamp],
+ *          one value per string/number bit set in mask, in bit order
+ * ```
+ * A keyframe (bit 0) resets both sides to an empty record first, so it carries every
+ * field. Strings are `varint(length + 1)` then UTF-8, 0 meaning null. Numbers are
+ * `varint(0)` for null, otherwise `zigzag(value - previous) + 1` when the previous
+ * value was set and `zigzag(value) + 1` when it was not.
+ *
+ * Coordinates are scaled by 1e9 and accuracies/DOPs by 1e4, the precision the JSON
+ * encoder sends, so a round trip is exact at that precision. A non-finite accuracy is
+ * sent as null and comes back as NaN.
+ */
+internal object TelemetryDeltaFormat {
+
+    const val FLAG_KEYFRAME = 1
+    const val FLAG_RAW_TIMESTAMP = 1 shl 1
+    private const val FIRST_STRING_BIT = 2
+
+    const val STRING_TENANT_ID = 0
+    const val STRING_DEVICE_ID = 1
+    const val STRING_FIX_TYPE = 2
+    const val STRING_HEALTH = 3
+    const val STRING_USER_ID = 4
+    const val STRING_USER_NAME = 5
+    const val STRING_USER_EMAIL = 6
+    const val STRING_RECEIVER_HEALTH = 7
+    const val STRING_FIELDS = 8
+
+    const val NUMBER_BATTERY = 0
+    const val NUMBER_SATELLITES = 1
+    const val NUMBER_HORIZONTAL_ACCURACY = 2
+    const val NUMBER_VERTICAL_ACCURACY = 3
+    const val NUMBER_RECEIVER_BATTERY = 4
+    const val NUMBER_PDOP = 5
+    const val NUMBER_HDOP = 6
+    const val NUMBER_VDOP = 7
+    const val NUMBER_FIELDS = 8
+
+    const val COORDINATE_SCALE = 1e9
+    const val METRIC_SCALE = 1e4
+
+    fun stringBit(field: Int): Int = 1 shl (FIRST_STRING_BIT + field)
+
+    fun numberBit(field: Int): Int = 1 shl (FIRST_STRING_BIT + STRING_FIELDS + field)
+
+    /** Scaled, field-indexed view of one record; the state both sides keep between frames. */
+    class Snapshot {
+        var latE9 = 0L
+        var lonE9 = 0L
+        var timeUs = 0L
+        var rawTimestamp: String? = null
+        val strings = arrayOfNulls<String>(STRING_FIELDS)
+        val numbers = LongArray(NUMBER_FIELDS)
+        var numbersPresent = 0
+
+        fun clear() {
+            latE9 = 0L
+            lonE9 = 0L
+            timeUs = 0L
+            rawTimestamp = null
+            strings.fill(null)
+            numbers.fill(0L)
+            numbersPresent = 0
+        }
+
+        fun hasNumber(field: Int): Boolean = numbersPresent and (1 shl field) != 0
+
+        fun setNumber(field: Int, value: Long?) {
+            if (value == null) {
+                numbersPresent = numbersPresent and (1 shl field).inv()
+                numbers[field] = 0L
+            } else {
+                numbersPresent = numbersPresent or (1 shl field)
+                numbers[field] = value
+            }
+        }
+
+        fun copyFrom(other: Snapshot) {
+            latE9 = other.latE9
+            lonE9 = other.lonE9
+            timeUs = other.timeUs
+            rawTimestamp = other.rawTimestamp
+            other.strings.copyInto(strings)
+            other.numbers.copyInto(numbers)
+            numbersPresent = other.numbersPresent
+        }
+
+        fun load(payload: TelemetryPayload) {
+            latE9 = (payload.latitude * COORDINATE_SCALE).roundToLong()
+            lonE9 = (payload.longitude * COORDINATE_SCALE).roundToLong()
+            val micros = epochMicros(payload.timestamp)
+            rawTimestamp = if (micros == null) payload.timestamp else null
+            timeUs = micros ?: timeUs
+
+            strings[STRING_TENANT_ID] = payload.tenantId
+            strings[STRING_DEVICE_ID] = payload.deviceId
+            strings[STRING_FIX_TYPE] = payload.fixType
+            strings[STRING_HEALTH] = payload.health
+            strings[STRING_USER_ID] = payload.userId
+            strings[STRING_USER_NAME] = payload.userName
+            strings[STRING_USER_EMAIL] = payload.userEmail
+            strings[STRING_RECEIVER_HEALTH] = payload.receiverHealth
+
+            setNumber(NUMBER_BATTERY, payload.battery.toLong())
+            setNumber(NUMBER_SATELLITES, payload.satellites.toLong())
+            setNumber(NUMBER_HORIZONTAL_ACCURACY, metric(payload.horizontalAccuracy))
+            setNumber(NUMBER_VERTICAL_ACCURACY, metric(payload.verticalAccuracy))
+            setNumber(NUMBER_RECEIVER_BATTERY, payload.receiverBattery?.toLong())
+            setNumber(NUMBER_PDOP, payload.pdop?.let(::metric))
+            setNumber(NUMBER_HDOP, payload.hdop?.let(::metric))
+            setNumber(NUMBER_VDOP, payload.vdop?.let(::metric))
+        }
+
+        fun toPayload(): TelemetryPayload = TelemetryPayload(
+            tenantId = strings[STRING_TENANT_ID].orEmpty(),
+            deviceId = strings[STRING_DEVICE_ID].orEmpty(),
+            latitude = latE9 / COORDINATE_SCALE,
+            longitude = lonE9 / COORDINATE_SCALE,
+            battery = numbers[NUMBER_BATTERY].toInt(),
+            fixType = strings[STRING_FIX_TYPE].orEmpty(),
+            timestamp = rawTimestamp ?: formatMicros(timeUs),
+            health = strings[STRING_HEALTH].orEmpty(),
+            horizontalAccuracy = if (hasNumber(NUMBER_HORIZONTAL_ACCURACY)) numbers[NUMBER_HORIZONTAL_ACCURACY] / METRIC_SCALE else Double.NaN,
+            verticalAccuracy = if (hasNumber(NUMBER_VERTICAL_ACCURACY)) numbers[NUMBER_VERTICAL_ACCURACY] / METRIC_SCALE else Double.NaN,
+            satellites = numbers[NUMBER_SATELLITES].toInt(),
+            userId = strings[STRING_USER_ID],
+            userName = strings[STRING_USER_NAME],
+            userEmail = strings[STRING_USER_EMAIL],
+            receiverBattery = if (hasNumber(NUMBER_RECEIVER_BATTERY)) numbers[NUMBER_RECEIVER_BATTERY].toInt() else null,
+            pdop = if (hasNumber(NUMBER_PDOP)) numbers[NUMBER_PDOP] / METRIC_SCALE else null,
+            hdop = if (hasNumber(NUMBER_HDOP)) numbers[NUMBER_HDOP] / METRIC_SCALE else null,
+            vdop = if (hasNumber(NUMBER_VDOP)) numbers[NUMBER_VDOP] / METRIC_SCALE else null,
+            receiverHealth = strings[STRING_RECEIVER_HEALTH]
+        )
+    }
+
+    private fun metric(value: Double): Long? =
+        if (value.isNaN() || value.isInfinite()) null else (value * METRIC_SCALE).roundToLong()
+
+    /** Epoch micros for an `Instant.toString()` timestamp, or null if it would not format back identically. */
+    private fun epochMicros(timestamp: String): Long? {
+        val instant = try {
+            Instant.parse(timestamp)
+        } catch (e: Exception) {
+            return null
+        }
+        if (instant.nano % 1000 != 0) return null
+        val micros = instant.epochSecond * 1_000_000L + instant.nano / 1000
+        return if (formatMicros(micros) == timestamp) micros else null
+    }
+
+    private fun formatMicros(micros: Long): String =
+        Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1000L).toString()
+
+    fun zigzag(value: Long): Long = (value shl 1) xor (value shr 63)
+
+    fun unzigzag(value: Long): Long = (value ushr 1) xor -(value and 1)
+
+    fun writeVarint(sink: BufferedSink, value: Long) {
+        var v = value
+        while (v and 0x7FL.inv() != 0L) {
+            sink.writeByte(((v and 0x7F) or 0x80).toInt())
+            v = v ushr 7
+        }
+        sink.writeByte(v.toInt())
+    }
+
+    fun readVarint(source: BufferedSource): Long {
+        var result = 0L
+        var shift = 0
+        while (shift < 64) {
+            val b = source.readByte().toInt()
+            result = result or ((b and 0x7F).toLong() shl shift)
+            if (b and 0x80 == 0) return result
+            shift += 7
+        }
+        throw IOException("Malformed varint")
+    }
+
+    fun writeString(sink: BufferedSink, value: String?) {
+        if (value == null) {
+            writeVarint(sink, 0L)
+            return
+        }
+        writeVarint(sink, value.utf8Size() + 1)
+        sink.writeUtf8(value)
+    }
+
+    fun readString(source: BufferedSource): String? {
+        val length = readVarint(source)
+        return if (length == 0L) null else source.readUtf8(length - 1)
+    }
+}
@@ -0,0 +1,199 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.BufferedSink
+import okio.ByteString
+import okio.ByteString.Companion.encodeUtf8
+import java.time.Instant
+
+/**
+ * Writes [TelemetryPayload] records as the JSON the Device API expects, straight
+ * into an Okio sink.
+ *
+ * Produces the same fields in the same order as the old `org.json` path, but
+ * without the intermediate DOM and strings: field names are pre-encoded, numbers
+ * are written digit by digit without boxing, and the IST `CurrentTimestamp` is
+ * computed arithmetically instead of through `DateTimeFormatter`.
+ */
+object TelemetryJsonWriter {
+
+    // Coordinates to 1e-9 degree (~0.1 mm); accuracies and DOPs to 1e-4
+    private const val COORDINATE_DIGITS = 9
+    private const val METRIC_DIGITS = 4
+    private const val HEX = "0123456789abcdef"
+
+    private const val IST_OFFSET_SECONDS = 5 * 3600 + 30 * 60
+    private val IST_SUFFIX = "+05:30".encodeUtf8()
+
+    private val TENANT_ID = field("TenantId", first = true)
+    private val DEVICE_ID = field("DeviceId")
+    private val LATITUDE = field("Latitude")
+    private val LONGITUDE = field("Longitude")
+    private val BATTERY = field("Battery")
+    private val FIX_TYPE = field("FixType")
+    private val TIMESTAMP = field("Timestamp")
+    private val CURRENT_TIMESTAMP = field("CurrentTimestamp")
+    private val HEALTH = field("Health")
+    private val HORIZONTAL_ACCURACY = field("HorizontalAccuracy")
+    private val VERTICAL_ACCURACY = field("VerticalAccuracy")
+    private val SATELLITES = field("Satellites")
+    private val USER_ID = field("UserId")
+    private val USER_NAME = field("UserName")
+    private val USER_EMAIL = field("UserEmail")
+    private val RECEIVER_BATTERY = field("ReceiverBattery")
+    private val RECEIVER_HEALTH = field("ReceiverHealth")
+    private val PDOP = field("PDOP")
+    private val HDOP = field("HDOP")
+    private val VDOP = field("VDOP")
+    private val NULL = "null".encodeUtf8()
+
+    private val POW10 = LongArray(19).also { table ->
+        table[0] = 1L
+        for (i in 1 until table.size) table[i] = table[i - 1] * 10
+    }
+
+    private fun field(name: String, first: Boolean = false): ByteString =
+        ((if (first) "{\"" else ",\"") + name + "\":").encodeUtf8()
+
+    /** Writes one JSON object for [payload]. [nowMillis] drives `CurrentTimestamp`. */
+    fun write(payload: TelemetryPayload, sink: BufferedSink, nowMillis: Long = System.currentTimeMillis()) {
+        sink.write(TENANT_ID); writeString(sink, payload.tenantId)
+        sink.write(DEVICE_ID); writeString(sink, payload.deviceId)
+        sink.write(LATITUDE); writeDouble(sink, payload.latitude, COORDINATE_DIGITS)
+        sink.write(LONGITUDE); writeDouble(sink, payload.longitude, COORDINATE_DIGITS)
+        sink.write(BATTERY); sink.writeDecimalLong(payload.battery.toLong())
+        sink.write(FIX_TYPE); writeString(sink, payload.fixType)
+        sink.write(TIMESTAMP); writeTimestamp(sink, payload.timestamp)
+        sink.write(CURRENT_TIMESTAMP); writeIstTimestamp(sink, Math.floorDiv(nowMillis, 1000L))
+        sink.write(HEALTH); writeString(sink, payload.health)
+        sink.write(HORIZONTAL_ACCURACY); writeDouble(sink, payload.horizontalAccuracy, METRIC_DIGITS)
+        sink.write(VERTICAL_ACCURACY); writeDouble(sink, payload.verticalAccuracy, METRIC_DIGITS)
+        sink.write(SATELLITES); sink.writeDecimalLong(payload.satellites.toLong())
+
+        payload.userId?.let { sink.write(USER_ID); writeString(sink, it) }
+        payload.userName?.let { sink.write(USER_NAME); writeString(sink, it) }
+        payload.userEmail?.let { sink.write(USER_EMAIL); writeString(sink, it) }
+
+        payload.receiverBattery?.let { sink.write(RECEIVER_BATTERY); sink.writeDecimalLong(it.toLong()) }
+        payload.receiverHealth?.let { sink.write(RECEIVER_HEALTH); writeString(sink, it) }
+
+        payload.pdop?.let { sink.write(PDOP); writeDouble(sink, it, METRIC_DIGITS) }
+        payload.hdop?.let { sink.write(HDOP); writeDouble(sink, it, METRIC_DIGITS) }
+        payload.vdop?.let { sink.write(VDOP); writeDouble(sink, it, METRIC_DIGITS) }
+        sink.writeByte('}'.code)
+    }
+
+    /**
+     * Writes [value] rounded to [fractionDigits] decimals with trailing zeros trimmed
+     * (integral values have no fraction, as with `JSONObject`). NaN and infinities,
+     * which JSON cannot represent, are written as `null`.
+     */
+    fun writeDouble(sink: BufferedSink, value: Double, fractionDigits: Int) {
+        if (value.isNaN() || value.isInfinite()) {
+            sink.write(NULL)
+            return
+        }
+        val magnitude = Math.abs(value)
+        val scale = POW10[fractionDigits]
+        if (magnitude >= Long.MAX_VALUE / scale) {
+            // Far outside anything a position record carries; not worth a digit loop
+            sink.writeUtf8(value.toString())
+            return
+        }
+        val scaled = Math.round(magnitude * scale)
+        if (value < 0 && scaled != 0L) sink.writeByte('-'.code)
+        sink.writeDecimalLong(scaled / scale)
+
+        var fraction = scaled % scale
+        if (fraction == 0L) return
+        var digits = fractionDigits
+        while (fraction % 10 == 0L) {
+            fraction /= 10
+            digits--
+        }
+        sink.writeByte('.'.code)
+        var divisor = POW10[digits - 1]
+        while (divisor > 0) {
+            sink.writeByte('0'.code + (fraction / divisor % 10).toInt())
+            divisor /= 10
+        }
+    }
+
+    /** Writes [value] as a quoted JSON string, escaping only what JSON requires. */
+    fun writeString(sink: BufferedSink, value: String) {
+        sink.writeByte('"'.code)
+        var runStart = 0
+        for (i in value.indices) {
+            val c = value[i]
+            if (c != '"' && c != '\\' && c >= ' ') continue
+            if (i > runStart) sink.writeUtf8(value, runStart, i)
+            when (c) {
+                '"' -> sink.writeUtf8("\\\"")
+                '\\' -> sink.writeUtf8("\\\\")
+                '\n' -> sink.writeUtf8("\\n")
+                '\r' -> sink.writeUtf8("\\r")
+                '\t' -> sink.writeUtf8("\\t")
+                else -> {
+                    sink.writeUtf8("\\u00")
+                    sink.writeByte(HEX[c.code shr 4].code)
+                    sink.writeByte(HEX[c.code and 0xF].code)
+                }
+            }
+            runStart = i + 1
+        }
+        if (runStart < value.length) sink.writeUtf8(value, runStart, value.length)
+        sink.writeByte('"'.code)
+    }
+
+    /**
+     * Payload timestamps are produced by `Instant.toString()`, so they are written as-is;
+     * anything else is replaced by the current UTC time, as the old path did.
+     */
+    private fun writeTimestamp(sink: BufferedSink, timestamp: String) {
+        val looksLikeInstant = timestamp.length in 20..30 &&
+            timestamp[4] == '-' && timestamp[10] == 'T' && timestamp.endsWith('Z')
+        writeString(sink, if (looksLikeInstant) timestamp else Instant.now().toString())
+    }
+
+    /** Writes `"yyyy-MM-dd'T'HH:mm:ss+05:30"` for [epochSecond] in IST. */
+    fun writeIstTimestamp(sink: BufferedSink, epochSecond: Long) {
+        val local = epochSecond + IST_OFFSET_SECONDS
+        val days = Math.floorDiv(local, 86_400L)
+        val secondOfDay = Math.floorMod(local, 86_400L).toInt()
+
+        // Civil-from-days (proleptic Gregorian), see H. Hinnant's date algorithms
+        val z = days + 719_468
+        val era = Math.floorDiv(z, 146_097L)
+        val dayOfEra = z - era * 146_097
+        val yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365
+        val dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100)
+        val mp = (5 * dayOfYear + 2) / 153
+        val day = (dayOfYear - (153 * mp + 2) / 5 + 1).toInt()
+        val month = (if (mp < 10) mp + 3 else mp - 9).toInt()
+        val year = yearOfEra + era * 400 + if (month <= 2) 1 else 0
+
+        sink.writeByte('"'.code)
+        writePadded(sink, year, 4)
+        sink.writeByte('-'.code)
+        writePadded(sink, month.toLong(), 2)
+        sink.writeByte('-'.code)
+        writePadded(sink, day.toLong(), 2)
+        sink.writeByte('T'.code)
+        writePadded(sink, (secondOfDay / 3600).toLong(), 2)
+        sink.writeByte(':'.code)
+        writePadded(sink, (secondOfDay / 60 % 60).toLong(), 2)
+        sink.writeByte(':'.code)
+        writePadded(sink, (secondOfDay % 60).toLong(), 2)
+        sink.write(IST_SUFFIX)
+        sink.writeByte('"'.code)
+    }
+
+    private fun writePadded(sink: BufferedSink, value: Long, width: Int) {
+        var divisor = POW10[width - 1]
+        while (divisor > 1 && value < divisor) {
+            sink.writeByte('0'.code)
+            divisor /= 10
+        }
+        sink.writeDecimalLong(value)
+    }
+}
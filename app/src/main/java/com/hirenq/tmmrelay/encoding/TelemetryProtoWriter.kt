@@ -0,0 +1,164 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.google.protobuf.CodedOutputStream
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.Buffer
+import okio.BufferedSink
+import java.time.Instant
+import kotlin.math.roundToInt
+import kotlin.math.roundToLong
+
+/**
+ * Encodes [TelemetryPayload] as the `TelemetryRecord` / `TelemetryBatch` messages
+ * defined in `src/main/proto/telemetry.proto`.
+ *
+ * Written against the protobuf runtime directly because the Android build has no
+ * protoc step; field numbers and scaling below must match the schema.
+ */
+object TelemetryProtoWriter {
+
+    private const val OUTPUT_BUFFER_BYTES = 256
+
+    // TelemetryRecord field numbers
+    private const val TENANT_ID = 1
+    private const val DEVICE_ID = 2
+    private const val LATITUDE_E9 = 3
+    private const val LONGITUDE_E9 = 4
+    private const val BATTERY = 5
+    private const val FIX_TYPE = 6
+    private const val FIX_TYPE_NAME = 7
+    private const val TIMESTAMP_MS = 8
+    private const val SENT_AT_MS = 9
+    private const val HEALTH = 10
+    private const val HEALTH_NAME = 11
+    private const val HORIZONTAL_ACCURACY_MM = 12
+    private const val VERTICAL_ACCURACY_MM = 13
+    private const val SATELLITES = 14
+    private const val USER_ID = 15
+    private const val USER_NAME = 16
+    private const val USER_EMAIL = 17
+    private const val RECEIVER_BATTERY = 18
+    private const val RECEIVER_HEALTH = 19
+    private const val RECEIVER_HEALTH_NAME = 20
+    private const val PDOP_E2 = 21
+    private const val HDOP_E2 = 22
+    private const val VDOP_E2 = 23
+
+    // TelemetryBatch.records, length-delimited
+    private const val BATCH_RECORD_TAG = (1 shl 3) or 2
+
+    // FixType values
+    private const val FIX_OTHER = 0
+    private const val FIX_NO_FIX = 1
+    private const val FIX_AUTONOMOUS = 2
+    private const val FIX_DGPS = 3
+    private const val FIX_SBAS = 4
+    private const val FIX_RTK_FLOAT = 5
+    private const val FIX_RTK_FIXED = 6
+    private const val FIX_RTX = 7
+    private const val FIX_UNKNOWN = 8
+
+    // Health values
+    private const val HEALTH_OTHER = 0
+    private val HEALTH_VALUES = mapOf(
+        "OK" to 1,
+        "NO_COORDINATES" to 2,
+        "NO_FIX" to 3,
+        "ERROR" to 4,
+        "OFFLINE" to 5,
+        "POOR" to 6,
+        "GOOD" to 7,
+        "EXCELLENT" to 8,
+        "UNKNOWN" to 9
+    )
+
+    /** Writes a single `TelemetryRecord` message to [sink]. */
+    fun write(payload: TelemetryPayload, sink: BufferedSink, nowMillis: Long = System.currentTimeMillis()) {
+        val out = CodedOutputStream.newInstance(sink.outputStream(), OUTPUT_BUFFER_BYTES)
+        write(payload, out, nowMillis)
+        out.flush()
+    }
+
+    /** Appends [record] (an encoded `TelemetryRecord`) to [batch] as one `TelemetryBatch.records` entry. */
+    fun appendToBatch(record: Buffer, batch: BufferedSink) {
+        batch.writeByte(BATCH_RECORD_TAG)
+        var size = record.size
+        while (size >= 0x80) {
+            batch.writeByte(((size and 0x7F) or 0x80).toInt())
+            size = size ushr 7
+        }
+        batch.writeByte(size.toInt())
+        batch.writeAll(record)
+    }
+
+    fun write(payload: TelemetryPayload, out: CodedOutputStream, nowMillis: Long) {
+        out.writeString(TENANT_ID, payload.tenantId)
+        out.writeString(DEVICE_ID, payload.deviceId)
+        out.writeSInt64(LATITUDE_E9, (payload.latitude * 1e9).roundToLong())
+        out.writeSInt64(LONGITUDE_E9, (payload.longitude * 1e9).roundToLong())
+        out.writeInt32(BATTERY, payload.battery)
+
+        val fixType = fixType(payload.fixType)
+        out.writeEnum(FIX_TYPE, fixType)
+        if (fixType == FIX_OTHER) out.writeString(FIX_TYPE_NAME, payload.fixType)
+
+        out.writeInt64(TIMESTAMP_MS, timestampMillis(payload.timestamp, nowMillis))
+        out.writeInt64(SENT_AT_MS, nowMillis)
+
+        val health = HEALTH_VALUES[payload.health] ?: HEALTH_OTHER
+        out.writeEnum(HEALTH, health)
+        if (health == HEALTH_OTHER) out.writeString(HEALTH_NAME, payload.health)
+
+        out.writeSInt32(HORIZONTAL_ACCURACY_MM, millimetres(payload.horizontalAccuracy))
+        out.writeSInt32(VERTICAL_ACCURACY_MM, millimetres(payload.verticalAccuracy))
+        out.writeInt32(SATELLITES, payload.satellites)
+
+        payload.userId?.let { out.writeString(USER_ID, it) }
+        payload.userName?.let { out.writeString(USER_NAME, it) }
+        payload.userEmail?.let { out.writeString(USER_EMAIL, it) }
+
+        payload.receiverBattery?.let { out.writeInt32(RECEIVER_BATTERY, it) }
+        payload.receiverHealth?.let { name ->
+            val receiverHealth = HEALTH_VALUES[name] ?: HEALTH_OTHER
+            out.writeEnum(RECEIVER_HEALTH, receiverHealth)
+            if (receiverHealth == HEALTH_OTHER) out.writeString(RECEIVER_HEALTH_NAME, name)
+        }
+
+        payload.pdop?.let { dop(it) }?.let { out.writeUInt32(PDOP_E2, it) }
+        payload.hdop?.let { dop(it) }?.let { out.writeUInt32(HDOP_E2, it) }
+        payload.vdop?.let { dop(it) }?.let { out.writeUInt32(VDOP_E2, it) }
+    }
+
+    /**
+     * Maps the solution names coming from the Catalyst SDK and the TMM socket onto
+     * the schema enum; anything unrecognised goes out as OTHER plus the raw name.
+     */
+    fun fixType(name: String): Int {
+        val upper = name.uppercase()
+        return when {
+            upper == "UNKNOWN" -> FIX_UNKNOWN
+            upper.contains("INVALID") || upper.contains("NO_FIX") -> FIX_NO_FIX
+            upper.contains("AUTONOMOUS") -> FIX_AUTONOMOUS
+            upper.contains("RTX") -> FIX_RTX
+            upper.contains("FLOAT") -> FIX_RTK_FLOAT
+            upper.contains("RTK") || upper.contains("FIXED") -> FIX_RTK_FIXED
+            upper.contains("SBAS") -> FIX_SBAS
+            upper.contains("DGPS") || upper.contains("DIFFERENTIAL") -> FIX_DGPS
+            else -> FIX_OTHER
+        }
+    }
+
+    private fun timestampMillis(timestamp: String, nowMillis: Long): Long =
+        try {
+            Instant.parse(timestamp).toEpochMilli()
+        } catch (e: Exception) {
+            nowMillis
+        }
+
+    private fun millimetres(metres: Double): Int =
+        if (metres.isNaN() || metres < 0) -1 else (metres * 1000).coerceAtMost(Int.MAX_VALUE.toDouble()).roundToInt()
+
+    private fun dop(value: Double): Int? =
+        if (value.isNaN() || value.isInfinite() || value < 0) null
+        else (value * 100).coerceAtMost(Int.MAX_VALUE.toDouble()).roundToInt()
+}
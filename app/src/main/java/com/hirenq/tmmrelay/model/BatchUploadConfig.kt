@@ -0,0 +1,22 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Settings for uploading several telemetry records in one POST.
+ * A batch is sent once it holds [maxRecords] records or [maxBytes] of body,
+ * or [lingerMs] after its first record was queued, whichever comes first.
+ * [keyframeInterval] applies when uploading with `WireFormat.DELTA`.
+ */
+data class BatchUploadConfig(
+    val enabled: Boolean = false,
+    val maxRecords: Int = 50,
+    val lingerMs: Long = 30_000L,
+    val maxBytes: Int = 256 * 1024,
+    val path: String = "pushdata/batch",
+    val format: BatchFormat = BatchFormat.JSON_ARRAY,
+    val keyframeInterval: Int = 30
+)
+
+enum class BatchFormat(val contentType: String) {
+    JSON_ARRAY("application/json"),
+    NDJSON("application/x-ndjson")
+}
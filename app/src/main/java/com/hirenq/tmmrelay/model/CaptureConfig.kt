@@ -0,0 +1,15 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Receiver capture settings. With [positionRateHz] above 1 the Catalyst epochs are
+ * buffered and reduced by [decimation] to one position every [outputIntervalMs], so
+ * the relay path keeps its 1 Hz cadence while drawing on the extra epochs.
+ */
+data class CaptureConfig(
+    val positionRateHz: Int = 1,
+    val outputIntervalMs: Long = 1_000L,
+    val decimation: DecimationMode = DecimationMode.BEST_PRECISION
+) {
+    val highRate: Boolean
+        get() = positionRateHz > 1
+}
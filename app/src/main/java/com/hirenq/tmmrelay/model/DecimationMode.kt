@@ -0,0 +1,13 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * How a window of high-rate epochs is reduced to one relayed position.
+ * [AVERAGE] and [MEDIAN] combine coordinates and precisions of the epochs that share
+ * the newest epoch's solution type; [BEST_PRECISION] relays the epoch with the
+ * smallest horizontal precision unchanged.
+ */
+enum class DecimationMode {
+    AVERAGE,
+    MEDIAN,
+    BEST_PRECISION
+}
@@ -0,0 +1,20 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Settings for the shared HTTP transport. Idle connections are kept for [keepAliveMs],
+ * which should cover the usual gap between two posts so the next one skips the TCP and
+ * TLS handshakes. [maxRequestsPerHost] bounds concurrent calls to one host; over HTTP/2
+ * they share a single connection. Timeouts are in milliseconds, 0 for none; [callTimeoutMs]
+ * bounds a whole call including retries and redirects.
+ */
+data class HttpTransportConfig(
+    val maxIdleConnections: Int = 2,
+    val keepAliveMs: Long = 5 * 60_000L + 10_000L,
+    val maxRequests: Int = 16,
+    val maxRequestsPerHost: Int = 4,
+    val connectTimeoutMs: Long = 10_000L,
+    val readTimeoutMs: Long = 20_000L,
+    val writeTimeoutMs: Long = 20_000L,
+    val callTimeoutMs: Long = 60_000L,
+    val http2: Boolean = true
+)
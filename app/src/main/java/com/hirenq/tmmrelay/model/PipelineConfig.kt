@@ -0,0 +1,28 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Queue sizes and overflow handling for the stages of `TelemetryPipeline`. Each stage
+ * queues at most [StageConfig.capacity] items and applies its [StageConfig.overflow]
+ * to the next one. [transmit] only queues direct uploads, made when there is no outbox.
+ */
+data class PipelineConfig(
+    val normalize: StageConfig = StageConfig(64, OverflowStrategy.DROP_OLDEST),
+    val policy: StageConfig = StageConfig(64, OverflowStrategy.BLOCK),
+    val encode: StageConfig = StageConfig(256, OverflowStrategy.BLOCK),
+    val transmit: StageConfig = StageConfig(128, OverflowStrategy.DROP_OLDEST)
+)
+
+data class StageConfig(
+    val capacity: Int,
+    val overflow: OverflowStrategy
+)
+
+/** What a pipeline stage does with an item that arrives while its queue is full. */
+enum class OverflowStrategy {
+    /** Wait on the caller's thread for room; pushes back on the stage before. */
+    BLOCK,
+    /** Discard the oldest queued item to make room, so the latest position wins. */
+    DROP_OLDEST,
+    /** Discard the new item and keep the queue as it is. */
+    DROP_NEWEST
+}
@@ -0,0 +1,27 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Settings for the adaptive reporting engine. A trigger is disabled by setting its
+ * threshold to 0. [heartbeatMs] keeps the old five-minute post while moving;
+ * [stationaryHeartbeatMs] replaces it once the receiver has reported
+ * [stationaryEpochs] static epochs.
+ *
+ * With [simplifyTrack] set, the distance, heading and speed triggers are replaced by
+ * streaming line simplification: epochs are kept when the track bends by more than
+ * `max(minCrossTrackMetres, precisionFactor * hPrecision)`. Fix changes and both
+ * heartbeats still apply.
+ */
+data class ReportingConfig(
+    val minDistanceMetres: Double = 25.0,
+    val minHeadingChangeDegrees: Double = 30.0,
+    val headingMinSpeedMps: Double = 1.0,
+    val metresPerReport: Double = 50.0,
+    val minIntervalMs: Long = 5_000L,
+    val heartbeatMs: Long = 5 * 60_000L,
+    val stationaryEpochs: Int = 10,
+    val stationaryHeartbeatMs: Long = 30 * 60_000L,
+    val reportFixChanges: Boolean = true,
+    val simplifyTrack: Boolean = false,
+    val minCrossTrackMetres: Double = 2.0,
+    val precisionFactor: Double = 3.0
+)
@@ -0,0 +1,11 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Which receiver connections the relay runs. With [BOTH] the Catalyst SDK and the TMM
+ * WebSocket run side by side and `SourceArbiter` picks the epoch to relay.
+ */
+enum class SourceMode {
+    CATALYST,
+    TMM,
+    BOTH
+}
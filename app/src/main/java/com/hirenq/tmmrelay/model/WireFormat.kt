@@ -0,0 +1,12 @@
+package com.hirenq.tmmrelay.model
+
+/**
+ * Body encoding for telemetry uploads. [PROTOBUF] follows `src/main/proto/telemetry.proto`;
+ * [DELTA] is the keyframe/delta stream of `TelemetryDeltaEncoder`. The client drops
+ * back to [JSON] if the backend answers 415.
+ */
+enum class WireFormat(val contentType: String) {
+    JSON("application/json"),
+    PROTOBUF("application/x-protobuf"),
+    DELTA("application/vnd.hirenq.telemetry-delta.v1")
+}
@@ -0,0 +1,89 @@
+package com.hirenq.tmmrelay.network
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.util.Log
+
+/**
+ * [NetworkStateSource] backed by the default-network callback of [ConnectivityManager],
+ * plus its radio-active listener for piggybacking on cellular wake-ups.
+ */
+class ConnectivityNetworkSource(context: Context) : NetworkStateSource {
+
+    private val TAG = "ConnectivityNetworkSource"
+
+    private val connectivity = context.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+
+    @Volatile
+    override var state: NetworkState = currentState()
+        private set
+
+    private var onStateChanged: (() -> Unit)? = null
+    private var onRadioActive: (() -> Unit)? = null
+
+    private val networkCallback = object : ConnectivityManager.NetworkCallback() {
+        override fun onCapabilitiesChanged(network: Network, capabilities: NetworkCapabilities) {
+            update(stateOf(capabilities))
+        }
+
+        override fun onLost(network: Network) {
+            update(NetworkState.OFFLINE)
+        }
+    }
+
+    private val radioActiveListener = ConnectivityManager.OnNetworkActiveListener {
+        onRadioActive?.invoke()
+    }
+
+    override fun isRadioActive(): Boolean = try {
+        connectivity.isDefaultNetworkActive
+    } catch (e: Exception) {
+        false
+    }
+
+    override fun start(onStateChanged: () -> Unit, onRadioActive: () -> Unit) {
+        this.onStateChanged = onStateChanged
+        this.onRadioActive = onRadioActive
+        state = currentState()
+        try {
+            connectivity.registerDefaultNetworkCallback(networkCallback)
+            connectivity.addDefaultNetworkActiveListener(radioActiveListener)
+        } catch (e: Exception) {
+            // Unwatched, a stale state could hold uploads forever; send and let failures back off instead
+            Log.w(TAG, "Could not watch network state: ${e.message}", e)
+            state = NetworkState(connected = true, validated = true, metered = false)
+        }
+    }
+
+    override fun stop() {
+        try {
+            connectivity.unregisterNetworkCallback(networkCallback)
+            connectivity.removeDefaultNetworkActiveListener(radioActiveListener)
+        } catch (e: Exception) {
+            Log.w(TAG, "Error unregistering network callbacks", e)
+        }
+        onStateChanged = null
+        onRadioActive = null
+    }
+
+    private fun update(newState: NetworkState) {
+        if (newState == state) return
+        Log.i(TAG, "Network: $newState")
+        state = newState
+        onStateChanged?.invoke()
+    }
+
+    private fun currentState(): NetworkState {
+        val capabilities = connectivity.activeNetwork?.let { connectivity.getNetworkCapabilities(it) }
+            ?: return NetworkState.OFFLINE
+        return stateOf(capabilities)
+    }
+
+    private fun stateOf(capabilities: NetworkCapabilities) = NetworkState(
+        connected = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET),
+        validated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+        metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+    )
+}
@@ -0,0 +1,35 @@
+package com.hirenq.tmmrelay.network
+
+/**
+ * The default network as far as uploads care. [validated] means the system has checked it
+ * actually reaches the internet; [metered] links (usually cellular) cost data and radio
+ * wake-ups.
+ */
+data class NetworkState(
+    val connected: Boolean,
+    val validated: Boolean,
+    val metered: Boolean
+) {
+    companion object {
+        val OFFLINE = NetworkState(connected = false, validated = false, metered = false)
+    }
+}
+
+/**
+ * Where [UploadNetworkPolicy] learns about the network: [ConnectivityNetworkSource] on a
+ * device, or any stand-in that reports states and radio activity by hand.
+ */
+interface NetworkStateSource {
+    val state: NetworkState
+
+    /** Whether the default network's radio is in its high-power state right now. */
+    fun isRadioActive(): Boolean
+
+    /**
+     * Starts watching. [onStateChanged] is called after [state] changes, [onRadioActive]
+     * when the radio wakes up; both on any thread.
+     */
+    fun start(onStateChanged: () -> Unit, onRadioActive: () -> Unit)
+
+    fun stop()
+}
@@ -0,0 +1,41 @@
+package com.hirenq.tmmrelay.network
+
+/**
+ * Decides whether queued uploads may go out now, given the network.
+ *
+ * - No validated network: hold everything; records keep coalescing in the outbox and are
+ *   flushed when a validated network appears.
+ * - Unmetered: send right away.
+ * - Metered: send while the radio is already awake, so uploads share wake-ups with other
+ *   traffic; otherwise wait for such a window, but no longer than [maxMeteredDeferMs]
+ *   after the data became ready.
+ *
+ * [holdMs] returns how long to wait; the caller should also be woken by the source's
+ * callbacks, which fire on every state change and radio wake-up.
+ */
+class UploadNetworkPolicy(
+    private val source: NetworkStateSource,
+    private val maxMeteredDeferMs: Long = DEFAULT_MAX_METERED_DEFER_MS
+) {
+
+    /**
+     * @param waitingMs how long the data to send has already been waiting for the network
+     * @return 0 to send now, else the longest the caller should wait before asking again
+     */
+    fun holdMs(waitingMs: Long): Long {
+        val state = source.state
+        return when {
+            !state.connected || !state.validated -> OFFLINE_RECHECK_MS
+            !state.metered -> 0L
+            source.isRadioActive() -> 0L
+            else -> (maxMeteredDeferMs - waitingMs).coerceAtLeast(0L)
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_METERED_DEFER_MS = 60_000L
+
+        // Callbacks normally end an offline hold; this only bounds a missed one
+        const val OFFLINE_RECHECK_MS = 5 * 60_000L
+    }
+}
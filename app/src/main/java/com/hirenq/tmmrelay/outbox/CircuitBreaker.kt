@@ -0,0 +1,152 @@
+package com.hirenq.tmmrelay.outbox
+
+/**
+ * Stops uploads while the backend is down, so a fleet of devices does not keep hammering
+ * it during an outage.
+ *
+ * Outcomes of the last [windowSize] calls younger than [windowMs] are kept. Once there are
+ * at least [minCalls] of them and the success rate falls below [minSuccessRate], the
+ * breaker opens and [allowsCall] is false for [openMs]. It then turns half-open and lets
+ * calls through again; the success rate of the next [halfOpenCalls] outcomes decides
+ * whether it closes or re-opens. Meant for one caller at a time, like the outbox drainer.
+ *
+ * [clock] is a monotonic millisecond clock, replaceable for tests; [onTransition] is called
+ * on every state change, under the breaker's lock.
+ */
+class CircuitBreaker(
+    private val windowSize: Int = 20,
+    private val windowMs: Long = 10 * 60_000L,
+    private val minCalls: Int = 4,
+    private val minSuccessRate: Double = 0.5,
+    private val openMs: Long = 60_000L,
+    private val halfOpenCalls: Int = 2,
+    private val clock: () -> Long = ::monotonicMillis,
+    private val onTransition: (from: State, to: State, reason: String) -> Unit = { _, _, _ -> }
+) {
+
+    enum class State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private val outcomeTimes = LongArray(windowSize.coerceAtLeast(1))
+    private val outcomes = BooleanArray(outcomeTimes.size)
+    private var next = 0
+    private var count = 0
+
+    private var state = State.CLOSED
+    private var openedAt = 0L
+    private var trialSuccesses = 0
+    private var trialFailures = 0
+
+    var transitions = 0L
+        private set
+
+    val currentState: State
+        @Synchronized get() {
+            updateOpenState()
+            return state
+        }
+
+    /** Whether a call may be made now. */
+    @Synchronized
+    fun allowsCall(): Boolean {
+        updateOpenState()
+        return state != State.OPEN
+    }
+
+    /** Milliseconds until the breaker lets a call through again; 0 if it does now. */
+    @Synchronized
+    fun remainingOpenMs(): Long {
+        updateOpenState()
+        return if (state == State.OPEN) (openedAt + openMs - clock()).coerceAtLeast(0L) else 0L
+    }
+
+    @Synchronized
+    fun recordSuccess() = record(true)
+
+    @Synchronized
+    fun recordFailure() = record(false)
+
+    /** Success rate over the current window, or NaN with no calls in it. */
+    @Synchronized
+    fun successRate(): Double {
+        val now = clock()
+        var calls = 0
+        var successes = 0
+        for (i in 0 until count) {
+            if (now - outcomeTimes[i] > windowMs) continue
+            calls++
+            if (outcomes[i]) successes++
+        }
+        return if (calls == 0) Double.NaN else successes.toDouble() / calls
+    }
+
+    private fun record(success: Boolean) {
+        updateOpenState()
+        when (state) {
+            // A late result of a call made before the breaker opened
+            State.OPEN -> return
+            // Decided as soon as the remaining trial calls can no longer change the outcome
+            State.HALF_OPEN -> {
+                if (success) trialSuccesses++ else trialFailures++
+                val needed = Math.ceil(minSuccessRate * halfOpenCalls).toInt()
+                if (trialSuccesses >= needed) {
+                    clearWindow()
+                    moveTo(State.CLOSED, "$trialSuccesses/${trialSuccesses + trialFailures} trial calls succeeded")
+                } else if (halfOpenCalls - trialFailures < needed) {
+                    open("$trialFailures/${trialSuccesses + trialFailures} trial calls failed")
+                }
+            }
+            State.CLOSED -> {
+                outcomeTimes[next] = clock()
+                outcomes[next] = success
+                next = (next + 1) % outcomes.size
+                if (count < outcomes.size) count++
+                if (!success) {
+                    val rate = successRate()
+                    val calls = callsInWindow()
+                    if (calls >= minCalls && rate < minSuccessRate) {
+                        open("success rate ${"%.2f".format(rate)} over $calls calls")
+                    }
+                }
+            }
+        }
+    }
+
+    private fun callsInWindow(): Int {
+        val now = clock()
+        var calls = 0
+        for (i in 0 until count) if (now - outcomeTimes[i] <= windowMs) calls++
+        return calls
+    }
+
+    private fun open(reason: String) {
+        openedAt = clock()
+        moveTo(State.OPEN, reason)
+    }
+
+    private fun updateOpenState() {
+        if (state == State.OPEN && clock() - openedAt >= openMs) {
+            trialSuccesses = 0
+            trialFailures = 0
+            moveTo(State.HALF_OPEN, "open for ${openMs / 1000}s")
+        }
+    }
+
+    private fun clearWindow() {
+        count = 0
+        next = 0
+    }
+
+    private fun moveTo(to: State, reason: String) {
+        val from = state
+        if (from == to) return
+        state = to
+        transitions++
+        onTransition(from, to, reason)
+    }
+}
+
+internal fun monotonicMillis(): Long = System.nanoTime() / 1_000_000L
@@ -0,0 +1,13 @@
+package com.hirenq.tmmrelay.outbox
+
+/** Outcome of uploading a single record as part of a batch. */
+enum class DeliveryStatus {
+    /** Accepted by the backend. */
+    DELIVERED,
+
+    /** Refused for good (e.g. validation error); retrying would not help. */
+    REJECTED,
+
+    /** Failed transiently; the record stays at the head of the outbox to be sent again. */
+    RETRY
+}
@@ -0,0 +1,231 @@
+package com.hirenq.tmmrelay.outbox
+
+import android.util.Log
+import com.hirenq.tmmrelay.model.BatchUploadConfig
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.network.UploadNetworkPolicy
+import com.hirenq.tmmrelay.pipeline.StageMeter
+
+/**
+ * Background worker that replays [TelemetryOutbox] records in order.
+ *
+ * [send] delivers one payload synchronously and returns true once the backend
+ * has accepted it; only then is the record committed. On failure the head
+ * record is retried when [retryScheduler] allows: after a jittered backoff of
+ * up to [maxRetryDelayMs], no sooner than the backend's `Retry-After` (read from
+ * [retryAfterMs]), and not while its circuit breaker is open. Nothing is skipped
+ * while the backend is unreachable.
+ *
+ * With a [networkPolicy], records are held while it says so (no validated network,
+ * or a metered link whose radio is idle) and coalesce in the outbox meanwhile.
+ *
+ * When [batchConfig] is enabled and [sendBatch] is set, records are grouped
+ * instead: [sendBatch] returns one [DeliveryStatus] per record it uploaded (a
+ * shorter list means the rest did not fit and stay queued). Only the leading run
+ * of delivered or rejected records is committed; the first [DeliveryStatus.RETRY]
+ * record and everything after it stay at the head of the outbox, so replay stays
+ * in order at the cost of re-sending records after it that did get through.
+ *
+ * [meter] counts upload attempts per record; as records wait on disk rather than in
+ * memory, their latency is the upload's own duration.
+ */
+class OutboxDrainer(
+    private val outbox: TelemetryOutbox,
+    private val initialRetryDelayMs: Long = DEFAULT_INITIAL_RETRY_DELAY_MS,
+    private val maxRetryDelayMs: Long = DEFAULT_MAX_RETRY_DELAY_MS,
+    private val batchConfig: BatchUploadConfig = BatchUploadConfig(),
+    private val sendBatch: ((List<TelemetryPayload>) -> List<DeliveryStatus>)? = null,
+    val retryScheduler: RetryScheduler = RetryScheduler(initialRetryDelayMs, maxRetryDelayMs),
+    private val retryAfterMs: () -> Long? = { null },
+    private val networkPolicy: UploadNetworkPolicy? = null,
+    private val send: (TelemetryPayload) -> Boolean
+) {
+
+    private val TAG = "OutboxDrainer"
+
+    val meter = StageMeter("upload")
+
+    private val retryLock = Object()
+
+    @Volatile
+    private var running = false
+    @Volatile
+    private var skipBackoff = false
+    private var woken = false // guarded by retryLock
+    // Monotonic time since which queued data has been waiting for the network; 0 when not held
+    private var heldSince = 0L
+    private var thread: Thread? = null
+
+    @Synchronized
+    fun start() {
+        if (running) return
+        running = true
+        thread = Thread(::drainLoop, "outbox-drainer").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    /**
+     * Re-evaluates a pending wait now. With [skipBackoff], e.g. when a validated network
+     * appears, the retry delay is cut short too; an open circuit breaker still holds
+     * uploads back.
+     */
+    fun wakeUp(skipBackoff: Boolean = true) {
+        if (skipBackoff) this.skipBackoff = true
+        synchronized(retryLock) {
+            woken = true
+            retryLock.notifyAll()
+        }
+    }
+
+    // A wake-up that arrives while the loop is busy still ends its next pause
+    private fun pause(ms: Long) {
+        synchronized(retryLock) {
+            if (!woken) retryLock.wait(ms)
+            woken = false
+        }
+    }
+
+    @Synchronized
+    fun stop() {
+        running = false
+        thread?.let {
+            it.interrupt()
+            try {
+                it.join(STOP_TIMEOUT_MS)
+            } catch (_: InterruptedException) {
+                Thread.currentThread().interrupt()
+            }
+        }
+        thread = null
+    }
+
+    private fun drainLoop() {
+        while (running) {
+            try {
+                val entry = outbox.await(IDLE_WAIT_MS) ?: continue
+
+                if (skipBackoff) {
+                    skipBackoff = false
+                    retryScheduler.skipBackoff()
+                }
+                val waitMs = retryScheduler.delayBeforeAttempt()
+                if (waitMs > 0) {
+                    pause(waitMs)
+                    continue
+                }
+
+                val now = System.nanoTime() / 1_000_000L
+                if (heldSince == 0L) heldSince = now
+                val holdMs = networkPolicy?.holdMs(now - heldSince) ?: 0L
+                if (holdMs > 0) {
+                    pause(holdMs)
+                    continue
+                }
+                if (now - heldSince > NETWORK_HOLD_LOG_MS) {
+                    Log.i(TAG, "Network available after ${(now - heldSince) / 1000}s - sending (${outbox.pendingBytes()} bytes pending)")
+                }
+                heldSince = 0L
+
+                if (batchConfig.enabled && sendBatch != null) {
+                    when (drainBatch()) {
+                        true -> retryScheduler.onSuccess()
+                        false -> backOff("Batch delivery failed")
+                        null -> Unit
+                    }
+                    continue
+                }
+
+                val sendStarted = System.nanoTime()
+                val delivered = try {
+                    send(entry.payload)
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error sending outbox record", e)
+                    false
+                }
+                val sendNanos = System.nanoTime() - sendStarted
+                meter.onProcessed(sendNanos, sendNanos, delivered)
+
+                if (delivered) {
+                    outbox.commit(entry)
+                    retryScheduler.onSuccess()
+                } else {
+                    backOff("Delivery failed")
+                }
+            } catch (_: InterruptedException) {
+                // Stopping - loop re-checks running
+            } catch (e: Exception) {
+                Log.e(TAG, "Error in outbox drain loop", e)
+                try {
+                    Thread.sleep(DEFAULT_INITIAL_RETRY_DELAY_MS)
+                } catch (_: InterruptedException) {
+                }
+            }
+        }
+        Log.i(TAG, "Outbox drainer stopped")
+    }
+
+    private fun backOff(what: String) {
+        val waitMs = retryScheduler.onFailure(retryAfterMs())
+        Log.w(TAG, "$what - retrying in ${waitMs / 1000}s (${outbox.pendingBytes()} bytes pending, " +
+                "circuit ${retryScheduler.breaker.currentState})")
+    }
+
+    /**
+     * Lingers until a full batch is queued (or the linger time runs out), uploads it and
+     * settles every record. Returns false if nothing got through and the caller should back off,
+     * null if there was nothing to send.
+     */
+    private fun drainBatch(): Boolean? {
+        val lingerUntil = System.currentTimeMillis() + batchConfig.lingerMs
+        var batch = outbox.peekBatch(batchConfig.maxRecords, batchConfig.maxBytes)
+        while (running && batch.size < batchConfig.maxRecords && !isFull(batch)) {
+            val remaining = lingerUntil - System.currentTimeMillis()
+            if (remaining <= 0) break
+            outbox.awaitAppend(remaining)
+            batch = outbox.peekBatch(batchConfig.maxRecords, batchConfig.maxBytes)
+        }
+        if (batch.isEmpty() || !running) return null
+
+        val sendStarted = System.nanoTime()
+        val statuses = try {
+            sendBatch!!(batch.map { it.payload })
+        } catch (e: Exception) {
+            Log.e(TAG, "Error sending outbox batch", e)
+            emptyList()
+        }
+        val sendNanos = System.nanoTime() - sendStarted
+        meter.onProcessed(sendNanos, sendNanos, statuses.any { it != DeliveryStatus.RETRY }, batch.size)
+        // Settle up to the first record to retry; it and the rest go again, in order
+        val settledCount = statuses.take(batch.size).takeWhile { it != DeliveryStatus.RETRY }.size
+        if (settledCount == 0) return false
+
+        val settled = batch.subList(0, settledCount)
+        settled.forEachIndexed { i, entry ->
+            if (statuses[i] == DeliveryStatus.REJECTED) {
+                Log.w(TAG, "Backend rejected record ${entry.payload.timestamp} - dropping it")
+            }
+        }
+        outbox.commit(settled.last())
+        Log.d(TAG, "Batch of ${batch.size}: $settledCount settled, " +
+                statuses.groupingBy { it }.eachCount())
+        return true
+    }
+
+    private fun isFull(batch: List<TelemetryOutbox.Entry>): Boolean {
+        // peekBatch stops short of maxBytes; treat "no room for another record of this size" as full
+        val bytes = batch.sumOf { it.sizeBytes }
+        val average = if (batch.isEmpty()) 0 else bytes / batch.size
+        return bytes + average > batchConfig.maxBytes
+    }
+
+    companion object {
+        const val DEFAULT_INITIAL_RETRY_DELAY_MS: Long = RetryScheduler.DEFAULT_BASE_DELAY_MS
+        const val DEFAULT_MAX_RETRY_DELAY_MS: Long = RetryScheduler.DEFAULT_MAX_DELAY_MS
+
+        private const val IDLE_WAIT_MS = 30_000L
+        private const val STOP_TIMEOUT_MS = 2_000L
+        private const val NETWORK_HOLD_LOG_MS = 10_000L
+    }
+}
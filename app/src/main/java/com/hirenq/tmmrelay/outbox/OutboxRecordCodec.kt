@@ -0,0 +1,80 @@
+package com.hirenq.tmmrelay.outbox
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Binary encoding of a [TelemetryPayload] as stored in an outbox segment.
+ * The first byte is a format version so old segments stay readable after upgrades.
+ */
+internal object OutboxRecordCodec {
+
+    private const val VERSION: Int = 1
+
+    fun encode(payload: TelemetryPayload): ByteArray {
+        val bytes = ByteArrayOutputStream(160)
+        DataOutputStream(bytes).use { out ->
+            out.writeByte(VERSION)
+            out.writeUTF(payload.tenantId)
+            out.writeUTF(payload.deviceId)
+            out.writeDouble(payload.latitude)
+            out.writeDouble(payload.longitude)
+            out.writeInt(payload.battery)
+            out.writeUTF(payload.fixType)
+            out.writeUTF(payload.timestamp)
+            out.writeUTF(payload.health)
+            out.writeDouble(payload.horizontalAccuracy)
+            out.writeDouble(payload.verticalAccuracy)
+            out.writeInt(payload.satellites)
+            writeOptional(out, payload.userId) { writeUTF(it) }
+            writeOptional(out, payload.userName) { writeUTF(it) }
+            writeOptional(out, payload.userEmail) { writeUTF(it) }
+            writeOptional(out, payload.receiverBattery) { writeInt(it) }
+            writeOptional(out, payload.pdop) { writeDouble(it) }
+            writeOptional(out, payload.hdop) { writeDouble(it) }
+            writeOptional(out, payload.vdop) { writeDouble(it) }
+            writeOptional(out, payload.receiverHealth) { writeUTF(it) }
+        }
+        return bytes.toByteArray()
+    }
+
+    fun decode(bytes: ByteArray): TelemetryPayload {
+        DataInputStream(ByteArrayInputStream(bytes)).use { input ->
+            val version = input.readUnsignedByte()
+            if (version != VERSION) throw IOException("Unsupported outbox record version $version")
+            return TelemetryPayload(
+                tenantId = input.readUTF(),
+                deviceId = input.readUTF(),
+                latitude = input.readDouble(),
+                longitude = input.readDouble(),
+                battery = input.readInt(),
+                fixType = input.readUTF(),
+                timestamp = input.readUTF(),
+                health = input.readUTF(),
+                horizontalAccuracy = input.readDouble(),
+                verticalAccuracy = input.readDouble(),
+                satellites = input.readInt(),
+                userId = readOptional(input) { readUTF() },
+                userName = readOptional(input) { readUTF() },
+                userEmail = readOptional(input) { readUTF() },
+                receiverBattery = readOptional(input) { readInt() },
+                pdop = readOptional(input) { readDouble() },
+                hdop = readOptional(input) { readDouble() },
+                vdop = readOptional(input) { readDouble() },
+                receiverHealth = readOptional(input) { readUTF() }
+            )
+        }
+    }
+
+    private inline fun <T> writeOptional(out: DataOutputStream, value: T?, writer: DataOutputStream.(T) -> Unit) {
+        out.writeBoolean(value != null)
+        if (value != null) out.writer(value)
+    }
+
+    private inline fun <T> readOptional(input: DataInputStream, reader: DataInputStream.() -> T): T? =
+        if (input.readBoolean()) input.reader() else null
+}
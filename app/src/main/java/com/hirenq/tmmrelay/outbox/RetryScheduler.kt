@@ -0,0 +1,69 @@
+package com.hirenq.tmmrelay.outbox
+
+import kotlin.random.Random
+
+/**
+ * Decides when the next upload attempt may run.
+ *
+ * After a failure the delay follows "decorrelated jitter": a random value between
+ * [baseDelayMs] and three times the previous delay, capped at [maxDelayMs]. Devices that
+ * lost the backend at the same moment thus drift apart instead of retrying in lockstep. A
+ * `Retry-After` from the backend is honoured as a lower bound. While [breaker] is open,
+ * no attempt is made until it lets a trial call through.
+ *
+ * Not thread-safe; owned by the upload loop. [clock] and [random] are replaceable so
+ * schedules can be checked deterministically.
+ */
+class RetryScheduler(
+    private val baseDelayMs: Long = DEFAULT_BASE_DELAY_MS,
+    private val maxDelayMs: Long = DEFAULT_MAX_DELAY_MS,
+    val breaker: CircuitBreaker = CircuitBreaker(),
+    private val clock: () -> Long = ::monotonicMillis,
+    private val random: Random = Random.Default
+) {
+
+    private var delayMs = 0L
+    private var notBefore = 0L
+
+    /** Consecutive failures since the last success. */
+    @Volatile
+    var consecutiveFailures = 0
+        private set
+
+    /** Milliseconds to wait before the next attempt, 0 if it may run now. */
+    fun delayBeforeAttempt(): Long {
+        val backoff = notBefore - clock()
+        return if (backoff > 0) backoff else breaker.remainingOpenMs()
+    }
+
+    /** Drops the pending backoff, e.g. when connectivity comes back; an open breaker still applies. */
+    fun skipBackoff() {
+        notBefore = 0L
+    }
+
+    fun onSuccess() {
+        breaker.recordSuccess()
+        consecutiveFailures = 0
+        delayMs = 0L
+        notBefore = 0L
+    }
+
+    /**
+     * Records a failed attempt and returns the delay before the next one.
+     * @param retryAfterMs the backend's `Retry-After`, if it sent one
+     */
+    fun onFailure(retryAfterMs: Long? = null): Long {
+        breaker.recordFailure()
+        consecutiveFailures++
+        val upper = (if (delayMs == 0L) baseDelayMs else delayMs * 3).coerceAtMost(maxDelayMs)
+        delayMs = if (upper > baseDelayMs) random.nextLong(baseDelayMs, upper + 1) else upper
+        val wait = maxOf(delayMs, retryAfterMs ?: 0L)
+        notBefore = clock() + wait
+        return wait
+    }
+
+    companion object {
+        const val DEFAULT_BASE_DELAY_MS: Long = 5_000L
+        const val DEFAULT_MAX_DELAY_MS: Long = 5 * 60_000L
+    }
+}
@@ -0,0 +1,381 @@
+package com.hirenq.tmmrelay.outbox
+
+import android.util.Log
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.Locale
+import java.util.zip.CRC32
+
+/**
+ * Persistent append-only queue of telemetry records waiting to be uploaded.
+ *
+ * Records are appended to numbered segment files under [dir] as
+ * `[length:int][crc32:int][body]` frames. Appends are fsync'd in groups (every
+ * [syncEveryRecords] records or [syncIntervalMs], whichever comes first) so a
+ * process kill loses nothing already written and a power loss at most one group.
+ * A torn tail left by a crash mid-write is truncated when the outbox is opened.
+ *
+ * The read cursor is stored next to the segments, so replay resumes where it
+ * stopped after a service restart. Fully consumed segments are deleted, and when
+ * the segments exceed [maxBytes] the oldest ones are evicted first.
+ */
+class TelemetryOutbox(
+    private val dir: File,
+    private val maxBytes: Long = DEFAULT_MAX_BYTES,
+    private val segmentBytes: Long = DEFAULT_SEGMENT_BYTES,
+    private val syncEveryRecords: Int = DEFAULT_SYNC_EVERY_RECORDS,
+    private val syncIntervalMs: Long = DEFAULT_SYNC_INTERVAL_MS
+) : Closeable {
+
+    /** A record read from the outbox; pass it back to [commit] once it has been delivered. */
+    class Entry internal constructor(
+        val payload: TelemetryPayload,
+        val sizeBytes: Int,
+        internal val segmentId: Long,
+        internal val nextOffset: Long
+    )
+
+    private class Segment(val id: Long, val file: File, var size: Long)
+
+    private val TAG = "TelemetryOutbox"
+    private val lock = Object()
+    private val segments = ArrayDeque<Segment>()
+    private val cursorFile = File(dir, CURSOR_FILE)
+
+    private var tail: FileChannel? = null
+    private var cursorSegmentId = 0L
+    private var cursorOffset = 0L
+    private var unsyncedRecords = 0
+    private var lastSyncAt = 0L
+    private var closed = false
+
+    var evictedSegments = 0L
+        private set
+
+    init {
+        synchronized(lock) { open() }
+    }
+
+    fun append(payload: TelemetryPayload) {
+        val body = OutboxRecordCodec.encode(payload)
+        val crc = CRC32().apply { update(body) }
+        val frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + body.size)
+            .putInt(body.size)
+            .putInt(crc.value.toInt())
+            .put(body)
+        frame.flip()
+
+        synchronized(lock) {
+            check(!closed) { "Outbox is closed" }
+            var segment = segments.last()
+            if (segment.size > 0 && segment.size + frame.remaining() > segmentBytes) {
+                segment = rollSegment()
+            }
+            val channel = tail!!
+            while (frame.hasRemaining()) channel.write(frame, segment.size + frame.position())
+            segment.size += frame.limit()
+
+            unsyncedRecords++
+            val now = System.currentTimeMillis()
+            if (unsyncedRecords >= syncEveryRecords || now - lastSyncAt >= syncIntervalMs) {
+                syncLocked()
+            }
+            enforceBudgetLocked()
+            lock.notifyAll()
+        }
+    }
+
+    /** Returns the oldest undelivered record without removing it, or null if the outbox is drained. */
+    fun peek(): Entry? = synchronized(lock) { peekLocked() }
+
+    /** Waits up to [timeoutMs] for a record to become available. */
+    fun await(timeoutMs: Long): Entry? = synchronized(lock) {
+        val deadline = System.currentTimeMillis() + timeoutMs
+        var entry = peekLocked()
+        while (entry == null && !closed) {
+            val remaining = deadline - System.currentTimeMillis()
+            if (remaining <= 0) break
+            lock.wait(remaining)
+            entry = peekLocked()
+        }
+        entry
+    }
+
+    /**
+     * Returns up to [maxRecords] undelivered records in order, stopping before the
+     * record that would take the total past [maxBytes] (at least one is always returned).
+     */
+    fun peekBatch(maxRecords: Int, maxBytes: Int): List<Entry> = synchronized(lock) {
+        val batch = ArrayList<Entry>()
+        val head = peekLocked() ?: return@synchronized batch
+        batch.add(head)
+        var bytes = head.sizeBytes
+        var segmentIndex = segments.indexOfFirst { it.id == head.segmentId }
+        var offset = head.nextOffset
+        while (batch.size < maxRecords && segmentIndex in segments.indices) {
+            val segment = segments[segmentIndex]
+            if (offset >= segment.size) {
+                segmentIndex++
+                offset = 0L
+                continue
+            }
+            val frame = RandomAccessFile(segment.file, "r").use { readFrame(it.channel, offset, segment.size) } ?: break
+            val size = (frame.second - offset).toInt()
+            if (bytes + size > maxBytes) break
+            val payload = try {
+                OutboxRecordCodec.decode(frame.first)
+            } catch (e: IOException) {
+                // Leave unreadable records to peek(), which skips them
+                break
+            }
+            batch.add(Entry(payload, size, segment.id, frame.second))
+            bytes += size
+            offset = frame.second
+        }
+        batch
+    }
+
+    /** Waits up to [timeoutMs] for the next [append]; returns early if the outbox is closed. */
+    fun awaitAppend(timeoutMs: Long) {
+        synchronized(lock) {
+            if (!closed && timeoutMs > 0) lock.wait(timeoutMs)
+        }
+    }
+
+    /** Marks [entry] and every record before it as delivered. */
+    fun commit(entry: Entry) {
+        synchronized(lock) {
+            if (closed) return
+            // A segment evicted while the entry was in flight already moved the cursor past it
+            if (entry.segmentId < cursorSegmentId) return
+            cursorSegmentId = entry.segmentId
+            cursorOffset = entry.nextOffset
+            dropConsumedSegmentsLocked()
+            writeCursorLocked()
+        }
+    }
+
+    /** Number of bytes still waiting to be delivered. */
+    fun pendingBytes(): Long = synchronized(lock) {
+        segments.filter { it.id >= cursorSegmentId }.sumOf { it.size } -
+            if (segments.any { it.id == cursorSegmentId }) cursorOffset else 0L
+    }
+
+    fun flush() {
+        synchronized(lock) {
+            if (!closed) syncLocked()
+        }
+    }
+
+    override fun close() {
+        synchronized(lock) {
+            if (closed) return
+            try {
+                syncLocked()
+                writeCursorLocked()
+                tail?.close()
+            } catch (e: IOException) {
+                Log.w(TAG, "Error closing outbox", e)
+            }
+            tail = null
+            closed = true
+            lock.notifyAll()
+        }
+    }
+
+    // -------------------- SEGMENTS --------------------
+
+    private fun open() {
+        if (!dir.exists() && !dir.mkdirs()) throw IOException("Cannot create outbox directory $dir")
+
+        dir.listFiles { f -> f.name.endsWith(SEGMENT_SUFFIX) }
+            ?.mapNotNull { f -> f.name.removeSuffix(SEGMENT_SUFFIX).toLongOrNull()?.let { Segment(it, f, f.length()) } }
+            ?.sortedBy { it.id }
+            ?.forEach { segments.addLast(it) }
+
+        if (segments.isEmpty()) {
+            segments.addLast(Segment(0L, segmentFile(0L), 0L))
+        } else {
+            recoverTail(segments.last())
+        }
+        tail = RandomAccessFile(segments.last().file, "rw").channel
+
+        readCursor()
+        val cursorSegment = segments.firstOrNull { it.id == cursorSegmentId }
+        if (cursorSegment == null) {
+            cursorSegmentId = segments.first().id
+            cursorOffset = 0L
+        } else if (cursorOffset > cursorSegment.size) {
+            // The cursor outlived data lost from the page cache; resume at the recovered end
+            cursorOffset = cursorSegment.size
+        }
+        dropConsumedSegmentsLocked()
+        lastSyncAt = System.currentTimeMillis()
+        Log.i(TAG, "Opened outbox with ${segments.size} segment(s), ${pendingBytes()} bytes pending")
+    }
+
+    /** Truncates the last segment after its final intact frame, dropping a record torn by a crash. */
+    private fun recoverTail(segment: Segment) {
+        RandomAccessFile(segment.file, "rw").use { file ->
+            val channel = file.channel
+            var offset = 0L
+            while (true) {
+                val next = readFrame(channel, offset, segment.size)?.second ?: break
+                offset = next
+            }
+            if (offset < segment.size) {
+                Log.w(TAG, "Truncating torn tail of ${segment.file.name} at $offset (was ${segment.size} bytes)")
+                channel.truncate(offset)
+                channel.force(true)
+                segment.size = offset
+            }
+        }
+    }
+
+    private fun rollSegment(): Segment {
+        syncLocked()
+        tail?.close()
+        val segment = Segment(segments.last().id + 1, segmentFile(segments.last().id + 1), 0L)
+        segments.addLast(segment)
+        tail = RandomAccessFile(segment.file, "rw").channel
+        return segment
+    }
+
+    private fun enforceBudgetLocked() {
+        while (segments.size > 1 && segments.sumOf { it.size } > maxBytes) {
+            val oldest = segments.removeFirst()
+            oldest.file.delete()
+            evictedSegments++
+            Log.w(TAG, "Outbox over budget ($maxBytes bytes) - evicted ${oldest.file.name} (${oldest.size} bytes)")
+            if (cursorSegmentId <= oldest.id) {
+                cursorSegmentId = segments.first().id
+                cursorOffset = 0L
+                writeCursorLocked()
+            }
+        }
+    }
+
+    private fun dropConsumedSegmentsLocked() {
+        while (segments.size > 1) {
+            val head = segments.first()
+            val consumed = head.id < cursorSegmentId ||
+                (head.id == cursorSegmentId && cursorOffset >= head.size)
+            if (!consumed) break
+            segments.removeFirst()
+            head.file.delete()
+            if (head.id == cursorSegmentId) {
+                cursorSegmentId = segments.first().id
+                cursorOffset = 0L
+            }
+        }
+    }
+
+    private fun syncLocked() {
+        if (unsyncedRecords == 0) return
+        tail?.force(false)
+        unsyncedRecords = 0
+        lastSyncAt = System.currentTimeMillis()
+    }
+
+    private fun segmentFile(id: Long) = File(dir, String.format(Locale.US, "%019d%s", id, SEGMENT_SUFFIX))
+
+    // -------------------- READING --------------------
+
+    private fun peekLocked(): Entry? {
+        if (closed) return null
+        while (true) {
+            val segment = segments.firstOrNull { it.id == cursorSegmentId } ?: return null
+            if (cursorOffset < segment.size) {
+                val frame = RandomAccessFile(segment.file, "r").use { readFrame(it.channel, cursorOffset, segment.size) }
+                if (frame != null) {
+                    return try {
+                        Entry(OutboxRecordCodec.decode(frame.first), (frame.second - cursorOffset).toInt(), segment.id, frame.second)
+                    } catch (e: IOException) {
+                        // Undecodable but intact frame - skip the record rather than stall the queue
+                        Log.w(TAG, "Skipping unreadable outbox record in ${segment.file.name} at $cursorOffset", e)
+                        cursorOffset = frame.second
+                        writeCursorLocked()
+                        continue
+                    }
+                }
+                Log.w(TAG, "Corrupt frame in ${segment.file.name} at $cursorOffset - skipping rest of segment")
+                cursorOffset = segment.size
+            }
+            if (segment === segments.last()) return null
+            dropConsumedSegmentsLocked()
+            writeCursorLocked()
+        }
+    }
+
+    /** Reads the frame at [offset]; returns its body and the offset of the next frame, or null if it is torn. */
+    private fun readFrame(channel: FileChannel, offset: Long, limit: Long): Pair<ByteArray, Long>? {
+        if (offset + FRAME_HEADER_BYTES > limit) return null
+        val header = ByteBuffer.allocate(FRAME_HEADER_BYTES)
+        if (!readFully(channel, header, offset)) return null
+        header.flip()
+        val length = header.int
+        val crc = header.int
+        if (length < 0 || length > MAX_RECORD_BYTES || offset + FRAME_HEADER_BYTES + length > limit) return null
+
+        val body = ByteBuffer.allocate(length)
+        if (!readFully(channel, body, offset + FRAME_HEADER_BYTES)) return null
+        val bytes = body.array()
+        if (CRC32().apply { update(bytes) }.value.toInt() != crc) return null
+        return bytes to offset + FRAME_HEADER_BYTES + length
+    }
+
+    private fun readFully(channel: FileChannel, buffer: ByteBuffer, offset: Long): Boolean {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) return false
+        }
+        return true
+    }
+
+    // -------------------- CURSOR --------------------
+
+    private fun readCursor() {
+        try {
+            if (!cursorFile.exists()) return
+            val parts = cursorFile.readText().trim().split(':')
+            cursorSegmentId = parts[0].toLong()
+            cursorOffset = parts[1].toLong()
+        } catch (e: Exception) {
+            Log.w(TAG, "Outbox cursor unreadable - replaying from the oldest segment", e)
+            cursorSegmentId = -1L
+            cursorOffset = 0L
+        }
+    }
+
+    /** Replaces the cursor file atomically so a crash leaves either the old or the new position. */
+    private fun writeCursorLocked() {
+        try {
+            val tmp = File(dir, "$CURSOR_FILE.tmp")
+            RandomAccessFile(tmp, "rw").use { file ->
+                file.setLength(0)
+                file.write("$cursorSegmentId:$cursorOffset".toByteArray())
+                file.fd.sync()
+            }
+            if (!tmp.renameTo(cursorFile)) throw IOException("rename failed")
+        } catch (e: IOException) {
+            // Worst case a restart re-sends records that were already delivered
+            Log.w(TAG, "Failed to persist outbox cursor", e)
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_BYTES: Long = 16L * 1024 * 1024
+        const val DEFAULT_SEGMENT_BYTES: Long = 1L * 1024 * 1024
+        const val DEFAULT_SYNC_EVERY_RECORDS: Int = 16
+        const val DEFAULT_SYNC_INTERVAL_MS: Long = 2_000L
+
+        private const val SEGMENT_SUFFIX = ".seg"
+        private const val CURSOR_FILE = "cursor"
+        private const val FRAME_HEADER_BYTES = 8
+        private const val MAX_RECORD_BYTES = 64 * 1024
+    }
+}
@@ -0,0 +1,148 @@
+package com.hirenq.tmmrelay.pipeline
+
+import android.util.Log
+import com.hirenq.tmmrelay.model.OverflowStrategy
+import com.hirenq.tmmrelay.model.StageConfig
+
+/**
+ * A bounded queue drained in order by its own worker thread, which hands each item to
+ * [process]. When the queue is full [StageConfig.overflow] decides what gives: the
+ * caller waits, the oldest queued item is dropped, or the new one is. An exception from
+ * [process] is logged and counted as a failure; the stage carries on with the next item.
+ */
+class PipelineStage<T : Any>(
+    val name: String,
+    config: StageConfig,
+    private val process: (T) -> Unit
+) {
+
+    private val TAG = "PipelineStage"
+
+    private val capacity = config.capacity.coerceAtLeast(1)
+    private val overflow = config.overflow
+    val meter = StageMeter(name)
+
+    private val lock = Object()
+
+    // Guarded by lock
+    private val ring = arrayOfNulls<Any>(capacity)
+    private val queuedAtNanos = LongArray(capacity)
+    private var head = 0
+    private var count = 0
+    private var running = false
+    private var thread: Thread? = null
+
+    fun start() {
+        synchronized(lock) {
+            if (running) return
+            running = true
+            thread = Thread(::drainLoop, "pipeline-$name").apply {
+                isDaemon = true
+                start()
+            }
+        }
+    }
+
+    /**
+     * Queues [item]. Returns false if it was dropped: the queue was full under
+     * [OverflowStrategy.DROP_NEWEST], or the stage stopped.
+     */
+    fun offer(item: T): Boolean = synchronized(lock) {
+        if (!running) {
+            meter.onDropped()
+            return false
+        }
+        if (count == capacity) {
+            when (overflow) {
+                OverflowStrategy.BLOCK -> {
+                    val since = System.nanoTime()
+                    while (count == capacity && running) lock.wait()
+                    meter.onBlocked(System.nanoTime() - since)
+                    if (!running) {
+                        meter.onDropped()
+                        return false
+                    }
+                }
+                OverflowStrategy.DROP_OLDEST -> {
+                    ring[head] = null
+                    head = (head + 1) % capacity
+                    count--
+                    meter.onDropped()
+                }
+                OverflowStrategy.DROP_NEWEST -> {
+                    meter.onDropped()
+                    return false
+                }
+            }
+        }
+        val tail = (head + count) % capacity
+        ring[tail] = item
+        queuedAtNanos[tail] = System.nanoTime()
+        count++
+        meter.onAccepted(count)
+        lock.notifyAll()
+        true
+    }
+
+    /**
+     * Stops taking items and waits up to [timeoutMs] for the queued ones to be processed.
+     * Items still queued after that are dropped. Returns whether the worker finished.
+     */
+    fun stop(timeoutMs: Long): Boolean {
+        val worker = synchronized(lock) {
+            running = false
+            lock.notifyAll()
+            thread.also { thread = null }
+        } ?: return true
+        // join(0) would wait for ever
+        val waitMs = timeoutMs.coerceAtLeast(1L)
+        try {
+            worker.join(waitMs)
+        } catch (_: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+        if (!worker.isAlive) return true
+        synchronized(lock) {
+            if (count > 0) {
+                Log.w(TAG, "Stage $name did not finish in ${waitMs}ms - dropping $count queued items")
+                meter.onDropped(count)
+                ring.fill(null)
+                head = 0
+                count = 0
+            }
+        }
+        return false
+    }
+
+    fun stats(): StageMeter.Stats = meter.stats(synchronized(lock) { count })
+
+    @Suppress("UNCHECKED_CAST")
+    private fun drainLoop() {
+        while (true) {
+            val item: T
+            val queuedAt: Long
+            synchronized(lock) {
+                while (count == 0 && running) lock.wait()
+                // Stopped, and everything queued before the stop has been processed
+                if (count == 0) return
+                item = ring[head] as T
+                queuedAt = queuedAtNanos[head]
+                ring[head] = null
+                head = (head + 1) % capacity
+                count--
+                // Room for a blocked producer
+                lock.notifyAll()
+            }
+            val startedAt = System.nanoTime()
+            val success = try {
+                process(item)
+                true
+            } catch (e: Exception) {
+                Log.e(TAG, "Error in pipeline stage $name", e)
+                false
+            }
+            val endedAt = System.nanoTime()
+            meter.onProcessed(endedAt - queuedAt, endedAt - startedAt, success)
+        }
+    }
+}
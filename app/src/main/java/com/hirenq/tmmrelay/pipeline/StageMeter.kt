@@ -0,0 +1,89 @@
+package com.hirenq.tmmrelay.pipeline
+
+/**
+ * Throughput and latency counters of one pipeline stage. Latency runs from the moment an
+ * item was queued to the end of its processing; service time covers the processing alone.
+ * Updated from the stage's threads, read from any.
+ */
+class StageMeter(val name: String) {
+
+    data class Stats(
+        val name: String,
+        val accepted: Long,
+        val processed: Long,
+        val dropped: Long,
+        val failed: Long,
+        val depth: Int,
+        val maxDepth: Int,
+        /** Items processed per second since the stage started */
+        val throughputPerSecond: Double,
+        val meanLatencyMs: Double,
+        val maxLatencyMs: Double,
+        val meanServiceMs: Double,
+        /** Time callers spent waiting for room under `OverflowStrategy.BLOCK` */
+        val blockedMs: Long
+    ) {
+        override fun toString(): String =
+            "$name: ${"%.1f".format(throughputPerSecond)}/s, processed=$processed, dropped=$dropped, " +
+                    "failed=$failed, depth=$depth/$maxDepth, latency=${"%.1f".format(meanLatencyMs)}/" +
+                    "${"%.1f".format(maxLatencyMs)}ms, service=${"%.1f".format(meanServiceMs)}ms, blocked=${blockedMs}ms"
+    }
+
+    private val startedNanos = System.nanoTime()
+
+    // Guarded by this
+    private var accepted = 0L
+    private var processed = 0L
+    private var dropped = 0L
+    private var failed = 0L
+    private var maxDepth = 0
+    private var totalLatencyNanos = 0L
+    private var maxLatencyNanos = 0L
+    private var totalServiceNanos = 0L
+    private var blockedNanos = 0L
+
+    @Synchronized
+    fun onAccepted(depth: Int) {
+        accepted++
+        if (depth > maxDepth) maxDepth = depth
+    }
+
+    @Synchronized
+    fun onDropped(items: Int = 1) {
+        dropped += items
+    }
+
+    @Synchronized
+    fun onBlocked(nanos: Long) {
+        blockedNanos += nanos
+    }
+
+    /** Records [items] handled in one go, e.g. a batch upload, that took [serviceNanos]. */
+    @Synchronized
+    fun onProcessed(latencyNanos: Long, serviceNanos: Long, success: Boolean = true, items: Int = 1) {
+        processed += items
+        if (!success) failed += items
+        totalLatencyNanos += latencyNanos * items
+        totalServiceNanos += serviceNanos * items
+        if (latencyNanos > maxLatencyNanos) maxLatencyNanos = latencyNanos
+    }
+
+    @Synchronized
+    fun stats(depth: Int = 0): Stats {
+        val seconds = (System.nanoTime() - startedNanos) / 1e9
+        return Stats(
+            name = name,
+            accepted = accepted,
+            processed = processed,
+            dropped = dropped,
+            failed = failed,
+            depth = depth,
+            maxDepth = maxDepth,
+            throughputPerSecond = if (seconds > 0) processed / seconds else 0.0,
+            meanLatencyMs = if (processed > 0) totalLatencyNanos / 1e6 / processed else 0.0,
+            maxLatencyMs = maxLatencyNanos / 1e6,
+            meanServiceMs = if (processed > 0) totalServiceNanos / 1e6 / processed else 0.0,
+            blockedMs = blockedNanos / 1_000_000L
+        )
+    }
+}
@@ -0,0 +1,93 @@
+package com.hirenq.tmmrelay.pipeline
+
+import com.hirenq.tmmrelay.model.PipelineConfig
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Carries epochs from the position sources to the uploader in stages:
+ *
+ *     ingest -> normalize -> policy -> encode -> transmit
+ *
+ * [submit] is the ingest side. It runs on the source's thread and only queues the epoch,
+ * so a slow disk or backend never stalls the receiver connection. Each later stage has a
+ * bounded queue and a worker thread of its own (see [PipelineStage]), and applies its
+ * overflow strategy from [PipelineConfig] when full. With the defaults, a stalled encode
+ * blocks policy, which blocks normalize, whose queue then drops the oldest epochs: memory
+ * stays bounded however far the backend falls behind, and the freshest position survives.
+ *
+ * - [normalize] stamps the payload and updates last-known state; null drops the epoch
+ * - [policy] runs the reporting triggers and emits the payloads worth uploading
+ * - [encode] writes a payload to the outbox and returns false if it could not, which
+ *   hands the payload to transmit instead
+ * - [transmit] uploads one payload at a time. With an outbox `OutboxDrainer` does the
+ *   uploading, its queue being the outbox itself, and this stage only sees fallbacks.
+ *
+ * [policy] is only ever called on its stage's thread, so reporting state needs no locking.
+ */
+class TelemetryPipeline(
+    config: PipelineConfig = PipelineConfig(),
+    normalize: (Epoch) -> Epoch?,
+    policy: (Epoch, emit: (TelemetryPayload) -> Unit) -> Unit,
+    encode: (TelemetryPayload) -> Boolean,
+    transmit: (TelemetryPayload) -> Unit
+) {
+
+    /** One selected epoch and its motion view for the reporting triggers. */
+    data class Epoch(val payload: TelemetryPayload, val sample: ReportingSample)
+
+    data class Stats(
+        val ingested: Long,
+        val stages: List<StageMeter.Stats>
+    ) {
+        val dropped: Long get() = stages.sumOf { it.dropped }
+
+        override fun toString(): String = "ingested=$ingested; " + stages.joinToString("; ")
+    }
+
+    private val ingested = AtomicLong()
+
+    private val transmitStage = PipelineStage("transmit", config.transmit, transmit)
+    private val encodeStage = PipelineStage<TelemetryPayload>("encode", config.encode) { payload ->
+        if (!encode(payload)) transmitStage.offer(payload)
+    }
+    private val emitToEncode: (TelemetryPayload) -> Unit = { encodeStage.offer(it) }
+    private val policyStage = PipelineStage<Epoch>("policy", config.policy) { epoch ->
+        policy(epoch, emitToEncode)
+    }
+    private val normalizeStage = PipelineStage<Epoch>("normalize", config.normalize) { epoch ->
+        normalize(epoch)?.let { policyStage.offer(it) }
+    }
+
+    // Upstream first, so every stage stops after the one feeding it
+    private val stages = listOf(normalizeStage, policyStage, encodeStage, transmitStage)
+
+    fun start() {
+        stages.asReversed().forEach { it.start() }
+    }
+
+    /** Queues an epoch selected on the calling source thread. */
+    fun submit(payload: TelemetryPayload, sample: ReportingSample): Boolean {
+        ingested.incrementAndGet()
+        return normalizeStage.offer(Epoch(payload, sample))
+    }
+
+    /**
+     * Stops taking epochs and lets the stages finish what is queued, for up to [timeoutMs]
+     * in all; what is left after that is dropped. [beforeEncodeStops] runs once policy has
+     * stopped, on the calling thread, to emit what the policy still holds back.
+     */
+    fun stop(timeoutMs: Long, beforeEncodeStops: ((TelemetryPayload) -> Unit) -> Unit = {}) {
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+        val remainingMs = { TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) }
+        normalizeStage.stop(remainingMs())
+        // A policy still busy owns its state; it cannot be flushed from here
+        if (policyStage.stop(remainingMs())) beforeEncodeStops(emitToEncode)
+        encodeStage.stop(remainingMs())
+        transmitStage.stop(remainingMs())
+    }
+
+    fun stats(): Stats = Stats(ingested.get(), stages.map { it.stats() })
+}
@@ -0,0 +1,77 @@
+package com.hirenq.tmmrelay.reporting
+
+import com.hirenq.tmmrelay.model.ReportingConfig
+
+/**
+ * Decides which position epochs become POSTs.
+ *
+ * The first sample is always reported. After that a sample is reported when any
+ * [triggers] fires against the last reported sample, or when the heartbeat
+ * interval has passed. While the receiver counts at least [ReportingConfig.stationaryEpochs]
+ * static epochs, only triggers with [ReportingTrigger.firesWhileStationary] are
+ * consulted and the longer [ReportingConfig.stationaryHeartbeatMs] applies.
+ *
+ * Time comes only from [ReportingSample.timeMillis], so the same track always
+ * yields the same decisions.
+ *
+ * With [ReportingConfig.simplifyTrack] the default triggers leave out the geometric ones
+ * (distance, heading, speed): a [TrackSimplifier] keeps those points and reports them
+ * through [markReported].
+ */
+class ReportingEngine(
+    private val config: ReportingConfig,
+    private val triggers: List<ReportingTrigger> = defaultTriggers(config)
+) {
+
+    private var lastReported: ReportingSample? = null
+
+    /**
+     * Returns the name of the reason to report [sample], or null to skip it.
+     * A non-null result makes [sample] the new reference point.
+     */
+    @Synchronized
+    fun evaluate(sample: ReportingSample): String? {
+        val last = lastReported
+        val reason = if (last == null) REASON_FIRST else reasonFor(sample, last)
+        if (reason != null) lastReported = sample
+        return reason
+    }
+
+    /** Makes [sample], reported for a reason decided elsewhere, the new reference point. */
+    @Synchronized
+    fun markReported(sample: ReportingSample) {
+        lastReported = sample
+    }
+
+    @Synchronized
+    fun reset() {
+        lastReported = null
+    }
+
+    private fun reasonFor(sample: ReportingSample, last: ReportingSample): String? {
+        val stationary = sample.staticEpochs >= config.stationaryEpochs
+        for (trigger in triggers) {
+            if (stationary && !trigger.firesWhileStationary) continue
+            if (trigger.shouldReport(sample, last)) return trigger.name
+        }
+        val heartbeatMs = if (stationary) config.stationaryHeartbeatMs else config.heartbeatMs
+        return if (sample.timeMillis - last.timeMillis >= heartbeatMs) REASON_HEARTBEAT else null
+    }
+
+    companion object {
+        const val REASON_FIRST = "first"
+        const val REASON_HEARTBEAT = "heartbeat"
+
+        fun defaultTriggers(config: ReportingConfig): List<ReportingTrigger> = buildList {
+            if (config.reportFixChanges) add(FixQualityChangeTrigger())
+            if (config.simplifyTrack) return@buildList
+            if (config.minDistanceMetres > 0) add(DistanceTrigger(config.minDistanceMetres))
+            if (config.minHeadingChangeDegrees > 0) {
+                add(HeadingChangeTrigger(config.minHeadingChangeDegrees, config.headingMinSpeedMps))
+            }
+            if (config.metresPerReport > 0) {
+                add(SpeedScaledIntervalTrigger(config.metresPerReport, config.minIntervalMs, config.heartbeatMs))
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.hirenq.tmmrelay.reporting
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+
+/**
+ * One position epoch as seen by [ReportingEngine]. Motion fields are NaN (or -1 for
+ * [staticEpochs]) when the source does not provide them; triggers that need them
+ * then stay quiet and the heartbeat still applies.
+ */
+data class ReportingSample(
+    val timeMillis: Long,
+    val latitude: Double,
+    val longitude: Double,
+    val fixType: String,
+    val horizontalAccuracy: Double = -1.0,
+    val headingDegrees: Double = Double.NaN,
+    val speedMps: Double = Double.NaN,
+    val staticEpochs: Int = -1
+) {
+    companion object {
+        /** A sample without motion data, for sources that only produce [TelemetryPayload]s. */
+        fun from(payload: TelemetryPayload, timeMillis: Long): ReportingSample =
+            ReportingSample(
+                timeMillis = timeMillis,
+                latitude = payload.latitude,
+                longitude = payload.longitude,
+                fixType = payload.fixType,
+                horizontalAccuracy = payload.horizontalAccuracy
+            )
+    }
+}
@@ -0,0 +1,86 @@
+package com.hirenq.tmmrelay.reporting
+
+import kotlin.math.abs
+import kotlin.math.asin
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * A reason to report a sample. [ReportingEngine] asks each trigger in turn whether
+ * [sample] should be posted given the [last] sample that was. Implementations must
+ * be pure functions of their arguments so recorded tracks replay identically.
+ */
+interface ReportingTrigger {
+    val name: String
+
+    /** False if the trigger should be ignored while the receiver reports being static. */
+    val firesWhileStationary: Boolean get() = false
+
+    fun shouldReport(sample: ReportingSample, last: ReportingSample): Boolean
+}
+
+/** Reports once the device has moved [minMetres], and further than the reported accuracy. */
+class DistanceTrigger(private val minMetres: Double) : ReportingTrigger {
+    override val name = "distance"
+
+    override fun shouldReport(sample: ReportingSample, last: ReportingSample): Boolean {
+        val threshold = maxOf(minMetres, sample.horizontalAccuracy, last.horizontalAccuracy)
+        return distanceMetres(last, sample) >= threshold
+    }
+}
+
+/** Reports when the course changes by [minDegrees] while moving at [minSpeedMps] or more. */
+class HeadingChangeTrigger(
+    private val minDegrees: Double,
+    private val minSpeedMps: Double
+) : ReportingTrigger {
+    override val name = "heading"
+
+    override fun shouldReport(sample: ReportingSample, last: ReportingSample): Boolean {
+        if (sample.headingDegrees.isNaN() || last.headingDegrees.isNaN()) return false
+        if (!(sample.speedMps >= minSpeedMps)) return false
+        val delta = abs(sample.headingDegrees - last.headingDegrees) % 360.0
+        return minOf(delta, 360.0 - delta) >= minDegrees
+    }
+}
+
+/**
+ * Reports every [metresPerReport] of travel at the current speed, i.e. the interval
+ * shrinks as the device speeds up, bounded by [minIntervalMs] and [maxIntervalMs].
+ */
+class SpeedScaledIntervalTrigger(
+    private val metresPerReport: Double,
+    private val minIntervalMs: Long,
+    private val maxIntervalMs: Long
+) : ReportingTrigger {
+    override val name = "speed-interval"
+
+    override fun shouldReport(sample: ReportingSample, last: ReportingSample): Boolean {
+        if (!(sample.speedMps > 0.0)) return false
+        val intervalMs = (metresPerReport / sample.speedMps * 1000.0).toLong()
+            .coerceIn(minIntervalMs, maxIntervalMs)
+        return sample.timeMillis - last.timeMillis >= intervalMs
+    }
+}
+
+/** Reports whenever the fix type changes, e.g. RTK fixed dropping to float. */
+class FixQualityChangeTrigger : ReportingTrigger {
+    override val name = "fix-change"
+    override val firesWhileStationary = true
+
+    override fun shouldReport(sample: ReportingSample, last: ReportingSample): Boolean =
+        sample.fixType != last.fixType
+}
+
+internal const val EARTH_RADIUS_METRES = 6_371_008.8
+
+/** Great-circle (haversine) distance between two samples. */
+internal fun distanceMetres(a: ReportingSample, b: ReportingSample): Double {
+    val lat1 = Math.toRadians(a.latitude)
+    val lat2 = Math.toRadians(b.latitude)
+    val dLat = lat2 - lat1
+    val dLon = Math.toRadians(b.longitude - a.longitude)
+    val h = sin(dLat / 2) * sin(dLat / 2) + cos(lat1) * cos(lat2) * sin(dLon / 2) * sin(dLon / 2)
+    return 2 * EARTH_RADIUS_METRES * asin(sqrt(h.coerceIn(0.0, 1.0)))
+}
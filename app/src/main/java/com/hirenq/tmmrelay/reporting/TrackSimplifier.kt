@@ -0,0 +1,160 @@
+package com.hirenq.tmmrelay.reporting
+
+import kotlin.math.PI
+import kotlin.math.asin
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.sqrt
+
+/**
+ * Streaming line simplification for high-rate position epochs.
+ *
+ * Uses the sleeve/cone method: from the last emitted point (the anchor) it keeps the
+ * range of bearings along which a straight segment would pass within tolerance of
+ * every point seen since. When a new point falls outside that range, the previous
+ * point becomes the new anchor and is emitted. The same happens when the track
+ * doubles back towards the anchor, which the bearing range alone would not catch.
+ * Each skipped point is therefore within about its tolerance of the segment between the
+ * two emitted points around it.
+ *
+ * A point's tolerance is `max(minToleranceMetres, precisionFactor * horizontalAccuracy)`,
+ * so noisy epochs are not mistaken for corners. A point is also emitted once
+ * [maxGapMs] has passed since the anchor so a straight, steady track still reports.
+ *
+ * Work and memory are constant per point. Not thread-safe.
+ */
+class TrackSimplifier<T>(
+    private val minToleranceMetres: Double,
+    private val precisionFactor: Double,
+    private val maxGapMs: Long
+) {
+
+    private var anchor: ReportingSample? = null
+    private var previous: ReportingSample? = null
+    private var previousItem: T? = null
+    private var previousEmitted = false
+
+    // Allowed bearings from the anchor, radians relative to rangeReference
+    private var hasRange = false
+    private var rangeReference = 0.0
+    private var rangeLow = 0.0
+    private var rangeHigh = 0.0
+    private var farthestMetres = 0.0
+
+    /** Feeds one epoch; [emit] is called for every item kept, in track order. */
+    fun offer(sample: ReportingSample, item: T, emit: (T) -> Unit) {
+        val start = anchor
+        if (start == null || sample.timeMillis - start.timeMillis >= maxGapMs) {
+            keep(sample, item, emit)
+            return
+        }
+
+        // The range only exists once a point after the anchor was seen, so previous is that point
+        if (!fitsRange(start, sample) && !previousEmitted) {
+            @Suppress("UNCHECKED_CAST")
+            emitAsAnchor(previous!!, previousItem as T, emit)
+        }
+        narrowRange(anchor!!, sample)
+        previous = sample
+        previousItem = item
+        previousEmitted = false
+    }
+
+    /**
+     * Keeps [sample] whatever the geometry, e.g. for a heartbeat, and makes it the new
+     * anchor. A held-back epoch that the segment to [sample] would not cover is a corner
+     * and is emitted first.
+     */
+    fun keep(sample: ReportingSample, item: T, emit: (T) -> Unit) {
+        val start = anchor
+        if (start != null && !previousEmitted && !fitsRange(start, sample)) {
+            @Suppress("UNCHECKED_CAST")
+            emitAsAnchor(previous!!, previousItem as T, emit)
+        }
+        emitAsAnchor(sample, item, emit)
+    }
+
+    /** Emits the last epoch if it was held back, e.g. before shutting down. */
+    fun flush(emit: (T) -> Unit) {
+        val last = previous ?: return
+        if (!previousEmitted) {
+            @Suppress("UNCHECKED_CAST")
+            emitAsAnchor(last, previousItem as T, emit)
+        }
+    }
+
+    fun reset() {
+        anchor = null
+        previous = null
+        previousItem = null
+        previousEmitted = false
+        hasRange = false
+    }
+
+    private fun emitAsAnchor(sample: ReportingSample, item: T, emit: (T) -> Unit) {
+        anchor = sample
+        previous = sample
+        previousItem = item
+        previousEmitted = true
+        hasRange = false
+        farthestMetres = 0.0
+        emit(item)
+    }
+
+    private fun fitsRange(start: ReportingSample, sample: ReportingSample): Boolean {
+        if (!hasRange) return true
+        val distance = distanceFrom(start, sample)
+        val tolerance = tolerance(sample)
+        if (distance < farthestMetres - tolerance) return false
+        if (distance <= tolerance) return true
+        val bearing = relative(bearingFrom(start, sample))
+        return bearing in rangeLow..rangeHigh
+    }
+
+    private fun narrowRange(start: ReportingSample, sample: ReportingSample) {
+        val distance = distanceFrom(start, sample)
+        val tolerance = tolerance(sample)
+        farthestMetres = maxOf(farthestMetres, distance)
+        if (distance <= tolerance) return
+        val halfWidth = asin(tolerance / distance)
+        val bearing = bearingFrom(start, sample)
+        if (!hasRange) {
+            hasRange = true
+            rangeReference = bearing
+            rangeLow = -halfWidth
+            rangeHigh = halfWidth
+            return
+        }
+        val centre = relative(bearing)
+        rangeLow = maxOf(rangeLow, centre - halfWidth)
+        rangeHigh = minOf(rangeHigh, centre + halfWidth)
+    }
+
+    private fun tolerance(sample: ReportingSample): Double =
+        if (sample.horizontalAccuracy > 0) maxOf(minToleranceMetres, precisionFactor * sample.horizontalAccuracy)
+        else minToleranceMetres
+
+    /** Angle relative to the range reference, in (-PI, PI]. */
+    private fun relative(bearing: Double): Double {
+        var angle = bearing - rangeReference
+        while (angle <= -PI) angle += 2 * PI
+        while (angle > PI) angle -= 2 * PI
+        return angle
+    }
+
+    // Local equirectangular projection around the anchor; segments here are short
+    private fun distanceFrom(start: ReportingSample, sample: ReportingSample): Double {
+        val east = eastMetres(start, sample)
+        val north = northMetres(start, sample)
+        return sqrt(east * east + north * north)
+    }
+
+    private fun bearingFrom(start: ReportingSample, sample: ReportingSample): Double =
+        atan2(eastMetres(start, sample), northMetres(start, sample))
+
+    private fun eastMetres(start: ReportingSample, sample: ReportingSample): Double =
+        Math.toRadians(sample.longitude - start.longitude) * cos(Math.toRadians(start.latitude)) * EARTH_RADIUS_METRES
+
+    private fun northMetres(start: ReportingSample, sample: ReportingSample): Double =
+        Math.toRadians(sample.latitude - start.latitude) * EARTH_RADIUS_METRES
+}
@@ -1,139 +1,392 @@
 package com.hirenq.tmmrelay.service
 
 import android.util.Log
+import com.hirenq.tmmrelay.encoding.BufferRequestBody
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaEncoder
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.encoding.TelemetryProtoWriter
+import com.hirenq.tmmrelay.model.BatchFormat
+import com.hirenq.tmmrelay.model.BatchUploadConfig
 import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.model.WireFormat
+import com.hirenq.tmmrelay.outbox.DeliveryStatus
 import okhttp3.Call
 import okhttp3.Callback
 import okhttp3.MediaType.Companion.toMediaType
 import okhttp3.OkHttpClient
 import okhttp3.Request
-import okhttp3.RequestBody.Companion.toRequestBody
 import okhttp3.Response
+import okio.Buffer
+import org.json.JSONArray
 import org.json.JSONObject
 import java.io.IOException
 import java.time.Instant
 import java.time.ZoneId
+import java.time.ZonedDateTime
 import java.time.format.DateTimeFormatter
+import java.time.format.DateTimeParseException
+import java.util.concurrent.TimeUnit
 
 object ApiClient {
 
     private const val TAG = "ApiClient"
-    private const val API_URL = "https://altgeo-api.hirenq.com/api/Device/pushdata"
-    private val client: OkHttpClient = OkHttpClient.Builder()
-        .build()
+    private const val API_BASE_URL = "https://altgeo-api.hirenq.com/api/Device/"
+    private const val API_PATH = "pushdata"
+    private const val HTTP_UNSUPPORTED_MEDIA_TYPE = 415
+    // Upper bound on a Retry-After we honour, against a misconfigured backend parking the fleet
+    private const val MAX_RETRY_AFTER_MS = 60 * 60_000L
+
+    /** Request body compression; off until enabled from settings. */
+    val compression = CompressionInterceptor(enabled = false)
+
+    // Where the single and relative batch paths resolve; tests point it at a local server
+    @Volatile
+    internal var baseUrl = API_BASE_URL
+
+    // Shares HttpTransport's pool and dispatcher; rebuilt when the transport is reconfigured
+    private val client: OkHttpClient
+        get() = HttpTransport.client("api") { addInterceptor(compression) }
+
+    // Cleared when the backend answers a batch POST with 404/405/501; reset on process restart
+    @Volatile
+    private var batchEndpointAvailable = true
+
+    /** Body encoding to use for uploads; set from settings when the service starts. */
+    @Volatile
+    var wireFormat: WireFormat = WireFormat.JSON
+
+    // Cleared when the backend answers a binary-format POST with 415; reset on process restart
+    @Volatile
+    private var binaryFormatAccepted = true
+
+    private val activeFormat: WireFormat
+        get() = if (binaryFormatAccepted) wireFormat else WireFormat.JSON
+
+    // Monotonic time before which the backend asked not to be called again (Retry-After)
+    @Volatile
+    private var retryAfterUntilNanos = 0L
+
+    /** Forgets the fallbacks and `Retry-After` learned from earlier responses, as a process restart would. */
+    internal fun resetBackendState() {
+        batchEndpointAvailable = true
+        binaryFormatAccepted = true
+        retryAfterUntilNanos = 0L
+    }
+
+    /** Time left of the backend's last `Retry-After`, or null if it has passed or none was sent. */
+    fun retryAfterMs(): Long? {
+        val remaining = TimeUnit.NANOSECONDS.toMillis(retryAfterUntilNanos - System.nanoTime())
+        return remaining.takeIf { retryAfterUntilNanos != 0L && it > 0 }
+    }
 
     fun send(
         payload: TelemetryPayload, 
         apiKey: String? = null,
         onPostSent: ((String, String, Boolean) -> Unit)? = null
     ) {
-        // Ensure Timestamp is in UTC format (with Z suffix) - parse and reformat if needed
-        val timestamp = try {
-            // If payload.timestamp is already in ISO format, use it; otherwise parse and format
-            Instant.parse(payload.timestamp).toString()
-        } catch (e: Exception) {
-            // Fallback to current time in UTC if parsing fails
-            Instant.now().toString()
+        val format = activeFormat
+        val request = buildRequest(payload, apiKey, format)
+
+        client.newCall(request).enqueue(object : Callback {
+            override fun onFailure(call: Call, e: IOException) {
+                handleFailure(e, onPostSent)
+            }
+
+            override fun onResponse(call: Call, response: Response) {
+                if (rejectsFormat(format, response)) {
+                    send(payload, apiKey, onPostSent)
+                    return
+                }
+                handleResponse(payload, response, onPostSent)
+            }
+        })
+    }
+
+    /**
+     * Same as [send] but runs the request on the calling thread and returns
+     * whether the backend accepted the payload. Used by the outbox drainer.
+     */
+    fun sendBlocking(
+        payload: TelemetryPayload,
+        apiKey: String? = null,
+        onPostSent: ((String, String, Boolean) -> Unit)? = null
+    ): Boolean {
+        val format = activeFormat
+        val request = buildRequest(payload, apiKey, format)
+
+        return try {
+            val response = client.newCall(request).execute()
+            if (rejectsFormat(format, response)) return sendBlocking(payload, apiKey, onPostSent)
+            handleResponse(payload, response, onPostSent)
+        } catch (e: IOException) {
+            handleFailure(e, onPostSent)
+            false
+        }
+    }
+
+    /**
+     * Uploads [payloads] in one POST to the batch endpoint and returns one status per
+     * record sent, in order. Records that would take the body past
+     * [BatchUploadConfig.maxBytes] are left out, so the result can be shorter than
+     * [payloads]. Runs on the calling thread.
+     *
+     * The backend may report per-record outcomes as `{"results":[{"status":201}, ...]}`
+     * or a bare array. A 2xx reply with an empty body counts as every record delivered;
+     * one whose body has no readable outcome for a record leaves that record to retry.
+     *
+     * With [WireFormat.PROTOBUF] the body is a `TelemetryBatch` message and with
+     * [WireFormat.DELTA] a delta stream starting with a keyframe; both ignore
+     * [BatchUploadConfig.format].
+     */
+    fun sendBatch(
+        payloads: List<TelemetryPayload>,
+        apiKey: String? = null,
+        config: BatchUploadConfig,
+        onPostSent: ((String, String, Boolean) -> Unit)? = null
+    ): List<DeliveryStatus> {
+        if (payloads.isEmpty()) return emptyList()
+        if (!batchEndpointAvailable) return sendIndividually(payloads, apiKey, onPostSent)
+
+        val wireFormat = activeFormat
+        val jsonArray = wireFormat == WireFormat.JSON && config.format == BatchFormat.JSON_ARRAY
+        val deltaEncoder = if (wireFormat == WireFormat.DELTA) TelemetryDeltaEncoder(config.keyframeInterval) else null
+        val buffer = Buffer()
+        val record = Buffer()
+        val now = System.currentTimeMillis()
+        var count = 0
+        for (payload in payloads) {
+            when (wireFormat) {
+                WireFormat.JSON -> TelemetryJsonWriter.write(payload, record, now)
+                WireFormat.PROTOBUF -> TelemetryProtoWriter.write(payload, record, now)
+                WireFormat.DELTA -> deltaEncoder!!.encode(payload, record)
+            }
+            // Framing: '[' + ',' separators + ']' for arrays, '\n' per line for NDJSON,
+            // tag + varint length (at most 6 bytes here) for protobuf, none for delta frames
+            if (count > 0 && buffer.size + record.size + 6 > config.maxBytes) {
+                record.clear()
+                break
+            }
+            when {
+                wireFormat == WireFormat.PROTOBUF -> TelemetryProtoWriter.appendToBatch(record, buffer)
+                wireFormat == WireFormat.DELTA -> buffer.writeAll(record)
+                jsonArray -> {
+                    buffer.writeByte(if (count == 0) '['.code else ','.code)
+                    buffer.writeAll(record)
+                }
+                else -> {
+                    buffer.writeAll(record)
+                    buffer.writeByte('\n'.code)
+                }
+            }
+            count++
         }
+        if (jsonArray) buffer.writeByte(']'.code)
+        val sent = payloads.subList(0, count)
 
-        // Generate CurrentTimestamp in IST (UTC+5:30) format like "2025-12-17T12:45:30+05:30"
-        val currentTimestamp = Instant.now()
+        val url = if (config.path.startsWith("http")) config.path else baseUrl + config.path.trimStart('/')
+        Log.i(TAG, "=== Sending batch of $count record(s) (${buffer.size} bytes) to $url ===")
+
+        val contentType = if (wireFormat == WireFormat.JSON) config.format.contentType else wireFormat.contentType
+        val requestBuilder = Request.Builder()
+            .url(url)
+            .addHeader("Content-Type", contentType)
+            .post(BufferRequestBody(buffer, contentType.toMediaType()))
+        apiKey?.let { requestBuilder.addHeader("Authorization", "Bearer $it") }
+
+        val statuses = try {
+            client.newCall(requestBuilder.build()).execute().use { response ->
+                val responseBody = response.body?.string()
+                Log.d(TAG, "Batch response code: ${response.code}")
+                when {
+                    wireFormat != WireFormat.JSON && response.code == HTTP_UNSUPPORTED_MEDIA_TYPE -> {
+                        Log.w(TAG, "Backend does not accept $wireFormat - switching to JSON")
+                        binaryFormatAccepted = false
+                        return sendBatch(sent, apiKey, config, onPostSent)
+                    }
+                    response.code == 404 || response.code == 405 || response.code == 501 -> {
+                        Log.w(TAG, "Batch endpoint not available (${response.code}) - falling back to single posts")
+                        batchEndpointAvailable = false
+                        return sendIndividually(sent, apiKey, onPostSent)
+                    }
+                    response.code == 413 -> {
+                        Log.w(TAG, "Batch too large for backend - sending records one by one")
+                        return sendIndividually(sent, apiKey, onPostSent)
+                    }
+                    response.isSuccessful -> parseBatchStatuses(responseBody, count)
+                    else -> {
+                        Log.e(TAG, "Batch request failed with code ${response.code}: $responseBody")
+                        noteRetryAfter(response)
+                        List(count) { statusFor(response.code) }
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            Log.e(TAG, "Batch request failed", e)
+            List(count) { DeliveryStatus.RETRY }
+        }
+
+        val timestamp = Instant.now()
             .atZone(ZoneId.of("Asia/Kolkata"))
-            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX"))
-
-        // Include all fields from TelemetryPayload in the POST request
-        val json = JSONObject().apply {
-            // Required fields
-            put("TenantId", payload.tenantId)
-            put("DeviceId", payload.deviceId)
-            put("Latitude", payload.latitude)
-            put("Longitude", payload.longitude)
-            put("Battery", payload.battery)
-            put("FixType", payload.fixType)
-            put("Timestamp", timestamp)
-            put("CurrentTimestamp", currentTimestamp)
-            put("Health", payload.health)
-            put("HorizontalAccuracy", payload.horizontalAccuracy)
-            put("VerticalAccuracy", payload.verticalAccuracy)
-            put("Satellites", payload.satellites)
-            
-            // Optional user details
-            payload.userId?.let { put("UserId", it) }
-            payload.userName?.let { put("UserName", it) }
-            payload.userEmail?.let { put("UserEmail", it) }
-            
-            // Optional receiver details
-            payload.receiverBattery?.let { put("ReceiverBattery", it) }
-            payload.receiverHealth?.let { put("ReceiverHealth", it) }
-            
-            // Optional DOP values
-            payload.pdop?.let { put("PDOP", it) }
-            payload.hdop?.let { put("HDOP", it) }
-            payload.vdop?.let { put("VDOP", it) }
+            .format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+        val delivered = statuses.count { it == DeliveryStatus.DELIVERED }
+        val summary = "Batch: $delivered/$count delivered" +
+                sent.lastOrNull()?.let { ", last Lat:${it.latitude}, Lng:${it.longitude}" }.orEmpty()
+        onPostSent?.invoke(timestamp, summary, delivered > 0)
+        return statuses
+    }
+
+    private fun sendIndividually(
+        payloads: List<TelemetryPayload>,
+        apiKey: String?,
+        onPostSent: ((String, String, Boolean) -> Unit)?
+    ): List<DeliveryStatus> {
+        val statuses = ArrayList<DeliveryStatus>(payloads.size)
+        for (payload in payloads) {
+            val delivered = sendBlocking(payload, apiKey, onPostSent)
+            statuses.add(if (delivered) DeliveryStatus.DELIVERED else DeliveryStatus.RETRY)
+            // Stop at the first failure; the caller keeps the rest queued
+            if (!delivered) break
+        }
+        return statuses
+    }
+
+    private fun parseBatchStatuses(responseBody: String?, count: Int): List<DeliveryStatus> {
+        val trimmed = responseBody?.trim().orEmpty()
+        if (trimmed.isEmpty()) return List(count) { DeliveryStatus.DELIVERED }
+        val results = try {
+            when {
+                trimmed.startsWith("[") -> JSONArray(trimmed)
+                trimmed.startsWith("{") -> JSONObject(trimmed).optJSONArray("results")
+                else -> null
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not parse batch response", e)
+            null
+        }
+        if (results == null) {
+            // Accepted but not said which records were stored; resending is safer than losing them
+            Log.w(TAG, "Batch response has no per-record results - keeping all records for retry")
+            return List(count) { DeliveryStatus.RETRY }
         }
 
-        val jsonString = json.toString()
-        Log.i(TAG, "=== Sending POST request to $API_URL ===")
-        Log.i(TAG, "Full payload JSON: $jsonString")
-        Log.d(TAG, "Payload fields: TenantId=${payload.tenantId}, DeviceId=${payload.deviceId}, " +
-                "Lat=${payload.latitude}, Lng=${payload.longitude}, Battery=${payload.battery}, " +
-                "FixType=${payload.fixType}, Health=${payload.health}, " +
-                "HAcc=${payload.horizontalAccuracy}, VAcc=${payload.verticalAccuracy}, " +
-                "Satellites=${payload.satellites}, ReceiverBattery=${payload.receiverBattery}, " +
-                "ReceiverHealth=${payload.receiverHealth}, PDOP=${payload.pdop}, " +
-                "HDOP=${payload.hdop}, VDOP=${payload.vdop}")
+        return List(count) { i ->
+            when (val item = results.opt(i)) {
+                is Number -> statusFor(item.toInt())
+                is JSONObject -> when {
+                    item.has("status") -> statusFor(item.optInt("status"))
+                    item.has("code") -> statusFor(item.optInt("code"))
+                    // No outcome for this record; only a server confirmation lets it leave the outbox
+                    else -> DeliveryStatus.RETRY
+                }
+                else -> DeliveryStatus.RETRY
+            }
+        }
+    }
 
-        val body = jsonString.toRequestBody("application/json".toMediaType())
+    private fun statusFor(code: Int): DeliveryStatus = when {
+        code in 200..299 -> DeliveryStatus.DELIVERED
+        code == 408 || code == 429 || code >= 500 -> DeliveryStatus.RETRY
+        else -> DeliveryStatus.REJECTED
+    }
+
+    /**
+     * True if [response] is a 415 to a non-JSON upload. The response is closed and
+     * later uploads use JSON; the caller should resend.
+     */
+    private fun rejectsFormat(format: WireFormat, response: Response): Boolean {
+        if (format == WireFormat.JSON || response.code != HTTP_UNSUPPORTED_MEDIA_TYPE) return false
+        Log.w(TAG, "Backend does not accept $format - switching to JSON")
+        binaryFormatAccepted = false
+        response.close()
+        return true
+    }
+
+    /** Keeps the `Retry-After` of a 429 or 503, given in seconds or as an HTTP date. */
+    private fun noteRetryAfter(response: Response) {
+        if (response.code != 429 && response.code != 503) return
+        val value = response.header("Retry-After")?.trim() ?: return
+        val delayMs = value.toLongOrNull()?.let { TimeUnit.SECONDS.toMillis(it) }
+            ?: try {
+                ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() -
+                    System.currentTimeMillis()
+            } catch (e: DateTimeParseException) {
+                Log.w(TAG, "Ignoring malformed Retry-After: $value")
+                return
+            }
+        if (delayMs <= 0) return
+        Log.w(TAG, "Backend asked to retry after ${delayMs / 1000}s")
+        retryAfterUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs.coerceAtMost(MAX_RETRY_AFTER_MS))
+    }
+
+    private fun buildRequest(payload: TelemetryPayload, apiKey: String?, format: WireFormat): Request {
+        val body = Buffer()
+        when (format) {
+            WireFormat.JSON -> TelemetryJsonWriter.write(payload, body)
+            WireFormat.PROTOBUF -> TelemetryProtoWriter.write(payload, body)
+            // A lone record is just a keyframe
+            WireFormat.DELTA -> TelemetryDeltaEncoder().encode(payload, body)
+        }
+        val url = baseUrl + API_PATH
+        Log.i(TAG, "=== Sending POST request to $url (${body.size} bytes, $format) ===")
+        // Rendering the payload as a String costs more than encoding it; only do it when asked for
+        if (format == WireFormat.JSON && Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Full payload JSON: ${body.snapshot().utf8()}")
+        }
 
         val requestBuilder = Request.Builder()
-            .url(API_URL)
-            .addHeader("Content-Type", "application/json")
-            .post(body)
+            .url(url)
+            .addHeader("Content-Type", format.contentType)
+            .post(BufferRequestBody(body, format.contentType.toMediaType()))
 
         // Add Authorization header if apiKey is provided
         apiKey?.let {
             requestBuilder.addHeader("Authorization", "Bearer $it")
         }
 
-        val request = requestBuilder.build()
+        return requestBuilder.build()
+    }
 
-        client.newCall(request).enqueue(object : Callback {
-            override fun onFailure(call: Call, e: IOException) {
-                Log.e(TAG, "API request failed", e)
-                e.printStackTrace()
-                // Notify callback even on failure (isSuccess = false)
-                val timestamp = Instant.now().atZone(ZoneId.of("Asia/Kolkata"))
-                    .format(DateTimeFormatter.ofPattern("HH:mm:ss"))
-                val errorMsg = "Failed: ${e.message}"
-                Log.d(TAG, "Invoking onPostSent callback on failure: $timestamp - $errorMsg")
-                onPostSent?.invoke(timestamp, errorMsg, false)
-            }
+    private fun handleFailure(e: IOException, onPostSent: ((String, String, Boolean) -> Unit)?) {
+        Log.e(TAG, "API request failed", e)
+        e.printStackTrace()
+        // Notify callback even on failure (isSuccess = false)
+        val timestamp = Instant.now().atZone(ZoneId.of("Asia/Kolkata"))
+            .format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+        val errorMsg = "Failed: ${e.message}"
+        Log.d(TAG, "Invoking onPostSent callback on failure: $timestamp - $errorMsg")
+        onPostSent?.invoke(timestamp, errorMsg, false)
+    }
 
-            override fun onResponse(call: Call, response: Response) {
-                val responseBody = response.body?.string()
-                Log.d(TAG, "API response code: ${response.code}")
-                Log.d(TAG, "API response body: $responseBody")
-                
-                val timestamp = Instant.now()
-                    .atZone(ZoneId.of("Asia/Kolkata"))
-                    .format(DateTimeFormatter.ofPattern("HH:mm:ss"))
-                
-                if (!response.isSuccessful) {
-                    Log.e(TAG, "API request failed with code ${response.code}: $responseBody")
-                    val errorMsg = "Error ${response.code}: $responseBody"
-                    Log.d(TAG, "Invoking onPostSent callback on error: $timestamp - $errorMsg")
-                    onPostSent?.invoke(timestamp, errorMsg, false)
-                } else {
-                    Log.i(TAG, "API request successful")
-                    // Notify callback with timestamp and payload summary (isSuccess = true)
-                    val payloadSummary = "Lat:${payload.latitude}, Lng:${payload.longitude}, Bat:${payload.battery}%"
-                    Log.d(TAG, "Invoking onPostSent callback on success: $timestamp - $payloadSummary")
-                    onPostSent?.invoke(timestamp, payloadSummary, true)
-                }
-                
-                response.close()
-            }
-        })
+    private fun handleResponse(
+        payload: TelemetryPayload,
+        response: Response,
+        onPostSent: ((String, String, Boolean) -> Unit)?
+    ): Boolean {
+        val responseBody = response.body?.string()
+        Log.d(TAG, "API response code: ${response.code}")
+        Log.d(TAG, "API response body: $responseBody")
+        
+        val timestamp = Instant.now()
+            .atZone(ZoneId.of("Asia/Kolkata"))
+            .format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+        
+        val success = response.isSuccessful
+        if (!success) {
+            Log.e(TAG, "API request failed with code ${response.code}: $responseBody")
+            noteRetryAfter(response)
+            val errorMsg = "Error ${response.code}: $responseBody"
+            Log.d(TAG, "Invoking onPostSent callback on error: $timestamp - $errorMsg")
+            onPostSent?.invoke(timestamp, errorMsg, false)
+        } else {
+            Log.i(TAG, "API request successful")
+            // Notify callback with timestamp and payload summary (isSuccess = true)
+            val payloadSummary = "Lat:${payload.latitude}, Lng:${payload.longitude}, Bat:${payload.battery}%"
+            Log.d(TAG, "Invoking onPostSent callback on success: $timestamp - $payloadSummary")
+            onPostSent?.invoke(timestamp, payloadSummary, true)
+        }
+        
+        response.close()
+        return success
     }
 }
 
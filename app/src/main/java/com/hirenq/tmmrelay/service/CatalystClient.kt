@@ -3,13 +3,26 @@ package com.hirenq.tmmrelay.service
 import android.content.Context
 import android.content.Intent
 import android.util.Log
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import com.hirenq.tmmrelay.capture.HighRateCapture
+import com.hirenq.tmmrelay.capture.TrackStore
 import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import com.hirenq.tmmrelay.source.PositionSource
 import com.hirenq.tmmrelay.util.DeviceInfoUtil
+import com.hirenq.tmmrelay.util.SettingsUtil
 import com.hirenq.tmmrelay.util.TrimbleLicensingUtil
+import trimble.jssi.android.catalystfacade.AsyncCatalystEventListener
+import trimble.jssi.android.catalystfacade.CatalystEventRecorder
+import trimble.jssi.android.catalystfacade.CatalystEventReplayer
 import trimble.jssi.android.catalystfacade.CatalystFacade
 import trimble.jssi.android.catalystfacade.DriverReturnCode
 import trimble.jssi.android.catalystfacade.DriverType
 import trimble.jssi.android.catalystfacade.ICatalystEventListener
+import trimble.jssi.android.catalystfacade.IPositionFieldSubscriber
+import trimble.jssi.android.catalystfacade.IPositionRecordListener
+import trimble.jssi.android.catalystfacade.PositionFieldGroup
+import trimble.jssi.android.catalystfacade.PositionRecord
 import trimble.jssi.android.catalystfacade.PositionUpdate
 import trimble.jssi.android.catalystfacade.PowerSourceState
 import trimble.jssi.android.catalystfacade.ReturnCode
@@ -18,15 +31,23 @@ import trimble.jssi.android.catalystfacade.SatelliteUpdate
 import trimble.jssi.android.catalystfacade.SensorProperties
 import trimble.jssi.android.catalystfacade.SensorStateEvent
 import trimble.jssi.android.catalystfacade.ImuStateEvent
+import trimble.jssi.android.catalystfacade.OverflowPolicy
 import trimble.jssi.interfaces.gnss.PositionRate
+import java.io.File
+import java.text.SimpleDateFormat
 import java.time.Instant
+import java.util.Date
+import java.util.EnumSet
+import java.util.Locale
 import kotlin.math.PI
 
 class CatalystClient(
     private val context: Context,
     private val onMessage: (TelemetryPayload) -> Unit,
     private val onError: (Throwable) -> Unit = {}
-) {
+) : PositionSource {
+
+    override val name = "catalyst"
 
     private val TAG = "CatalystClient"
     private var facade: CatalystFacade? = null
@@ -36,8 +57,13 @@ class CatalystClient(
     private var currentError: String? = null
     private var lastDataReceivedAt: Instant? = null
     private var sdkConnected = false // Track SDK connection separately from actual data reception
+    // Events reach eventListener on its own thread, so telemetry work never stalls the SDK
+    private var listenerDispatch: AsyncCatalystEventListener? = null
+    private val listenerQueueCapacity = 32
+    // Room for a few seconds of 20 Hz events while the recording's file writes catch up
+    private val recorderQueueCapacity = 256
     
-    fun getConnectionStatus(): Boolean {
+    override fun getConnectionStatus(): Boolean {
         // Only consider connected if we've received data recently (within last 30 seconds)
         return if (lastDataReceivedAt != null) {
             val secondsSinceLastData = java.time.Duration.between(lastDataReceivedAt, Instant.now()).seconds
@@ -49,14 +75,48 @@ class CatalystClient(
     fun getCurrentError(): String? = currentError
     
     // Track latest values from different event types
-    private var latestPosition: PositionUpdate? = null
+    // Copied out of the facade's shared record, which is only valid during the callback
+    private val latestPosition = CapturedEpoch()
+    private var hasPosition = false
     private var latestSatellites: SatelliteUpdate? = null
-    private var latestSatellitesInView: Int = 0
-    private var latestBattery: PowerSourceState? = null
-    private var latestHealth: SensorStateEvent? = null
+    // Volatile: also read by the high-rate capture loop
+    @Volatile private var latestSatellitesInView: Int = 0
+    @Volatile private var latestBattery: PowerSourceState? = null
+    @Volatile private var latestHealth: SensorStateEvent? = null
+
+    /** Relayed epochs of the last 24 hours, each stored once, for windowed health and diagnostics queries. */
+    val track = TrackStore()
+
+    // Set when the receiver runs above 1 Hz; epochs are then relayed through its decimation loop
+    @Volatile
+    private var highRateCapture: HighRateCapture? = null
+
+    // Set while the receiver's events are recorded (SettingsUtil.recordCatalystEvents)
+    private var recorder: CatalystEventRecorder? = null
+    private var recorderDispatch: AsyncCatalystEventListener? = null
+
+    /**
+     * Motion view of the epoch behind the last payload passed to onMessage; set just
+     * before the callback, on the same thread.
+     */
+    @Volatile
+    var latestSample: ReportingSample? = null
+        private set
 
-    private val eventListener = object : ICatalystEventListener {
-        override fun onPositionUpdate(positionUpdate: PositionUpdate) {
+    private val eventListener = object : ICatalystEventListener, IPositionRecordListener, IPositionFieldSubscriber {
+        // Only what createAndSendTelemetry and ReportingSample read; the facade skips the rest
+        override fun getPositionFieldGroups(): Set<PositionFieldGroup> = EnumSet.of(
+            PositionFieldGroup.Velocity,
+            PositionFieldGroup.Precision,
+            PositionFieldGroup.DilutionOfPrecision,
+            PositionFieldGroup.Time,
+            PositionFieldGroup.StaticEpochs
+        )
+
+        // Not called: the facade hands IPositionRecordListeners onPositionRecord instead
+        override fun onPositionUpdate(positionUpdate: PositionUpdate) = Unit
+
+        override fun onPositionRecord(positionRecord: PositionRecord) {
             try {
                 // Mark that we received data from the receiver
                 lastDataReceivedAt = Instant.now()
@@ -66,33 +126,21 @@ class CatalystClient(
                     Log.i(TAG, "Receiver connected - received position data")
                 }
                 
-                latestPosition = positionUpdate
-                // Convert radians to degrees for latitude/longitude
-                // Use explicit getter method calls for Java compatibility
-                val latRadians = try { positionUpdate.getLatitude() } catch (e: Exception) { 
-                    Log.e(TAG, "Error accessing latitude: ${e.message}", e)
-                    0.0 
-                }
-                val lonRadians = try { positionUpdate.getLongitude() } catch (e: Exception) { 
-                    Log.e(TAG, "Error accessing longitude: ${e.message}", e)
-                    0.0 
+                latestPosition.copyFrom(positionRecord, System.nanoTime())
+                hasPosition = true
+                highRateCapture?.let {
+                    it.offer(positionRecord)
+                    return
                 }
-                val latDegrees = latRadians * 180.0 / PI
-                val lonDegrees = lonRadians * 180.0 / PI
-                
-                val hPrec = try { positionUpdate.getHPrecision() } catch (e: Exception) { 
-                    Log.e(TAG, "Error accessing hPrecision: ${e.message}", e)
-                    Double.NaN 
-                }
-                val solution = try { positionUpdate.getSolution() } catch (e: Exception) { 
-                    Log.e(TAG, "Error accessing solution: ${e.message}", e)
-                    null 
-                }
-                
-                Log.d(TAG, "Position: lat=$latDegrees, lon=$lonDegrees, acc=$hPrec, fix=$solution")
-                this@CatalystClient.createAndSendTelemetry()
+
+                // Convert radians to degrees for latitude/longitude
+                val latDegrees = latestPosition.latitude * 180.0 / PI
+                val lonDegrees = latestPosition.longitude * 180.0 / PI
+                Log.d(TAG, "Position: lat=$latDegrees, lon=$lonDegrees, acc=${latestPosition.hPrecision}, fix=${latestPosition.solution}")
+                track.append(latestPosition, latestSatellitesInView)
+                this@CatalystClient.createAndSendTelemetry(latestPosition)
             } catch (e: Exception) {
-                Log.e(TAG, "Error in onPositionUpdate: ${e.message}", e)
+                Log.e(TAG, "Error in onPositionRecord: ${e.message}", e)
                 Log.e(TAG, "Exception type: ${e.javaClass.name}")
                 e.printStackTrace()
                 onError(e)
@@ -117,7 +165,7 @@ class CatalystClient(
                 }
                 Log.d(TAG, "Satellites: count=$satellitesInView, total=${satellites.size}")
                 // Update telemetry if we have position
-                latestPosition?.let { this@CatalystClient.createAndSendTelemetry() }
+                if (hasPosition && highRateCapture == null) this@CatalystClient.createAndSendTelemetry(latestPosition)
             } catch (e: Exception) {
                 Log.e(TAG, "Error in onSatelliteUpdate: ${e.message}", e)
                 e.printStackTrace()
@@ -205,7 +253,7 @@ class CatalystClient(
         }
     }
 
-    fun connect(tenantId: String, deviceId: String) {
+    override fun connect(tenantId: String, deviceId: String) {
         this.tenantId = tenantId
         this.deviceId = deviceId
         
@@ -260,7 +308,6 @@ class CatalystClient(
                 // This opens the Trimble login UI
                 // User must log in with the same Trimble ID that owns the Catalyst subscription
                 // CRITICAL: We must wait for login to complete before loading subscription
-                try {
                     Log.i(TAG, "Launching TMM login Intent...")
                     // Per demo: Intent action is "com.trimble.tmm.LOGIN"
                     // Must launch from main thread - use Handler
@@ -628,8 +675,11 @@ class CatalystClient(
                 Log.i(TAG, "Step 9: Adding event listener")
                 // Add event listener AFTER successful connection (per demo pattern - MainModel.java line 635)
                 try {
-                    facade!!.addCatalystEventListener(eventListener)
+                    listenerDispatch = facade!!.addCatalystEventListener(
+                        eventListener, listenerQueueCapacity, OverflowPolicy.CoalesceLatest
+                    )
                     Log.d(TAG, "Event listener added successfully")
+                    if (SettingsUtil.recordCatalystEvents(context)) startRecording()
         } catch (e: Exception) {
                     Log.e(TAG, "CRITICAL: Exception during addCatalystEventListener: ${e.message}", e)
                     Log.e(TAG, "Exception type: ${e.javaClass.name}")
@@ -645,17 +695,18 @@ class CatalystClient(
                 }
                 
                 Log.i(TAG, "Step 10: Setting position rate")
-                // Set position rate to 1Hz (per demo pattern - MainModel.java line 662)
-                val positionRateRc = try {
-                    facade!!.setOutputPositionRate(PositionRate.OneHz)
-                } catch (e: Exception) {
-                    Log.w(TAG, "Exception setting position rate: ${e.message}", e)
-                    ReturnCode(DriverReturnCode.Error)
-                }
-                
-                if (positionRateRc.code != DriverReturnCode.Success) {
-                    Log.w(TAG, "Warning: Failed to set position rate (code: ${positionRateRc.code}) - continuing anyway")
-                } else {
+                val captureConfig = SettingsUtil.captureConfig(context)
+                val highRateSet = captureConfig.highRate &&
+                    setPositionRate(positionRate(captureConfig.positionRateHz), captureConfig.positionRateHz)
+                if (highRateSet) {
+                    highRateCapture = HighRateCapture(captureConfig) {
+                        track.append(it, latestSatellitesInView)
+                        createAndSendTelemetry(it)
+                    }.also { it.start() }
+                    Log.i(TAG, "✓ Position rate set to ${captureConfig.positionRateHz}Hz, relaying every " +
+                        "${captureConfig.outputIntervalMs}ms (${captureConfig.decimation})")
+                } else if (setPositionRate(PositionRate.OneHz, 1)) {
+                    // 1Hz per demo pattern - MainModel.java line 662; also the fallback if the receiver lacks the high rate
                     Log.i(TAG, "✓ Position rate set to 1Hz")
                 }
                 
@@ -674,95 +725,105 @@ class CatalystClient(
         }.start()
     }
     
-    private fun createAndSendTelemetry() {
-        val position = latestPosition ?: return
-        
+    private fun startRecording() {
         try {
-            // Convert radians to degrees for latitude/longitude
-            // Use explicit getter method calls for Java compatibility
-            val latRadians = try { position.getLatitude() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing latitude in createAndSendTelemetry: ${e.message}", e)
-                0.0 
-            }
-            val lonRadians = try { position.getLongitude() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing longitude in createAndSendTelemetry: ${e.message}", e)
-                0.0 
-            }
-            val latDegrees = latRadians * 180.0 / PI
-            val lonDegrees = lonRadians * 180.0 / PI
-            
-            // Map SolutionType to String
-            val solution = try { position.getSolution() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing solution: ${e.message}", e)
-                null 
-            }
-            val fixTypeName = solution?.toString() ?: "UNKNOWN"
-            
-            // Get precision values safely
-            val hPrec = try { position.getHPrecision() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing hPrecision: ${e.message}", e)
-                Double.NaN 
-            }
-            val vPrec = try { position.getVPrecision() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing vPrecision: ${e.message}", e)
-                Double.NaN 
-            }
-            val hPrecision = if (hPrec.isNaN() || hPrec.isInfinite()) -1.0 else hPrec
-            val vPrecision = if (vPrec.isNaN() || vPrec.isInfinite()) -1.0 else vPrec
-            
-            // Get DOP values safely
-            val pdopValue = try { position.getPdop() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing pdop: ${e.message}", e)
-                Double.NaN 
-            }
-            val hdopValue = try { position.getHdop() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing hdop: ${e.message}", e)
-                Double.NaN 
-            }
-            val vdopValue = try { position.getVdop() } catch (e: Exception) { 
-                Log.e(TAG, "Error accessing vdop: ${e.message}", e)
-                Double.NaN 
-            }
-            
-            // Calculate receiver health based on position and satellite data
-            val receiverHealth = when {
-                fixTypeName.contains("INVALID", ignoreCase = true) -> "NO_FIX"
-                (fixTypeName.contains("AUTONOMOUS", ignoreCase = true) && latestSatellitesInView < 4) -> "NO_FIX"
-                latestSatellitesInView < 4 -> "POOR"
-                hPrecision > 2.5 -> "POOR"
-                hPrecision > 0 && hPrecision < 1.0 -> "EXCELLENT"
-                hPrecision > 0 -> "GOOD"
-                else -> "UNKNOWN"
-            }
-            
-            // Calculate overall health
-            val health = when {
-                (latDegrees == 0.0 && lonDegrees == 0.0) || latDegrees.isNaN() || lonDegrees.isNaN() -> "NO_COORDINATES"
-                (fixTypeName.contains("AUTONOMOUS", ignoreCase = true) && latestSatellitesInView < 4) -> "NO_FIX"
-                try { latestHealth?.getSensorState()?.toString()?.contains("ERROR", ignoreCase = true) == true } catch (e: Exception) { false } -> "ERROR"
-                else -> "OK"
-            }
-            
-            val payload = TelemetryPayload(
+            val dir = File(context.getExternalFilesDir(null), "CatalystEvents")
+            dir.mkdirs()
+            val stamp = SimpleDateFormat("yyyyMMddHHmmss", Locale.US).format(Date())
+            val file = File(dir, "events_$stamp${CatalystEventRecorder.FILE_EXTENSION}")
+            val eventRecorder = CatalystEventRecorder(file)
+            // Through its own queue and thread: file writes must not hold up the SDK's observation thread
+            recorderDispatch = facade!!.addCatalystEventListener(
+                eventRecorder, recorderQueueCapacity, OverflowPolicy.DropOldest
+            )
+            recorder = eventRecorder
+            Log.i(TAG, "Recording Catalyst events to ${file.absolutePath}")
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not start recording Catalyst events", e)
+        }
+    }
+
+    /**
+     * Drives the client from a recording instead of a receiver, through the same listener
+     * the facade calls. Blocks until the recording ends or [replayer] is stopped; payloads
+     * reach onMessage as they would live.
+     *
+     * @return number of events replayed
+     */
+    fun replay(
+        replayer: CatalystEventReplayer,
+        tenantId: String,
+        deviceId: String,
+        speed: Double = CatalystEventReplayer.ORIGINAL_SPEED
+    ): Long {
+        this.tenantId = tenantId
+        this.deviceId = deviceId
+        sdkConnected = true
+        try {
+            return replayer.replay(eventListener, speed)
+        } finally {
+            sdkConnected = false
+            Log.i(TAG, "Replayed ${replayer.replayedEvents} events, maxLagMs=${replayer.maxLagNanos / 1_000_000}")
+        }
+    }
+
+    private fun setPositionRate(rate: PositionRate?, hz: Int): Boolean {
+        if (rate == null) {
+            Log.w(TAG, "Warning: SDK has no ${hz}Hz position rate")
+            return false
+        }
+        val positionRateRc = try {
+            facade!!.setOutputPositionRate(rate)
+        } catch (e: Exception) {
+            Log.w(TAG, "Exception setting position rate: ${e.message}", e)
+            ReturnCode(DriverReturnCode.Error)
+        }
+        if (positionRateRc.code != DriverReturnCode.Success) {
+            Log.w(TAG, "Warning: Failed to set position rate $rate (code: ${positionRateRc.code}) - continuing anyway")
+            return false
+        }
+        return true
+    }
+
+    // Looked up by name so rates missing from the SDK build simply fall back to 1Hz
+    private fun positionRate(hz: Int): PositionRate? {
+        val name = when {
+            hz >= 20 -> "TwentyHz"
+            hz >= 10 -> "TenHz"
+            hz >= 5 -> "FiveHz"
+            hz >= 2 -> "TwoHz"
+            else -> "OneHz"
+        }
+        return PositionRate.values().firstOrNull { it.name == name }
+    }
+
+    private fun createAndSendTelemetry(position: CapturedEpoch) {
+        try {
+            val receiverBattery = try { latestBattery?.getBatteryLevel() } catch (e: Exception) { null }
+            val sensorState = try { latestHealth?.getSensorState()?.toString() } catch (e: Exception) { null }
+            val payload = CatalystTelemetry.payload(
                 tenantId = tenantId,
                 deviceId = deviceId,
-                latitude = latDegrees,
-                longitude = lonDegrees,
-                battery = try { latestBattery?.getBatteryLevel() } catch (e: Exception) { null }
-                    ?: DeviceInfoUtil.batteryLevel(context), // Use receiver battery if available, else phone battery
-                fixType = fixTypeName,
-                timestamp = Instant.now().toString(),
-                health = health,
-                horizontalAccuracy = hPrecision,
-                verticalAccuracy = vPrecision,
-                satellites = latestSatellitesInView,
-                receiverBattery = try { latestBattery?.getBatteryLevel() } catch (e: Exception) { null }?.takeIf { it in 0..100 },
-                pdop = if (pdopValue.isNaN() || pdopValue.isInfinite()) null else pdopValue,
-                hdop = if (hdopValue.isNaN() || hdopValue.isInfinite()) null else hdopValue,
-                vdop = if (vdopValue.isNaN() || vdopValue.isInfinite()) null else vdopValue,
-                receiverHealth = receiverHealth
+                position = position,
+                satellitesInView = latestSatellitesInView,
+                // Use receiver battery if available, else phone battery
+                battery = receiverBattery ?: DeviceInfoUtil.batteryLevel(context),
+                receiverBattery = receiverBattery,
+                sensorState = sensorState,
+                timestamp = Instant.now().toString()
+            )
+
+            // Not stored in the track here: satellite updates re-send the same epoch
+            latestSample = ReportingSample(
+                timeMillis = position.utcTimeMillis.takeIf { it > 0 } ?: System.currentTimeMillis(),
+                latitude = payload.latitude,
+                longitude = payload.longitude,
+                fixType = payload.fixType,
+                horizontalAccuracy = payload.horizontalAccuracy,
+                headingDegrees = Math.toDegrees(position.heading),
+                speedMps = position.horizontalVelocity,
+                staticEpochs = position.staticEpochs
             )
-            
             onMessage(payload)
             
         } catch (e: Exception) {
@@ -772,7 +833,7 @@ class CatalystClient(
         }
     }
 
-    fun close() {
+    override fun close() {
         try {
             Log.i(TAG, "Closing Catalyst client")
             
@@ -796,6 +857,25 @@ class CatalystClient(
             lastDataReceivedAt = null
             currentError = null
             
+            listenerDispatch?.let {
+                Log.i(TAG, "Listener queue: delivered=${it.deliveredEvents}, coalesced=${it.coalescedEvents}, " +
+                    "dropped=${it.droppedEvents}, maxDepth=${it.maxQueueDepth}, maxLagMs=${it.maxLagNanos / 1_000_000}")
+            }
+            listenerDispatch = null
+            recorder?.let {
+                try {
+                    facade?.removeCatalystEventListener(it)
+                    it.close()
+                    Log.i(TAG, "Recorded ${it.recordedEvents} Catalyst events, " +
+                        "dropped=${recorderDispatch?.droppedEvents ?: 0}")
+                } catch (e: Exception) {
+                    Log.w(TAG, "Error closing event recording", e)
+                }
+            }
+            recorder = null
+            recorderDispatch = null
+            highRateCapture?.stop()
+            highRateCapture = null
             try {
                 facade?.removeCatalystEventListener(eventListener)
             } catch (e: Exception) {
@@ -811,7 +891,7 @@ class CatalystClient(
             facade = null
             
             // Clear cached data
-            latestPosition = null
+            hasPosition = false
             latestSatellites = null
             latestBattery = null
             latestHealth = null
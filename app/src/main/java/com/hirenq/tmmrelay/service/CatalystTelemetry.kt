@@ -0,0 +1,61 @@
+package com.hirenq.tmmrelay.service
+
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import kotlin.math.PI
+
+/**
+ * Maps a Catalyst epoch to the relayed [TelemetryPayload]. Receiver and phone state are
+ * passed in, so this runs without Android or the SDK (see the benchmark module).
+ */
+object CatalystTelemetry {
+
+    /**
+     * @param battery battery level to report: the receiver's, else the phone's
+     * @param receiverBattery the receiver's battery level, if it reported one
+     * @param sensorState the receiver's last reported connection state
+     * @param timestamp ISO-8601 time of the payload
+     */
+    fun payload(
+        tenantId: String,
+        deviceId: String,
+        position: CapturedEpoch,
+        satellitesInView: Int,
+        battery: Int,
+        receiverBattery: Int?,
+        sensorState: String?,
+        timestamp: String
+    ): TelemetryPayload {
+        // Convert radians to degrees for latitude/longitude
+        val latDegrees = position.latitude * 180.0 / PI
+        val lonDegrees = position.longitude * 180.0 / PI
+
+        // Map SolutionType to String
+        val fixTypeName = position.solution?.toString() ?: "UNKNOWN"
+
+        val hPrecision = finiteOrNull(position.hPrecision) ?: -1.0
+        val vPrecision = finiteOrNull(position.vPrecision) ?: -1.0
+
+        return TelemetryPayload(
+            tenantId = tenantId,
+            deviceId = deviceId,
+            latitude = latDegrees,
+            longitude = lonDegrees,
+            battery = battery,
+            fixType = fixTypeName,
+            timestamp = timestamp,
+            health = TelemetryHealth.catalystHealth(latDegrees, lonDegrees, fixTypeName, satellitesInView, sensorState),
+            horizontalAccuracy = hPrecision,
+            verticalAccuracy = vPrecision,
+            satellites = satellitesInView,
+            receiverBattery = receiverBattery?.takeIf { it in 0..100 },
+            pdop = finiteOrNull(position.pdop),
+            hdop = finiteOrNull(position.hdop),
+            vdop = finiteOrNull(position.vdop),
+            receiverHealth = TelemetryHealth.catalystReceiverHealth(fixTypeName, satellitesInView, hPrecision)
+        )
+    }
+
+    private fun finiteOrNull(value: Double): Double? =
+        if (value.isNaN() || value.isInfinite()) null else value
+}
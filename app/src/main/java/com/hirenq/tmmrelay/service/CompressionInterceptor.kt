@@ -0,0 +1,71 @@
+package com.hirenq.tmmrelay.service
+
+import android.util.Log
+import com.hirenq.tmmrelay.encoding.BufferRequestBody
+import com.hirenq.tmmrelay.encoding.CompressionCodec
+import com.hirenq.tmmrelay.encoding.GzipCodec
+import okhttp3.Interceptor
+import okhttp3.Response
+import okio.Buffer
+
+/**
+ * Compresses request bodies of at least [minBytes] with [codec] and sets
+ * `Content-Encoding`. Bodies that are small, of unknown length or already encoded
+ * go out unchanged, as do compressed bodies that would not come out smaller.
+ *
+ * If the backend answers 415 to a compressed request, the request is repeated
+ * uncompressed. When that one is accepted, compression stays off until [enabled]
+ * is set again.
+ */
+class CompressionInterceptor(
+    private val codec: CompressionCodec = GzipCodec,
+    @Volatile var minBytes: Long = DEFAULT_MIN_BYTES,
+    @Volatile var enabled: Boolean = true
+) : Interceptor {
+
+    private val TAG = "CompressionInterceptor"
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val body = request.body
+        if (!enabled || body == null || request.header("Content-Encoding") != null) {
+            return chain.proceed(request)
+        }
+        val length = body.contentLength()
+        if (length < 0 || length < minBytes) return chain.proceed(request)
+
+        val plain = Buffer()
+        body.writeTo(plain)
+        val compressed = Buffer()
+        codec.compress(plain, compressed)
+        if (compressed.size >= plain.size) return chain.proceed(request)
+
+        Log.d(TAG, "${codec.encoding}: ${plain.size} -> ${compressed.size} bytes")
+        val response = chain.proceed(
+            request.newBuilder()
+                .header("Content-Encoding", codec.encoding)
+                .method(request.method, BufferRequestBody(compressed, body.contentType()))
+                .build()
+        )
+        if (response.code != HTTP_UNSUPPORTED_MEDIA_TYPE) return response
+
+        response.close()
+        val retry = chain.proceed(
+            request.newBuilder()
+                .method(request.method, BufferRequestBody(plain, body.contentType()))
+                .build()
+        )
+        if (retry.code != HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            Log.w(TAG, "Backend does not accept ${codec.encoding} bodies - compression disabled")
+            enabled = false
+        }
+        return retry
+    }
+
+    companion object {
+        // Below this gzip's ~20 byte framing eats most of the gain on a single record
+        const val DEFAULT_MIN_BYTES: Long = 1024L
+
+        private const val HTTP_UNSUPPORTED_MEDIA_TYPE = 415
+    }
+}
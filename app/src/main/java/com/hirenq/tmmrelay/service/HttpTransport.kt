@@ -0,0 +1,147 @@
+package com.hirenq.tmmrelay.service
+
+import android.util.Log
+import com.hirenq.tmmrelay.model.HttpTransportConfig
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.EventListener
+import okhttp3.Handshake
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The one OkHttp connection pool and dispatcher of the app. Callers take a client from
+ * [client], adding their own interceptors or timeouts; derived clients share the pool,
+ * the dispatcher's per-host limits and the [stats] counters.
+ *
+ * [configure] replaces the transport, e.g. when the service starts with new settings;
+ * calls in flight finish on the old one, whose idle connections are closed.
+ */
+object HttpTransport {
+
+    private const val TAG = "HttpTransport"
+
+    private val metrics = Metrics()
+
+    @Volatile
+    private var base: OkHttpClient = build(HttpTransportConfig())
+
+    @Volatile
+    var config = HttpTransportConfig()
+        private set
+
+    // Derived clients, dropped when the base client is replaced
+    private val derived = ConcurrentHashMap<String, OkHttpClient>()
+
+    /**
+     * Counters since process start. A call either opens a connection or reuses one from
+     * the pool (or an HTTP/2 connection already carrying other calls); every reuse of an
+     * HTTPS connection is a TLS handshake avoided.
+     */
+    data class Stats(
+        val calls: Long,
+        val connectionsAcquired: Long,
+        val connectionsOpened: Long,
+        val tlsHandshakes: Long,
+        val tlsHandshakesAvoided: Long,
+        val http2Acquired: Long
+    ) {
+        val reuseRatio: Double
+            get() = if (connectionsAcquired == 0L) 0.0
+            else (connectionsAcquired - connectionsOpened).coerceAtLeast(0L).toDouble() / connectionsAcquired
+    }
+
+    fun configure(config: HttpTransportConfig) {
+        if (config == this.config) return
+        val old = base
+        base = build(config)
+        this.config = config
+        derived.clear()
+        old.connectionPool.evictAll()
+        Log.i(TAG, "HTTP transport: $config")
+    }
+
+    /** The shared client as configured. */
+    val client: OkHttpClient
+        get() = base
+
+    /**
+     * A client named [name] built from the shared one by [customize]; built once per
+     * transport configuration.
+     */
+    fun client(name: String, customize: OkHttpClient.Builder.() -> Unit): OkHttpClient {
+        val current = base
+        derived[name]?.let { if (it.connectionPool === current.connectionPool) return it }
+        return current.newBuilder().apply(customize).build().also { derived[name] = it }
+    }
+
+    fun stats(): Stats = metrics.snapshot()
+
+    private fun build(config: HttpTransportConfig): OkHttpClient {
+        val dispatcher = Dispatcher().apply {
+            maxRequests = config.maxRequests.coerceAtLeast(1)
+            maxRequestsPerHost = config.maxRequestsPerHost.coerceAtLeast(1)
+        }
+        return OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(ConnectionPool(config.maxIdleConnections.coerceAtLeast(0), config.keepAliveMs, TimeUnit.MILLISECONDS))
+            .protocols(if (config.http2) listOf(Protocol.HTTP_2, Protocol.HTTP_1_1) else listOf(Protocol.HTTP_1_1))
+            .connectTimeout(config.connectTimeoutMs, TimeUnit.MILLISECONDS)
+            .readTimeout(config.readTimeoutMs, TimeUnit.MILLISECONDS)
+            .writeTimeout(config.writeTimeoutMs, TimeUnit.MILLISECONDS)
+            .callTimeout(config.callTimeoutMs, TimeUnit.MILLISECONDS)
+            .retryOnConnectionFailure(true)
+            .eventListenerFactory { CallMetrics(metrics) }
+            .build()
+    }
+
+    private class Metrics {
+        val calls = AtomicLong()
+        val acquired = AtomicLong()
+        val opened = AtomicLong()
+        val tlsHandshakes = AtomicLong()
+        val tlsAvoided = AtomicLong()
+        val http2Acquired = AtomicLong()
+
+        fun snapshot() = Stats(
+            calls = calls.get(),
+            connectionsAcquired = acquired.get(),
+            connectionsOpened = opened.get(),
+            tlsHandshakes = tlsHandshakes.get(),
+            tlsHandshakesAvoided = tlsAvoided.get(),
+            http2Acquired = http2Acquired.get()
+        )
+    }
+
+    // One per call, so "opened by this call" needs no synchronisation
+    private class CallMetrics(private val metrics: Metrics) : EventListener() {
+        private var openedConnection = false
+
+        override fun callStart(call: Call) {
+            metrics.calls.incrementAndGet()
+        }
+
+        override fun connectEnd(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?) {
+            openedConnection = true
+            metrics.opened.incrementAndGet()
+        }
+
+        override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+            metrics.tlsHandshakes.incrementAndGet()
+        }
+
+        override fun connectionAcquired(call: Call, connection: Connection) {
+            metrics.acquired.incrementAndGet()
+            if (connection.protocol() == Protocol.HTTP_2) metrics.http2Acquired.incrementAndGet()
+            if (!openedConnection && connection.handshake() != null) metrics.tlsAvoided.incrementAndGet()
+            openedConnection = false
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.hirenq.tmmrelay.service
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs the service's timers as coroutines off the main thread.
+ *
+ * Each [Deadline] fires its action once nothing has pushed it back for its delay,
+ * so "no message for 10 minutes" is one timer re-armed per message rather than a
+ * loop that polls every minute. Re-arming is a single atomic write; the coroutine
+ * only wakes when the deadline it is sleeping towards is reached.
+ *
+ * [wakeupCounts] reports how often each timer actually woke, to compare against
+ * the fixed-rate loops this replaces.
+ */
+class ServiceScheduler(dispatcher: CoroutineDispatcher = Dispatchers.Default) {
+
+    private val TAG = "ServiceScheduler"
+
+    private val scope = CoroutineScope(SupervisorJob() + dispatcher)
+    private val wakeups = ConcurrentHashMap<String, AtomicLong>()
+
+    /**
+     * Creates a deadline that runs [action] [delayMs] after the last [Deadline.reset].
+     * With [repeat] it keeps firing every [delayMs] until pushed back again.
+     * Actions run on a background thread and must not touch views.
+     */
+    fun deadline(name: String, delayMs: Long, repeat: Boolean = false, action: () -> Unit): Deadline =
+        Deadline(name, delayMs, repeat, action).also { it.start() }
+
+    fun wakeupCounts(): Map<String, Long> = wakeups.mapValues { it.value.get() }
+
+    fun shutdown() {
+        scope.cancel()
+    }
+
+    private fun countWakeup(name: String) {
+        wakeups.getOrPut(name) { AtomicLong() }.incrementAndGet()
+    }
+
+    inner class Deadline internal constructor(
+        val name: String,
+        private val delayMs: Long,
+        private val repeat: Boolean,
+        private val action: () -> Unit
+    ) {
+        private val dueAt = AtomicLong(IDLE)
+        private val armed = Channel<Unit>(Channel.CONFLATED)
+
+        /** Arms the deadline, or pushes it back to [delayMs] from now. */
+        fun reset() {
+            if (dueAt.getAndSet(now() + delayMs) == IDLE) armed.trySend(Unit)
+        }
+
+        fun cancel() {
+            dueAt.set(IDLE)
+        }
+
+        internal fun start() {
+            scope.launch {
+                while (isActive) {
+                    val due = dueAt.get()
+                    if (due == IDLE) {
+                        armed.receive()
+                        continue
+                    }
+                    val wait = due - now()
+                    if (wait > 0) {
+                        delay(wait)
+                        countWakeup(name)
+                        continue
+                    }
+                    // A reset racing with the fire wins and is honoured on the next pass
+                    if (!dueAt.compareAndSet(due, if (repeat) now() + delayMs else IDLE)) continue
+                    try {
+                        action()
+                    } catch (e: Exception) {
+                        Log.e(TAG, "Error in $name timer: ${e.message}", e)
+                    }
+                }
+            }
+        }
+    }
+
+    private companion object {
+        const val IDLE = Long.MAX_VALUE
+
+        fun now(): Long = System.nanoTime() / 1_000_000L
+    }
+}
@@ -0,0 +1,49 @@
+package com.hirenq.tmmrelay.service
+
+/**
+ * Health labels relayed with each payload: `receiverHealth` grades the fix, `health`
+ * flags payloads the backend should not plot.
+ */
+object TelemetryHealth {
+
+    /** Receiver health of a Catalyst epoch; [hPrecision] is -1 when unknown. */
+    fun catalystReceiverHealth(fixType: String, satellitesInView: Int, hPrecision: Double): String = when {
+        fixType.contains("INVALID", ignoreCase = true) -> "NO_FIX"
+        (fixType.contains("AUTONOMOUS", ignoreCase = true) && satellitesInView < 4) -> "NO_FIX"
+        satellitesInView < 4 -> "POOR"
+        hPrecision > 2.5 -> "POOR"
+        hPrecision > 0 && hPrecision < 1.0 -> "EXCELLENT"
+        hPrecision > 0 -> "GOOD"
+        else -> "UNKNOWN"
+    }
+
+    /** Overall health of a Catalyst epoch; [sensorState] is the receiver's last reported state. */
+    fun catalystHealth(
+        latitude: Double,
+        longitude: Double,
+        fixType: String,
+        satellitesInView: Int,
+        sensorState: String?
+    ): String = when {
+        (latitude == 0.0 && longitude == 0.0) || latitude.isNaN() || longitude.isNaN() -> "NO_COORDINATES"
+        (fixType.contains("AUTONOMOUS", ignoreCase = true) && satellitesInView < 4) -> "NO_FIX"
+        sensorState?.contains("ERROR", ignoreCase = true) == true -> "ERROR"
+        else -> "OK"
+    }
+
+    /** Receiver health of a TMM WebSocket message. */
+    fun tmmReceiverHealth(fixType: String, satellites: Int, hdop: Double?): String = when {
+        fixType == "NO_FIX" -> "NO_FIX"
+        satellites < 4 -> "POOR"
+        hdop != null && hdop > 2.5 -> "POOR"
+        fixType.contains("FIX", true) && hdop != null && hdop < 1.0 -> "EXCELLENT"
+        else -> "GOOD"
+    }
+
+    /** Overall health of a TMM WebSocket message. */
+    fun tmmHealth(latitude: Double, longitude: Double, fixType: String): String = when {
+        latitude == 0.0 && longitude == 0.0 -> "NO_COORDINATES"
+        fixType == "NO_FIX" -> "NO_FIX"
+        else -> "OK"
+    }
+}
@@ -0,0 +1,389 @@
+package com.hirenq.tmmrelay.service
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.ByteString
+import java.io.IOException
+import java.time.Instant
+
+/**
+ * Fields of a TMM WebSocket position message, filled in place by [TmmMessageParser].
+ * Missing or unusable fields keep the defaults the relay has always applied.
+ */
+class TmmMessage {
+    var latitude = 0.0
+    var longitude = 0.0
+    var fixType = "NO_FIX"
+    var horizontalAccuracy = -1.0
+    var verticalAccuracy = -1.0
+    var satellites = 0
+    /** Receiver battery, from `receiverBattery` or else `battery`; -1 if neither was sent */
+    var receiverBattery = -1
+    var pdop = -1.0
+    var hdop = -1.0
+    var vdop = -1.0
+
+    fun reset() {
+        latitude = 0.0
+        longitude = 0.0
+        fixType = "NO_FIX"
+        horizontalAccuracy = -1.0
+        verticalAccuracy = -1.0
+        satellites = 0
+        receiverBattery = -1
+        pdop = -1.0
+        hdop = -1.0
+        vdop = -1.0
+    }
+}
+
+/**
+ * Single-pass parser for TMM WebSocket position messages. Scans the frame once, as text
+ * or as the raw UTF-8 of a binary frame, and copies the top-level fields the relay uses
+ * into one reused [TmmMessage]; everything else, nested values included, is skipped
+ * without being materialised.
+ *
+ * Values are read the way the former `JSONObject.opt*` calls read them: numbers may also
+ * arrive as numeric strings, anything else falls back to the default. Not thread-safe;
+ * use one parser per connection.
+ */
+class TmmMessageParser {
+
+    private companion object {
+        const val LATITUDE = 0
+        const val LONGITUDE = 1
+        const val FIX_TYPE = 2
+        const val HORIZONTAL_ACCURACY = 3
+        const val VERTICAL_ACCURACY = 4
+        const val SATELLITES = 5
+        const val RECEIVER_BATTERY = 6
+        const val BATTERY = 7
+        const val PDOP = 8
+        const val HDOP = 9
+        const val VDOP = 10
+
+        // Indexed by the constants above
+        val KEYS = arrayOf(
+            "latitude", "longitude", "fixType", "horizontalAccuracy", "verticalAccuracy",
+            "satellites", "receiverBattery", "battery", "pdop", "hdop", "vdop"
+        )
+
+        // Exact powers of ten for the fast number path
+        val POW10 = DoubleArray(23).also { table ->
+            table[0] = 1.0
+            for (i in 1 until table.size) table[i] = table[i - 1] * 10
+        }
+        const val MAX_EXACT_MANTISSA = 1L shl 53
+    }
+
+    // Character access over either kind of frame; a bimorphic call the JIT inlines
+    private abstract class Input {
+        abstract val length: Int
+        abstract fun at(index: Int): Int
+        abstract fun text(start: Int, end: Int): String
+    }
+
+    private class TextInput : Input() {
+        var value = ""
+        override val length: Int get() = value.length
+        override fun at(index: Int): Int = value[index].code
+        override fun text(start: Int, end: Int): String = value.substring(start, end)
+    }
+
+    private class BytesInput : Input() {
+        var value: ByteString = ByteString.EMPTY
+        override val length: Int get() = value.size
+        override fun at(index: Int): Int = value[index].toInt() and 0xFF
+        override fun text(start: Int, end: Int): String = value.substring(start, end).utf8()
+    }
+
+    private val textInput = TextInput()
+    private val bytesInput = BytesInput()
+    private val scratchInput = TextInput()
+    private val message = TmmMessage()
+
+    // Whether the last string scanned contained escapes
+    private var escaped = false
+    private var hasReceiverBattery = false
+    private var battery = -1
+
+    /** Parses a text frame. The returned record is reused by the next call. */
+    fun parse(text: String): TmmMessage {
+        textInput.value = text
+        return parse(textInput)
+    }
+
+    /** Parses a binary frame holding the message's UTF-8 bytes. */
+    fun parse(bytes: ByteString): TmmMessage {
+        bytesInput.value = bytes
+        return parse(bytesInput)
+    }
+
+    /**
+     * @param battery the phone's battery level
+     * @param timestamp ISO-8601 time of the payload
+     */
+    fun toPayload(
+        message: TmmMessage,
+        tenantId: String,
+        deviceId: String,
+        battery: Int,
+        timestamp: String = Instant.now().toString()
+    ): TelemetryPayload {
+        val hdop = message.hdop.takeIf { it > 0 }
+        return TelemetryPayload(
+            tenantId = tenantId,
+            deviceId = deviceId,
+            latitude = message.latitude,
+            longitude = message.longitude,
+            battery = battery,
+            fixType = message.fixType,
+            timestamp = timestamp,
+            health = TelemetryHealth.tmmHealth(message.latitude, message.longitude, message.fixType),
+            horizontalAccuracy = message.horizontalAccuracy,
+            verticalAccuracy = message.verticalAccuracy,
+            satellites = message.satellites,
+            receiverBattery = message.receiverBattery.takeIf { it in 0..100 },
+            pdop = message.pdop.takeIf { it > 0 },
+            hdop = hdop,
+            vdop = message.vdop.takeIf { it > 0 },
+            receiverHealth = TelemetryHealth.tmmReceiverHealth(message.fixType, message.satellites, hdop)
+        )
+    }
+
+    private fun parse(input: Input): TmmMessage {
+        // Keep the previous fix type so an unchanged value is not decoded again
+        val previousFixType = message.fixType
+        message.reset()
+        hasReceiverBattery = false
+        battery = -1
+
+        var pos = skipWhitespace(input, 0)
+        expect(input, pos, '{')
+        pos = skipWhitespace(input, pos + 1)
+        if (pos < input.length && input.at(pos) == '}'.code) return message
+        while (true) {
+            expect(input, pos, '"')
+            val keyEnd = scanString(input, pos)
+            // JSONObject matched keys after unescaping, so an escaped key still names its field
+            val field = if (escaped) {
+                KEYS.indexOf(unescape(input.text(pos + 1, keyEnd)))
+            } else {
+                field(input, pos + 1, keyEnd)
+            }
+            pos = skipWhitespace(input, keyEnd + 1)
+            expect(input, pos, ':')
+            pos = skipWhitespace(input, pos + 1)
+            if (pos >= input.length) throw malformed(pos)
+
+            when (input.at(pos)) {
+                '"'.code -> {
+                    val end = scanString(input, pos)
+                    if (field == FIX_TYPE) {
+                        message.fixType = if (!escaped && regionEquals(input, pos + 1, end, previousFixType)) {
+                            previousFixType
+                        } else {
+                            string(input, pos + 1, end)
+                        }
+                    } else if (field >= 0) {
+                        val value = if (escaped) number(unescape(input.text(pos + 1, end))) else number(input, pos + 1, end)
+                        setNumber(field, value)
+                    }
+                    pos = end + 1
+                }
+                '{'.code, '['.code -> pos = skipComposite(input, pos)
+                else -> {
+                    val start = pos
+                    while (pos < input.length && !isDelimiter(input.at(pos))) pos++
+                    if (pos == start) throw malformed(pos)
+                    if (field == FIX_TYPE) {
+                        // optString renders a bare literal as its text
+                        message.fixType = input.text(start, pos)
+                    } else if (field >= 0) {
+                        setNumber(field, number(input, start, pos))
+                    }
+                }
+            }
+
+            pos = skipWhitespace(input, pos)
+            if (pos >= input.length) throw malformed(pos)
+            when (input.at(pos)) {
+                ','.code -> pos = skipWhitespace(input, pos + 1)
+                '}'.code -> break
+                else -> throw malformed(pos)
+            }
+        }
+        if (hasReceiverBattery.not()) message.receiverBattery = battery
+        return message
+    }
+
+    // NaN means missing or not a number: the field keeps its default
+    private fun setNumber(field: Int, value: Double) {
+        if (value.isNaN()) return
+        when (field) {
+            LATITUDE -> message.latitude = value
+            LONGITUDE -> message.longitude = value
+            HORIZONTAL_ACCURACY -> message.horizontalAccuracy = value
+            VERTICAL_ACCURACY -> message.verticalAccuracy = value
+            SATELLITES -> message.satellites = value.toInt()
+            RECEIVER_BATTERY -> {
+                message.receiverBattery = value.toInt()
+                hasReceiverBattery = true
+            }
+            BATTERY -> battery = value.toInt()
+            PDOP -> message.pdop = value
+            HDOP -> message.hdop = value
+            VDOP -> message.vdop = value
+        }
+    }
+
+    private fun field(input: Input, start: Int, end: Int): Int {
+        for (i in KEYS.indices) {
+            if (regionEquals(input, start, end, KEYS[i])) return i
+        }
+        return -1
+    }
+
+    private fun regionEquals(input: Input, start: Int, end: Int, value: String): Boolean {
+        if (end - start != value.length) return false
+        for (i in value.indices) {
+            if (input.at(start + i) != value[i].code) return false
+        }
+        return true
+    }
+
+    /** Index of the closing quote of the string opening at [quote]; sets [escaped]. */
+    private fun scanString(input: Input, quote: Int): Int {
+        escaped = false
+        var pos = quote + 1
+        while (pos < input.length) {
+            when (input.at(pos)) {
+                '"'.code -> return pos
+                '\\'.code -> {
+                    escaped = true
+                    pos += 2
+                }
+                else -> pos++
+            }
+        }
+        throw malformed(quote)
+    }
+
+    private fun skipComposite(input: Input, open: Int): Int {
+        var depth = 0
+        var pos = open
+        while (pos < input.length) {
+            when (input.at(pos)) {
+                '{'.code, '['.code -> depth++
+                '}'.code, ']'.code -> if (--depth == 0) return pos + 1
+                '"'.code -> pos = scanString(input, pos)
+            }
+            pos++
+        }
+        throw malformed(open)
+    }
+
+    private fun string(input: Input, start: Int, end: Int): String {
+        val raw = input.text(start, end)
+        return if (escaped) unescape(raw) else raw
+    }
+
+    private fun unescape(raw: String): String {
+        val out = StringBuilder(raw.length)
+        var i = 0
+        while (i < raw.length) {
+            val c = raw[i++]
+            if (c != '\\' || i >= raw.length) {
+                out.append(c)
+                continue
+            }
+            when (val e = raw[i++]) {
+                'n' -> out.append('\n')
+                't' -> out.append('\t')
+                'r' -> out.append('\r')
+                'b' -> out.append('\b')
+                'f' -> out.append('\u000C')
+                'u' -> {
+                    val code = if (i + 4 <= raw.length) raw.substring(i, i + 4).toIntOrNull(16) else null
+                    out.append((code ?: throw IOException("Malformed \\u escape in TMM message")).toChar())
+                    i += 4
+                }
+                else -> out.append(e)
+            }
+        }
+        return out.toString()
+    }
+
+    /** The JSON number in an unescaped string value, or NaN if it is not one. */
+    private fun number(text: String): Double {
+        scratchInput.value = text
+        return number(scratchInput, 0, text.length)
+    }
+
+    /**
+     * The JSON number in `[start, end)`, or NaN if it is not one. Up to 15 significant
+     * digits are converted exactly without allocating; longer ones go through the JDK.
+     */
+    private fun number(input: Input, start: Int, end: Int): Double {
+        var pos = start
+        if (pos >= end) return Double.NaN
+        val negative = input.at(pos) == '-'.code
+        if (negative) pos++
+        var mantissa = 0L
+        var digits = 0
+        var exponent = 0
+        var sawDigit = false
+        while (pos < end && input.at(pos) in '0'.code..'9'.code) {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (input.at(pos) - '0'.code)
+                if (mantissa != 0L) digits++
+            } else {
+                exponent++
+            }
+            sawDigit = true
+            pos++
+        }
+        if (pos < end && input.at(pos) == '.'.code) {
+            pos++
+            while (pos < end && input.at(pos) in '0'.code..'9'.code) {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (input.at(pos) - '0'.code)
+                    if (mantissa != 0L) digits++
+                    exponent--
+                }
+                sawDigit = true
+                pos++
+            }
+        }
+        if (!sawDigit) return Double.NaN
+        if (pos < end && (input.at(pos) == 'e'.code || input.at(pos) == 'E'.code)) {
+            return input.text(start, end).toDoubleOrNull() ?: Double.NaN
+        }
+        if (pos != end) return Double.NaN
+        val value = when {
+            mantissa == 0L -> 0.0
+            mantissa < MAX_EXACT_MANTISSA && exponent in -22..22 ->
+                if (exponent < 0) mantissa / POW10[-exponent] else mantissa * POW10[exponent]
+            else -> return input.text(start, end).toDoubleOrNull() ?: Double.NaN
+        }
+        return if (negative) -value else value
+    }
+
+    private fun skipWhitespace(input: Input, from: Int): Int {
+        var pos = from
+        while (pos < input.length) {
+            val c = input.at(pos)
+            if (c != ' '.code && c != '\n'.code && c != '\r'.code && c != '\t'.code) break
+            pos++
+        }
+        return pos
+    }
+
+    private fun isDelimiter(c: Int): Boolean =
+        c == ','.code || c == '}'.code || c == ']'.code || c == ' '.code || c == '\n'.code || c == '\r'.code || c == '\t'.code
+
+    private fun expect(input: Input, pos: Int, c: Char) {
+        if (pos >= input.length || input.at(pos) != c.code) throw malformed(pos)
+    }
+
+    private fun malformed(pos: Int) = IOException("Malformed TMM message at offset $pos")
+}
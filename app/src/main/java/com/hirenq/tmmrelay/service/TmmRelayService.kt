@@ -9,37 +9,72 @@ import android.content.Context
 import android.content.Intent
 import android.content.pm.PackageManager
 import android.os.Build
-import android.os.Handler
 import android.os.IBinder
-import android.os.Looper
 import androidx.core.app.NotificationCompat
 import androidx.core.content.ContextCompat
 import androidx.localbroadcastmanager.content.LocalBroadcastManager
 import com.hirenq.tmmrelay.R
+import com.hirenq.tmmrelay.model.SourceMode
 import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.network.ConnectivityNetworkSource
+import com.hirenq.tmmrelay.network.UploadNetworkPolicy
+import com.hirenq.tmmrelay.outbox.CircuitBreaker
+import com.hirenq.tmmrelay.outbox.OutboxDrainer
+import com.hirenq.tmmrelay.outbox.RetryScheduler
+import com.hirenq.tmmrelay.outbox.TelemetryOutbox
+import com.hirenq.tmmrelay.pipeline.TelemetryPipeline
+import com.hirenq.tmmrelay.reporting.ReportingEngine
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import com.hirenq.tmmrelay.reporting.TrackSimplifier
+import com.hirenq.tmmrelay.source.PositionSource
+import com.hirenq.tmmrelay.source.SourceArbiter
+import com.hirenq.tmmrelay.util.BatteryMonitor
+import com.hirenq.tmmrelay.util.CrashHandler
 import com.hirenq.tmmrelay.util.DeviceInfoUtil
+import com.hirenq.tmmrelay.util.SettingsUtil
 import com.hirenq.tmmrelay.util.TrimbleLicensingUtil
+import java.io.File
 import java.time.Instant
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.TimeUnit
 
 class TmmRelayService : Service() {
 
     private var catalystClient: CatalystClient? = null
+    private var tmmClient: TmmWebSocketClient? = null
+    // Every running source feeds sourceArbiter, which passes one epoch stream to the pipeline
+    private val sources = CopyOnWriteArrayList<PositionSource>()
+    private var sourceArbiter: SourceArbiter? = null
+    private var pipeline: TelemetryPipeline? = null
+    private var sourceMode = SourceMode.CATALYST
     private val tenantId = "ASSAM_LAND_REGISTRY"
     private val apiKey: String? = null
 
-    private var lastMessageAt: Instant = Instant.now()
     private var lastSuccessfulPostAt: Instant? = null
+    private var lastQueuedAt: Instant? = null
     private var isRelayStarted = false
 
     private var lastPostTimestamp: String? = null
     private var lastPostPayload: String? = null
 
-    private var lastKnownLatitude = 0.0
-    private var lastKnownLongitude = 0.0
-    private var lastKnownFixType = "UNKNOWN"
+    // Written from the pipeline's normalize thread, read by the scheduler's timers
+    @Volatile private var lastKnownLatitude = 0.0
+    @Volatile private var lastKnownLongitude = 0.0
+    @Volatile private var lastKnownFixType = "UNKNOWN"
+    @Volatile private var lastKnownBattery = -1
+    private var deviceId = ""
 
-    private val handler = Handler(Looper.getMainLooper())
+    private val scheduler = ServiceScheduler()
+
+    // Set when track simplification replaces the reporting triggers; holds back one epoch
+    private var trackSimplifier: TrackSimplifier<TelemetryPipeline.Epoch>? = null
+
+    // Payloads are written to disk first and replayed in order by the drainer
+    private var outbox: TelemetryOutbox? = null
+    private var outboxDrainer: OutboxDrainer? = null
+    // Holds outbox uploads while offline and times them to radio wake-ups on metered links
+    private var networkSource: ConnectivityNetworkSource? = null
+    private val flushOutboxOnCrash: () -> Unit = { outbox?.flush() }
 
     private val notificationManager by lazy {
         getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
@@ -77,63 +112,58 @@ class TmmRelayService : Service() {
             }
             
             // Add connection status and error state
-            val isConnected = catalystClient?.getConnectionStatus() ?: false
+            val isConnected = sources.any { it.getConnectionStatus() }
             putExtra("isConnected", isConnected)
+            sourceArbiter?.activeSource?.let { putExtra("source", it) }
             catalystClient?.getCurrentError()?.let { error ->
                 putExtra("error", error)
             }
+            putExtra("timerWakeups", scheduler.wakeupCounts().toString())
+            networkSource?.state?.let { network ->
+                putExtra("network", if (!network.validated) "OFFLINE" else if (network.metered) "METERED" else "UNMETERED")
+            }
+            outboxDrainer?.retryScheduler?.let { retry ->
+                putExtra("uploadCircuit", retry.breaker.currentState.name)
+                putExtra("uploadConsecutiveFailures", retry.consecutiveFailures)
+            }
+            pipeline?.stats()?.let { stats ->
+                putExtra("pipelineDropped", stats.dropped)
+                putExtra("pipelineMaxLatencyMs", stats.stages.maxOf { it.maxLatencyMs })
+            }
+            HttpTransport.stats().let { http ->
+                putExtra("httpConnectionReuse", http.reuseRatio)
+                putExtra("httpTlsHandshakesAvoided", http.tlsHandshakesAvoided)
+            }
+            catalystClient?.track?.windowStats(60_000L)?.let { stats ->
+                putExtra("horizontalAccuracyMean60s", stats.meanHPrecision)
+                putExtra("horizontalAccuracyMax60s", stats.maxHPrecision)
+                putExtra("minSatellites60s", stats.minSatellites)
+            }
         }
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent)
     }
 
-    // -------------------- RUNNABLES --------------------
+    // -------------------- TIMERS --------------------
 
-    private val offlineCheck = object : Runnable {
-        override fun run() {
-            val minutes =
-                java.time.Duration.between(lastMessageAt, Instant.now()).toMinutes()
-            if (minutes >= 10) emitOffline()
-            handler.postDelayed(this, TimeUnit.MINUTES.toMillis(1))
-        }
-    }
+    // Pushed back by every message, so they only fire when the receiver goes quiet.
+    // Status text only changes on post results and going offline, so it has no timer.
 
-    private val periodicPostCheck = object : Runnable {
-        override fun run() {
-            if (isRelayStarted && (lastKnownLatitude != 0.0 || lastKnownLongitude != 0.0)) {
-                sendPeriodicPost()
-            }
-            handler.postDelayed(this, TimeUnit.MINUTES.toMillis(5))
-        }
+    private val offlineDeadline = scheduler.deadline("offline", TimeUnit.MINUTES.toMillis(10)) {
+        emitOffline()
+        updateDynamicStatus()
     }
 
-    private val statusUpdateCheck = object : Runnable {
-        override fun run() {
-            if (isRelayStarted) updateDynamicStatus()
-            handler.postDelayed(this, TimeUnit.SECONDS.toMillis(30))
-        }
+    // Keeps the diagnostics screen alive while no messages arrive; message handling
+    // broadcasts diagnostics itself. Also covers the old 5-minute last-known broadcast.
+    private val idleDiagnostics = scheduler.deadline(
+        "idle-diagnostics", TimeUnit.SECONDS.toMillis(10), repeat = true
+    ) {
+        if (isRelayStarted) broadcastDiagnostics(lastKnownPayload())
     }
 
-    private val diagnosticsUpdateCheck = object : Runnable {
-        override fun run() {
-            if (isRelayStarted) {
-                // Broadcast diagnostics periodically even if no messages received
-                val payload = TelemetryPayload(
-                    tenantId = tenantId,
-                    deviceId = DeviceInfoUtil.deviceId(this@TmmRelayService),
-                    latitude = lastKnownLatitude,
-                    longitude = lastKnownLongitude,
-                    battery = DeviceInfoUtil.batteryLevel(this@TmmRelayService),
-                    fixType = lastKnownFixType,
-                    timestamp = Instant.now().toString(),
-                    health = "OK",
-                    horizontalAccuracy = -1.0,
-                    verticalAccuracy = -1.0,
-                    satellites = -1
-                )
-                broadcastDiagnostics(payload)
-            }
-            handler.postDelayed(this, TimeUnit.SECONDS.toMillis(10))
-        }
+    // Armed when the TMM WebSocket drops; OkHttp does not reconnect it on its own
+    private val tmmReconnect = scheduler.deadline("tmm-reconnect", TimeUnit.SECONDS.toMillis(5)) {
+        if (isRelayStarted) tmmClient?.connect(tenantId, deviceId)
     }
 
     // -------------------- SERVICE LIFECYCLE --------------------
@@ -142,7 +172,7 @@ class TmmRelayService : Service() {
         super.onCreate()
         
         // Get device ID early so it's available throughout onCreate
-        val deviceId = DeviceInfoUtil.deviceId(this)
+        deviceId = DeviceInfoUtil.deviceId(this)
         android.util.Log.i("TmmRelayService", "Device ID = $deviceId")
         
         try {
@@ -153,74 +183,142 @@ class TmmRelayService : Service() {
             TrimbleLicensingUtil.initialize(this)
             android.util.Log.i("TmmRelayService", "Step 1: Trimble Licensing initialized")
 
-            // Common handler for processing payloads from Catalyst client
-        val payloadHandler: (TelemetryPayload) -> Unit = { payload ->
-                try {
-            lastMessageAt = Instant.now()
+            // Battery level is read on every epoch; keep it cached instead of querying per call
+            BatteryMonitor.start(this)
+
+            android.util.Log.i("TmmRelayService", "Step 2: Opening telemetry outbox")
+            openOutbox()
+            android.util.Log.i("TmmRelayService", "Step 2: Telemetry outbox opened")
+
+            val reportingConfig = SettingsUtil.reportingConfig(this)
+            android.util.Log.i("TmmRelayService", "Reporting: $reportingConfig")
+            val engine = ReportingEngine(reportingConfig)
+            val simplifier = if (reportingConfig.simplifyTrack) {
+                // Heartbeats come from the engine, which knows when the receiver is stationary
+                TrackSimplifier<TelemetryPipeline.Epoch>(
+                    reportingConfig.minCrossTrackMetres,
+                    reportingConfig.precisionFactor,
+                    maxGapMs = Long.MAX_VALUE
+                )
+            } else null
+            trackSimplifier = simplifier
+
+            // Each step runs on its own pipeline thread, off the source connections
+            val normalize: (TelemetryPipeline.Epoch) -> TelemetryPipeline.Epoch = { epoch ->
+                val payload = epoch.payload
+                offlineDeadline.reset()
+                idleDiagnostics.reset()
+                lastKnownBattery = payload.battery
+
+                if (payload.latitude != 0.0 || payload.longitude != 0.0) {
+                    lastKnownLatitude = payload.latitude
+                    lastKnownLongitude = payload.longitude
+                    lastKnownFixType = payload.fixType
+                }
 
-            if (payload.latitude != 0.0 || payload.longitude != 0.0) {
-                lastKnownLatitude = payload.latitude
-                lastKnownLongitude = payload.longitude
-                lastKnownFixType = payload.fixType
+                broadcastDiagnostics(payload)
+                epoch.copy(payload = payload.copy(deviceId = deviceId))
             }
 
-            broadcastDiagnostics(payload)
-
-            val shouldSendPost =
-                lastSuccessfulPostAt == null ||
-                    java.time.Duration
-                        .between(lastSuccessfulPostAt, Instant.now())
-                        .toMinutes() >= 5
-
-            if (shouldSendPost) {
-                android.util.Log.i("TmmRelayService", "=== Sending POST request with full payload ===")
-                android.util.Log.i("TmmRelayService", "Payload: TenantId=${payload.tenantId}, " +
-                        "DeviceId=$deviceId, Lat=${payload.latitude}, Lng=${payload.longitude}, " +
-                        "Battery=${payload.battery}, FixType=${payload.fixType}, " +
-                        "Health=${payload.health}, HAcc=${payload.horizontalAccuracy}, " +
-                        "VAcc=${payload.verticalAccuracy}, Satellites=${payload.satellites}, " +
-                        "ReceiverBattery=${payload.receiverBattery}, ReceiverHealth=${payload.receiverHealth}")
-                
-                ApiClient.send(
-                    payload.copy(deviceId = deviceId),
-                    apiKey
-                ) { timestamp, payloadInfo, success ->
-                    android.util.Log.i("TmmRelayService", "POST response: $timestamp - $payloadInfo (success=$success)")
-                    if (success) lastSuccessfulPostAt = Instant.now()
-                    updateNotificationWithPost(timestamp, payloadInfo)
-                    updateDynamicStatus()
+            // Decide on what was queued, not what was delivered, so an outage
+            // doesn't turn every epoch into an outbox record
+            val policy: (TelemetryPipeline.Epoch, (TelemetryPayload) -> Unit) -> Unit = onEpoch@{ epoch, emit ->
+                val payload = epoch.payload
+                val reportReason = engine.evaluate(epoch.sample)
+                if (simplifier != null) {
+                    // Emits the held-back epoch when the track bends, so kept points lag by one
+                    val queue: (TelemetryPipeline.Epoch) -> Unit = { kept ->
+                        engine.markReported(kept.sample)
+                        android.util.Log.i("TmmRelayService", "=== Queuing track point: Lat=${kept.payload.latitude}, " +
+                                "Lng=${kept.payload.longitude}, FixType=${kept.payload.fixType} ===")
+                        lastQueuedAt = Instant.now()
+                        emit(kept.payload)
+                    }
+                    // Fix changes and heartbeats still report; geometry is the simplifier's
+                    if (reportReason != null) simplifier.keep(epoch.sample, epoch, queue)
+                    else simplifier.offer(epoch.sample, epoch, queue)
+                    return@onEpoch
+                }
+
+                if (reportReason != null) {
+                    android.util.Log.i("TmmRelayService", "=== Sending POST request with full payload (trigger: $reportReason) ===")
+                    android.util.Log.i("TmmRelayService", "Payload: TenantId=${payload.tenantId}, " +
+                            "DeviceId=${payload.deviceId}, Lat=${payload.latitude}, Lng=${payload.longitude}, " +
+                            "Battery=${payload.battery}, FixType=${payload.fixType}, " +
+                            "Health=${payload.health}, HAcc=${payload.horizontalAccuracy}, " +
+                            "VAcc=${payload.verticalAccuracy}, Satellites=${payload.satellites}, " +
+                            "ReceiverBattery=${payload.receiverBattery}, ReceiverHealth=${payload.receiverHealth}")
+
+                    lastQueuedAt = Instant.now()
+                    emit(payload)
+                } else {
+                    val secondsSinceLastPost = lastQueuedAt?.let {
+                        java.time.Duration.between(it, Instant.now()).seconds
+                    } ?: 0
+                    android.util.Log.d("TmmRelayService", "Skipping POST (no reporting trigger, last post ${secondsSinceLastPost}s ago)")
                 }
-            } else {
-                val minutesSinceLastPost = lastSuccessfulPostAt?.let {
-                    java.time.Duration.between(it, Instant.now()).toMinutes()
-                } ?: 0
-                android.util.Log.d("TmmRelayService", "Skipping POST (last post was $minutesSinceLastPost minutes ago, need 5 minutes)")
-            }
-                } catch (e: Exception) {
-                    android.util.Log.e("TmmRelayService", "Error in payloadHandler: ${e.message}", e)
             }
-        }
 
-            // Always use Catalyst SDK
-            android.util.Log.i("TmmRelayService", "Step 3: Creating CatalystClient instance")
-            catalystClient = CatalystClient(
-                context = this,
-                onMessage = payloadHandler,
-                onError = { error ->
-                    android.util.Log.e("TmmRelayService", "Catalyst error: ${error.message}", error)
-                    // Broadcast error state immediately
-                    val diagnosticsIntent = Intent(ACTION_DIAGNOSTICS_UPDATE).apply {
-                        putExtra("locationPermission", hasLocationPermission())
-                        putExtra("bluetoothPermission", hasBluetoothPermission())
-                        putExtra("isConnected", false)
-                        catalystClient?.getCurrentError()?.let { errorState ->
-                            putExtra("error", errorState)
+            val pipelineConfig = SettingsUtil.pipelineConfig(this)
+            android.util.Log.i("TmmRelayService", "Pipeline: $pipelineConfig")
+            val telemetryPipeline = TelemetryPipeline(
+                pipelineConfig,
+                normalize = normalize,
+                policy = policy,
+                encode = ::persistPost,
+                // Only without an outbox; one call at a time instead of OkHttp's unbounded queue
+                transmit = { payload -> ApiClient.sendBlocking(payload, apiKey, ::onPostResult) }
+            )
+            pipeline = telemetryPipeline
+            telemetryPipeline.start()
+
+            sourceMode = SettingsUtil.sourceMode(this)
+            // Catalyst epochs carry heading, speed and static epochs for the reporting triggers
+            val arbiter = SourceArbiter(SettingsUtil.sourceStallMs(this), preferred = CATALYST_SOURCE) { _, payload ->
+                // latestSample is set just before this, under the arbiter's lock
+                val sample = sourceArbiter?.latestSample
+                    ?: ReportingSample.from(payload, System.currentTimeMillis())
+                telemetryPipeline.submit(payload, sample)
+            }
+            sourceArbiter = arbiter
+            android.util.Log.i("TmmRelayService", "Position sources: $sourceMode")
+
+            if (sourceMode != SourceMode.TMM) {
+                android.util.Log.i("TmmRelayService", "Step 3: Creating CatalystClient instance")
+                // latestSample is set just before onMessage, on the same thread
+                val client = CatalystClient(
+                    context = this,
+                    onMessage = { payload -> arbiter.offer(CATALYST_SOURCE, payload, catalystClient?.latestSample) },
+                    onError = { error ->
+                        android.util.Log.e("TmmRelayService", "Catalyst error: ${error.message}", error)
+                        // Broadcast error state immediately
+                        val diagnosticsIntent = Intent(ACTION_DIAGNOSTICS_UPDATE).apply {
+                            putExtra("locationPermission", hasLocationPermission())
+                            putExtra("bluetoothPermission", hasBluetoothPermission())
+                            putExtra("isConnected", sources.any { it.getConnectionStatus() })
+                            catalystClient?.getCurrentError()?.let { errorState ->
+                                putExtra("error", errorState)
+                            }
                         }
+                        LocalBroadcastManager.getInstance(this).sendBroadcast(diagnosticsIntent)
                     }
-                    LocalBroadcastManager.getInstance(this).sendBroadcast(diagnosticsIntent)
-                }
-            )
-            android.util.Log.i("TmmRelayService", "Step 3: CatalystClient created")
+                )
+                catalystClient = client
+                sources += client
+                android.util.Log.i("TmmRelayService", "Step 3: CatalystClient created")
+            }
+            if (sourceMode != SourceMode.CATALYST) {
+                val client = TmmWebSocketClient(
+                    context = this,
+                    onMessage = { payload -> arbiter.offer(TMM_SOURCE, payload) },
+                    onError = { error ->
+                        android.util.Log.w("TmmRelayService", "TMM error: ${error.message}")
+                    },
+                    onDisconnected = { tmmReconnect.reset() }
+                )
+                tmmClient = client
+                sources += client
+            }
 
             android.util.Log.i("TmmRelayService", "Step 4: Creating notification channel")
             createNotificationChannel()
@@ -235,10 +333,9 @@ class TmmRelayService : Service() {
             )
             android.util.Log.i("TmmRelayService", "Step 5: Foreground service started")
 
-            // Connect Catalyst client
-            android.util.Log.i("TmmRelayService", "Step 6: Connecting Catalyst client")
-            catalystClient?.connect(tenantId, deviceId)
-            android.util.Log.i("TmmRelayService", "Step 6: Catalyst connect() called")
+            android.util.Log.i("TmmRelayService", "Step 6: Connecting position sources")
+            sources.forEach { it.connect(tenantId, deviceId) }
+            android.util.Log.i("TmmRelayService", "Step 6: connect() called on ${sources.map { it.name }}")
             
         } catch (e: Exception) {
             android.util.Log.e("TmmRelayService", "CRITICAL ERROR in onCreate(): ${e.message}", e)
@@ -263,10 +360,8 @@ class TmmRelayService : Service() {
         )
         broadcastDiagnostics(initialPayload)
 
-        handler.postDelayed(offlineCheck, TimeUnit.MINUTES.toMillis(1))
-        handler.postDelayed(periodicPostCheck, TimeUnit.MINUTES.toMillis(5))
-        handler.postDelayed(statusUpdateCheck, TimeUnit.SECONDS.toMillis(30))
-        handler.postDelayed(diagnosticsUpdateCheck, TimeUnit.SECONDS.toMillis(10))
+        offlineDeadline.reset()
+        idleDiagnostics.reset()
     }
 
     override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
@@ -278,10 +373,30 @@ class TmmRelayService : Service() {
     override fun onDestroy() {
         isRelayStarted = false
         
-        // Close Catalyst client
-        catalystClient?.close()
+        tmmReconnect.cancel()
+        sources.forEach { it.close() }
+        sources.clear()
+        catalystClient = null
+        tmmClient = null
+        sourceArbiter?.let { android.util.Log.i("TmmRelayService", "Source arbitration: ${it.stats()}") }
+        HttpTransport.stats().let {
+            android.util.Log.i("TmmRelayService", "HTTP transport: $it, reuseRatio=${"%.2f".format(it.reuseRatio)}")
+        }
+
+        // Let queued epochs reach the outbox, and keep the end of the track, before it closes
+        pipeline?.let { p ->
+            p.stop(PIPELINE_STOP_TIMEOUT_MS) { emit -> trackSimplifier?.flush { emit(it.payload) } }
+            android.util.Log.i("TmmRelayService", "Pipeline: ${p.stats()}")
+        }
+        pipeline = null
+        trackSimplifier = null
+        outboxDrainer?.let { android.util.Log.i("TmmRelayService", "Outbox ${it.meter.stats()}") }
+        closeOutbox()
         
-        handler.removeCallbacksAndMessages(null)
+        android.util.Log.i("TmmRelayService", "Timer wakeups: ${scheduler.wakeupCounts()}, " +
+                "battery sticky reads: ${BatteryMonitor.stickyReads.get()}")
+        BatteryMonitor.stop()
+        scheduler.shutdown()
         updateNotification("Stopped")
         broadcastStatusUpdate("Stopped", null)
         super.onDestroy()
@@ -291,13 +406,82 @@ class TmmRelayService : Service() {
 
     // -------------------- POSTS --------------------
 
+    private fun openOutbox() {
+        CrashHandler.init()
+        HttpTransport.configure(SettingsUtil.httpTransportConfig(this))
+        ApiClient.wireFormat = SettingsUtil.wireFormat(this)
+        ApiClient.compression.minBytes = SettingsUtil.compressionMinBytes(this)
+        ApiClient.compression.enabled = SettingsUtil.compressionEnabled(this)
+        try {
+            val box = TelemetryOutbox(File(filesDir, OUTBOX_DIR))
+            outbox = box
+            val batchConfig = SettingsUtil.batchUploadConfig(this)
+            android.util.Log.i("TmmRelayService", "Batch upload: $batchConfig")
+            val network = ConnectivityNetworkSource(this)
+            networkSource = network
+            val breaker = CircuitBreaker(onTransition = { from, to, reason ->
+                android.util.Log.w("TmmRelayService", "Upload circuit $from -> $to: $reason")
+                updateDynamicStatus()
+            })
+            outboxDrainer = OutboxDrainer(
+                box,
+                batchConfig = batchConfig,
+                sendBatch = { payloads -> ApiClient.sendBatch(payloads, apiKey, batchConfig, ::onPostResult) },
+                retryScheduler = RetryScheduler(breaker = breaker),
+                retryAfterMs = ApiClient::retryAfterMs,
+                networkPolicy = UploadNetworkPolicy(network, SettingsUtil.meteredUploadMaxDeferMs(this))
+            ) { payload ->
+                ApiClient.sendBlocking(payload, apiKey, ::onPostResult)
+            }.also { it.start() }
+            network.start(
+                // A validated network flushes what queued up without waiting out the backoff
+                onStateChanged = { outboxDrainer?.wakeUp(skipBackoff = network.state.validated) },
+                onRadioActive = { outboxDrainer?.wakeUp(skipBackoff = false) }
+            )
+            CrashHandler.addCrashHook(flushOutboxOnCrash)
+        } catch (e: Exception) {
+            // Fall back to direct sends; records are lost while offline but the relay keeps working
+            android.util.Log.e("TmmRelayService", "Could not open telemetry outbox: ${e.message}", e)
+            outbox = null
+        }
+    }
+
+    private fun closeOutbox() {
+        CrashHandler.removeCrashHook(flushOutboxOnCrash)
+        networkSource?.stop()
+        networkSource = null
+        outboxDrainer?.stop()
+        outboxDrainer = null
+        outbox?.close()
+        outbox = null
+    }
+
+    // The pipeline's encode step; false hands the payload to its transmit stage
+    private fun persistPost(payload: TelemetryPayload): Boolean {
+        val box = outbox ?: return false
+        return try {
+            box.append(payload)
+            true
+        } catch (e: Exception) {
+            android.util.Log.e("TmmRelayService", "Outbox append failed - sending directly: ${e.message}", e)
+            false
+        }
+    }
+
+    private fun onPostResult(timestamp: String, payloadInfo: String, success: Boolean) {
+        android.util.Log.i("TmmRelayService", "POST response: $timestamp - $payloadInfo (success=$success)")
+        if (success) lastSuccessfulPostAt = Instant.now()
+        updateNotificationWithPost(timestamp, payloadInfo)
+        updateDynamicStatus()
+    }
+
     private fun emitOffline() {
         val payload = TelemetryPayload(
             tenantId = tenantId,
             deviceId = DeviceInfoUtil.deviceId(this),
             latitude = 0.0,
             longitude = 0.0,
-            battery = DeviceInfoUtil.batteryLevel(this),
+            battery = lastKnownBattery,
             fixType = "UNKNOWN",
             timestamp = Instant.now().toString(),
             health = "OFFLINE",
@@ -308,13 +492,13 @@ class TmmRelayService : Service() {
         broadcastDiagnostics(payload)
     }
 
-    private fun sendPeriodicPost() {
-        val payload = TelemetryPayload(
+    private fun lastKnownPayload(): TelemetryPayload =
+        TelemetryPayload(
             tenantId = tenantId,
             deviceId = DeviceInfoUtil.deviceId(this),
             latitude = lastKnownLatitude,
             longitude = lastKnownLongitude,
-            battery = DeviceInfoUtil.batteryLevel(this),
+            battery = lastKnownBattery,
             fixType = lastKnownFixType,
             timestamp = Instant.now().toString(),
             health = "OK",
@@ -322,21 +506,26 @@ class TmmRelayService : Service() {
             verticalAccuracy = -1.0,
             satellites = -1
         )
-        broadcastDiagnostics(payload)
-    }
 
     // -------------------- NOTIFICATION & STATUS --------------------
 
     private fun updateDynamicStatus() {
         val status =
             if (!isRelayStarted) "Stopped"
-            else if (lastSuccessfulPostAt == null) "Started (Catalyst SDK)"
-            else "Waiting for Catalyst SDK"
+            else if (outboxDrainer?.retryScheduler?.breaker?.currentState == CircuitBreaker.State.OPEN) "Backend unavailable - uploads paused"
+            else if (lastSuccessfulPostAt == null) "Started (${sourceLabel()})"
+            else "Waiting for ${sourceLabel()}"
 
         updateNotification(status)
         broadcastStatusUpdate(status, null)
     }
 
+    private fun sourceLabel(): String = when (sourceMode) {
+        SourceMode.CATALYST -> "Catalyst SDK"
+        SourceMode.TMM -> "TMM"
+        SourceMode.BOTH -> "Catalyst SDK + TMM"
+    }
+
     private fun buildNotification(status: String): Notification =
         NotificationCompat.Builder(this, CHANNEL_ID)
             .setContentTitle("AltGeo TMM Relay")
@@ -382,6 +571,10 @@ class TmmRelayService : Service() {
     companion object {
         private const val CHANNEL_ID = "tmm_channel"
         private const val NOTIFICATION_ID = 1
+        private const val OUTBOX_DIR = "outbox"
+        private const val PIPELINE_STOP_TIMEOUT_MS = 2_000L
+        private const val CATALYST_SOURCE = "catalyst"
+        private const val TMM_SOURCE = "tmm"
 
         const val ACTION_STATUS_UPDATE =
             "com.hirenq.tmmrelay.STATUS_UPDATE"
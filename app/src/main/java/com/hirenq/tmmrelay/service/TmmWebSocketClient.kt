@@ -3,30 +3,54 @@ package com.hirenq.tmmrelay.service
 import android.content.Context
 import android.util.Log
 import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.source.PositionSource
 import com.hirenq.tmmrelay.util.DeviceInfoUtil
 import okhttp3.*
+import okio.ByteString
 import org.json.JSONObject
 import java.time.Instant
 import java.util.concurrent.TimeUnit
 
+/**
+ * Position source fed by Trimble Mobile Manager's local WebSocket. [tmmUrl] can point at
+ * any server speaking the same messages, e.g. a local stand-in. [onDisconnected] is
+ * called when the connection fails; reconnecting is up to the caller.
+ */
 class TmmWebSocketClient(
     private val context: Context,
     private val onMessage: (TelemetryPayload) -> Unit,
-    private val onError: (Throwable) -> Unit = {}
-) {
+    private val onError: (Throwable) -> Unit = {},
+    private val onDisconnected: () -> Unit = {},
+    private val tmmUrl: String = DEFAULT_URL
+) : PositionSource {
+
+    override val name = "tmm"
 
     private val TAG = "TmmWebSocketClient"
+    // Raw frames are logged only after `adb shell setprop log.tag.TMM_RAW DEBUG`
+    private val RAW_TAG = "TMM_RAW"
 
-    private val client = OkHttpClient.Builder()
-        .pingInterval(15, TimeUnit.SECONDS)
-        .retryOnConnectionFailure(true)
-        .build()
+    // Pings police the stream; a quiet receiver must not trip the shared read timeout
+    private val client: OkHttpClient
+        get() = HttpTransport.client("tmm-websocket") {
+            pingInterval(15, TimeUnit.SECONDS)
+            readTimeout(0, TimeUnit.MILLISECONDS)
+        }
 
-    private val tmmUrl = "ws://127.0.0.1:9635"
     private var webSocket: WebSocket? = null
+    @Volatile private var closed = false
+    @Volatile private var lastMessageAt: Instant? = null
+
+    // OkHttp delivers one connection's messages on a single reader thread
+    private val parser = TmmMessageParser()
 
-    fun connect(tenantId: String, deviceId: String) {
+    override fun getConnectionStatus(): Boolean {
+        val last = lastMessageAt ?: return false
+        return java.time.Duration.between(last, Instant.now()).seconds < 30
+    }
 
+    override fun connect(tenantId: String, deviceId: String) {
+        closed = false
         val request = Request.Builder()
             .url(tmmUrl)
             .build()
@@ -49,76 +73,56 @@ class TmmWebSocketClient(
 
             override fun onMessage(ws: WebSocket, text: String) {
                 try {
-                    Log.d("TMM_RAW", text)
-                    val json = JSONObject(text)
-
-                    val latitude = json.optDouble("latitude", 0.0)
-                    val longitude = json.optDouble("longitude", 0.0)
-                    val fixType = json.optString("fixType", "NO_FIX")
-
-                    val horizontalAccuracy = json.optDouble("horizontalAccuracy", -1.0)
-                    val verticalAccuracy = json.optDouble("verticalAccuracy", -1.0)
-                    val satellites = json.optInt("satellites", 0)
-
-                    val receiverBattery =
-                        json.optInt("receiverBattery",
-                        json.optInt("battery", -1))
-                            .takeIf { it in 0..100 }
-
-                    val pdop = json.optDouble("pdop", -1.0).takeIf { it > 0 }
-                    val hdop = json.optDouble("hdop", -1.0).takeIf { it > 0 }
-                    val vdop = json.optDouble("vdop", -1.0).takeIf { it > 0 }
-
-                    val receiverHealth = when {
-                        fixType == "NO_FIX" -> "NO_FIX"
-                        satellites < 4 -> "POOR"
-                        hdop != null && hdop > 2.5 -> "POOR"
-                        fixType.contains("FIX", true) && hdop != null && hdop < 1.0 -> "EXCELLENT"
-                        else -> "GOOD"
-                    }
-
-                    val health = when {
-                        latitude == 0.0 && longitude == 0.0 -> "NO_COORDINATES"
-                        fixType == "NO_FIX" -> "NO_FIX"
-                        else -> "OK"
-                    }
-
-                    val payload = TelemetryPayload(
-                        tenantId = tenantId,
-                        deviceId = deviceId,
-                        latitude = latitude,
-                        longitude = longitude,
-                        battery = DeviceInfoUtil.batteryLevel(context), // phone
-                        fixType = fixType,
-                        timestamp = Instant.now().toString(),
-                        health = health,
-                        horizontalAccuracy = horizontalAccuracy,
-                        verticalAccuracy = verticalAccuracy,
-                        satellites = satellites,
-                        receiverBattery = receiverBattery,
-                        pdop = pdop,
-                        hdop = hdop,
-                        vdop = vdop,
-                        receiverHealth = receiverHealth
-                    )
-
-                    onMessage(payload)
+                    if (Log.isLoggable(RAW_TAG, Log.DEBUG)) Log.d(RAW_TAG, text)
+                    relay(parser.parse(text))
+                } catch (e: Exception) {
+                    Log.e(TAG, "GNSS parse error", e)
+                    onError(e)
+                }
+            }
 
+            override fun onMessage(ws: WebSocket, bytes: ByteString) {
+                try {
+                    if (Log.isLoggable(RAW_TAG, Log.DEBUG)) Log.d(RAW_TAG, bytes.utf8())
+                    relay(parser.parse(bytes))
                 } catch (e: Exception) {
                     Log.e(TAG, "GNSS parse error", e)
                     onError(e)
                 }
             }
 
+            private fun relay(message: TmmMessage) {
+                lastMessageAt = Instant.now()
+                val payload = parser.toPayload(
+                    message, tenantId, deviceId,
+                    battery = DeviceInfoUtil.batteryLevel(context) // phone
+                )
+                onMessage(payload)
+            }
+
             override fun onFailure(ws: WebSocket, t: Throwable, response: Response?) {
                 Log.e(TAG, "WebSocket failure", t)
+                lastMessageAt = null
                 onError(t)
+                if (!closed) onDisconnected()
+            }
+
+            override fun onClosed(ws: WebSocket, code: Int, reason: String) {
+                Log.i(TAG, "TMM WebSocket closed: $code $reason")
+                lastMessageAt = null
+                if (!closed) onDisconnected()
             }
         })
     }
 
-    fun close() {
+    override fun close() {
+        closed = true
         webSocket?.close(1000, "Service stopped")
         webSocket = null
+        lastMessageAt = null
+    }
+
+    companion object {
+        const val DEFAULT_URL = "ws://127.0.0.1:9635"
     }
 }
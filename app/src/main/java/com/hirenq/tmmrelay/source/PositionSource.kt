@@ -0,0 +1,17 @@
+package com.hirenq.tmmrelay.source
+
+/**
+ * A receiver connection that produces telemetry payloads, e.g. the Catalyst SDK or the
+ * TMM WebSocket. Payloads go to the callback the source was created with; the service
+ * feeds them to a [SourceArbiter] tagged with [name].
+ */
+interface PositionSource {
+    val name: String
+
+    fun connect(tenantId: String, deviceId: String)
+
+    /** Whether the source has delivered data recently. */
+    fun getConnectionStatus(): Boolean
+
+    fun close()
+}
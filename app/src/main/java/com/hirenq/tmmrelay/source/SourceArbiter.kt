@@ -0,0 +1,153 @@
+package com.hirenq.tmmrelay.source
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import java.util.concurrent.TimeUnit
+
+/**
+ * Picks one stream of epochs out of several concurrently running [PositionSource]s.
+ *
+ * Epochs of the active source pass straight through. Another source takes over when its
+ * epoch has a better solution class than the active source's last one, a clearly smaller
+ * horizontal precision within the same class, or when the active source has been silent
+ * for [stallMs] - so a dropped Bluetooth link costs one stall window instead of the whole
+ * outage. The [preferred] source wins ties and takes over again once it is back, unless
+ * the active source is clearly more precise; that gap is what let the active source in,
+ * so requiring it to close first keeps two out-of-phase sources from taking turns. Epochs
+ * are selected, not fused: both sources usually carry the same receiver, and averaging
+ * would count its error twice.
+ *
+ * [offer] may be called from any source thread; [onSelected] runs under the arbiter's
+ * lock, so downstream sees one epoch at a time.
+ */
+class SourceArbiter(
+    private val stallMs: Long = DEFAULT_STALL_MS,
+    private val preferred: String? = null,
+    private val onSelected: (source: String, payload: TelemetryPayload) -> Unit
+) {
+
+    private class SourceState {
+        var lastEpochNanos = 0L
+        var rank = 0
+        var hPrecision = -1.0
+        var selected = 0L
+    }
+
+    data class Stats(
+        val selected: Map<String, Long>,
+        val switches: Long,
+        val stallFailovers: Long,
+        val discarded: Long,
+        val maxGapMs: Long
+    )
+
+    private val lock = Any()
+    private val sources = LinkedHashMap<String, SourceState>()
+    private var active: String? = null
+    private var lastSelectedNanos = 0L
+    private var switches = 0L
+    private var stallFailovers = 0L
+    private var discarded = 0L
+    private var maxGapNanos = 0L
+
+    /** Source of the last selected epoch, or null before the first. */
+    @Volatile
+    var activeSource: String? = null
+        private set
+
+    /**
+     * Motion view of the last selected epoch: the source's own sample if it has one, else
+     * one built from the payload. Set just before [onSelected], on the same thread.
+     */
+    @Volatile
+    var latestSample: ReportingSample? = null
+        private set
+
+    /**
+     * Offers an epoch from [source]; [sample] is the source's motion view of it, if any.
+     * Returns whether it was selected.
+     */
+    fun offer(
+        source: String,
+        payload: TelemetryPayload,
+        sample: ReportingSample? = null,
+        nowNanos: Long = System.nanoTime()
+    ): Boolean = synchronized(lock) {
+        val state = sources.getOrPut(source) { SourceState() }
+        state.lastEpochNanos = nowNanos
+        state.rank = fixRank(payload)
+        state.hPrecision = payload.horizontalAccuracy
+
+        val current = active?.let { sources[it] }
+        val select = when {
+            current == null || active == source -> true
+            nowNanos - current.lastEpochNanos > TimeUnit.MILLISECONDS.toNanos(stallMs) -> {
+                stallFailovers++
+                true
+            }
+            state.rank != current.rank -> state.rank > current.rank
+            source == preferred -> !isClearlyMorePrecise(current.hPrecision, state.hPrecision)
+            else -> isClearlyMorePrecise(state.hPrecision, current.hPrecision)
+        }
+        if (!select) {
+            discarded++
+            return false
+        }
+
+        if (active != null && active != source) switches++
+        if (lastSelectedNanos != 0L) maxGapNanos = maxOf(maxGapNanos, nowNanos - lastSelectedNanos)
+        lastSelectedNanos = nowNanos
+        active = source
+        activeSource = source
+        state.selected++
+        latestSample = sample ?: ReportingSample.from(payload, System.currentTimeMillis())
+        onSelected(source, payload)
+        true
+    }
+
+    fun stats(): Stats = synchronized(lock) {
+        Stats(
+            selected = sources.mapValues { it.value.selected },
+            switches = switches,
+            stallFailovers = stallFailovers,
+            discarded = discarded,
+            maxGapMs = TimeUnit.NANOSECONDS.toMillis(maxGapNanos)
+        )
+    }
+
+    private fun isClearlyMorePrecise(candidate: Double, current: Double): Boolean = when {
+        candidate <= 0 -> false
+        current <= 0 -> true
+        else -> candidate < current * SWITCH_PRECISION_RATIO
+    }
+
+    companion object {
+        /** One epoch at the relay's 1 Hz plus arrival jitter */
+        const val DEFAULT_STALL_MS = 1_200L
+
+        // Within one solution class, switch only for at most half the active precision,
+        // so two similar sources don't take turns every epoch
+        private const val SWITCH_PRECISION_RATIO = 0.5
+
+        /**
+         * Orders fix types across sources: Catalyst reports SDK solution names such as
+         * `RTKFixed`, TMM upper-case names such as `RTK_FIXED`. Higher is better; 0 means
+         * no usable position.
+         */
+        fun fixRank(payload: TelemetryPayload): Int {
+            if ((payload.latitude == 0.0 && payload.longitude == 0.0) ||
+                payload.latitude.isNaN() || payload.longitude.isNaN()
+            ) return 0
+            val fix = payload.fixType.uppercase().replace("_", "").replace(" ", "")
+            return when {
+                fix.isEmpty() || fix == "NOFIX" || fix.contains("INVALID") -> 0
+                fix.contains("FLOAT") -> 4
+                fix.contains("RTK") || fix.contains("FIXED") -> 6
+                fix.contains("RTX") -> 5
+                fix.contains("DGPS") || fix.contains("DGNSS") || fix.contains("SBAS") -> 3
+                fix == "UNKNOWN" -> 1
+                else -> 2
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hirenq.tmmrelay.util
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.BatteryManager
+import android.os.SystemClock
+import android.util.Log
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Phone battery state kept current by an `ACTION_BATTERY_CHANGED` receiver.
+ *
+ * Reads return the last snapshot without any IPC. Only when the snapshot is older
+ * than the caller's staleness bound (or the receiver is not registered yet) is the
+ * sticky broadcast queried directly, which costs a binder call; [stickyReads]
+ * counts those.
+ */
+object BatteryMonitor {
+
+    private const val TAG = "BatteryMonitor"
+
+    /** Longest a snapshot is trusted without a broadcast, e.g. while Doze defers them. */
+    const val DEFAULT_MAX_AGE_MS = 5 * 60_000L
+
+    data class Snapshot(
+        val level: Int,
+        val charging: Boolean,
+        val updatedAtElapsedMs: Long
+    )
+
+    @Volatile
+    private var snapshot: Snapshot? = null
+    private var registeredContext: Context? = null
+
+    val stickyReads = AtomicLong()
+
+    private val receiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            update(intent)
+        }
+    }
+
+    /** Starts listening for battery broadcasts; safe to call more than once. */
+    @Synchronized
+    fun start(context: Context) {
+        if (registeredContext != null) return
+        val appContext = context.applicationContext
+        // Registering returns the current sticky intent, which seeds the snapshot
+        appContext.registerReceiver(receiver, IntentFilter(Intent.ACTION_BATTERY_CHANGED))?.let(::update)
+        registeredContext = appContext
+        Log.i(TAG, "Battery monitor started: ${snapshot?.level}%")
+    }
+
+    @Synchronized
+    fun stop() {
+        val appContext = registeredContext ?: return
+        try {
+            appContext.unregisterReceiver(receiver)
+        } catch (e: IllegalArgumentException) {
+            Log.w(TAG, "Battery receiver was not registered", e)
+        }
+        registeredContext = null
+    }
+
+    /** Battery percentage, 0-100, or -1 if unknown. */
+    fun level(context: Context, maxAgeMs: Long = DEFAULT_MAX_AGE_MS): Int =
+        current(context, maxAgeMs)?.level ?: -1
+
+    fun current(context: Context, maxAgeMs: Long = DEFAULT_MAX_AGE_MS): Snapshot? {
+        val cached = snapshot
+        if (cached != null && SystemClock.elapsedRealtime() - cached.updatedAtElapsedMs <= maxAgeMs) {
+            return cached
+        }
+        stickyReads.incrementAndGet()
+        context.registerReceiver(null, IntentFilter(Intent.ACTION_BATTERY_CHANGED))?.let(::update)
+        return snapshot
+    }
+
+    private fun update(intent: Intent) {
+        val level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1)
+        val scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1)
+        val status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1)
+        snapshot = Snapshot(
+            level = if (level >= 0 && scale > 0) level * 100 / scale else -1,
+            charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL,
+            updatedAtElapsedMs = SystemClock.elapsedRealtime()
+        )
+    }
+}
@@ -7,6 +7,7 @@ import java.io.PrintWriter
 import java.io.StringWriter
 import java.text.SimpleDateFormat
 import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
 
 /**
  * Global exception handler to catch and log all uncaught exceptions
@@ -16,13 +17,28 @@ object CrashHandler : Thread.UncaughtExceptionHandler {
     
     private const val TAG = "CrashHandler"
     private var defaultHandler: Thread.UncaughtExceptionHandler? = null
+    private val crashHooks = CopyOnWriteArrayList<() -> Unit>()
     
+    @Synchronized
     fun init() {
+        // Both MainActivity and TmmRelayService call this; installing twice would chain to ourselves
+        if (Thread.getDefaultUncaughtExceptionHandler() === this) return
         defaultHandler = Thread.getDefaultUncaughtExceptionHandler()
         Thread.setDefaultUncaughtExceptionHandler(this)
         Log.i(TAG, "Crash handler initialized")
     }
     
+    /**
+     * Registers work to run before the process dies, e.g. flushing buffered data to disk.
+     */
+    fun addCrashHook(hook: () -> Unit) {
+        crashHooks.add(hook)
+    }
+    
+    fun removeCrashHook(hook: () -> Unit) {
+        crashHooks.remove(hook)
+    }
+    
     override fun uncaughtException(thread: Thread, exception: Throwable) {
         try {
             val timestamp = SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(Date())
@@ -63,6 +79,14 @@ object CrashHandler : Thread.UncaughtExceptionHandler {
                 Log.w(TAG, "Could not write crash report to file", e)
             }
             
+            for (hook in crashHooks) {
+                try {
+                    hook()
+                } catch (e: Exception) {
+                    Log.w(TAG, "Crash hook failed", e)
+                }
+            }
+            
         } catch (e: Exception) {
             Log.e(TAG, "Error in crash handler", e)
         } finally {
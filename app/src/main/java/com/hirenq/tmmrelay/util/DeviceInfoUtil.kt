@@ -1,9 +1,6 @@
 package com.hirenq.tmmrelay.util
 
 import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
-import android.os.BatteryManager
 import android.provider.Settings
 import java.time.Instant
 import java.time.Duration
@@ -14,15 +11,12 @@ object DeviceInfoUtil {
         Settings.Secure.getString(context.contentResolver, Settings.Secure.ANDROID_ID)
             ?: "unknown-device"
 
-    fun batteryLevel(context: Context): Int {
-        val intent = context.registerReceiver(null, IntentFilter(Intent.ACTION_BATTERY_CHANGED))
-        val level = intent?.getIntExtra(BatteryManager.EXTRA_LEVEL, -1) ?: 0
-        val scale = intent?.getIntExtra(BatteryManager.EXTRA_SCALE, -1) ?: 100
-        return (level * 100) / scale
-    }
+    /** Phone battery percentage from [BatteryMonitor]; no IPC once the monitor is running. */
+    fun batteryLevel(context: Context): Int = BatteryMonitor.level(context)
 
+    /** [battery] is a percentage, or -1 when unknown; an unknown level is not reported as low. */
     fun health(battery: Int, fixType: String, lastMessageAt: Instant?): String {
-        if (battery < 20) return "LOW_BATTERY"
+        if (battery in 0..19) return "LOW_BATTERY"
         if (fixType.equals("NO_FIX", ignoreCase = true)) return "NO_SIGNAL"
         lastMessageAt?.let {
             val minutes = Duration.between(it, Instant.now()).toMinutes()
@@ -2,10 +2,63 @@ package com.hirenq.tmmrelay.util
 
 import android.content.Context
 import android.content.SharedPreferences
+import com.hirenq.tmmrelay.model.BatchFormat
+import com.hirenq.tmmrelay.model.BatchUploadConfig
+import com.hirenq.tmmrelay.model.CaptureConfig
+import com.hirenq.tmmrelay.model.DecimationMode
+import com.hirenq.tmmrelay.model.HttpTransportConfig
+import com.hirenq.tmmrelay.model.OverflowStrategy
+import com.hirenq.tmmrelay.model.PipelineConfig
+import com.hirenq.tmmrelay.model.ReportingConfig
+import com.hirenq.tmmrelay.model.SourceMode
+import com.hirenq.tmmrelay.model.StageConfig
+import com.hirenq.tmmrelay.model.WireFormat
+import com.hirenq.tmmrelay.network.UploadNetworkPolicy
+import com.hirenq.tmmrelay.service.CompressionInterceptor
+import com.hirenq.tmmrelay.source.SourceArbiter
 
 object SettingsUtil {
     private const val PREFS_NAME = "tmm_relay_prefs"
     private const val KEY_USE_CATALYST = "use_catalyst"
+    private const val KEY_BATCH_ENABLED = "batch_upload_enabled"
+    private const val KEY_BATCH_MAX_RECORDS = "batch_upload_max_records"
+    private const val KEY_BATCH_LINGER_MS = "batch_upload_linger_ms"
+    private const val KEY_BATCH_MAX_BYTES = "batch_upload_max_bytes"
+    private const val KEY_BATCH_PATH = "batch_upload_path"
+    private const val KEY_BATCH_FORMAT = "batch_upload_format"
+    private const val KEY_BATCH_KEYFRAME_INTERVAL = "batch_upload_keyframe_interval"
+    private const val KEY_WIRE_FORMAT = "wire_format"
+    private const val KEY_COMPRESSION_ENABLED = "request_compression_enabled"
+    private const val KEY_COMPRESSION_MIN_BYTES = "request_compression_min_bytes"
+    private const val KEY_REPORT_MIN_DISTANCE_M = "reporting_min_distance_m"
+    private const val KEY_REPORT_MIN_HEADING_DEG = "reporting_min_heading_change_deg"
+    private const val KEY_REPORT_HEADING_MIN_SPEED = "reporting_heading_min_speed_mps"
+    private const val KEY_REPORT_METRES_PER_REPORT = "reporting_metres_per_report"
+    private const val KEY_REPORT_MIN_INTERVAL_MS = "reporting_min_interval_ms"
+    private const val KEY_REPORT_HEARTBEAT_MS = "reporting_heartbeat_ms"
+    private const val KEY_REPORT_STATIONARY_EPOCHS = "reporting_stationary_epochs"
+    private const val KEY_REPORT_STATIONARY_HEARTBEAT_MS = "reporting_stationary_heartbeat_ms"
+    private const val KEY_REPORT_FIX_CHANGES = "reporting_fix_changes"
+    private const val KEY_CAPTURE_RATE_HZ = "capture_position_rate_hz"
+    private const val KEY_CAPTURE_OUTPUT_INTERVAL_MS = "capture_output_interval_ms"
+    private const val KEY_CAPTURE_DECIMATION = "capture_decimation"
+    private const val KEY_RECORD_CATALYST_EVENTS = "record_catalyst_events"
+    private const val KEY_SOURCE_MODE = "position_source_mode"
+    private const val KEY_SOURCE_STALL_MS = "position_source_stall_ms"
+    private const val KEY_HTTP_MAX_IDLE_CONNECTIONS = "http_max_idle_connections"
+    private const val KEY_HTTP_KEEP_ALIVE_MS = "http_keep_alive_ms"
+    private const val KEY_HTTP_MAX_REQUESTS_PER_HOST = "http_max_requests_per_host"
+    private const val KEY_HTTP_CONNECT_TIMEOUT_MS = "http_connect_timeout_ms"
+    private const val KEY_HTTP_READ_TIMEOUT_MS = "http_read_timeout_ms"
+    private const val KEY_HTTP_WRITE_TIMEOUT_MS = "http_write_timeout_ms"
+    private const val KEY_HTTP_CALL_TIMEOUT_MS = "http_call_timeout_ms"
+    private const val KEY_HTTP2_ENABLED = "http2_enabled"
+    private const val KEY_METERED_UPLOAD_MAX_DEFER_MS = "metered_upload_max_defer_ms"
+    // Suffixed with _capacity and _overflow per stage
+    private const val KEY_PIPELINE_NORMALIZE = "pipeline_normalize"
+    private const val KEY_PIPELINE_POLICY = "pipeline_policy"
+    private const val KEY_PIPELINE_ENCODE = "pipeline_encode"
+    private const val KEY_PIPELINE_TRANSMIT = "pipeline_transmit"
     
     // Default to WebSocket for backward compatibility
     private const val DEFAULT_USE_CATALYST = false
@@ -23,5 +76,225 @@ object SettingsUtil {
             .putBoolean(KEY_USE_CATALYST, useCatalyst)
             .apply()
     }
-}
 
+    fun batchUploadConfig(context: Context): BatchUploadConfig {
+        val prefs = getPrefs(context)
+        val defaults = BatchUploadConfig()
+        return BatchUploadConfig(
+            enabled = prefs.getBoolean(KEY_BATCH_ENABLED, defaults.enabled),
+            maxRecords = prefs.getInt(KEY_BATCH_MAX_RECORDS, defaults.maxRecords).coerceAtLeast(1),
+            lingerMs = prefs.getLong(KEY_BATCH_LINGER_MS, defaults.lingerMs).coerceAtLeast(0L),
+            maxBytes = prefs.getInt(KEY_BATCH_MAX_BYTES, defaults.maxBytes).coerceAtLeast(1024),
+            path = prefs.getString(KEY_BATCH_PATH, null) ?: defaults.path,
+            format = prefs.getString(KEY_BATCH_FORMAT, null)
+                ?.let { name -> BatchFormat.values().firstOrNull { it.name == name } }
+                ?: defaults.format,
+            keyframeInterval = prefs.getInt(KEY_BATCH_KEYFRAME_INTERVAL, defaults.keyframeInterval).coerceAtLeast(1)
+        )
+    }
+
+    fun setBatchUploadConfig(context: Context, config: BatchUploadConfig) {
+        getPrefs(context).edit()
+            .putBoolean(KEY_BATCH_ENABLED, config.enabled)
+            .putInt(KEY_BATCH_MAX_RECORDS, config.maxRecords)
+            .putLong(KEY_BATCH_LINGER_MS, config.lingerMs)
+            .putInt(KEY_BATCH_MAX_BYTES, config.maxBytes)
+            .putString(KEY_BATCH_PATH, config.path)
+            .putString(KEY_BATCH_FORMAT, config.format.name)
+            .putInt(KEY_BATCH_KEYFRAME_INTERVAL, config.keyframeInterval)
+            .apply()
+    }
+
+    fun wireFormat(context: Context): WireFormat {
+        return getPrefs(context).getString(KEY_WIRE_FORMAT, null)
+            ?.let { name -> WireFormat.values().firstOrNull { it.name == name } }
+            ?: WireFormat.JSON
+    }
+
+    fun setWireFormat(context: Context, format: WireFormat) {
+        getPrefs(context).edit()
+            .putString(KEY_WIRE_FORMAT, format.name)
+            .apply()
+    }
+
+    fun compressionEnabled(context: Context): Boolean {
+        return getPrefs(context).getBoolean(KEY_COMPRESSION_ENABLED, false)
+    }
+
+    fun compressionMinBytes(context: Context): Long {
+        return getPrefs(context)
+            .getLong(KEY_COMPRESSION_MIN_BYTES, CompressionInterceptor.DEFAULT_MIN_BYTES)
+            .coerceAtLeast(0L)
+    }
+
+    fun setCompression(context: Context, enabled: Boolean, minBytes: Long = CompressionInterceptor.DEFAULT_MIN_BYTES) {
+        getPrefs(context).edit()
+            .putBoolean(KEY_COMPRESSION_ENABLED, enabled)
+            .putLong(KEY_COMPRESSION_MIN_BYTES, minBytes)
+            .apply()
+    }
+
+    fun reportingConfig(context: Context): ReportingConfig {
+        val prefs = getPrefs(context)
+        val defaults = ReportingConfig()
+        return ReportingConfig(
+            minDistanceMetres = prefs.getFloat(KEY_REPORT_MIN_DISTANCE_M, defaults.minDistanceMetres.toFloat()).toDouble(),
+            minHeadingChangeDegrees = prefs.getFloat(KEY_REPORT_MIN_HEADING_DEG, defaults.minHeadingChangeDegrees.toFloat()).toDouble(),
+            headingMinSpeedMps = prefs.getFloat(KEY_REPORT_HEADING_MIN_SPEED, defaults.headingMinSpeedMps.toFloat()).toDouble(),
+            metresPerReport = prefs.getFloat(KEY_REPORT_METRES_PER_REPORT, defaults.metresPerReport.toFloat()).toDouble(),
+            minIntervalMs = prefs.getLong(KEY_REPORT_MIN_INTERVAL_MS, defaults.minIntervalMs).coerceAtLeast(0L),
+            heartbeatMs = prefs.getLong(KEY_REPORT_HEARTBEAT_MS, defaults.heartbeatMs).coerceAtLeast(1_000L),
+            stationaryEpochs = prefs.getInt(KEY_REPORT_STATIONARY_EPOCHS, defaults.stationaryEpochs).coerceAtLeast(1),
+            stationaryHeartbeatMs = prefs.getLong(KEY_REPORT_STATIONARY_HEARTBEAT_MS, defaults.stationaryHeartbeatMs).coerceAtLeast(1_000L),
+            reportFixChanges = prefs.getBoolean(KEY_REPORT_FIX_CHANGES, defaults.reportFixChanges)
+        )
+    }
+
+    fun setReportingConfig(context: Context, config: ReportingConfig) {
+        getPrefs(context).edit()
+            .putFloat(KEY_REPORT_MIN_DISTANCE_M, config.minDistanceMetres.toFloat())
+            .putFloat(KEY_REPORT_MIN_HEADING_DEG, config.minHeadingChangeDegrees.toFloat())
+            .putFloat(KEY_REPORT_HEADING_MIN_SPEED, config.headingMinSpeedMps.toFloat())
+            .putFloat(KEY_REPORT_METRES_PER_REPORT, config.metresPerReport.toFloat())
+            .putLong(KEY_REPORT_MIN_INTERVAL_MS, config.minIntervalMs)
+            .putLong(KEY_REPORT_HEARTBEAT_MS, config.heartbeatMs)
+            .putInt(KEY_REPORT_STATIONARY_EPOCHS, config.stationaryEpochs)
+            .putLong(KEY_REPORT_STATIONARY_HEARTBEAT_MS, config.stationaryHeartbeatMs)
+            .putBoolean(KEY_REPORT_FIX_CHANGES, config.reportFixChanges)
+            .apply()
+    }
+
+    fun captureConfig(context: Context): CaptureConfig {
+        val prefs = getPrefs(context)
+        val defaults = CaptureConfig()
+        return CaptureConfig(
+            positionRateHz = prefs.getInt(KEY_CAPTURE_RATE_HZ, defaults.positionRateHz).coerceIn(1, 20),
+            outputIntervalMs = prefs.getLong(KEY_CAPTURE_OUTPUT_INTERVAL_MS, defaults.outputIntervalMs).coerceAtLeast(100L),
+            decimation = prefs.getString(KEY_CAPTURE_DECIMATION, null)
+                ?.let { name -> DecimationMode.values().firstOrNull { it.name == name } }
+                ?: defaults.decimation
+        )
+    }
+
+    fun setCaptureConfig(context: Context, config: CaptureConfig) {
+        getPrefs(context).edit()
+            .putInt(KEY_CAPTURE_RATE_HZ, config.positionRateHz)
+            .putLong(KEY_CAPTURE_OUTPUT_INTERVAL_MS, config.outputIntervalMs)
+            .putString(KEY_CAPTURE_DECIMATION, config.decimation.name)
+            .apply()
+    }
+
+    /** Whether CatalystClient records the receiver's event stream for offline replay. */
+    fun recordCatalystEvents(context: Context): Boolean {
+        return getPrefs(context).getBoolean(KEY_RECORD_CATALYST_EVENTS, false)
+    }
+
+    fun setRecordCatalystEvents(context: Context, enabled: Boolean) {
+        getPrefs(context).edit()
+            .putBoolean(KEY_RECORD_CATALYST_EVENTS, enabled)
+            .apply()
+    }
+
+    fun sourceMode(context: Context): SourceMode {
+        return getPrefs(context).getString(KEY_SOURCE_MODE, null)
+            ?.let { name -> SourceMode.values().firstOrNull { it.name == name } }
+            ?: SourceMode.CATALYST
+    }
+
+    fun setSourceMode(context: Context, mode: SourceMode) {
+        getPrefs(context).edit()
+            .putString(KEY_SOURCE_MODE, mode.name)
+            .apply()
+    }
+
+    /** Silence after which SourceArbiter fails over from the active source. */
+    fun sourceStallMs(context: Context): Long {
+        return getPrefs(context).getLong(KEY_SOURCE_STALL_MS, SourceArbiter.DEFAULT_STALL_MS).coerceAtLeast(100L)
+    }
+
+    fun setSourceStallMs(context: Context, stallMs: Long) {
+        getPrefs(context).edit()
+            .putLong(KEY_SOURCE_STALL_MS, stallMs)
+            .apply()
+    }
+
+    /**
+     * Without an explicit keep-alive, idle connections are kept a little longer than the
+     * expected gap between posts: the batch linger when batching, else the heartbeat.
+     */
+    fun httpTransportConfig(context: Context): HttpTransportConfig {
+        val prefs = getPrefs(context)
+        val defaults = HttpTransportConfig()
+        val batch = batchUploadConfig(context)
+        val postGapMs = if (batch.enabled) batch.lingerMs else reportingConfig(context).heartbeatMs
+        return HttpTransportConfig(
+            maxIdleConnections = prefs.getInt(KEY_HTTP_MAX_IDLE_CONNECTIONS, defaults.maxIdleConnections).coerceAtLeast(0),
+            keepAliveMs = prefs.getLong(KEY_HTTP_KEEP_ALIVE_MS, postGapMs + 10_000L).coerceIn(10_000L, 30 * 60_000L),
+            maxRequests = defaults.maxRequests,
+            maxRequestsPerHost = prefs.getInt(KEY_HTTP_MAX_REQUESTS_PER_HOST, defaults.maxRequestsPerHost).coerceIn(1, defaults.maxRequests),
+            connectTimeoutMs = prefs.getLong(KEY_HTTP_CONNECT_TIMEOUT_MS, defaults.connectTimeoutMs).coerceAtLeast(0L),
+            readTimeoutMs = prefs.getLong(KEY_HTTP_READ_TIMEOUT_MS, defaults.readTimeoutMs).coerceAtLeast(0L),
+            writeTimeoutMs = prefs.getLong(KEY_HTTP_WRITE_TIMEOUT_MS, defaults.writeTimeoutMs).coerceAtLeast(0L),
+            callTimeoutMs = prefs.getLong(KEY_HTTP_CALL_TIMEOUT_MS, defaults.callTimeoutMs).coerceAtLeast(0L),
+            http2 = prefs.getBoolean(KEY_HTTP2_ENABLED, defaults.http2)
+        )
+    }
+
+    fun setHttpTransportConfig(context: Context, config: HttpTransportConfig) {
+        getPrefs(context).edit()
+            .putInt(KEY_HTTP_MAX_IDLE_CONNECTIONS, config.maxIdleConnections)
+            .putLong(KEY_HTTP_KEEP_ALIVE_MS, config.keepAliveMs)
+            .putInt(KEY_HTTP_MAX_REQUESTS_PER_HOST, config.maxRequestsPerHost)
+            .putLong(KEY_HTTP_CONNECT_TIMEOUT_MS, config.connectTimeoutMs)
+            .putLong(KEY_HTTP_READ_TIMEOUT_MS, config.readTimeoutMs)
+            .putLong(KEY_HTTP_WRITE_TIMEOUT_MS, config.writeTimeoutMs)
+            .putLong(KEY_HTTP_CALL_TIMEOUT_MS, config.callTimeoutMs)
+            .putBoolean(KEY_HTTP2_ENABLED, config.http2)
+            .apply()
+    }
+
+    /** Longest a metered upload waits for the radio to wake up on its own; 0 sends at once. */
+    fun meteredUploadMaxDeferMs(context: Context): Long {
+        return getPrefs(context)
+            .getLong(KEY_METERED_UPLOAD_MAX_DEFER_MS, UploadNetworkPolicy.DEFAULT_MAX_METERED_DEFER_MS)
+            .coerceAtLeast(0L)
+    }
+
+    fun setMeteredUploadMaxDeferMs(context: Context, deferMs: Long) {
+        getPrefs(context).edit()
+            .putLong(KEY_METERED_UPLOAD_MAX_DEFER_MS, deferMs)
+            .apply()
+    }
+
+    fun pipelineConfig(context: Context): PipelineConfig {
+        val prefs = getPrefs(context)
+        val defaults = PipelineConfig()
+        return PipelineConfig(
+            normalize = stageConfig(prefs, KEY_PIPELINE_NORMALIZE, defaults.normalize),
+            policy = stageConfig(prefs, KEY_PIPELINE_POLICY, defaults.policy),
+            encode = stageConfig(prefs, KEY_PIPELINE_ENCODE, defaults.encode),
+            transmit = stageConfig(prefs, KEY_PIPELINE_TRANSMIT, defaults.transmit)
+        )
+    }
+
+    fun setPipelineConfig(context: Context, config: PipelineConfig) {
+        getPrefs(context).edit()
+            .putStageConfig(KEY_PIPELINE_NORMALIZE, config.normalize)
+            .putStageConfig(KEY_PIPELINE_POLICY, config.policy)
+            .putStageConfig(KEY_PIPELINE_ENCODE, config.encode)
+            .putStageConfig(KEY_PIPELINE_TRANSMIT, config.transmit)
+            .apply()
+    }
+
+    private fun stageConfig(prefs: SharedPreferences, key: String, default: StageConfig): StageConfig =
+        StageConfig(
+            capacity = prefs.getInt("${key}_capacity", default.capacity).coerceIn(1, 4096),
+            overflow = prefs.getString("${key}_overflow", null)
+                ?.let { name -> OverflowStrategy.values().firstOrNull { it.name == name } }
+                ?: default.overflow
+        )
+
+    private fun SharedPreferences.Editor.putStageConfig(key: String, config: StageConfig): SharedPreferences.Editor =
+        putInt("${key}_capacity", config.capacity)
+            .putString("${key}_overflow", config.overflow.name)
+}
@@ -0,0 +1,133 @@
+package com.hirenq.tmmrelay.capture
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TrackStoreTest {
+
+    private fun epoch(hPrecision: Double, pdop: Double = 1.5) = CapturedEpoch().apply {
+        latitude = Math.toRadians(26.1445)
+        longitude = Math.toRadians(91.7362)
+        this.hPrecision = hPrecision
+        vPrecision = hPrecision * 2
+        this.pdop = pdop
+    }
+
+    /** One epoch a second from [fromSecond], with the second as its horizontal precision. */
+    private fun TrackStore.appendSeconds(fromSecond: Int, toSecond: Int, satellites: Int = 20) {
+        for (s in fromSecond..toSecond) append(epoch(s.toDouble()), satellites, s * 1000L)
+    }
+
+    @Test
+    fun windowIncludesBothEnds() {
+        val store = TrackStore()
+        store.appendSeconds(1, 100)
+
+        val stats = store.windowStats(windowMs = 10_000L)!!
+
+        // 90 s..100 s inclusive
+        assertEquals(11, stats.count)
+        assertEquals(90_000L, stats.fromMillis)
+        assertEquals(100_000L, stats.toMillis)
+        assertEquals(90.0, stats.minHPrecision, 0.0)
+        assertEquals(100.0, stats.maxHPrecision, 0.0)
+        assertEquals(95.0, stats.meanHPrecision, 1e-9)
+    }
+
+    @Test
+    fun windowEndingBeforeTheNewestEpoch() {
+        val store = TrackStore()
+        store.appendSeconds(1, 100)
+
+        val stats = store.windowStats(windowMs = 4_000L, toMillis = 50_500L)!!
+
+        // 46.5 s..50.5 s holds 47..50
+        assertEquals(4, stats.count)
+        assertEquals(47.0, stats.minHPrecision, 0.0)
+        assertEquals(50.0, stats.maxHPrecision, 0.0)
+    }
+
+    @Test
+    fun windowWithoutEpochsIsNull() {
+        val store = TrackStore()
+        assertNull(store.windowStats(60_000L))
+
+        store.appendSeconds(10, 20)
+        assertNull(store.windowStats(windowMs = 5_000L, toMillis = 9_999L))
+        assertNull(store.windowStats(windowMs = 5_000L, toMillis = 30_000L))
+    }
+
+    @Test
+    fun unknownValuesAreSkipped() {
+        val store = TrackStore()
+        store.append(epoch(Double.NaN, pdop = Double.NaN), 12, 1_000L)
+        store.append(epoch(0.02), 9, 2_000L)
+        store.append(epoch(Double.NaN), 15, 3_000L)
+
+        val stats = store.windowStats(10_000L)!!
+
+        assertEquals(3, stats.count)
+        assertEquals(0.02, stats.minHPrecision, 0.0)
+        assertEquals(0.02, stats.meanHPrecision, 0.0)
+        assertEquals(1.5, stats.meanPdop, 0.0)
+        assertEquals(9, stats.minSatellites)
+
+        val unknown = store.windowStats(windowMs = 0L, toMillis = 1_000L)!!
+        assertTrue(unknown.minHPrecision.isNaN())
+        assertTrue(unknown.meanPdop.isNaN())
+    }
+
+    @Test
+    fun fullStoreDropsTheOldestEpochs() {
+        val store = TrackStore(capacity = 60)
+        store.appendSeconds(1, 150)
+
+        assertEquals(60, store.size)
+        val all = store.windowStats(windowMs = 1_000_000L)!!
+        assertEquals(60, all.count)
+        assertEquals(91.0, all.minHPrecision, 0.0)
+        assertEquals(150.0, all.maxHPrecision, 0.0)
+        // The binary search sees logical order across the wrap of the ring
+        assertEquals(11, store.windowStats(windowMs = 10_000L, toMillis = 110_000L)!!.count)
+        assertEquals(10, store.windowStats(windowMs = 10_000L, toMillis = 100_000L)!!.count)
+    }
+
+    @Test
+    fun timeRegressionClearsTheHistory() {
+        val store = TrackStore()
+        store.appendSeconds(100, 200)
+
+        store.append(epoch(0.5), 20, 50_000L)
+
+        assertEquals(1, store.size)
+        assertEquals(50_000L, store.latestTimeMillis())
+        val stats = store.windowStats(windowMs = 1_000_000L)!!
+        assertEquals(1, stats.count)
+        assertEquals(0.5, stats.minHPrecision, 0.0)
+    }
+
+    @Test
+    fun repeatedTimeIsKept() {
+        val store = TrackStore()
+        store.appendSeconds(1, 5)
+
+        store.append(epoch(7.0), 20, 5_000L)
+
+        assertEquals(6, store.size)
+        assertEquals(2, store.windowStats(windowMs = 0L)!!.count)
+    }
+
+    @Test
+    fun clearEmptiesTheStore() {
+        val store = TrackStore()
+        store.appendSeconds(1, 5)
+
+        store.clear()
+
+        assertEquals(0, store.size)
+        assertNull(store.latestTimeMillis())
+        assertNull(store.windowStats(60_000L))
+    }
+}
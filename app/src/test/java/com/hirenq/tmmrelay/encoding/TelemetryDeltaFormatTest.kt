@@ -0,0 +1,134 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.Buffer
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.IOException
+
+/** Encode → decode round trips through [TelemetryDeltaEncoder] and [TelemetryDeltaDecoder]. */
+class TelemetryDeltaFormatTest {
+
+    /** Values are whole steps of the wire precision, so they come back exactly. */
+    private fun payload(i: Int) = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "device-1",
+        latitude = (52_123_456_789L + i * 100L) / 1e9,
+        longitude = (-1_987_654_321L - i * 200L) / 1e9,
+        battery = 80 - i / 10,
+        fixType = if (i % 7 == 0) "RTK_FLOAT" else "RTK_FIXED",
+        timestamp = "2026-10-18T10:00:${"%02d".format(i % 60)}.${"%03d".format(i * 37 % 1000)}Z",
+        health = "OK",
+        horizontalAccuracy = (123 + i) / 1e4,
+        verticalAccuracy = 0.0234,
+        satellites = 18 + i % 3,
+        pdop = 1.4,
+        hdop = 0.8,
+        vdop = if (i % 2 == 0) 1.1 else null
+    )
+
+    /** Encodes each payload as its own frame, so frames can be inspected or dropped. */
+    private fun frames(encoder: TelemetryDeltaEncoder, payloads: List<TelemetryPayload>): List<Buffer> =
+        payloads.map { Buffer().also { frame -> encoder.encode(it, frame) } }
+
+    /** The keyframe flag is bit 0 of the mask varint, so of its first byte. */
+    private fun isKeyframe(frame: Buffer): Boolean = frame[0].toInt() and 1 != 0
+
+    private fun roundTrip(payloads: List<TelemetryPayload>, keyframeInterval: Int = 30): List<TelemetryPayload> {
+        val stream = Buffer()
+        val encoder = TelemetryDeltaEncoder(keyframeInterval)
+        payloads.forEach { encoder.encode(it, stream) }
+        return TelemetryDeltaDecoder().decodeAll(stream)
+    }
+
+    @Test
+    fun keyframesAndDeltasRoundTrip() {
+        val payloads = (0 until 100).map(::payload)
+
+        assertEquals(payloads, roundTrip(payloads, keyframeInterval = 10))
+    }
+
+    @Test
+    fun keyframeEveryIntervalWithDeltasBetween() {
+        val frames = frames(TelemetryDeltaEncoder(keyframeInterval = 5), (0 until 12).map(::payload))
+
+        assertEquals(listOf(0, 5, 10), frames.indices.filter { isKeyframe(frames[it]) })
+        assertTrue(frames[1].size < frames[0].size / 2)
+    }
+
+    @Test
+    fun absentFieldsRoundTrip() {
+        val sparse = payload(1).copy(
+            horizontalAccuracy = Double.NaN,
+            verticalAccuracy = Double.POSITIVE_INFINITY,
+            userId = null,
+            receiverBattery = null,
+            pdop = null,
+            hdop = null,
+            vdop = null,
+            receiverHealth = null
+        )
+        val full = payload(2).copy(userId = "u1", receiverBattery = 55, receiverHealth = "GOOD")
+
+        val decoded = roundTrip(listOf(full, sparse, full, sparse))
+
+        assertEquals(full, decoded[0])
+        assertEquals(full, decoded[2])
+        for (absent in listOf(decoded[1], decoded[3])) {
+            assertTrue(absent.horizontalAccuracy.isNaN())
+            assertTrue(absent.verticalAccuracy.isNaN())
+            assertNull(absent.userId)
+            assertNull(absent.receiverBattery)
+            assertNull(absent.pdop)
+            assertNull(absent.hdop)
+            assertNull(absent.vdop)
+            assertNull(absent.receiverHealth)
+            assertEquals(sparse.latitude, absent.latitude, 1e-9)
+        }
+    }
+
+    @Test
+    fun absentFieldsInKeyframeRoundTrip() {
+        val sparse = payload(3).copy(horizontalAccuracy = Double.NaN, verticalAccuracy = Double.NaN, pdop = null)
+
+        val decoded = roundTrip(listOf(sparse)).single()
+
+        assertTrue(decoded.horizontalAccuracy.isNaN())
+        assertTrue(decoded.verticalAccuracy.isNaN())
+        assertNull(decoded.pdop)
+    }
+
+    @Test
+    fun nonInstantTimestampRoundTrips() {
+        val payloads = listOf(payload(0), payload(1).copy(timestamp = "not a time"), payload(2))
+
+        assertEquals(payloads, roundTrip(payloads))
+    }
+
+    @Test
+    fun resetForcesKeyframeAfterGap() {
+        val encoder = TelemetryDeltaEncoder()
+        val before = frames(encoder, (0 until 3).map(::payload))
+        encoder.reset()
+        val afterGap = (3 until 6).map { payload(it).copy(timestamp = "2026-10-18T11:3$it:00Z") }
+        val after = frames(encoder, afterGap)
+
+        assertTrue(isKeyframe(before[0]))
+        assertTrue(isKeyframe(after[0]))
+        assertTrue(after.drop(1).none(::isKeyframe))
+
+        // A decoder that missed everything before the gap picks up at the forced keyframe
+        val stream = Buffer()
+        after.forEach { stream.writeAll(it) }
+        assertEquals(afterGap, TelemetryDeltaDecoder().decodeAll(stream))
+    }
+
+    @Test(expected = IOException::class)
+    fun deltaBeforeKeyframeIsRejected() {
+        val frames = frames(TelemetryDeltaEncoder(), (0 until 2).map(::payload))
+
+        TelemetryDeltaDecoder().decode(frames[1])
+    }
+}
@@ -0,0 +1,238 @@
+package com.hirenq.tmmrelay.encoding
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto
+import com.google.protobuf.Descriptors.Descriptor
+import com.google.protobuf.Descriptors.EnumValueDescriptor
+import com.google.protobuf.Descriptors.FileDescriptor
+import com.google.protobuf.DynamicMessage
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.Buffer
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Decodes [TelemetryProtoWriter] output with protobuf-java against a descriptor built
+ * from `src/main/proto/telemetry.proto`, so a field number, wire type or scaling that
+ * drifts from the schema fails here rather than on the server.
+ */
+class TelemetryProtoWriterTest {
+
+    private val now = 1_792_300_000_000L
+
+    private val payload = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "device-1",
+        latitude = 52.123456789,
+        longitude = -1.987654321,
+        battery = 76,
+        fixType = "RTK_FIXED",
+        timestamp = "2026-10-18T10:00:01.250Z",
+        health = "OK",
+        horizontalAccuracy = 0.0123,
+        verticalAccuracy = 0.0234,
+        satellites = 19,
+        userId = "u-42",
+        userName = "Surveyor",
+        userEmail = "surveyor@example.com",
+        receiverBattery = 81,
+        pdop = 1.43,
+        hdop = 0.8,
+        vdop = 1.1,
+        receiverHealth = "GOOD"
+    )
+
+    private fun record(payload: TelemetryPayload): DynamicMessage {
+        val buffer = Buffer()
+        TelemetryProtoWriter.write(payload, buffer, now)
+        return DynamicMessage.parseFrom(RECORD, buffer.readByteArray())
+    }
+
+    /** The decoded value, or null for an `optional` field that is not on the wire. */
+    private fun DynamicMessage.field(name: String): Any? {
+        val field = descriptorForType.findFieldByName(name)
+        return if (!field.hasPresence() || hasField(field)) getField(field) else null
+    }
+
+    private fun DynamicMessage.enumName(name: String): String? = (field(name) as EnumValueDescriptor?)?.name
+
+    @Test
+    fun everyFieldDecodesAgainstTheSchema() {
+        val record = record(payload)
+
+        assertEquals("tenant", record.field("tenant_id"))
+        assertEquals("device-1", record.field("device_id"))
+        assertEquals(52_123_456_789L, record.field("latitude_e9"))
+        assertEquals(-1_987_654_321L, record.field("longitude_e9"))
+        assertEquals(76, record.field("battery"))
+        assertEquals("FIX_TYPE_RTK_FIXED", record.enumName("fix_type"))
+        assertEquals("", record.field("fix_type_name"))
+        assertEquals(1_792_317_601_250L, record.field("timestamp_ms"))
+        assertEquals(now, record.field("sent_at_ms"))
+        assertEquals("HEALTH_OK", record.enumName("health"))
+        assertEquals("", record.field("health_name"))
+        assertEquals(12, record.field("horizontal_accuracy_mm"))
+        assertEquals(23, record.field("vertical_accuracy_mm"))
+        assertEquals(19, record.field("satellites"))
+        assertEquals("u-42", record.field("user_id"))
+        assertEquals("Surveyor", record.field("user_name"))
+        assertEquals("surveyor@example.com", record.field("user_email"))
+        assertEquals(81, record.field("receiver_battery"))
+        assertEquals("HEALTH_GOOD", record.enumName("receiver_health"))
+        assertEquals("", record.field("receiver_health_name"))
+        assertEquals(143, record.field("pdop_e2"))
+        assertEquals(80, record.field("hdop_e2"))
+        assertEquals(110, record.field("vdop_e2"))
+        assertTrue(record.unknownFields.asMap().isEmpty())
+    }
+
+    @Test
+    fun unknownNamesGoOutAsOtherWithTheName() {
+        val record = record(payload.copy(fixType = "PPP_CONVERGING", health = "DEGRADED", receiverHealth = "LOW_POWER"))
+
+        assertEquals("FIX_TYPE_OTHER", record.enumName("fix_type"))
+        assertEquals("PPP_CONVERGING", record.field("fix_type_name"))
+        assertEquals("HEALTH_OTHER", record.enumName("health"))
+        assertEquals("DEGRADED", record.field("health_name"))
+        // Optional, so OTHER (0) is still present on the wire
+        assertEquals("HEALTH_OTHER", record.enumName("receiver_health"))
+        assertEquals("LOW_POWER", record.field("receiver_health_name"))
+    }
+
+    @Test
+    fun absentAndUnknownValuesFollowTheSchemaComments() {
+        val record = record(
+            payload.copy(
+                horizontalAccuracy = -1.0,
+                verticalAccuracy = Double.NaN,
+                userId = null,
+                userName = null,
+                userEmail = null,
+                receiverBattery = null,
+                receiverHealth = null,
+                pdop = 0.0,
+                hdop = Double.NaN,
+                vdop = null,
+                timestamp = "not a timestamp"
+            )
+        )
+
+        assertEquals(-1, record.field("horizontal_accuracy_mm"))
+        assertEquals(-1, record.field("vertical_accuracy_mm"))
+        for (name in listOf("user_id", "user_name", "user_email", "receiver_battery", "receiver_health", "hdop_e2", "vdop_e2")) {
+            assertNull(name, record.field(name))
+        }
+        // A zero DOP is a value, not an absent one
+        assertEquals(0, record.field("pdop_e2"))
+        assertEquals(now, record.field("timestamp_ms"))
+    }
+
+    @Test
+    fun batchRecordsDecodeOneByOne() {
+        val payloads = (0 until 3).map { payload.copy(latitude = payload.latitude + it * 1e-6, satellites = 17 + it) }
+        val batch = Buffer()
+        for (p in payloads) {
+            val record = Buffer()
+            TelemetryProtoWriter.write(p, record, now)
+            TelemetryProtoWriter.appendToBatch(record, batch)
+        }
+
+        val decoded = DynamicMessage.parseFrom(BATCH, batch.readByteArray())
+        val records = decoded.getField(BATCH.findFieldByName("records")) as List<*>
+
+        assertEquals(payloads.map(::record), records)
+    }
+
+    private companion object {
+        /** `TelemetryRecord` fields in field-number order: name, type, proto3 `optional` */
+        val RECORD_FIELDS = listOf(
+            Triple("tenant_id", FieldDescriptorProto.Type.TYPE_STRING, false),
+            Triple("device_id", FieldDescriptorProto.Type.TYPE_STRING, false),
+            Triple("latitude_e9", FieldDescriptorProto.Type.TYPE_SINT64, false),
+            Triple("longitude_e9", FieldDescriptorProto.Type.TYPE_SINT64, false),
+            Triple("battery", FieldDescriptorProto.Type.TYPE_INT32, false),
+            Triple("fix_type", FieldDescriptorProto.Type.TYPE_ENUM, false),
+            Triple("fix_type_name", FieldDescriptorProto.Type.TYPE_STRING, false),
+            Triple("timestamp_ms", FieldDescriptorProto.Type.TYPE_INT64, false),
+            Triple("sent_at_ms", FieldDescriptorProto.Type.TYPE_INT64, false),
+            Triple("health", FieldDescriptorProto.Type.TYPE_ENUM, false),
+            Triple("health_name", FieldDescriptorProto.Type.TYPE_STRING, false),
+            Triple("horizontal_accuracy_mm", FieldDescriptorProto.Type.TYPE_SINT32, false),
+            Triple("vertical_accuracy_mm", FieldDescriptorProto.Type.TYPE_SINT32, false),
+            Triple("satellites", FieldDescriptorProto.Type.TYPE_INT32, false),
+            Triple("user_id", FieldDescriptorProto.Type.TYPE_STRING, true),
+            Triple("user_name", FieldDescriptorProto.Type.TYPE_STRING, true),
+            Triple("user_email", FieldDescriptorProto.Type.TYPE_STRING, true),
+            Triple("receiver_battery", FieldDescriptorProto.Type.TYPE_INT32, true),
+            Triple("receiver_health", FieldDescriptorProto.Type.TYPE_ENUM, true),
+            Triple("receiver_health_name", FieldDescriptorProto.Type.TYPE_STRING, false),
+            Triple("pdop_e2", FieldDescriptorProto.Type.TYPE_UINT32, true),
+            Triple("hdop_e2", FieldDescriptorProto.Type.TYPE_UINT32, true),
+            Triple("vdop_e2", FieldDescriptorProto.Type.TYPE_UINT32, true)
+        )
+
+        val RECORD: Descriptor
+        val BATCH: Descriptor
+
+        init {
+            val fixType = enumType(
+                "FixType", "FIX_TYPE_OTHER", "FIX_TYPE_NO_FIX", "FIX_TYPE_AUTONOMOUS", "FIX_TYPE_DGPS",
+                "FIX_TYPE_SBAS", "FIX_TYPE_RTK_FLOAT", "FIX_TYPE_RTK_FIXED", "FIX_TYPE_RTX", "FIX_TYPE_UNKNOWN"
+            )
+            val health = enumType(
+                "Health", "HEALTH_OTHER", "HEALTH_OK", "HEALTH_NO_COORDINATES", "HEALTH_NO_FIX", "HEALTH_ERROR",
+                "HEALTH_OFFLINE", "HEALTH_POOR", "HEALTH_GOOD", "HEALTH_EXCELLENT", "HEALTH_UNKNOWN"
+            )
+            val record = DescriptorProto.newBuilder().setName("TelemetryRecord")
+            RECORD_FIELDS.forEachIndexed { i, (name, type, optional) ->
+                val field = FieldDescriptorProto.newBuilder()
+                    .setName(name)
+                    .setNumber(i + 1)
+                    .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+                    .setType(type)
+                if (type == FieldDescriptorProto.Type.TYPE_ENUM) {
+                    field.setTypeName(if (name == "fix_type") ".hirenq.tmmrelay.FixType" else ".hirenq.tmmrelay.Health")
+                }
+                if (optional) {
+                    // proto3 `optional` is a synthetic oneof per field
+                    field.setProto3Optional(true).setOneofIndex(record.oneofDeclCount)
+                    record.addOneofDecl(OneofDescriptorProto.newBuilder().setName("_$name"))
+                }
+                record.addField(field)
+            }
+            val batch = DescriptorProto.newBuilder().setName("TelemetryBatch").addField(
+                FieldDescriptorProto.newBuilder()
+                    .setName("records")
+                    .setNumber(1)
+                    .setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                    .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                    .setTypeName(".hirenq.tmmrelay.TelemetryRecord")
+            )
+            val file = FileDescriptorProto.newBuilder()
+                .setName("telemetry.proto")
+                .setPackage("hirenq.tmmrelay")
+                .setSyntax("proto3")
+                .addEnumType(fixType)
+                .addEnumType(health)
+                .addMessageType(record)
+                .addMessageType(batch)
+                .build()
+            val descriptor = FileDescriptor.buildFrom(file, emptyArray())
+            RECORD = descriptor.findMessageTypeByName("TelemetryRecord")
+            BATCH = descriptor.findMessageTypeByName("TelemetryBatch")
+        }
+
+        fun enumType(name: String, vararg values: String): EnumDescriptorProto.Builder =
+            EnumDescriptorProto.newBuilder().setName(name).apply {
+                values.forEachIndexed { number, value ->
+                    addValue(EnumValueDescriptorProto.newBuilder().setName(value).setNumber(number))
+                }
+            }
+    }
+}
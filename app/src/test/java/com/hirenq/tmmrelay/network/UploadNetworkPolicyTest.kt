@@ -0,0 +1,71 @@
+package com.hirenq.tmmrelay.network
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/** [UploadNetworkPolicy] against a source whose state and radio are set by hand. */
+class UploadNetworkPolicyTest {
+
+    private class FakeNetworkSource : NetworkStateSource {
+        override var state = NetworkState.OFFLINE
+        var radioActive = false
+
+        override fun isRadioActive(): Boolean = radioActive
+        override fun start(onStateChanged: () -> Unit, onRadioActive: () -> Unit) = Unit
+        override fun stop() = Unit
+    }
+
+    private val source = FakeNetworkSource()
+    private val policy = UploadNetworkPolicy(source, maxMeteredDeferMs = MAX_DEFER_MS)
+
+    @Test
+    fun offlineHoldsUntilTheRecheck() {
+        assertEquals(UploadNetworkPolicy.OFFLINE_RECHECK_MS, policy.holdMs(0L))
+        // However long the data has waited, there is nowhere to send it
+        assertEquals(UploadNetworkPolicy.OFFLINE_RECHECK_MS, policy.holdMs(10 * MAX_DEFER_MS))
+    }
+
+    @Test
+    fun unvalidatedNetworkCountsAsOffline() {
+        source.state = NetworkState(connected = true, validated = false, metered = false)
+        source.radioActive = true
+
+        assertEquals(UploadNetworkPolicy.OFFLINE_RECHECK_MS, policy.holdMs(0L))
+    }
+
+    @Test
+    fun unmeteredSendsRightAway() {
+        source.state = NetworkState(connected = true, validated = true, metered = false)
+
+        assertEquals(0L, policy.holdMs(0L))
+    }
+
+    @Test
+    fun meteredWithTheRadioAwakeSendsRightAway() {
+        source.state = NetworkState(connected = true, validated = true, metered = true)
+        source.radioActive = true
+
+        assertEquals(0L, policy.holdMs(0L))
+    }
+
+    @Test
+    fun meteredWithTheRadioIdleWaitsOutTheRestOfTheCap() {
+        source.state = NetworkState(connected = true, validated = true, metered = true)
+
+        assertEquals(MAX_DEFER_MS, policy.holdMs(0L))
+        assertEquals(MAX_DEFER_MS - 15_000L, policy.holdMs(15_000L))
+        assertEquals(1L, policy.holdMs(MAX_DEFER_MS - 1))
+    }
+
+    @Test
+    fun meteredSendsOnceTheDeferCapIsReached() {
+        source.state = NetworkState(connected = true, validated = true, metered = true)
+
+        assertEquals(0L, policy.holdMs(MAX_DEFER_MS))
+        assertEquals(0L, policy.holdMs(MAX_DEFER_MS + 30_000L))
+    }
+
+    private companion object {
+        const val MAX_DEFER_MS = 60_000L
+    }
+}
@@ -0,0 +1,140 @@
+package com.hirenq.tmmrelay.outbox
+
+import com.hirenq.tmmrelay.outbox.CircuitBreaker.State
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CircuitBreakerTest {
+
+    private var now = 0L
+    private val transitions = mutableListOf<Pair<State, State>>()
+
+    private fun breaker(
+        windowSize: Int = 20,
+        windowMs: Long = 10 * 60_000L,
+        minCalls: Int = 4,
+        halfOpenCalls: Int = 2
+    ) = CircuitBreaker(
+        windowSize = windowSize,
+        windowMs = windowMs,
+        minCalls = minCalls,
+        minSuccessRate = 0.5,
+        openMs = OPEN_MS,
+        halfOpenCalls = halfOpenCalls,
+        clock = { now },
+        onTransition = { from, to, _ -> transitions += from to to }
+    )
+
+    @Test
+    fun staysClosedBelowMinCalls() {
+        val breaker = breaker()
+        repeat(3) { breaker.recordFailure() }
+        assertEquals(State.CLOSED, breaker.currentState)
+        assertTrue(breaker.allowsCall())
+
+        breaker.recordFailure()
+        assertEquals(State.OPEN, breaker.currentState)
+    }
+
+    @Test
+    fun staysClosedWhileTheSuccessRateHolds() {
+        val breaker = breaker()
+        repeat(10) {
+            breaker.recordSuccess()
+            breaker.recordFailure()
+        }
+        assertEquals(State.CLOSED, breaker.currentState)
+        assertEquals(0.5, breaker.successRate(), 0.0)
+    }
+
+    @Test
+    fun opensThenTurnsHalfOpenAfterOpenMs() {
+        val breaker = breaker()
+        repeat(4) { breaker.recordFailure() }
+        assertFalse(breaker.allowsCall())
+        assertEquals(OPEN_MS, breaker.remainingOpenMs())
+
+        now += OPEN_MS - 1
+        assertEquals(1L, breaker.remainingOpenMs())
+        assertEquals(State.OPEN, breaker.currentState)
+
+        now += 1
+        assertEquals(State.HALF_OPEN, breaker.currentState)
+        assertTrue(breaker.allowsCall())
+        assertEquals(0L, breaker.remainingOpenMs())
+    }
+
+    @Test
+    fun halfOpenClosesOnTrialSuccess() {
+        val breaker = breaker()
+        repeat(4) { breaker.recordFailure() }
+        now += OPEN_MS
+        breaker.recordSuccess()
+
+        assertEquals(State.CLOSED, breaker.currentState)
+        assertEquals(
+            listOf(State.CLOSED to State.OPEN, State.OPEN to State.HALF_OPEN, State.HALF_OPEN to State.CLOSED),
+            transitions
+        )
+        // The failures that opened it are forgotten
+        breaker.recordFailure()
+        assertEquals(State.CLOSED, breaker.currentState)
+    }
+
+    @Test
+    fun halfOpenReopensOnTrialFailures() {
+        val breaker = breaker()
+        repeat(4) { breaker.recordFailure() }
+        now += OPEN_MS
+        breaker.recordFailure()
+        assertEquals(State.HALF_OPEN, breaker.currentState)
+        breaker.recordFailure()
+
+        assertEquals(State.OPEN, breaker.currentState)
+        assertEquals(OPEN_MS, breaker.remainingOpenMs())
+        assertEquals(
+            listOf(State.CLOSED to State.OPEN, State.OPEN to State.HALF_OPEN, State.HALF_OPEN to State.OPEN),
+            transitions
+        )
+    }
+
+    @Test
+    fun outcomesWhileOpenAreIgnored() {
+        val breaker = breaker()
+        repeat(4) { breaker.recordFailure() }
+        repeat(10) { breaker.recordSuccess() }
+        assertEquals(State.OPEN, breaker.currentState)
+        assertEquals(1L, breaker.transitions)
+    }
+
+    @Test
+    fun expiredOutcomesLeaveTheWindow() {
+        val breaker = breaker(windowMs = 60_000L)
+        repeat(3) { breaker.recordFailure() }
+        now += 60_001L
+        assertTrue(breaker.successRate().isNaN())
+
+        breaker.recordFailure()
+        assertEquals(State.CLOSED, breaker.currentState)
+        repeat(3) { breaker.recordFailure() }
+        assertEquals(State.OPEN, breaker.currentState)
+    }
+
+    @Test
+    fun windowKeepsOnlyTheLastCalls() {
+        val breaker = breaker(windowSize = 4)
+        repeat(3) { breaker.recordFailure() }
+        repeat(4) { breaker.recordSuccess() }
+        assertEquals(1.0, breaker.successRate(), 0.0)
+        repeat(2) { breaker.recordFailure() }
+        assertEquals(State.CLOSED, breaker.currentState)
+        breaker.recordFailure()
+        assertEquals(State.OPEN, breaker.currentState)
+    }
+
+    private companion object {
+        const val OPEN_MS = 60_000L
+    }
+}
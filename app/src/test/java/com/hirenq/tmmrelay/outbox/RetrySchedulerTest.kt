@@ -0,0 +1,106 @@
+package com.hirenq.tmmrelay.outbox
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class RetrySchedulerTest {
+
+    private var now = 1_000_000L
+
+    private fun scheduler(
+        seed: Int = 42,
+        breaker: CircuitBreaker = CircuitBreaker(minCalls = Int.MAX_VALUE, clock = { now })
+    ) = RetryScheduler(
+        baseDelayMs = BASE_MS,
+        maxDelayMs = MAX_MS,
+        breaker = breaker,
+        clock = { now },
+        random = Random(seed)
+    )
+
+    @Test
+    fun firstFailureWaitsTheBaseDelay() {
+        assertEquals(BASE_MS, scheduler().onFailure())
+    }
+
+    @Test
+    fun jitteredDelaysStayWithinDecorrelatedBounds() {
+        val retry = scheduler()
+        var previous = retry.onFailure()
+        repeat(50) {
+            val delay = retry.onFailure()
+            val upper = minOf(previous * 3, MAX_MS)
+            assertTrue("delay $delay outside [$BASE_MS, $upper]", delay in BASE_MS..upper)
+            previous = delay
+        }
+    }
+
+    @Test
+    fun sameSeedGivesTheSameSchedule() {
+        val a = scheduler(seed = 7)
+        val b = scheduler(seed = 7)
+        repeat(20) { assertEquals(a.onFailure(), b.onFailure()) }
+    }
+
+    @Test
+    fun delaysReachTheCapAndStayThere() {
+        val retry = scheduler()
+        val delays = List(200) { retry.onFailure() }
+        assertTrue(delays.all { it <= MAX_MS })
+        assertTrue(delays.any { it > MAX_MS / 2 })
+    }
+
+    @Test
+    fun retryAfterIsALowerBound() {
+        val retry = scheduler()
+        assertEquals(30_000L, retry.onFailure(retryAfterMs = 30_000L))
+        assertEquals(30_000L, retry.delayBeforeAttempt())
+
+        // A Retry-After shorter than the backoff leaves the schedule as it was
+        val plain = scheduler(seed = 3)
+        val told = scheduler(seed = 3)
+        repeat(5) { assertEquals(plain.onFailure(), told.onFailure(retryAfterMs = 1L)) }
+    }
+
+    @Test
+    fun delayCountsDownOnTheClock() {
+        val retry = scheduler()
+        retry.onFailure()
+        now += 400L
+        assertEquals(BASE_MS - 400L, retry.delayBeforeAttempt())
+        now += BASE_MS
+        assertEquals(0L, retry.delayBeforeAttempt())
+    }
+
+    @Test
+    fun successResetsTheBackoff() {
+        val retry = scheduler()
+        repeat(5) { retry.onFailure() }
+        assertEquals(5, retry.consecutiveFailures)
+        retry.onSuccess()
+        assertEquals(0, retry.consecutiveFailures)
+        assertEquals(0L, retry.delayBeforeAttempt())
+        assertEquals(BASE_MS, retry.onFailure())
+    }
+
+    @Test
+    fun skipBackoffKeepsAnOpenBreaker() {
+        val breaker = CircuitBreaker(minCalls = 2, openMs = 60_000L, clock = { now })
+        val retry = scheduler(breaker = breaker)
+        retry.onFailure()
+        retry.onFailure()
+        assertEquals(CircuitBreaker.State.OPEN, breaker.currentState)
+
+        retry.skipBackoff()
+        assertEquals(60_000L, retry.delayBeforeAttempt())
+        now += 60_000L
+        assertEquals(0L, retry.delayBeforeAttempt())
+    }
+
+    private companion object {
+        const val BASE_MS = 1_000L
+        const val MAX_MS = 60_000L
+    }
+}
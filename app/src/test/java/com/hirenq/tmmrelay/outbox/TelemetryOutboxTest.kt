@@ -0,0 +1,182 @@
+package com.hirenq.tmmrelay.outbox
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.RandomAccessFile
+
+/** [TelemetryOutbox] on a temporary directory: replay order, crash recovery, cursor and eviction. */
+class TelemetryOutboxTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val dir: File by lazy { folder.newFolder("outbox") }
+    private val opened = mutableListOf<TelemetryOutbox>()
+
+    /** Every record encodes to the same size, so segment and budget sizes can be set in frames. */
+    private fun payload(i: Int) = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "device-1",
+        latitude = 52.1 + i * 1e-5,
+        longitude = -1.9,
+        battery = 80,
+        fixType = "RTK_FIXED",
+        timestamp = "2026-10-18T10:%02d:%02dZ".format(i / 60 % 60, i % 60),
+        health = "OK",
+        horizontalAccuracy = 0.012,
+        verticalAccuracy = 0.02,
+        satellites = 18
+    )
+
+    private val frameBytes: Long by lazy {
+        TelemetryOutbox(folder.newFolder("probe")).use { probe ->
+            probe.append(payload(0))
+            probe.peek()!!.sizeBytes.toLong()
+        }
+    }
+
+    private fun open(maxBytes: Long = TelemetryOutbox.DEFAULT_MAX_BYTES, segmentFrames: Int = 1000) =
+        TelemetryOutbox(dir, maxBytes = maxBytes, segmentBytes = segmentFrames * frameBytes)
+            .also { opened += it }
+
+    /** Peeks and commits one record at a time until the outbox is drained. */
+    private fun drain(outbox: TelemetryOutbox): List<TelemetryPayload> {
+        val drained = mutableListOf<TelemetryPayload>()
+        while (true) {
+            val entry = outbox.peek() ?: return drained
+            drained += entry.payload
+            outbox.commit(entry)
+        }
+    }
+
+    private fun segmentFiles(): List<File> = dir.listFiles { f -> f.name.endsWith(".seg") }!!.sortedBy { it.name }
+
+    @After
+    fun tearDown() {
+        opened.forEach { it.close() }
+    }
+
+    @Test
+    fun recordsReplayInAppendOrderAcrossSegments() {
+        val outbox = open(segmentFrames = 4)
+        val payloads = (0 until 25).map(::payload)
+        payloads.forEach(outbox::append)
+
+        assertTrue(segmentFiles().size > 1)
+        assertEquals(payloads, drain(outbox))
+        assertEquals(0L, outbox.pendingBytes())
+        // Consumed segments are deleted, all but the one still being written
+        assertEquals(1, segmentFiles().size)
+    }
+
+    @Test
+    fun tornTailIsTruncatedOnOpen() {
+        open().apply { (0 until 5).map(::payload).forEach(::append) }.close()
+        val segment = segmentFiles().single()
+        // A crash part way through the fifth frame
+        RandomAccessFile(segment, "rw").use { it.setLength(4 * frameBytes + frameBytes / 2) }
+
+        val reopened = open()
+
+        assertEquals(4 * frameBytes, segment.length())
+        reopened.append(payload(5))
+        assertEquals((0 until 4).map(::payload) + payload(5), drain(reopened))
+    }
+
+    @Test
+    fun corruptTailFrameIsTruncatedOnOpen() {
+        open().apply { (0 until 3).map(::payload).forEach(::append) }.close()
+        val segment = segmentFiles().single()
+        // A full-length frame whose body never reached the disk: the checksum cannot match
+        RandomAccessFile(segment, "rw").use { file ->
+            file.seek(file.length())
+            file.writeInt((frameBytes - 8).toInt())
+            file.writeInt(0x1234_5678)
+            file.write(ByteArray((frameBytes - 8).toInt()))
+        }
+
+        val reopened = open()
+
+        assertEquals(3 * frameBytes, segment.length())
+        assertEquals((0 until 3).map(::payload), drain(reopened))
+    }
+
+    @Test
+    fun cursorSurvivesReopen() {
+        val outbox = open(segmentFrames = 4)
+        (0 until 10).map(::payload).forEach(outbox::append)
+        val batch = outbox.peekBatch(maxRecords = 6, maxBytes = Int.MAX_VALUE)
+        assertEquals((0 until 6).map(::payload), batch.map { it.payload })
+        outbox.commit(batch.last())
+        outbox.close()
+
+        val reopened = open(segmentFrames = 4)
+
+        assertEquals(4 * frameBytes, reopened.pendingBytes())
+        assertEquals(payload(6), reopened.peek()!!.payload)
+        assertEquals((6 until 10).map(::payload), drain(reopened))
+    }
+
+    @Test
+    fun cursorSurvivesAKillWithoutClose() {
+        val outbox = open()
+        (0 until 5).map(::payload).forEach(outbox::append)
+        outbox.flush()
+        outbox.commit(outbox.peekBatch(maxRecords = 2, maxBytes = Int.MAX_VALUE).last())
+
+        // No close(): the cursor must already be on disk
+        val reopened = open()
+
+        assertEquals((2 until 5).map(::payload), drain(reopened))
+    }
+
+    @Test
+    fun oldestSegmentsAreEvictedOverTheByteCap() {
+        // Segments of 4 frames under a 10 frame cap: at most two full segments and the tail survive
+        val outbox = open(maxBytes = 10 * frameBytes, segmentFrames = 4)
+        (0 until 30).map(::payload).forEach(outbox::append)
+
+        assertTrue(segmentFiles().sumOf { it.length() } <= 10 * frameBytes)
+        // Whole segments go from the front; what is left is the newest records, in order
+        assertEquals(5L, outbox.evictedSegments)
+        assertEquals((20 until 30).map(::payload), drain(outbox))
+    }
+
+    @Test
+    fun commitOfAnEvictedEntryDoesNotMoveTheCursor() {
+        val outbox = open(maxBytes = 10 * frameBytes, segmentFrames = 4)
+        (0 until 4).map(::payload).forEach(outbox::append)
+        val inFlight = outbox.peekBatch(maxRecords = 4, maxBytes = Int.MAX_VALUE).last()
+
+        // While the upload is out, new records push its segment over the cap
+        (4 until 12).map(::payload).forEach(outbox::append)
+        assertEquals(1L, outbox.evictedSegments)
+        val oldestLeft = outbox.peek()!!.payload
+        assertEquals(payload(4), oldestLeft)
+
+        outbox.commit(inFlight)
+
+        // The late commit must neither rewind into the deleted segment nor skip live records
+        assertEquals(oldestLeft, outbox.peek()!!.payload)
+        assertEquals((4 until 12).map(::payload), drain(outbox))
+    }
+
+    @Test
+    fun drainedOutboxPeeksNull() {
+        val outbox = open()
+        assertNull(outbox.peek())
+
+        outbox.append(payload(0))
+        outbox.commit(outbox.peek()!!)
+
+        assertNull(outbox.peek())
+        assertNull(outbox.await(timeoutMs = 10))
+    }
+}
@@ -0,0 +1,136 @@
+package com.hirenq.tmmrelay.pipeline
+
+import com.hirenq.tmmrelay.model.OverflowStrategy
+import com.hirenq.tmmrelay.model.StageConfig
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class PipelineStageTest {
+
+    private val processed = Collections.synchronizedList(mutableListOf<Int>())
+    // The worker holds the first item until released, so the queue behind it fills up
+    private val firstTaken = CountDownLatch(1)
+    private val release = CountDownLatch(1)
+    private var stage: PipelineStage<Int>? = null
+
+    private fun stage(capacity: Int, overflow: OverflowStrategy): PipelineStage<Int> =
+        PipelineStage<Int>("test", StageConfig(capacity, overflow)) { item ->
+            firstTaken.countDown()
+            release.await()
+            processed += item
+        }.also {
+            stage = it
+            it.start()
+        }
+
+    private fun PipelineStage<Int>.offerFirstAndWait() {
+        assertTrue(offer(1))
+        assertTrue(firstTaken.await(5, TimeUnit.SECONDS))
+    }
+
+    @After
+    fun tearDown() {
+        release.countDown()
+        stage?.stop(5_000L)
+    }
+
+    @Test
+    fun dropOldestKeepsTheNewestItems() {
+        val stage = stage(2, OverflowStrategy.DROP_OLDEST)
+        stage.offerFirstAndWait()
+        assertTrue((2..5).all { stage.offer(it) })
+
+        release.countDown()
+        assertTrue(stage.stop(5_000L))
+        assertEquals(listOf(1, 4, 5), processed)
+        assertEquals(2L, stage.stats().dropped)
+        assertEquals(2, stage.stats().maxDepth)
+    }
+
+    @Test
+    fun dropNewestKeepsTheQueueAsItIs() {
+        val stage = stage(2, OverflowStrategy.DROP_NEWEST)
+        stage.offerFirstAndWait()
+        assertTrue(stage.offer(2))
+        assertTrue(stage.offer(3))
+        assertFalse(stage.offer(4))
+        assertFalse(stage.offer(5))
+
+        release.countDown()
+        assertTrue(stage.stop(5_000L))
+        assertEquals(listOf(1, 2, 3), processed)
+        assertEquals(2L, stage.stats().dropped)
+    }
+
+    @Test
+    fun blockHoldsTheProducerUntilThereIsRoom() {
+        val stage = stage(1, OverflowStrategy.BLOCK)
+        stage.offerFirstAndWait()
+        assertTrue(stage.offer(2))
+
+        val producer = Thread { stage.offer(3) }.apply { start() }
+        producer.join(200L)
+        assertTrue("producer should wait for room", producer.isAlive)
+
+        release.countDown()
+        producer.join(5_000L)
+        assertFalse(producer.isAlive)
+        assertTrue(stage.stop(5_000L))
+        assertEquals(listOf(1, 2, 3), processed)
+        assertEquals(0L, stage.stats().dropped)
+        assertTrue(stage.stats().blockedMs >= 150L)
+    }
+
+    @Test
+    fun stopLetsQueuedItemsFinish() {
+        val stage = PipelineStage<Int>("test", StageConfig(16, OverflowStrategy.BLOCK)) { item ->
+            Thread.sleep(5L)
+            processed += item
+        }
+        stage.start()
+        (1..10).forEach { stage.offer(it) }
+
+        assertTrue(stage.stop(5_000L))
+        assertEquals((1..10).toList(), processed)
+        assertFalse(stage.offer(11))
+        assertEquals(1L, stage.stats().dropped)
+    }
+
+    @Test
+    fun stopDropsWhatIsLeftAfterTheTimeout() {
+        val stage = stage(8, OverflowStrategy.BLOCK)
+        stage.offerFirstAndWait()
+        (2..4).forEach { stage.offer(it) }
+
+        assertFalse(stage.stop(100L))
+        val stats = stage.stats()
+        assertEquals(3L, stats.dropped)
+        assertEquals(0, stats.depth)
+
+        // The item in hand still completes; nothing queued behind it does
+        release.countDown()
+        Thread.sleep(100L)
+        assertEquals(listOf(1), processed)
+    }
+
+    @Test
+    fun failuresAreCountedAndTheStageCarriesOn() {
+        val stage = PipelineStage<Int>("test", StageConfig(4, OverflowStrategy.BLOCK)) { item ->
+            check(item != 2) { "bad item" }
+            processed += item
+        }
+        stage.start()
+        (1..3).forEach { stage.offer(it) }
+
+        assertTrue(stage.stop(5_000L))
+        assertEquals(listOf(1, 3), processed)
+        assertEquals(1L, stage.stats().failed)
+        assertEquals(3L, stage.stats().processed)
+    }
+}
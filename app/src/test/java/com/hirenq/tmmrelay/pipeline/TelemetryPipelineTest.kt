@@ -0,0 +1,145 @@
+package com.hirenq.tmmrelay.pipeline
+
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.model.OverflowStrategy
+import com.hirenq.tmmrelay.model.PipelineConfig
+import com.hirenq.tmmrelay.model.StageConfig
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+
+/** 20 Hz of epochs against a backend that answers at about 5 requests a second. */
+class TelemetryPipelineTest {
+
+    private val server = MockWebServer()
+    private val received = Collections.synchronizedList(mutableListOf<String>())
+    private val client = OkHttpClient()
+
+    @Before
+    fun setUp() {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val body = request.body.readUtf8()
+                received += Regex("\"DeviceId\":\"([^\"]+)\"", RegexOption.IGNORE_CASE).find(body)!!.groupValues[1]
+                Thread.sleep(SERVICE_MS)
+                return MockResponse().setResponseCode(201)
+            }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun pipeline(config: PipelineConfig, policyCalls: MutableList<String> = mutableListOf()) =
+        TelemetryPipeline(
+            config = config,
+            normalize = { it },
+            policy = { epoch, emit ->
+                policyCalls += epoch.payload.deviceId
+                emit(epoch.payload)
+            },
+            // No outbox: every payload falls through to transmit
+            encode = { false },
+            transmit = { payload ->
+                val body = Buffer().also { TelemetryJsonWriter.write(payload, it) }.readByteArray()
+                val request = Request.Builder()
+                    .url(server.url("/api/Device/pushdata"))
+                    .post(body.toRequestBody("application/json".toMediaType()))
+                    .build()
+                client.newCall(request).execute().close()
+            }
+        ).also { it.start() }
+
+    private fun submitAt20Hz(pipeline: TelemetryPipeline, count: Int) {
+        val started = System.nanoTime()
+        repeat(count) { i ->
+            pipeline.submit(payload(i), ReportingSample(1_792_300_000_000L + i * 50L, 26.1445, 91.7362, "RTK_FIXED"))
+            val dueNanos = started + TimeUnit.MILLISECONDS.toNanos((i + 1) * 50L)
+            val sleepMs = TimeUnit.NANOSECONDS.toMillis(dueNanos - System.nanoTime())
+            if (sleepMs > 0) Thread.sleep(sleepMs)
+        }
+    }
+
+    @Test
+    fun slowBackendKeepsQueuesBoundedAndTheNewestEpoch() {
+        val pipeline = pipeline(
+            PipelineConfig(transmit = StageConfig(TRANSMIT_CAPACITY, OverflowStrategy.DROP_OLDEST))
+        )
+        submitAt20Hz(pipeline, EPOCHS)
+        pipeline.stop(10_000L)
+
+        val stats = pipeline.stats()
+        val transmit = stats.stages.first { it.name == "transmit" }
+        assertEquals(EPOCHS.toLong(), stats.ingested)
+        assertTrue("transmit depth ${transmit.maxDepth}", transmit.maxDepth <= TRANSMIT_CAPACITY)
+        assertTrue("a 5/s backend cannot take 20/s", transmit.dropped > 0)
+        assertEquals(EPOCHS.toLong(), transmit.accepted)
+        assertEquals(transmit.processed, received.size.toLong())
+        assertEquals(EPOCHS.toLong(), transmit.processed + transmit.dropped)
+        // Oldest dropped first: the latest position still reaches the backend
+        assertEquals("epoch-${EPOCHS - 1}", received.last())
+        assertEquals(received.sortedBy { it.removePrefix("epoch-").toInt() }, received)
+    }
+
+    @Test
+    fun blockingTransmitPushesBackToNormalize() {
+        val policyCalls = Collections.synchronizedList(mutableListOf<String>())
+        val pipeline = pipeline(
+            PipelineConfig(
+                normalize = StageConfig(4, OverflowStrategy.DROP_OLDEST),
+                policy = StageConfig(4, OverflowStrategy.BLOCK),
+                encode = StageConfig(4, OverflowStrategy.BLOCK),
+                transmit = StageConfig(4, OverflowStrategy.BLOCK)
+            ),
+            policyCalls
+        )
+        submitAt20Hz(pipeline, EPOCHS)
+        pipeline.stop(10_000L)
+
+        val stages = pipeline.stats().stages.associateBy { it.name }
+        // Nothing is lost after policy; the backlog is shed where epochs come in
+        assertEquals(0L, stages.getValue("transmit").dropped)
+        assertTrue(stages.getValue("normalize").dropped > 0)
+        assertTrue(stages.getValue("encode").blockedMs > 0)
+        assertEquals(policyCalls.size, received.size)
+        assertEquals("epoch-${EPOCHS - 1}", received.last())
+    }
+
+    private fun payload(i: Int) = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "epoch-$i",
+        latitude = 26.1445,
+        longitude = 91.7362,
+        battery = 80,
+        fixType = "RTK_FIXED",
+        timestamp = "2026-10-18T06:30:00Z",
+        health = "OK",
+        horizontalAccuracy = 0.02,
+        verticalAccuracy = 0.03,
+        satellites = 20
+    )
+
+    private companion object {
+        const val EPOCHS = 40
+        const val SERVICE_MS = 200L
+        const val TRANSMIT_CAPACITY = 4
+    }
+}
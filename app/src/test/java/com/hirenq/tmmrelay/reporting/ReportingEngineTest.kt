@@ -0,0 +1,150 @@
+package com.hirenq.tmmrelay.reporting
+
+import com.hirenq.tmmrelay.model.ReportingConfig
+import com.hirenq.tmmrelay.reporting.ReportingEngine.Companion.REASON_FIRST
+import com.hirenq.tmmrelay.reporting.ReportingEngine.Companion.REASON_HEARTBEAT
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+/** [ReportingEngine] with the default triggers, one trigger at a time against a reported start point. */
+class ReportingEngineTest {
+
+    private val config = ReportingConfig()
+
+    /** A sample [northMetres] north of the start point, [seconds] after it. */
+    private fun sample(
+        seconds: Double,
+        northMetres: Double = 0.0,
+        fixType: String = "RTK_FIXED",
+        headingDegrees: Double = Double.NaN,
+        speedMps: Double = Double.NaN,
+        staticEpochs: Int = -1,
+        horizontalAccuracy: Double = 0.02
+    ) = ReportingSample(
+        timeMillis = START_MS + (seconds * 1000).toLong(),
+        latitude = LATITUDE + northMetres / METRES_PER_DEGREE,
+        longitude = LONGITUDE,
+        fixType = fixType,
+        horizontalAccuracy = horizontalAccuracy,
+        headingDegrees = headingDegrees,
+        speedMps = speedMps,
+        staticEpochs = staticEpochs
+    )
+
+    /** An engine that has already reported [first]. */
+    private fun engine(config: ReportingConfig = this.config, first: ReportingSample = sample(0.0)) =
+        ReportingEngine(config).also { assertEquals(REASON_FIRST, it.evaluate(first)) }
+
+    @Test
+    fun firstSampleIsReportedAgainAfterReset() {
+        val engine = engine()
+        assertNull(engine.evaluate(sample(1.0)))
+
+        engine.reset()
+
+        assertEquals(REASON_FIRST, engine.evaluate(sample(2.0)))
+    }
+
+    @Test
+    fun distanceFiresPastTheThresholdAndTheAccuracy() {
+        val engine = engine()
+        assertNull(engine.evaluate(sample(10.0, northMetres = 20.0)))
+        assertEquals("distance", engine.evaluate(sample(11.0, northMetres = 30.0)))
+
+        // 30 m is inside a 40 m accuracy circle, so it is not yet movement
+        val vague = engine(first = sample(0.0, horizontalAccuracy = 40.0))
+        assertNull(vague.evaluate(sample(10.0, northMetres = 30.0, horizontalAccuracy = 40.0)))
+        assertEquals("distance", vague.evaluate(sample(11.0, northMetres = 45.0, horizontalAccuracy = 40.0)))
+    }
+
+    @Test
+    fun headingFiresOnATurnOnlyWhileMoving() {
+        val engine = engine(first = sample(0.0, headingDegrees = 350.0, speedMps = 2.0))
+
+        assertNull(engine.evaluate(sample(1.0, headingDegrees = 10.0, speedMps = 2.0)))
+        assertNull(engine.evaluate(sample(2.0, headingDegrees = 60.0, speedMps = 0.5)))
+        assertEquals("heading", engine.evaluate(sample(3.0, headingDegrees = 20.0, speedMps = 2.0)))
+    }
+
+    @Test
+    fun speedIntervalShrinksWithSpeed() {
+        // Distance is off so only the interval decides; 50 m per report at 10 m/s is every 5 s
+        val engine = engine(config.copy(minDistanceMetres = 0.0))
+
+        assertNull(engine.evaluate(sample(4.9, speedMps = 10.0)))
+        assertEquals("speed-interval", engine.evaluate(sample(5.0, speedMps = 10.0)))
+        // At 50 m/s the interval would be 1 s, but not under minIntervalMs
+        assertNull(engine.evaluate(sample(9.9, speedMps = 50.0)))
+        assertEquals("speed-interval", engine.evaluate(sample(10.0, speedMps = 50.0)))
+    }
+
+    @Test
+    fun fixChangeFiresBothWays() {
+        val engine = engine()
+
+        assertEquals("fix-change", engine.evaluate(sample(1.0, fixType = "RTK_FLOAT")))
+        assertNull(engine.evaluate(sample(2.0, fixType = "RTK_FLOAT")))
+        assertEquals("fix-change", engine.evaluate(sample(3.0, fixType = "RTK_FIXED")))
+    }
+
+    @Test
+    fun heartbeatFiresWhenNothingElseDoes() {
+        val engine = engine()
+
+        assertNull(engine.evaluate(sample(299.9)))
+        assertEquals(REASON_HEARTBEAT, engine.evaluate(sample(300.0)))
+        assertNull(engine.evaluate(sample(599.9)))
+        assertEquals(REASON_HEARTBEAT, engine.evaluate(sample(600.0)))
+    }
+
+    @Test
+    fun stationaryReceiverOnlyReportsFixChangesAndTheLongHeartbeat() {
+        val static = config.stationaryEpochs
+        val engine = engine(first = sample(0.0, staticEpochs = static))
+
+        // Drift, a turn and speed noise are all ignored while the receiver says it is static
+        assertNull(engine.evaluate(sample(10.0, northMetres = 30.0, staticEpochs = static)))
+        assertNull(
+            engine.evaluate(sample(11.0, headingDegrees = 90.0, speedMps = 10.0, staticEpochs = static))
+        )
+        assertNull(engine.evaluate(sample(300.0, staticEpochs = static)))
+        assertEquals("fix-change", engine.evaluate(sample(301.0, fixType = "RTK_FLOAT", staticEpochs = static)))
+        assertNull(engine.evaluate(sample(301.0 + 1799.9, fixType = "RTK_FLOAT", staticEpochs = static)))
+        assertEquals(
+            REASON_HEARTBEAT,
+            engine.evaluate(sample(301.0 + 1800.0, fixType = "RTK_FLOAT", staticEpochs = static))
+        )
+    }
+
+    @Test
+    fun movementResumesOneEpochShortOfStationary() {
+        val engine = engine(first = sample(0.0, staticEpochs = config.stationaryEpochs))
+
+        assertNull(engine.evaluate(sample(1.0, northMetres = 30.0, staticEpochs = config.stationaryEpochs)))
+        assertEquals(
+            "distance",
+            engine.evaluate(sample(2.0, northMetres = 30.0, staticEpochs = config.stationaryEpochs - 1))
+        )
+    }
+
+    @Test
+    fun simplifiedTrackLeavesGeometryToTheSimplifier() {
+        val engine = engine(config.copy(simplifyTrack = true))
+
+        assertNull(engine.evaluate(sample(10.0, northMetres = 100.0, headingDegrees = 90.0, speedMps = 10.0)))
+        assertEquals("fix-change", engine.evaluate(sample(11.0, fixType = "RTK_FLOAT")))
+
+        // A point kept by the simplifier restarts the heartbeat
+        engine.markReported(sample(200.0, fixType = "RTK_FLOAT"))
+        assertNull(engine.evaluate(sample(311.0, fixType = "RTK_FLOAT")))
+        assertEquals(REASON_HEARTBEAT, engine.evaluate(sample(500.0, fixType = "RTK_FLOAT")))
+    }
+
+    private companion object {
+        const val START_MS = 1_792_300_000_000L
+        const val LATITUDE = 52.2053
+        const val LONGITUDE = 0.1218
+        const val METRES_PER_DEGREE = 111_195.0
+    }
+}
@@ -0,0 +1,183 @@
+package com.hirenq.tmmrelay.reporting
+
+import com.hirenq.tmmrelay.model.ReportingConfig
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.cos
+
+/** [TrackSimplifier] on synthetic 10 Hz tracks, alone and wired to [ReportingEngine] as the service does. */
+class TrackSimplifierTest {
+
+    private val kept = mutableListOf<ReportingSample>()
+    private val keep: (ReportingSample) -> Unit = { kept += it }
+
+    private fun simplifier(maxGapMs: Long = Long.MAX_VALUE) =
+        TrackSimplifier<ReportingSample>(MIN_TOLERANCE_METRES, PRECISION_FACTOR, maxGapMs)
+
+    /** A sample [northMetres] and [eastMetres] from the origin, at epoch [n] of a 10 Hz track. */
+    private fun at(
+        n: Int,
+        northMetres: Double,
+        eastMetres: Double = 0.0,
+        accuracy: Double = 0.01,
+        fixType: String = "RTK_FIXED",
+        staticEpochs: Int = -1,
+        periodMs: Long = 100L
+    ) = ReportingSample(
+        timeMillis = START_MS + n * periodMs,
+        latitude = LATITUDE + northMetres / METRES_PER_DEGREE,
+        longitude = LONGITUDE + eastMetres / (METRES_PER_DEGREE * cos(Math.toRadians(LATITUDE))),
+        fixType = fixType,
+        horizontalAccuracy = accuracy,
+        staticEpochs = staticEpochs
+    )
+
+    /** Asserts that [actual] is within the simplifier's tolerance of the true corner [expected]. */
+    private fun assertNear(expected: ReportingSample, actual: ReportingSample) {
+        val metres = distanceMetres(expected, actual)
+        assertTrue("kept point $metres m from the corner", metres <= MIN_TOLERANCE_METRES)
+    }
+
+    private fun TrackSimplifier<ReportingSample>.run(track: List<ReportingSample>) {
+        track.forEach { offer(it, it, keep) }
+        flush(keep)
+    }
+
+    @Test
+    fun straightTrackCollapsesToItsEndpoints() {
+        // A metre an epoch due north, wandering half a metre either side
+        val track = (0 until 200).map {
+            at(it, northMetres = it.toDouble(), eastMetres = if (it % 2 == 0) 0.5 else -0.5)
+        }
+
+        simplifier().run(track)
+
+        assertEquals(listOf(track.first(), track.last()), kept)
+    }
+
+    @Test
+    fun rightAngleKeepsTheCorner() {
+        val north = (0..50).map { at(it, northMetres = it.toDouble()) }
+        val east = (1..50).map { at(50 + it, northMetres = 50.0, eastMetres = it.toDouble()) }
+
+        simplifier().run(north + east)
+
+        // The turn is seen once the track leaves the sleeve, so the kept point is just past the corner
+        assertEquals(3, kept.size)
+        assertEquals(north.first(), kept[0])
+        assertNear(north.last(), kept[1])
+        assertEquals(east.last(), kept[2])
+    }
+
+    @Test
+    fun doublingBackKeepsTheTurn() {
+        // Out and back along the same line: every bearing fits, only the distance gives it away
+        val out = (0..50).map { at(it, northMetres = it.toDouble()) }
+        val back = (1..50).map { at(50 + it, northMetres = 50.0 - it) }
+
+        simplifier().run(out + back)
+
+        assertEquals(3, kept.size)
+        assertEquals(out.first(), kept[0])
+        assertNear(out.last(), kept[1])
+        assertEquals(back.last(), kept[2])
+    }
+
+    @Test
+    fun toleranceFollowsHorizontalPrecision() {
+        // Zig-zagging 3 m either side of a line: corners at 2 cm precision, noise at 2.5 m
+        fun track(accuracy: Double) = (0 until 100).map {
+            val east = when (it % 4) {
+                1 -> 3.0
+                3 -> -3.0
+                else -> 0.0
+            }
+            at(it, northMetres = it * 5.0, eastMetres = east, accuracy = accuracy)
+        }
+
+        simplifier().run(track(0.02))
+        assertTrue("kept ${kept.size}", kept.size > 50)
+
+        kept.clear()
+        // 3 x 2.5 m = 7.5 m, wider than the zig-zag
+        val noisy = track(2.5)
+        simplifier().run(noisy)
+        assertEquals(listOf(noisy.first(), noisy.last()), kept)
+    }
+
+    @Test
+    fun cornerOnTheGapBoundaryIsKept() {
+        // The corner is the last epoch before the gap forces a point; it must not be skipped
+        val north = (0..49).map { at(it, northMetres = it.toDouble()) }
+        val east = (1..20).map { at(49 + it, northMetres = 49.0, eastMetres = it * 5.0) }
+        assertEquals(5_000L, east.first().timeMillis - north.first().timeMillis)
+
+        simplifier(maxGapMs = 5_000L).run(north + east)
+
+        assertEquals(listOf(north.first(), north.last(), east.first()), kept.take(3))
+    }
+
+    /** The service's policy: the engine decides fix changes and heartbeats, the simplifier geometry. */
+    private fun runWithEngine(
+        track: List<ReportingSample>,
+        config: ReportingConfig = ReportingConfig(simplifyTrack = true)
+    ) {
+        val engine = ReportingEngine(config)
+        val simplifier = simplifier()
+        val queue: (ReportingSample) -> Unit = { sample ->
+            engine.markReported(sample)
+            kept += sample
+        }
+        for (sample in track) {
+            if (engine.evaluate(sample) != null) simplifier.keep(sample, sample, queue)
+            else simplifier.offer(sample, sample, queue)
+        }
+    }
+
+    @Test
+    fun fixChangeIsReportedOnAStraightTrack() {
+        val track = (0 until 600).map {
+            at(it, northMetres = it.toDouble(), fixType = if (it < 300) "RTK_FIXED" else "RTK_FLOAT")
+        }
+
+        runWithEngine(track)
+
+        assertEquals(listOf(track[0], track[300]), kept)
+    }
+
+    @Test
+    fun stationaryReceiverStillSendsItsHeartbeat() {
+        val config = ReportingConfig(simplifyTrack = true)
+        // 40 minutes parked at 1 Hz, the receiver reporting static the whole time
+        val track = (0 until 40 * 60).map {
+            at(it, northMetres = 0.0, staticEpochs = config.stationaryEpochs + it, periodMs = 1_000L)
+        }
+
+        runWithEngine(track, config)
+
+        assertEquals(listOf(track[0], track[30 * 60]), kept)
+    }
+
+    @Test
+    fun movingHeartbeatCountsFromTheLastKeptPoint() {
+        // North for a minute, then east for nine: the corner restarts the five-minute heartbeat
+        val north = (0 until 600).map { at(it, northMetres = it * 0.1) }
+        val east = (1..5400).map { at(599 + it, northMetres = 59.9, eastMetres = it * 0.1) }
+
+        runWithEngine(north + east)
+
+        val corner = kept[1]
+        assertNear(north.last(), corner)
+        assertEquals(corner.timeMillis + 5 * 60_000L, kept[2].timeMillis)
+    }
+
+    private companion object {
+        const val MIN_TOLERANCE_METRES = 2.0
+        const val PRECISION_FACTOR = 3.0
+        const val START_MS = 1_792_300_000_000L
+        const val LATITUDE = 52.2053
+        const val LONGITUDE = 0.1218
+        const val METRES_PER_DEGREE = 111_195.0
+    }
+}
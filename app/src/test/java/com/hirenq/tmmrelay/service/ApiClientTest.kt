@@ -0,0 +1,192 @@
+package com.hirenq.tmmrelay.service
+
+import com.hirenq.tmmrelay.model.BatchUploadConfig
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.outbox.DeliveryStatus.DELIVERED
+import com.hirenq.tmmrelay.outbox.DeliveryStatus.REJECTED
+import com.hirenq.tmmrelay.outbox.DeliveryStatus.RETRY
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.json.JSONArray
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/** [ApiClient.sendBatch] against a local server: batching, endpoint fallbacks and per-record outcomes. */
+class ApiClientTest {
+
+    private val server = MockWebServer()
+    private val config = BatchUploadConfig(enabled = true)
+
+    private fun payload(i: Int) = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "device-$i",
+        latitude = 52.1 + i * 1e-5,
+        longitude = -1.9,
+        battery = 80,
+        fixType = "RTK_FIXED",
+        timestamp = "2026-10-18T10:00:0${i % 10}Z",
+        health = "OK",
+        horizontalAccuracy = 0.012,
+        verticalAccuracy = 0.02,
+        satellites = 18
+    )
+
+    private val payloads = (0 until 5).map(::payload)
+
+    @Before
+    fun setUp() {
+        server.start()
+        ApiClient.baseUrl = server.url("/api/").toString()
+        ApiClient.resetBackendState()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+        ApiClient.resetBackendState()
+    }
+
+    private fun ok(body: String = "") = MockResponse().setResponseCode(200).setBody(body)
+
+    private fun paths(): List<String> = List(server.requestCount) { server.takeRequest().path!! }
+
+    @Test
+    fun batchGoesOutAsOneRequest() {
+        server.enqueue(ok("""{"results":[201,201,201,201,201]}"""))
+
+        val statuses = ApiClient.sendBatch(payloads, config = config)
+
+        assertEquals(List(5) { DELIVERED }, statuses)
+        val request = server.takeRequest()
+        assertEquals("/api/pushdata/batch", request.path)
+        assertEquals(5, JSONArray(request.body.readUtf8()).length())
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun recordsPastMaxBytesAreLeftForTheNextBatch() {
+        val small = config.copy(maxBytes = 600)
+        var remaining = payloads
+        val sizes = mutableListOf<Int>()
+        while (remaining.isNotEmpty()) {
+            server.enqueue(ok())
+            val statuses = ApiClient.sendBatch(remaining, config = small)
+            assertEquals(statuses.size, JSONArray(server.takeRequest().body.readUtf8()).length())
+            sizes += statuses.size
+            remaining = remaining.drop(statuses.size)
+        }
+
+        assertEquals(payloads.size, sizes.sum())
+        assertTrue(sizes.size > 1 && sizes.all { it > 0 })
+    }
+
+    @Test
+    fun missingBatchEndpointFallsBackToSinglePosts() {
+        for (code in listOf(404, 405, 501)) {
+            ApiClient.resetBackendState()
+            server.enqueue(MockResponse().setResponseCode(code))
+            repeat(payloads.size) { server.enqueue(ok()) }
+            val before = server.requestCount
+
+            val statuses = ApiClient.sendBatch(payloads, config = config)
+
+            assertEquals("after $code", List(5) { DELIVERED }, statuses)
+            assertEquals("after $code", 1 + payloads.size, server.requestCount - before)
+            assertEquals("/api/pushdata/batch", server.takeRequest().path)
+            repeat(payloads.size) { assertEquals("/api/pushdata", server.takeRequest().path) }
+        }
+
+        // The endpoint stays written off: the next batch goes straight to single posts
+        server.enqueue(ok())
+        ApiClient.sendBatch(payloads.take(1), config = config)
+        assertEquals("/api/pushdata", server.takeRequest().path)
+    }
+
+    @Test
+    fun singlePostsStopAtTheFirstFailure() {
+        server.enqueue(MockResponse().setResponseCode(404))
+        server.enqueue(ok())
+        server.enqueue(MockResponse().setResponseCode(503))
+
+        val statuses = ApiClient.sendBatch(payloads, config = config)
+
+        assertEquals(listOf(DELIVERED, RETRY), statuses)
+        assertEquals(3, server.requestCount)
+    }
+
+    @Test
+    fun tooLargeBatchIsSplitIntoSinglePosts() {
+        server.enqueue(MockResponse().setResponseCode(413))
+        repeat(payloads.size) { server.enqueue(ok()) }
+        server.enqueue(ok())
+
+        val statuses = ApiClient.sendBatch(payloads, config = config)
+        ApiClient.sendBatch(payloads, config = config)
+
+        assertEquals(List(5) { DELIVERED }, statuses)
+        val paths = paths()
+        assertEquals(listOf("/api/pushdata/batch") + List(5) { "/api/pushdata" }, paths.take(6))
+        // Unlike a missing endpoint, a 413 does not stop later batches
+        assertEquals("/api/pushdata/batch", paths[6])
+    }
+
+    @Test
+    fun perRecordOutcomesAreMapped() {
+        server.enqueue(ok("""{"results":[{"status":201},{"status":400},{"code":503},429,{}]}"""))
+
+        val statuses = ApiClient.sendBatch(payloads, config = config)
+
+        assertEquals(listOf(DELIVERED, REJECTED, RETRY, RETRY, RETRY), statuses)
+    }
+
+    @Test
+    fun bareArrayOfOutcomesIsAccepted() {
+        server.enqueue(ok("[200,200,422,200,200]"))
+
+        assertEquals(
+            listOf(DELIVERED, DELIVERED, REJECTED, DELIVERED, DELIVERED),
+            ApiClient.sendBatch(payloads, config = config)
+        )
+    }
+
+    @Test
+    fun emptySuccessBodyCountsAsDelivered() {
+        server.enqueue(ok())
+
+        assertEquals(List(5) { DELIVERED }, ApiClient.sendBatch(payloads, config = config))
+    }
+
+    @Test
+    fun unreadableOutcomesAreRetried() {
+        val bodies = listOf("""{"accepted":true}""", "<html>OK</html>", """{"results":[201,""")
+        for (body in bodies) {
+            server.enqueue(ok(body))
+
+            assertEquals(body, List(5) { RETRY }, ApiClient.sendBatch(payloads, config = config))
+        }
+    }
+
+    @Test
+    fun recordsMissingFromResultsAreRetried() {
+        server.enqueue(ok("""{"results":[201,201]}"""))
+
+        assertEquals(
+            listOf(DELIVERED, DELIVERED, RETRY, RETRY, RETRY),
+            ApiClient.sendBatch(payloads, config = config)
+        )
+    }
+
+    @Test
+    fun failedBatchKeepsEveryRecordAndNotesRetryAfter() {
+        server.enqueue(MockResponse().setResponseCode(503).setHeader("Retry-After", "30"))
+
+        val statuses = ApiClient.sendBatch(payloads, config = config)
+
+        assertEquals(List(5) { RETRY }, statuses)
+        assertNotNull(ApiClient.retryAfterMs())
+    }
+}
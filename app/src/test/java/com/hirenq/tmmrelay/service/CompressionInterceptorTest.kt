@@ -0,0 +1,164 @@
+package com.hirenq.tmmrelay.service
+
+import com.hirenq.tmmrelay.encoding.BufferRequestBody
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import okio.GzipSource
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/** [CompressionInterceptor] against a local server, with batch bodies as [ApiClient] builds them. */
+class CompressionInterceptorTest {
+
+    private val server = MockWebServer()
+    private val interceptor = CompressionInterceptor()
+    private val client = OkHttpClient.Builder().addInterceptor(interceptor).build()
+
+    @Before
+    fun setUp() {
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    /** A JSON array of [records] consecutive 1 Hz records from one receiver. */
+    private fun batch(records: Int): Buffer {
+        val body = Buffer()
+        for (i in 0 until records) {
+            body.writeByte(if (i == 0) '['.code else ','.code)
+            TelemetryJsonWriter.write(
+                TelemetryPayload(
+                    tenantId = "tenant",
+                    deviceId = "device-1",
+                    latitude = 52.123456789 + i * 1e-6,
+                    longitude = -1.987654321 - i * 2e-6,
+                    battery = 80,
+                    fixType = "RTK_FIXED",
+                    timestamp = "2026-10-18T10:%02d:%02dZ".format(i / 60, i % 60),
+                    health = "OK",
+                    horizontalAccuracy = 0.012,
+                    verticalAccuracy = 0.021,
+                    satellites = 18,
+                    pdop = 1.4,
+                    hdop = 0.8,
+                    vdop = 1.1
+                ),
+                body,
+                nowMillis = 1_792_000_000_000L
+            )
+        }
+        body.writeByte(']'.code)
+        return body
+    }
+
+    private fun post(body: Buffer): Int {
+        val request = Request.Builder()
+            .url(server.url("/pushdata/batch"))
+            .post(BufferRequestBody(body, "application/json".toMediaType()))
+            .build()
+        return client.newCall(request).execute().use { it.code }
+    }
+
+    private fun gunzip(request: RecordedRequest): String =
+        Buffer().also { it.writeAll(GzipSource(request.body)) }.readUtf8()
+
+    @Test
+    fun gzipBodyRoundTrips() {
+        server.enqueue(MockResponse())
+        val body = batch(50)
+        val plain = body.snapshot().utf8()
+
+        assertEquals(200, post(body))
+
+        val request = server.takeRequest()
+        assertEquals("gzip", request.getHeader("Content-Encoding"))
+        assertEquals(request.bodySize, request.getHeader("Content-Length")!!.toLong())
+        assertEquals(plain, gunzip(request))
+    }
+
+    @Test
+    fun compressionRatioGrowsWithBatchSize() {
+        // Measure the codec on every size, including one the default threshold sends as is
+        interceptor.minBytes = 0L
+        val sizes = listOf(1, 10, 50, 200).associateWith { records ->
+            server.enqueue(MockResponse())
+            val body = batch(records)
+            val plainBytes = body.size
+            post(body)
+            plainBytes to server.takeRequest().bodySize
+        }
+        val report = sizes.entries.joinToString("; ") { (records, bytes) ->
+            "$records records: ${bytes.first} -> ${bytes.second} bytes (%.1fx)".format(bytes.first.toDouble() / bytes.second)
+        }
+
+        // Repeated keys and slowly changing values. Measured: 1.3x for one record, 9.5x for
+        // 10, 23x for 50 and 30x for 200; a lone record only saves its header overhead
+        val ratio = sizes.mapValues { (_, bytes) -> bytes.first.toDouble() / bytes.second }
+        assertTrue(report, ratio.getValue(1) < 2.0)
+        assertTrue(report, ratio.getValue(10) > 5.0)
+        assertTrue(report, ratio.getValue(50) > 15.0)
+        assertTrue(report, ratio.getValue(200) >= ratio.getValue(50))
+    }
+
+    @Test
+    fun smallBodyIsSentAsIs() {
+        server.enqueue(MockResponse())
+        val body = batch(1)
+        val plain = body.snapshot().utf8()
+        assertTrue(body.size < CompressionInterceptor.DEFAULT_MIN_BYTES)
+
+        post(body)
+
+        val request = server.takeRequest()
+        assertNull(request.getHeader("Content-Encoding"))
+        assertEquals(plain, request.body.readUtf8())
+    }
+
+    @Test
+    fun unsupportedMediaTypeRetriesUncompressedAndTurnsCompressionOff() {
+        server.enqueue(MockResponse().setResponseCode(415))
+        server.enqueue(MockResponse().setResponseCode(201))
+        server.enqueue(MockResponse())
+        val body = batch(50)
+        val plain = body.snapshot().utf8()
+
+        assertEquals(201, post(body))
+
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"))
+        val retry = server.takeRequest()
+        assertNull(retry.getHeader("Content-Encoding"))
+        assertEquals(plain, retry.body.readUtf8())
+        assertFalse(interceptor.enabled)
+
+        // Later requests go out uncompressed without another round trip
+        post(batch(50))
+        assertNull(server.takeRequest().getHeader("Content-Encoding"))
+        assertEquals(3, server.requestCount)
+    }
+
+    @Test
+    fun compressionStaysOnWhenThePlainRetryIsRejectedToo() {
+        server.enqueue(MockResponse().setResponseCode(415))
+        server.enqueue(MockResponse().setResponseCode(415))
+
+        assertEquals(415, post(batch(50)))
+
+        assertEquals(2, server.requestCount)
+        assertTrue(interceptor.enabled)
+    }
+}
@@ -0,0 +1,167 @@
+package com.hirenq.tmmrelay.service
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import okio.ByteString.Companion.encodeUtf8
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.IOException
+
+/**
+ * [TmmMessageParser] against the JSONObject parse it replaced: every message must give the
+ * same payload as text, as a binary frame and through the DOM.
+ */
+class TmmMessageParserTest {
+
+    private val parser = TmmMessageParser()
+
+    /** The former `TmmWebSocketClient.onMessage`, as kept in `TmmMessageBenchmark.domPayload`. */
+    private fun domPayload(text: String): TelemetryPayload {
+        val json = JSONObject(text)
+        val latitude = json.optDouble("latitude", 0.0)
+        val longitude = json.optDouble("longitude", 0.0)
+        val fixType = json.optString("fixType", "NO_FIX")
+        val satellites = json.optInt("satellites", 0)
+        val hdop = json.optDouble("hdop", -1.0).takeIf { it > 0 }
+        return TelemetryPayload(
+            tenantId = TENANT_ID,
+            deviceId = DEVICE_ID,
+            latitude = latitude,
+            longitude = longitude,
+            battery = BATTERY,
+            fixType = fixType,
+            timestamp = TIMESTAMP,
+            health = TelemetryHealth.tmmHealth(latitude, longitude, fixType),
+            horizontalAccuracy = json.optDouble("horizontalAccuracy", -1.0),
+            verticalAccuracy = json.optDouble("verticalAccuracy", -1.0),
+            satellites = satellites,
+            receiverBattery = json.optInt("receiverBattery", json.optInt("battery", -1)).takeIf { it in 0..100 },
+            pdop = json.optDouble("pdop", -1.0).takeIf { it > 0 },
+            hdop = hdop,
+            vdop = json.optDouble("vdop", -1.0).takeIf { it > 0 },
+            receiverHealth = TelemetryHealth.tmmReceiverHealth(fixType, satellites, hdop)
+        )
+    }
+
+    private fun textPayload(text: String) =
+        parser.toPayload(parser.parse(text), TENANT_ID, DEVICE_ID, BATTERY, TIMESTAMP)
+
+    private fun bytesPayload(text: String) =
+        parser.toPayload(parser.parse(text.encodeUtf8()), TENANT_ID, DEVICE_ID, BATTERY, TIMESTAMP)
+
+    private fun assertMatchesDom(text: String) {
+        val expected = domPayload(text)
+        assertEquals(text, expected, textPayload(text))
+        assertEquals(text, expected, bytesPayload(text))
+    }
+
+    @Test
+    fun typicalMessage() {
+        assertMatchesDom(
+            """{"type":"position","latitude":52.123456789,"longitude":-1.987654321,"fixType":"RTK_FIXED",""" +
+                """"horizontalAccuracy":0.012,"verticalAccuracy":0.021,"satellites":18,"receiverBattery":76,""" +
+                """"pdop":1.4,"hdop":0.8,"vdop":1.1}"""
+        )
+    }
+
+    @Test
+    fun numericStrings() {
+        assertMatchesDom(
+            """{"latitude":"52.1","longitude":"-1.9","satellites":"18","horizontalAccuracy":"1.5e-2",""" +
+                """"receiverBattery":"64","hdop":"0.9","vdop":"abc","pdop":""}"""
+        )
+    }
+
+    @Test
+    fun nullAndBooleanLiterals() {
+        assertMatchesDom(
+            """{"latitude":null,"longitude":true,"satellites":false,"hdop":null,"receiverBattery":null,""" +
+                """"battery":55,"fixType":true}"""
+        )
+    }
+
+    @Test
+    fun nullFixTypeReadsAsTextLikeAndroidOptString() {
+        // Android's optString renders JSONObject.NULL as "null"; the JVM org.json falls back instead
+        assertEquals("null", parser.parse("""{"fixType":null}""").fixType)
+        assertEquals("null", parser.parse("""{"fixType":null}""".encodeUtf8()).fixType)
+    }
+
+    @Test
+    fun escapedKeysAndValues() {
+        assertMatchesDom(
+            """{"latitude":52.5,"longitude":"-1.25","fixType":"RTK_FLOAT \"2\"\n\\",""" +
+                """"sat\"ellites":99,"\\hdop":7,"satellites":21}"""
+        )
+    }
+
+    @Test
+    fun nestedObjectsAndArraysAreSkipped() {
+        assertMatchesDom(
+            """{"meta":{"latitude":1,"nested":[{"fixType":"X"},["}",{"]":"{"}]]},"latitude":52.2,""" +
+                """"hdop":[3],"vdop":{"value":2},"satellites":[],"longitude":0.5,"fixType":"DGPS"}"""
+        )
+    }
+
+    @Test
+    fun exponentsAndLongNumbers() {
+        assertMatchesDom(
+            """{"latitude":5.21234567890123456789E1,"longitude":-1.98765432109876543210,""" +
+                """"horizontalAccuracy":1.2e-2,"verticalAccuracy":2E-2,"pdop":0.00000000000000000012345,""" +
+                """"hdop":123456789012345678901234,"vdop":-0.0,"satellites":18.9}"""
+        )
+        for (value in listOf("52.123456789012345", "0.1", "1e308", "4.9e-324", "9007199254740993")) {
+            assertMatchesDom("""{"latitude":$value,"fixType":"RTK_FIXED"}""")
+        }
+    }
+
+    @Test
+    fun receiverBatteryTakesPrecedenceOverBattery() {
+        assertMatchesDom("""{"battery":40,"receiverBattery":70}""")
+        assertMatchesDom("""{"receiverBattery":70,"battery":40}""")
+        assertMatchesDom("""{"battery":40}""")
+        // Unreadable falls back to battery; readable but out of range is dropped without falling back
+        assertMatchesDom("""{"receiverBattery":"n/a","battery":40}""")
+        assertMatchesDom("""{"receiverBattery":140,"battery":40}""")
+    }
+
+    @Test
+    fun binaryFrameWithMultiByteText() {
+        assertMatchesDom("""{"fixType":"RTK_FIXÉ ✓","latitude":48.85,"note":"Straße 😀"}""")
+    }
+
+    @Test
+    fun reusedRecordDoesNotLeakFields() {
+        textPayload("""{"latitude":1.5,"hdop":2.0,"receiverBattery":50,"fixType":"RTK_FIXED"}""")
+
+        assertEquals(domPayload("{}"), textPayload("{}"))
+        assertEquals(domPayload(""" { } """), bytesPayload(""" { } """))
+    }
+
+    @Test
+    fun malformedFramesThrow() {
+        val frames = listOf(
+            "", "   ", "[]", "{", """{"latitude"}""", """{"latitude":}""", """{"latitude" 1}""",
+            """{"latitude":1,}""", """{"latitude":1 "longitude":2}""", """{"fixType":"RTK""",
+            """{"meta":[1,2}""", """{"fixType":"\u12"}""", """{"fixType":"\uZZZZ"}"""
+        )
+        for (frame in frames) {
+            for (parse in listOf({ parser.parse(frame) }, { parser.parse(frame.encodeUtf8()) })) {
+                try {
+                    parse()
+                    fail("accepted $frame")
+                } catch (e: IOException) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    private companion object {
+        const val TENANT_ID = "tenant"
+        const val DEVICE_ID = "device-1"
+        const val BATTERY = 80
+        const val TIMESTAMP = "2026-10-18T10:00:00Z"
+    }
+}
@@ -0,0 +1,98 @@
+package com.hirenq.tmmrelay.source
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/** Two 1 Hz sources half a second out of phase, the way Catalyst and TMM interleave. */
+class SourceArbiterTest {
+
+    private val selected = mutableListOf<String>()
+    private val arbiter = SourceArbiter(preferred = PREFERRED) { source, _ -> selected += source }
+
+    private fun payload(hAccuracy: Double, fixType: String = "RTK_FIXED") = TelemetryPayload(
+        tenantId = "tenant",
+        deviceId = "device-1",
+        latitude = 26.1445,
+        longitude = 91.7362,
+        battery = 80,
+        fixType = fixType,
+        timestamp = "2026-10-18T10:00:00Z",
+        health = "OK",
+        horizontalAccuracy = hAccuracy,
+        verticalAccuracy = hAccuracy * 2,
+        satellites = 20
+    )
+
+    /**
+     * Offers [seconds] of epochs: [PREFERRED] on the second, [OTHER] half a second later,
+     * with the precisions given per second.
+     */
+    private fun run(
+        seconds: IntRange,
+        preferred: (Int) -> TelemetryPayload?,
+        other: (Int) -> TelemetryPayload?
+    ) {
+        for (s in seconds) {
+            preferred(s)?.let { arbiter.offer(PREFERRED, it, nowNanos = s * SECOND) }
+            other(s)?.let { arbiter.offer(OTHER, it, nowNanos = s * SECOND + SECOND / 2) }
+        }
+    }
+
+    @Test
+    fun equalSourcesStayWithThePreferredOne() {
+        run(0 until 60, { payload(0.02) }, { payload(0.018) })
+
+        assertEquals(List(60) { PREFERRED }, selected)
+        assertEquals(0L, arbiter.stats().switches)
+    }
+
+    @Test
+    fun clearlyMorePreciseSourceKeepsTheStreamWithoutAlternating() {
+        run(0 until 60, { payload(0.04) }, { payload(0.015) })
+
+        // One epoch a second, not two: the preferred source does not take back each tie
+        assertEquals(listOf(PREFERRED) + List(60) { OTHER }, selected)
+        assertEquals(1L, arbiter.stats().switches)
+        assertEquals(59L, arbiter.stats().discarded)
+    }
+
+    @Test
+    fun preferredSourceTakesBackOnceTheGapCloses() {
+        run(0 until 10, { payload(0.04) }, { payload(0.015) })
+        run(10 until 20, { payload(0.04) }, { payload(0.03) })
+
+        // At 10 s the preferred epoch still meets the last, precise one; from 11 s the gap is closed
+        assertEquals(listOf(PREFERRED) + List(11) { OTHER } + List(9) { PREFERRED }, selected)
+        assertEquals(2L, arbiter.stats().switches)
+    }
+
+    @Test
+    fun betterSolutionClassTakesOver() {
+        run(0 until 5, { payload(0.3, fixType = "RTKFloat") }, { payload(0.5) })
+        run(5 until 10, { payload(0.02, fixType = "RTKFixed") }, { payload(0.5) })
+
+        assertEquals(listOf(PREFERRED) + List(5) { OTHER } + List(5) { PREFERRED }, selected)
+    }
+
+    @Test
+    fun silentSourceFailsOverAfterTheStall() {
+        run(0 until 5, { payload(0.02) }, { payload(0.05) })
+        // The preferred source drops out for five seconds
+        run(5 until 10, { null }, { payload(0.05) })
+        run(10 until 15, { payload(0.02) }, { payload(0.05) })
+
+        // The other epoch at 5.5 s comes 1.5 s after the last preferred one, past the stall window
+        assertEquals(
+            List(5) { PREFERRED } + List(5) { OTHER } + List(5) { PREFERRED },
+            selected
+        )
+        assertEquals(1L, arbiter.stats().stallFailovers)
+    }
+
+    private companion object {
+        const val PREFERRED = "catalyst"
+        const val OTHER = "tmm"
+        const val SECOND = 1_000_000_000L
+    }
+}
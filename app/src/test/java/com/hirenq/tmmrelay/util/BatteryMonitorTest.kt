@@ -0,0 +1,103 @@
+package com.hirenq.tmmrelay.util
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.ContextWrapper
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.BatteryManager
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * [BatteryMonitor] against a context that counts binder calls: registering the receiver
+ * is one, every sticky query (`registerReceiver(null, ...)`) another.
+ */
+class BatteryMonitorTest {
+
+    private var batteryPercent = 64
+    private var stickyQueries = 0
+    private var receiver: BroadcastReceiver? = null
+
+    private fun batteryChanged(level: Int, scale: Int = 100) = object : Intent() {
+        override fun getIntExtra(name: String?, defaultValue: Int): Int = when (name) {
+            BatteryManager.EXTRA_LEVEL -> level
+            BatteryManager.EXTRA_SCALE -> scale
+            BatteryManager.EXTRA_STATUS -> BatteryManager.BATTERY_STATUS_DISCHARGING
+            else -> defaultValue
+        }
+    }
+
+    private val context = object : ContextWrapper(null) {
+        override fun getApplicationContext(): Context = this
+
+        override fun registerReceiver(receiver: BroadcastReceiver?, filter: IntentFilter?): Intent? {
+            if (receiver == null) stickyQueries++ else this@BatteryMonitorTest.receiver = receiver
+            return batteryChanged(batteryPercent)
+        }
+
+        override fun unregisterReceiver(receiver: BroadcastReceiver?) {
+            this@BatteryMonitorTest.receiver = null
+        }
+    }
+
+    @Before
+    fun setUp() {
+        BatteryMonitor.start(context)
+    }
+
+    @After
+    fun tearDown() {
+        BatteryMonitor.stop()
+    }
+
+    @Test
+    fun readsWhileRunningNeedNoIpc() {
+        val before = BatteryMonitor.stickyReads.get()
+
+        repeat(10_000) { assertEquals(64, DeviceInfoUtil.batteryLevel(context)) }
+
+        assertEquals(before, BatteryMonitor.stickyReads.get())
+        assertEquals(0, stickyQueries)
+    }
+
+    @Test
+    fun broadcastUpdatesTheSnapshot() {
+        val before = BatteryMonitor.stickyReads.get()
+
+        assertNotNull(receiver)
+        receiver!!.onReceive(context, batteryChanged(level = 30, scale = 200))
+
+        assertEquals(15, BatteryMonitor.level(context))
+        assertEquals(before, BatteryMonitor.stickyReads.get())
+        assertEquals(0, stickyQueries)
+    }
+
+    @Test
+    fun staleSnapshotIsQueriedOnce() {
+        val before = BatteryMonitor.stickyReads.get()
+        batteryPercent = 41
+
+        assertEquals(41, BatteryMonitor.level(context, maxAgeMs = -1L))
+        assertEquals(41, BatteryMonitor.level(context))
+
+        assertEquals(before + 1, BatteryMonitor.stickyReads.get())
+        assertEquals(1, stickyQueries)
+    }
+
+    @Test
+    fun unknownLevelIsNotLowBattery() {
+        receiver!!.onReceive(context, batteryChanged(level = -1))
+
+        val level = BatteryMonitor.level(context)
+
+        assertEquals(-1, level)
+        assertEquals("OK", DeviceInfoUtil.health(level, "RTK_FIXED", null))
+        assertEquals("LOW_BATTERY", DeviceInfoUtil.health(0, "RTK_FIXED", null))
+        assertEquals("LOW_BATTERY", DeviceInfoUtil.health(19, "RTK_FIXED", null))
+        assertEquals("OK", DeviceInfoUtil.health(20, "RTK_FIXED", null))
+    }
+}
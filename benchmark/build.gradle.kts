@@ -0,0 +1,117 @@
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    id("me.champeau.jmh")
+}
+
+// JMH benchmarks of the relay hot path on a plain JVM.
+//
+// The app and facade sources below are compiled as-is; the Android and Trimble SDK
+// types they touch come from org.json and the stand-ins in src/main/java.
+//
+//   ./gradlew :benchmark:jmh
+//
+// writes build/results/jmh/<commit>.json (JMH JSON format) for per-commit tracking.
+
+val appSources = listOf(
+    "com/hirenq/tmmrelay/model/TelemetryPayload.kt",
+    "com/hirenq/tmmrelay/capture/CapturedEpoch.kt",
+    "com/hirenq/tmmrelay/capture/TrackStore.kt",
+    "com/hirenq/tmmrelay/service/CatalystTelemetry.kt",
+    "com/hirenq/tmmrelay/service/TelemetryHealth.kt",
+    "com/hirenq/tmmrelay/service/TmmMessageParser.kt",
+    "com/hirenq/tmmrelay/encoding/BufferRequestBody.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryJsonWriter.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryProtoWriter.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryDeltaEncoder.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryDeltaFormat.kt",
+    "com/hirenq/tmmrelay/model/ReportingConfig.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingEngine.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingSample.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingTrigger.kt",
+    "com/hirenq/tmmrelay/reporting/TrackSimplifier.kt"
+)
+
+val facadeSources = listOf(
+    "trimble/jssi/android/catalystfacade/CatalystEventLogFormat.java",
+    "trimble/jssi/android/catalystfacade/CatalystEventRecorder.java",
+    "trimble/jssi/android/catalystfacade/CatalystEventReplayer.java",
+    "trimble/jssi/android/catalystfacade/ICatalystEventListener.java",
+    "trimble/jssi/android/catalystfacade/IEnqueueTimeAware.java",
+    "trimble/jssi/android/catalystfacade/IPositionRecordListener.java",
+    "trimble/jssi/android/catalystfacade/ImuState.java",
+    "trimble/jssi/android/catalystfacade/ImuStateEvent.java",
+    "trimble/jssi/android/catalystfacade/PositionFieldGroup.java",
+    "trimble/jssi/android/catalystfacade/PositionObservationDecoder.java",
+    "trimble/jssi/android/catalystfacade/PositionRecord.java",
+    "trimble/jssi/android/catalystfacade/PositionUpdate.java",
+    "trimble/jssi/android/catalystfacade/PowerSourceState.java",
+    "trimble/jssi/android/catalystfacade/RtkConnectionStatus.java",
+    "trimble/jssi/android/catalystfacade/SatelliteUpdate.java",
+    "trimble/jssi/android/catalystfacade/SensorStateEvent.java",
+    "trimble/jssi/android/catalystfacade/SurveyType.java"
+)
+
+val demoSources = listOf(
+    "trimble/jssi/android/catalystfacade/catalystfacadedemo/PositionLogFormat.java",
+    "trimble/jssi/android/catalystfacade/catalystfacadedemo/PositionLogWriter.java",
+    "trimble/jssi/android/catalystfacade/catalystfacadedemo/PositionLogReader.java"
+)
+
+val sharedSources by tasks.registering(Sync::class) {
+    from(rootProject.file("app/src/main/java")) { include(appSources) }
+    from(rootProject.file("CatalystFacade/src/main/java")) { include(facadeSources) }
+    from(rootProject.file("CatalystFacadeDemo/src/main/java")) { include(demoSources) }
+    into(layout.buildDirectory.dir("shared-src"))
+}
+
+sourceSets {
+    main {
+        java.srcDir(sharedSources)
+        kotlin.srcDir(sharedSources)
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+kotlin {
+    jvmToolchain(17)
+}
+
+dependencies {
+    implementation("com.squareup.okio:okio:3.6.0")
+    implementation("com.squareup.okhttp3:okhttp:4.12.0")
+    implementation("com.google.protobuf:protobuf-java:3.25.1")
+    // Stands in for the org.json built into Android
+    implementation("org.json:json:20240303")
+    // Stands in for the Device API in CatalystReplayBenchmark
+    jmh("com.squareup.okhttp3:mockwebserver:4.12.0")
+}
+
+// Rewrites the replay fixture from the track; run after changing either or the event log format
+val generateReplayFixture by tasks.registering(JavaExec::class) {
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.hirenq.tmmrelay.benchmark.ReplayFixtureGeneratorKt")
+    args(file("src/jmh/resources/track-10hz.csv"), file("src/jmh/resources/catalyst-1hz.cev"))
+}
+
+val commit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("2s")
+    iterations.set(5)
+    timeOnIteration.set("2s")
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("ns")
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file(commit.map { "results/jmh/$it.json" }))
+}
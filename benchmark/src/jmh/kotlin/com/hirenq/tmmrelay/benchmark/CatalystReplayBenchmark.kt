@@ -0,0 +1,199 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import com.hirenq.tmmrelay.encoding.BufferRequestBody
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.model.ReportingConfig
+import com.hirenq.tmmrelay.reporting.ReportingEngine
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import com.hirenq.tmmrelay.service.CatalystTelemetry
+import okhttp3.HttpUrl
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import trimble.jssi.android.catalystfacade.CatalystEventReplayer
+import trimble.jssi.android.catalystfacade.ICatalystEventListener
+import trimble.jssi.android.catalystfacade.IPositionRecordListener
+import trimble.jssi.android.catalystfacade.ImuStateEvent
+import trimble.jssi.android.catalystfacade.PositionRecord
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import trimble.jssi.android.catalystfacade.PowerSourceState
+import trimble.jssi.android.catalystfacade.RtkConnectionStatus
+import trimble.jssi.android.catalystfacade.SatelliteUpdate
+import trimble.jssi.android.catalystfacade.SensorStateEvent
+import trimble.jssi.android.catalystfacade.SurveyType
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * One recorded receiver event from SDK callback to Device API response. `catalyst-1hz.cev`
+ * holds five minutes of 1 Hz epochs with 24-satellite updates, recorded by
+ * `CatalystEventRecorder` along the track of `track-10hz.csv` by `ReplayFixtureGenerator`.
+ * It is replayed at full speed into a listener that relays the way `CatalystClient`'s and
+ * the service's do: every epoch goes through a `ReportingEngine` with the default
+ * settings, and the ones it reports are posted as JSON to a local MockWebServer over a
+ * kept-alive connection.
+ */
+@State(Scope.Thread)
+open class CatalystReplayBenchmark {
+
+    /**
+     * `CatalystClient`'s listener without the Android parts: copy the epoch out of the
+     * shared record, build the payload, and post it if the engine reports it; satellite
+     * updates offer the last epoch again.
+     */
+    private class RelayListener(private val client: OkHttpClient, private val url: HttpUrl) :
+        ICatalystEventListener, IPositionRecordListener {
+
+        val engine = ReportingEngine(ReportingConfig())
+        var posts = 0L
+
+        private val position = CapturedEpoch()
+        private var hasPosition = false
+        private var satellitesInView = 0
+        private var receiverBattery: Int? = null
+        private var sensorState: String? = null
+        private val body = Buffer()
+
+        override fun onPositionRecord(positionRecord: PositionRecord) {
+            position.copyFrom(positionRecord, System.nanoTime())
+            hasPosition = true
+            relay()
+        }
+
+        override fun onPositionUpdate(positionUpdate: PositionUpdate) {
+            position.copyFrom(positionUpdate, System.nanoTime())
+            hasPosition = true
+            relay()
+        }
+
+        override fun onSatelliteUpdate(satelliteUpdate: SatelliteUpdate, satellitesInView: Int) {
+            this.satellitesInView = satellitesInView
+            if (hasPosition) relay()
+        }
+
+        override fun onPowerUpdate(powerSourceState: PowerSourceState) {
+            receiverBattery = powerSourceState.batteryLevel
+        }
+
+        override fun onSensorStateChanged(sensorStateEvent: SensorStateEvent) {
+            sensorState = sensorStateEvent.sensorState?.toString()
+        }
+
+        override fun onUsbConnectionErrorOccured() = Unit
+        override fun onSubscriptionHasExpired() = Unit
+        override fun onRtkServiceAvailable() = Unit
+        override fun onRtxServiceAvailable() = Unit
+        override fun onRtkConnectionStatusUpdate(rtkConnectionStatus: RtkConnectionStatus) = Unit
+        override fun onSurveyTypeUpdate(surveyType: SurveyType) = Unit
+        override fun onSensorOutsideGeofence() = Unit
+        override fun onImuStateChanged(imuStateEvent: ImuStateEvent) = Unit
+
+        private fun relay() {
+            val payload = CatalystTelemetry.payload(
+                Fixtures.TENANT_ID, Fixtures.DEVICE_ID, position, satellitesInView,
+                receiverBattery ?: 80, receiverBattery, sensorState, Fixtures.TIMESTAMP
+            )
+            val sample = ReportingSample(
+                timeMillis = position.utcTimeMillis,
+                latitude = payload.latitude,
+                longitude = payload.longitude,
+                fixType = payload.fixType,
+                horizontalAccuracy = payload.horizontalAccuracy,
+                headingDegrees = Math.toDegrees(position.heading),
+                speedMps = position.horizontalVelocity,
+                staticEpochs = position.staticEpochs
+            )
+            if (engine.evaluate(sample) == null) return
+
+            TelemetryJsonWriter.write(payload, body, 1_792_300_000_000L)
+            val request = Request.Builder()
+                .url(url)
+                .post(BufferRequestBody(body, JSON))
+                .build()
+            client.newCall(request).execute().use {
+                check(it.isSuccessful) { "POST failed with ${it.code}" }
+            }
+            body.clear()
+            posts++
+        }
+    }
+
+    private lateinit var file: File
+    private val server = MockWebServer()
+    private val received = AtomicInteger()
+    private val client = OkHttpClient()
+    private lateinit var listener: RelayListener
+    private lateinit var replayer: CatalystEventReplayer
+
+    @Setup
+    fun setUp() {
+        file = Files.createTempFile("catalyst-1hz", ".cev").toFile()
+        CatalystReplayBenchmark::class.java.getResourceAsStream("/catalyst-1hz.cev")!!.use { input ->
+            file.outputStream().use { input.copyTo(it) }
+        }
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                if (request.bodySize > 0) received.incrementAndGet()
+                return MockResponse().setResponseCode(201)
+            }
+        }
+        // The server queues every request it records; keep the bodies out of that queue
+        server.bodyLimit = 0L
+        server.start()
+        listener = RelayListener(client, server.url("/api/Device/pushdata"))
+        replayer = CatalystEventReplayer(file)
+
+        // The recording is what the operation count assumes, the engine skipped some epochs
+        // but not all, and every one it reported reached the server
+        val events = replay()
+        check(events == EVENTS.toLong()) { "expected $EVENTS events, replayed $events" }
+        val posts = listener.posts
+        check(posts in 1 until EPOCHS) { "expected some of $EPOCHS epochs reported, got $posts" }
+        check(received.get().toLong() == posts) { "reported $posts epochs, server got ${received.get()}" }
+    }
+
+    @TearDown(Level.Iteration)
+    fun drainRecordedRequests() {
+        while (server.takeRequest(0, TimeUnit.SECONDS) != null) Unit
+    }
+
+    @TearDown
+    fun tearDown() {
+        server.shutdown()
+        client.dispatcher.executorService.shutdown()
+        client.connectionPool.evictAll()
+        file.delete()
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    fun replay(): Long {
+        // Each replay repeats the same epoch times; start from no reported sample
+        listener.engine.reset()
+        return replayer.replay(listener, CatalystEventReplayer.MAX_SPEED)
+    }
+
+    private companion object {
+        val JSON = "application/json".toMediaType()
+
+        // In catalyst-1hz.cev: 300 positions each followed by a satellite update, plus state and power events
+        const val EVENTS = 608
+        // Positions and the satellite updates that re-offer them
+        const val EPOCHS = 600
+    }
+}
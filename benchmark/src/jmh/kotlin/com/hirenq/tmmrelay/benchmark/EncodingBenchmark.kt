@@ -0,0 +1,123 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaEncoder
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.encoding.TelemetryProtoWriter
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.service.CatalystTelemetry
+import okio.Buffer
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.AuxCounters
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.time.Instant
+import java.time.ZoneId
+import java.time.format.DateTimeFormatter
+
+/**
+ * Request body construction in ApiClient, per wire format. [orgJson] is the baseline
+ * the streaming JSON writer replaced: a `JSONObject` built per record, rendered to a
+ * String and encoded to UTF-8.
+ *
+ * Each format also counts the bytes it wrote and the records it encoded, so
+ * `wireBytes / records` in the JMH results is the mean record size on the wire.
+ */
+@State(Scope.Thread)
+open class EncodingBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    open class WireSize {
+        @JvmField
+        var wireBytes = 0L
+
+        @JvmField
+        var records = 0L
+
+        @Setup(Level.Iteration)
+        fun reset() {
+            wireBytes = 0L
+            records = 0L
+        }
+    }
+
+    private lateinit var payloads: Array<TelemetryPayload>
+    private val buffer = Buffer()
+    private val deltaEncoder = TelemetryDeltaEncoder()
+    private var i = 0
+
+    @Setup
+    fun setUp() {
+        val epochs = Fixtures.epochs()
+        payloads = Array(Fixtures.COUNT) {
+            CatalystTelemetry.payload(
+                Fixtures.TENANT_ID, Fixtures.DEVICE_ID, epochs[it], Fixtures.satellitesInView(it),
+                80, 80, "Connected", Fixtures.TIMESTAMP
+            )
+        }
+    }
+
+    private fun next(): TelemetryPayload = payloads[i++ and (Fixtures.COUNT - 1)]
+
+    private fun WireSize.count(buffer: Buffer): Long {
+        val size = buffer.size
+        wireBytes += size
+        records++
+        buffer.clear()
+        return size
+    }
+
+    @Benchmark
+    fun json(size: WireSize): Long {
+        TelemetryJsonWriter.write(next(), buffer, 1_792_300_000_000L)
+        return size.count(buffer)
+    }
+
+    @Benchmark
+    fun orgJson(size: WireSize): Long {
+        val payload = next()
+        val json = JSONObject().apply {
+            put("TenantId", payload.tenantId)
+            put("DeviceId", payload.deviceId)
+            put("Latitude", payload.latitude)
+            put("Longitude", payload.longitude)
+            put("Battery", payload.battery)
+            put("FixType", payload.fixType)
+            put("Timestamp", Instant.parse(payload.timestamp).toString())
+            put(
+                "CurrentTimestamp",
+                Instant.ofEpochMilli(1_792_300_000_000L).atZone(ZoneId.of("Asia/Kolkata"))
+                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX"))
+            )
+            put("Health", payload.health)
+            put("HorizontalAccuracy", payload.horizontalAccuracy)
+            put("VerticalAccuracy", payload.verticalAccuracy)
+            put("Satellites", payload.satellites)
+            payload.userId?.let { put("UserId", it) }
+            payload.userName?.let { put("UserName", it) }
+            payload.userEmail?.let { put("UserEmail", it) }
+            payload.receiverBattery?.let { put("ReceiverBattery", it) }
+            payload.receiverHealth?.let { put("ReceiverHealth", it) }
+            payload.pdop?.let { put("PDOP", it) }
+            payload.hdop?.let { put("HDOP", it) }
+            payload.vdop?.let { put("VDOP", it) }
+        }
+        buffer.writeUtf8(json.toString())
+        return size.count(buffer)
+    }
+
+    @Benchmark
+    fun protobuf(size: WireSize): Long {
+        TelemetryProtoWriter.write(next(), buffer, 1_792_300_000_000L)
+        return size.count(buffer)
+    }
+
+    @Benchmark
+    fun delta(size: WireSize): Long {
+        deltaEncoder.encode(next(), buffer)
+        return size.count(buffer)
+    }
+}
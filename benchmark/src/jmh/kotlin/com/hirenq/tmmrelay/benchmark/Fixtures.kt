@@ -0,0 +1,85 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import trimble.jssi.android.catalystfacade.ImuState
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType
+import trimble.jssi.interfaces.gnss.positioning.SolutionType
+import java.util.Date
+import java.util.Locale
+
+/**
+ * Inputs shared by the benchmarks: a walk of [COUNT] epochs with varying fix quality, so
+ * that every branch of the health rules is taken and nothing folds to a constant.
+ */
+object Fixtures {
+
+    const val COUNT = 64
+    const val TENANT_ID = "tenant-benchmark"
+    const val DEVICE_ID = "device-0001"
+    const val TIMESTAMP = "2026-10-18T06:30:00.125Z"
+
+    private val solutions = arrayOf(
+        SolutionType.RtkFixed, SolutionType.RtkFixed, SolutionType.RtkFloat,
+        SolutionType.Autonomous, SolutionType.Dgps, SolutionType.Invalid
+    )
+
+    fun epochs(): Array<CapturedEpoch> = Array(COUNT) { i ->
+        CapturedEpoch().apply {
+            utcTimeMillis = 1_792_300_000_000L + i * 1000L
+            solution = solutions[i % solutions.size]
+            latitude = Math.toRadians(18.5204 + i * 1e-6)
+            longitude = Math.toRadians(73.8567 + i * 1e-6)
+            height = 560.0 + i * 0.01
+            hPrecision = if (i % 17 == 0) Double.NaN else 0.01 + (i % 8) * 0.4
+            vPrecision = 0.02 + (i % 8) * 0.5
+            pdop = 1.1 + (i % 5) * 0.3
+            hdop = 0.7 + (i % 5) * 0.2
+            vdop = 0.9 + (i % 5) * 0.2
+            heading = Math.toRadians(i * 5.0)
+            horizontalVelocity = (i % 4) * 0.5
+            staticEpochs = i % 3
+        }
+    }
+
+    fun satellitesInView(i: Int): Int = 3 + (i % 20)
+
+    /** TMM WebSocket messages, as the receiver sends them. */
+    fun tmmMessages(): Array<String> = Array(COUNT) { i ->
+        String.format(
+            Locale.ROOT,
+            "{\"type\":\"position\",\"latitude\":%.9f,\"longitude\":%.9f,\"altitude\":%.3f," +
+                "\"fixType\":\"%s\",\"horizontalAccuracy\":%.3f,\"verticalAccuracy\":%.3f,\"satellites\":%d," +
+                "\"receiverBattery\":%d,\"pdop\":%.2f,\"hdop\":%.2f,\"vdop\":%.2f,\"timestamp\":\"%s\"}",
+            18.5204 + i * 1e-6, 73.8567 + i * 1e-6, 560.0 + i * 0.01,
+            if (i % 6 == 5) "NO_FIX" else "RTK_FIXED", 0.01 + (i % 8) * 0.4, 0.02 + (i % 8) * 0.5,
+            satellitesInView(i), 40 + i % 60, 1.1 + (i % 5) * 0.3, 0.7 + (i % 5) * 0.6, 0.9 + (i % 5) * 0.2, TIMESTAMP
+        )
+    }
+
+    fun positionUpdate(i: Int): PositionUpdate = PositionUpdate(
+        Fixtures, solutions[i % solutions.size], Math.toRadians(18.5204 + i * 1e-6), Math.toRadians(73.8567 + i * 1e-6),
+        560.0, GroundPositionType.Ellipsoidal, 0.3, 0.5, 0.0, 0.012, 0.02, 0.01, 0.008, 0.3, ImuState.values()[0],
+        0.01, 0.02, 0.03, 0.001, 0.001, 0.002, 1.2, 0.8, 0.9, Date(1_792_300_000_000L + i * 50L),
+        Date(1_792_300_000_000L + i * 50L), 24, 30, i, 1.0, i * 10L, 0, true, null, null, 498.0, "EGM2008"
+    )
+
+    /** The 10 Hz track in `track-10hz.csv`, one sample per line after the header. */
+    fun track10Hz(): Array<ReportingSample> {
+        val lines = Fixtures::class.java.getResourceAsStream("/track-10hz.csv")!!
+            .bufferedReader().use { it.readLines() }
+        return lines.drop(1).filter { it.isNotBlank() }.map { line ->
+            val f = line.split(',')
+            ReportingSample(
+                timeMillis = f[0].toLong(),
+                latitude = f[1].toDouble(),
+                longitude = f[2].toDouble(),
+                fixType = f[4],
+                horizontalAccuracy = f[3].toDouble(),
+                headingDegrees = f[6].toDouble(),
+                speedMps = f[5].toDouble()
+            )
+        }.toTypedArray()
+    }
+}
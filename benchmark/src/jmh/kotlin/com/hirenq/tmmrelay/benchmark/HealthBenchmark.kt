@@ -0,0 +1,34 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.service.TelemetryHealth
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+
+/** The health classification rules, over inputs that take every branch. */
+@State(Scope.Thread)
+open class HealthBenchmark {
+
+    private val fixTypes = arrayOf("RtkFixed", "RtkFloat", "Autonomous", "Dgps", "Invalid", "NO_FIX", "RTK_FIXED", "UNKNOWN")
+    private val precisions = doubleArrayOf(-1.0, 0.01, 0.4, 0.9, 1.5, 2.4, 3.0, 12.0)
+    private var i = 0
+
+    @Benchmark
+    fun catalyst(blackhole: Blackhole) {
+        val n = i++
+        val fixType = fixTypes[n and 7]
+        val satellites = n % 13
+        blackhole.consume(TelemetryHealth.catalystReceiverHealth(fixType, satellites, precisions[(n shr 3) and 7]))
+        blackhole.consume(TelemetryHealth.catalystHealth(18.52, 73.85, fixType, satellites, if (n and 31 == 0) "Error" else "Connected"))
+    }
+
+    @Benchmark
+    fun tmm(blackhole: Blackhole) {
+        val n = i++
+        val fixType = fixTypes[n and 7]
+        val hdop = if (n and 15 == 0) null else precisions[(n shr 3) and 7]
+        blackhole.consume(TelemetryHealth.tmmReceiverHealth(fixType, n % 13, hdop))
+        blackhole.consume(TelemetryHealth.tmmHealth(18.52, 73.85, fixType))
+    }
+}
@@ -0,0 +1,31 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.service.CatalystTelemetry
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+
+/** Epoch to payload, as CatalystClient.createAndSendTelemetry does it per relayed epoch. */
+@State(Scope.Thread)
+open class PayloadBenchmark {
+
+    private val epochs: Array<CapturedEpoch> = Fixtures.epochs()
+    private var i = 0
+
+    @Benchmark
+    fun catalystPayload(): TelemetryPayload {
+        val n = i++ and (Fixtures.COUNT - 1)
+        return CatalystTelemetry.payload(
+            tenantId = Fixtures.TENANT_ID,
+            deviceId = Fixtures.DEVICE_ID,
+            position = epochs[n],
+            satellitesInView = Fixtures.satellitesInView(n),
+            battery = 80,
+            receiverBattery = 80,
+            sensorState = "Connected",
+            timestamp = Fixtures.TIMESTAMP
+        )
+    }
+}
@@ -0,0 +1,76 @@
+package com.hirenq.tmmrelay.benchmark
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import trimble.jssi.android.catalystfacade.PositionFieldGroup
+import trimble.jssi.android.catalystfacade.PositionObservationDecoder
+import trimble.jssi.android.catalystfacade.PositionRecord
+import trimble.jssi.interfaces.gnss.positioning.GNSSObservationContainer
+import trimble.jssi.interfaces.gnss.positioning.GNSSObservationType
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType
+import trimble.jssi.interfaces.gnss.positioning.IMUAlignmentStatus
+import trimble.jssi.interfaces.gnss.positioning.RTKErrorStatus
+import trimble.jssi.interfaces.gnss.positioning.SolutionType
+import java.util.EnumSet
+
+/**
+ * The facade's decode of one positioning observation into the shared [PositionRecord],
+ * with every field group (`all`, what a listener that declares none gets) against the
+ * groups `CatalystClient` subscribes to (`relay`). The observation holds every type an
+ * RTK receiver with an IMU sends; the stand-in container builds each observation object
+ * when it is read, so skipped groups save that work.
+ */
+@State(Scope.Thread)
+open class PositionDecodeBenchmark {
+
+    @Param("all", "relay")
+    lateinit var groups: String
+
+    private val observation = GNSSObservationContainer()
+        .put(GNSSObservationType.SolutionType, SolutionType.RtkFixed.ordinal.toDouble())
+        .put(GNSSObservationType.GroundCoordinate, 52.2053, 0.1218, 61.2, GroundPositionType.Ellipsoidal.ordinal.toDouble())
+        .put(GNSSObservationType.GeoidUndulation, 45.9)
+        .put(GNSSObservationType.Velocity, 87.5, 1.4, 0.02)
+        .put(GNSSObservationType.Precision, 0.012, 0.021)
+        .put(GNSSObservationType.PositionSigma, 0.014, 0.009, 32.0)
+        .put(GNSSObservationType.DilutionOfPrecision, 1.4, 0.8, 1.1)
+        .put(GNSSObservationType.Tilt, 1.2, -0.4, 88.0)
+        .put(GNSSObservationType.TiltPrecision, 0.1, 0.1, 0.3)
+        .put(GNSSObservationType.Satellites, 24.0, 31.0)
+        .put(GNSSObservationType.CorrectionAge, 1.0)
+        .put(GNSSObservationType.ReferenceSource, 2020.0)
+        .put(GNSSObservationType.ReferenceSystem, 2026.8)
+        .put(GNSSObservationType.GPSTime, 1_792_300_018_000.0, 18.0)
+        .put(GNSSObservationType.Epoch, 0.0)
+        .put(GNSSObservationType.RTKStatus, RTKErrorStatus.None.ordinal.toDouble())
+        .put(GNSSObservationType.IMUAlignmentStatus, IMUAlignmentStatus.Fine.ordinal.toDouble())
+
+    private val record = PositionRecord()
+    private lateinit var decoder: PositionObservationDecoder
+
+    @Setup
+    fun setUp() {
+        decoder = when (groups) {
+            "all" -> PositionObservationDecoder()
+            "relay" -> PositionObservationDecoder(
+                EnumSet.of(
+                    PositionFieldGroup.Velocity,
+                    PositionFieldGroup.Precision,
+                    PositionFieldGroup.DilutionOfPrecision,
+                    PositionFieldGroup.Time,
+                    PositionFieldGroup.StaticEpochs
+                )
+            )
+            else -> throw IllegalArgumentException(groups)
+        }
+    }
+
+    @Benchmark
+    fun decode(): PositionRecord {
+        decoder.decode(observation, record, 0L, 0)
+        return record
+    }
+}
@@ -0,0 +1,101 @@
+package com.hirenq.tmmrelay.benchmark
+
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import trimble.jssi.android.catalystfacade.catalystfacadedemo.PositionLogReader
+import trimble.jssi.android.catalystfacade.catalystfacadedemo.PositionLogWriter
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.file.Files
+
+/**
+ * The demo's memory-mapped position log at 20 Hz: one position appended, including its
+ * block syncs, and reading back ten minutes of it after a crash cut the last block short.
+ */
+@State(Scope.Thread)
+open class PositionLogBenchmark {
+
+    /** Ten minutes of 20 Hz positions whose file ends in the middle of a block. */
+    @State(Scope.Benchmark)
+    open class TornLog {
+        lateinit var directory: File
+        lateinit var file: File
+
+        @Setup
+        fun write() {
+            directory = Files.createTempDirectory("position-log-torn").toFile()
+            val writer = PositionLogWriter(directory)
+            val updates = Array(Fixtures.COUNT) { Fixtures.positionUpdate(it) }
+            repeat(TORN_LOG_RECORDS) {
+                writer.appendPosition(START_MILLIS + it * 50L, updates[it and (Fixtures.COUNT - 1)], null, "ITRF2020", 2026.8)
+            }
+            file = writer.currentFile
+            writer.close()
+            RandomAccessFile(file, "rw").use {
+                // The file ends with its last block; cut that block half a record after its first
+                val lastBlock = it.length() - BLOCK_SIZE
+                it.setLength(lastBlock + BLOCK_HEADER_SIZE + RECORD_SIZE + RECORD_SIZE / 2)
+            }
+        }
+
+        @TearDown
+        fun delete() {
+            directory.deleteRecursively()
+        }
+    }
+
+    private lateinit var directory: File
+    private lateinit var writer: PositionLogWriter
+    private val updates: Array<PositionUpdate> = Array(Fixtures.COUNT) { Fixtures.positionUpdate(it) }
+    private val counter = object : PositionLogReader.Visitor {
+        var positions = 0L
+
+        override fun onPosition(record: PositionLogReader.Record) {
+            positions += record.gpsTimeMillis
+        }
+
+        override fun onEvent(logTimeMillis: Long, message: String) = Unit
+    }
+    private var i = 0
+    private var time = START_MILLIS
+
+    @Setup(Level.Iteration)
+    fun open() {
+        directory = Files.createTempDirectory("position-log").toFile()
+        writer = PositionLogWriter(directory)
+    }
+
+    @TearDown(Level.Iteration)
+    fun close() {
+        writer.close()
+        directory.deleteRecursively()
+    }
+
+    @Benchmark
+    fun append() {
+        time += 50
+        writer.appendPosition(time, updates[i++ and (Fixtures.COUNT - 1)], null, "ITRF2020", 2026.8)
+    }
+
+    @Benchmark
+    fun recoverTornLog(log: TornLog): Long {
+        val result = PositionLogReader.read(log.file, counter)
+        check(result.tornTail)
+        return result.records + counter.positions
+    }
+
+    private companion object {
+        const val START_MILLIS = 1_792_300_000_000L
+        const val TORN_LOG_RECORDS = 10 * 60 * 20
+
+        // PositionLogFormat's layout, which is package-private
+        const val RECORD_SIZE = 128L
+        const val BLOCK_HEADER_SIZE = 8L
+        const val BLOCK_SIZE = BLOCK_HEADER_SIZE + 64 * RECORD_SIZE
+    }
+}
@@ -0,0 +1,33 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.capture.CapturedEpoch
+import trimble.jssi.android.catalystfacade.PositionRecord
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+
+/**
+ * Cost of handing an epoch to a listener: a new PositionUpdate per epoch (legacy listeners)
+ * against the reused PositionRecord that CatalystClient copies into a CapturedEpoch.
+ */
+@State(Scope.Thread)
+open class PositionUpdateBenchmark {
+
+    // Only the facade fills a record; its defaults cost the same to copy as real values
+    private val record = PositionRecord()
+    private val epoch = CapturedEpoch()
+    private var i = 0
+
+    @Benchmark
+    fun construct(): PositionUpdate = Fixtures.positionUpdate(i++)
+
+    @Benchmark
+    fun fromRecord(): PositionUpdate = record.toPositionUpdate(this)
+
+    @Benchmark
+    fun copyRecord(): CapturedEpoch {
+        epoch.copyFrom(record, i++.toLong())
+        return epoch
+    }
+}
@@ -0,0 +1,66 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.service.TelemetryHealth
+import com.hirenq.tmmrelay.service.TmmMessage
+import com.hirenq.tmmrelay.service.TmmMessageParser
+import okio.ByteString
+import okio.ByteString.Companion.encodeUtf8
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+
+/**
+ * TmmWebSocketClient.onMessage: one TMM position message to a payload. `dom` is the former
+ * JSONObject parse, kept as the baseline for the streaming parser.
+ */
+@State(Scope.Thread)
+open class TmmMessageBenchmark {
+
+    private val messages = Fixtures.tmmMessages()
+    private val frames: Array<ByteString> = Array(messages.size) { messages[it].encodeUtf8() }
+    private val parser = TmmMessageParser()
+    private var i = 0
+
+    @Benchmark
+    fun dom(): TelemetryPayload = domPayload(messages[i++ and (Fixtures.COUNT - 1)])
+
+    @Benchmark
+    fun text(): TmmMessage = parser.parse(messages[i++ and (Fixtures.COUNT - 1)])
+
+    @Benchmark
+    fun bytes(): TmmMessage = parser.parse(frames[i++ and (Fixtures.COUNT - 1)])
+
+    @Benchmark
+    fun textToPayload(): TelemetryPayload = parser.toPayload(
+        parser.parse(messages[i++ and (Fixtures.COUNT - 1)]), Fixtures.TENANT_ID, Fixtures.DEVICE_ID, 80, Fixtures.TIMESTAMP
+    )
+
+    private fun domPayload(text: String): TelemetryPayload {
+        val json = JSONObject(text)
+        val latitude = json.optDouble("latitude", 0.0)
+        val longitude = json.optDouble("longitude", 0.0)
+        val fixType = json.optString("fixType", "NO_FIX")
+        val satellites = json.optInt("satellites", 0)
+        val hdop = json.optDouble("hdop", -1.0).takeIf { it > 0 }
+        return TelemetryPayload(
+            tenantId = Fixtures.TENANT_ID,
+            deviceId = Fixtures.DEVICE_ID,
+            latitude = latitude,
+            longitude = longitude,
+            battery = 80,
+            fixType = fixType,
+            timestamp = Fixtures.TIMESTAMP,
+            health = TelemetryHealth.tmmHealth(latitude, longitude, fixType),
+            horizontalAccuracy = json.optDouble("horizontalAccuracy", -1.0),
+            verticalAccuracy = json.optDouble("verticalAccuracy", -1.0),
+            satellites = satellites,
+            receiverBattery = json.optInt("receiverBattery", json.optInt("battery", -1)).takeIf { it in 0..100 },
+            pdop = json.optDouble("pdop", -1.0).takeIf { it > 0 },
+            hdop = hdop,
+            vdop = json.optDouble("vdop", -1.0).takeIf { it > 0 },
+            receiverHealth = TelemetryHealth.tmmReceiverHealth(fixType, satellites, hdop)
+        )
+    }
+}
@@ -0,0 +1,71 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.model.ReportingConfig
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import com.hirenq.tmmrelay.reporting.TrackSimplifier
+import org.openjdk.jmh.annotations.AuxCounters
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+
+/**
+ * One 10 Hz epoch through the streaming track simplifier, with the default tolerances.
+ *
+ * Replays `track-10hz.csv`: five minutes of RTK epochs walking round a block, with a
+ * stop and a spell of float, generated from a receiver noise model. The lap closes on
+ * itself, so laps are joined end to end into a day of 864,000 epochs, replayed from the
+ * start with a fresh simplifier each time round. [Kept.kept] over the operation count
+ * is the share of epochs posted.
+ */
+@State(Scope.Thread)
+open class TrackSimplifierBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    open class Kept {
+        @JvmField
+        var kept = 0L
+
+        @Setup(Level.Iteration)
+        fun reset() {
+            kept = 0L
+        }
+    }
+
+    private lateinit var day: Array<ReportingSample>
+    private val config = ReportingConfig()
+    private val simplifier = TrackSimplifier<ReportingSample>(
+        config.minCrossTrackMetres, config.precisionFactor, config.heartbeatMs
+    )
+    private var counter: Kept? = null
+    private val onKept: (ReportingSample) -> Unit = { counter!!.kept++ }
+    private var i = 0
+
+    @Setup
+    fun setUp() {
+        val lap = Fixtures.track10Hz()
+        val lapMs = lap.last().timeMillis - lap.first().timeMillis + 100L
+        val laps = (DAY_MS / lapMs).toInt()
+        day = Array(laps * lap.size) { n ->
+            val recorded = lap[n % lap.size]
+            recorded.copy(timeMillis = recorded.timeMillis + n / lap.size * lapMs)
+        }
+    }
+
+    @Benchmark
+    fun offer(kept: Kept) {
+        counter = kept
+        val sample = day[i]
+        simplifier.offer(sample, sample, onKept)
+        if (++i == day.size) {
+            i = 0
+            simplifier.reset()
+        }
+    }
+
+    private companion object {
+        const val DAY_MS = 24 * 60 * 60_000L
+    }
+}
@@ -0,0 +1,41 @@
+package com.hirenq.tmmrelay.benchmark
+
+import com.hirenq.tmmrelay.capture.TrackStore
+import com.hirenq.tmmrelay.capture.TrackWindowStats
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+
+/**
+ * Windowed statistics over a full [TrackStore]: a day of 1 Hz epochs that has wrapped
+ * round the ring, queried for the last minute, hour and day.
+ */
+@State(Scope.Thread)
+open class TrackStoreBenchmark {
+
+    @Param("60000", "3600000", "86400000")
+    var windowMs = 0L
+
+    private val store = TrackStore()
+    private var newest = 0L
+
+    @Setup
+    fun setUp() {
+        val epochs = Fixtures.epochs()
+        // Past capacity, so the oldest epoch is no longer at index 0
+        val total = TrackStore.DEFAULT_CAPACITY + TrackStore.DEFAULT_CAPACITY / 3
+        for (n in 0 until total) {
+            newest = START_MILLIS + n * 1000L
+            store.append(epochs[n and (Fixtures.COUNT - 1)], Fixtures.satellitesInView(n), newest)
+        }
+    }
+
+    @Benchmark
+    fun windowStats(): TrackWindowStats? = store.windowStats(windowMs, newest)
+
+    private companion object {
+        const val START_MILLIS = 1_792_300_000_000L
+    }
+}
@@ -0,0 +1,16 @@
+package android.util;
+
+/**
+ * Benchmark stand-in for the Android type of the same name; writes to standard error.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        System.err.println(tag + ": " + msg);
+        tr.printStackTrace();
+        return 0;
+    }
+}
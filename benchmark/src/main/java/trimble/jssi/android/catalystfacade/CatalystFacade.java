@@ -0,0 +1,13 @@
+package trimble.jssi.android.catalystfacade;
+
+/**
+ * Benchmark stand-in for the facade class of the same name, which needs the Trimble SDK;
+ * only the log tag the shared sources use.
+ */
+public final class CatalystFacade {
+
+    public static final String TAG = "JCatalystFacade";
+
+    private CatalystFacade() {
+    }
+}
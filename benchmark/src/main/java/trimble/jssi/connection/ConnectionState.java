@@ -0,0 +1,11 @@
+package trimble.jssi.connection;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name.
+ */
+public enum ConnectionState {
+    Disconnected,
+    Connecting,
+    Connected,
+    Disconnecting
+}
@@ -0,0 +1,28 @@
+package trimble.jssi.interfaces.gnss;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name.
+ */
+public final class Coordinates {
+    private final double latitude;
+    private final double longitude;
+    private final double height;
+
+    public Coordinates(double latitude, double longitude, double height) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.height = height;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+}
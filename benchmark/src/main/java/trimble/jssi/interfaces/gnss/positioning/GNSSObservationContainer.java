@@ -0,0 +1,24 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name. Holds each observation
+ * as raw values and builds the observation object on every {@link #getObservation} call,
+ * the way a container decoding from the receiver packet would.
+ */
+public final class GNSSObservationContainer {
+    private final double[][] values = new double[GNSSObservationType.COUNT][];
+
+    /** Stand-in only: sets the raw values of one observation. */
+    public GNSSObservationContainer put(GNSSObservationType<?> type, double... values) {
+        this.values[type.id] = values;
+        return this;
+    }
+
+    public boolean hasObservation(GNSSObservationType<?> type) {
+        return values[type.id] != null;
+    }
+
+    public <T> T getObservation(GNSSObservationType<T> type) {
+        return type.decode(values[type.id]);
+    }
+}
@@ -0,0 +1,62 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+import java.util.function.Function;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name: a typed key into a
+ * {@link GNSSObservationContainer}. The observation classes are in {@link GNSSObservations}.
+ */
+public final class GNSSObservationType<T> {
+    static final int COUNT = 20;
+
+    public static final GNSSObservationType<GNSSObservations.Solution> SolutionType =
+            new GNSSObservationType<>(0, GNSSObservations.Solution::new);
+    public static final GNSSObservationType<GNSSObservations.GroundCoordinate> GroundCoordinate =
+            new GNSSObservationType<>(1, GNSSObservations.GroundCoordinate::new);
+    public static final GNSSObservationType<GNSSObservations.Coordinate> Coordinate =
+            new GNSSObservationType<>(2, GNSSObservations.Coordinate::new);
+    public static final GNSSObservationType<GNSSObservations.GeoidUndulation> GeoidUndulation =
+            new GNSSObservationType<>(3, GNSSObservations.GeoidUndulation::new);
+    public static final GNSSObservationType<GNSSObservations.Velocity> Velocity =
+            new GNSSObservationType<>(4, GNSSObservations.Velocity::new);
+    public static final GNSSObservationType<GNSSObservations.Precision> Precision =
+            new GNSSObservationType<>(5, GNSSObservations.Precision::new);
+    public static final GNSSObservationType<GNSSObservations.PositionSigma> PositionSigma =
+            new GNSSObservationType<>(6, GNSSObservations.PositionSigma::new);
+    public static final GNSSObservationType<GNSSObservations.DilutionOfPrecision> DilutionOfPrecision =
+            new GNSSObservationType<>(7, GNSSObservations.DilutionOfPrecision::new);
+    public static final GNSSObservationType<GNSSObservations.DilutionOfPrecision> ExtendedDilutionOfPrecision =
+            new GNSSObservationType<>(8, GNSSObservations.DilutionOfPrecision::new);
+    public static final GNSSObservationType<GNSSObservations.Tilt> Tilt =
+            new GNSSObservationType<>(9, GNSSObservations.Tilt::new);
+    public static final GNSSObservationType<GNSSObservations.TiltPrecision> TiltPrecision =
+            new GNSSObservationType<>(10, GNSSObservations.TiltPrecision::new);
+    public static final GNSSObservationType<GNSSObservations.Satellites> Satellites =
+            new GNSSObservationType<>(11, GNSSObservations.Satellites::new);
+    public static final GNSSObservationType<GNSSObservations.CorrectionAge> CorrectionAge =
+            new GNSSObservationType<>(12, GNSSObservations.CorrectionAge::new);
+    public static final GNSSObservationType<GNSSObservations.Reference> ReferenceSource =
+            new GNSSObservationType<>(13, GNSSObservations.Reference::new);
+    public static final GNSSObservationType<GNSSObservations.Reference> ReferenceSystem =
+            new GNSSObservationType<>(14, GNSSObservations.Reference::new);
+    public static final GNSSObservationType<GNSSObservations.GpsTime> GPSTime =
+            new GNSSObservationType<>(15, GNSSObservations.GpsTime::new);
+    public static final GNSSObservationType<GNSSObservations.Epoch> Epoch =
+            new GNSSObservationType<>(16, GNSSObservations.Epoch::new);
+    public static final GNSSObservationType<GNSSObservations.RtkStatus> RTKStatus =
+            new GNSSObservationType<>(17, GNSSObservations.RtkStatus::new);
+    public static final GNSSObservationType<GNSSObservations.ImuAlignment> IMUAlignmentStatus =
+            new GNSSObservationType<>(18, GNSSObservations.ImuAlignment::new);
+
+    final int id;
+    private final Function<double[], T> decoder;
+
+    private GNSSObservationType(int id, Function<double[], T> decoder) {
+        this.id = id;
+        this.decoder = decoder;
+    }
+
+    T decode(double[] values) {
+        return decoder.apply(values);
+    }
+}
@@ -0,0 +1,324 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+import java.util.Date;
+import trimble.jssi.interfaces.gnss.Coordinates;
+
+/**
+ * Benchmark stand-ins for the SDK's observation classes, each read from the raw values
+ * given to {@link GNSSObservationContainer#put}. Only the getters the facade calls exist.
+ */
+public final class GNSSObservations {
+
+    private GNSSObservations() {
+    }
+
+    public static final class Solution {
+        private final SolutionType solutionType;
+
+        Solution(double[] v) {
+            solutionType = SolutionType.values()[(int) v[0]];
+        }
+
+        public SolutionType getSolutionType() {
+            return solutionType;
+        }
+    }
+
+    public static class Coordinate {
+        private final Coordinates coordinates;
+
+        Coordinate(double[] v) {
+            coordinates = new Coordinates(v[0], v[1], v[2]);
+        }
+
+        public Coordinates getCoordinates() {
+            return coordinates;
+        }
+    }
+
+    public static final class GroundCoordinate extends Coordinate {
+        private final GroundPositionType groundPositionType;
+
+        GroundCoordinate(double[] v) {
+            super(v);
+            groundPositionType = GroundPositionType.values()[(int) v[3]];
+        }
+
+        public GroundPositionType getGroundPositionType() {
+            return groundPositionType;
+        }
+    }
+
+    public static final class GeoidUndulation {
+        private final double deviation;
+
+        GeoidUndulation(double[] v) {
+            deviation = v[0];
+        }
+
+        public double getDeviation() {
+            return deviation;
+        }
+
+        public String getGeoidModel() {
+            return "EGM2008";
+        }
+    }
+
+    public static final class Velocity {
+        private final double heading;
+        private final double horizontal;
+        private final double vertical;
+
+        Velocity(double[] v) {
+            heading = v[0];
+            horizontal = v[1];
+            vertical = v[2];
+        }
+
+        public double getHeading() {
+            return heading;
+        }
+
+        public double getHorizontal() {
+            return horizontal;
+        }
+
+        public double getVertical() {
+            return vertical;
+        }
+    }
+
+    public static final class Precision {
+        private final double horizontal;
+        private final double vertical;
+
+        Precision(double[] v) {
+            horizontal = v[0];
+            vertical = v[1];
+        }
+
+        public double getHorizontalPrecision() {
+            return horizontal;
+        }
+
+        public double getVerticalPrecision() {
+            return vertical;
+        }
+    }
+
+    public static final class PositionSigma {
+        private final double semiMajorAxis;
+        private final double semiMinorAxis;
+        private final double orientation;
+
+        PositionSigma(double[] v) {
+            semiMajorAxis = v[0];
+            semiMinorAxis = v[1];
+            orientation = v[2];
+        }
+
+        public double getSemiMajorAxis() {
+            return semiMajorAxis;
+        }
+
+        public double getSemiMinorAxis() {
+            return semiMinorAxis;
+        }
+
+        public double getOrientation() {
+            return orientation;
+        }
+    }
+
+    public static final class DilutionOfPrecision {
+        private final double pdop;
+        private final double hdop;
+        private final double vdop;
+
+        DilutionOfPrecision(double[] v) {
+            pdop = v[0];
+            hdop = v[1];
+            vdop = v[2];
+        }
+
+        public double getPDOP() {
+            return pdop;
+        }
+
+        public double getHDOP() {
+            return hdop;
+        }
+
+        public double getVDOP() {
+            return vdop;
+        }
+    }
+
+    public static final class Tilt {
+        private final double pitch;
+        private final double roll;
+        private final double yaw;
+
+        Tilt(double[] v) {
+            pitch = v[0];
+            roll = v[1];
+            yaw = v[2];
+        }
+
+        public double getPitch() {
+            return pitch;
+        }
+
+        public double getRoll() {
+            return roll;
+        }
+
+        public double getYaw() {
+            return yaw;
+        }
+    }
+
+    public static final class TiltPrecision {
+        private final double pitchPrecision;
+        private final double rollPrecision;
+        private final double yawPrecision;
+
+        TiltPrecision(double[] v) {
+            pitchPrecision = v[0];
+            rollPrecision = v[1];
+            yawPrecision = v[2];
+        }
+
+        public double getPitchPrecision() {
+            return pitchPrecision;
+        }
+
+        public double getRollPrecision() {
+            return rollPrecision;
+        }
+
+        public double getYawPrecision() {
+            return yawPrecision;
+        }
+    }
+
+    public static final class Satellites {
+        private final int numberOfSatellites;
+        private final int numberOfTrackedSatellites;
+
+        Satellites(double[] v) {
+            numberOfSatellites = (int) v[0];
+            numberOfTrackedSatellites = (int) v[1];
+        }
+
+        public int getNumberOfSatellites() {
+            return numberOfSatellites;
+        }
+
+        public int getNumberOfTrackedSatellites() {
+            return numberOfTrackedSatellites;
+        }
+    }
+
+    public static final class CorrectionAge {
+        private final Age age;
+
+        CorrectionAge(double[] v) {
+            age = new Age(v[0]);
+        }
+
+        public Age getAge() {
+            return age;
+        }
+    }
+
+    public static final class Age {
+        private final double totalSeconds;
+
+        Age(double totalSeconds) {
+            this.totalSeconds = totalSeconds;
+        }
+
+        public double getTotalSeconds() {
+            return totalSeconds;
+        }
+    }
+
+    public static final class Reference {
+        private final IReferenceSystem referenceSystem;
+
+        Reference(double[] v) {
+            double epoch = v[0];
+            referenceSystem = new IReferenceSystem() {
+                @Override
+                public String getName() {
+                    return "ITRF2020";
+                }
+
+                @Override
+                public double getEpoch() {
+                    return epoch;
+                }
+            };
+        }
+
+        public IReferenceSystem getReferenceSystem() {
+            return referenceSystem;
+        }
+    }
+
+    public static final class GpsTime {
+        private final Date gpsTime;
+        private final int gpsUtcOffset;
+
+        GpsTime(double[] v) {
+            gpsTime = new Date((long) v[0]);
+            gpsUtcOffset = (int) v[1];
+        }
+
+        public Date getGpsTime() {
+            return gpsTime;
+        }
+
+        public int getGpsUtcOffset() {
+            return gpsUtcOffset;
+        }
+    }
+
+    public static final class Epoch {
+        private final int epoch;
+
+        Epoch(double[] v) {
+            epoch = (int) v[0];
+        }
+
+        public int getEpoch() {
+            return epoch;
+        }
+    }
+
+    public static final class RtkStatus {
+        private final RTKErrorStatus status;
+
+        RtkStatus(double[] v) {
+            status = RTKErrorStatus.values()[(int) v[0]];
+        }
+
+        public RTKErrorStatus getRTKErrorStatus() {
+            return status;
+        }
+    }
+
+    public static final class ImuAlignment {
+        private final IMUAlignmentStatus status;
+
+        ImuAlignment(double[] v) {
+            status = IMUAlignmentStatus.values()[(int) v[0]];
+        }
+
+        public IMUAlignmentStatus getAlignmentStatus() {
+            return status;
+        }
+    }
+}
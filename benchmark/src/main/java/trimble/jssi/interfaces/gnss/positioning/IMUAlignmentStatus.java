@@ -0,0 +1,10 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name.
+ */
+public enum IMUAlignmentStatus {
+    Unaligned,
+    Coarse,
+    Fine
+}
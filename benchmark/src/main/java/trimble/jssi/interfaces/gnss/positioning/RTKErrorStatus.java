@@ -0,0 +1,11 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name.
+ */
+public enum RTKErrorStatus {
+    None,
+    NoRTXOffshore,
+    ImuError,
+    ImuExcessiveBias
+}
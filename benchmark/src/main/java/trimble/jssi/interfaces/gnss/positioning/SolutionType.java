@@ -0,0 +1,13 @@
+package trimble.jssi.interfaces.gnss.positioning;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name.
+ */
+public enum SolutionType {
+    Invalid,
+    Autonomous,
+    Dgps,
+    RtkFloat,
+    RtkFixed,
+    Rtx
+}
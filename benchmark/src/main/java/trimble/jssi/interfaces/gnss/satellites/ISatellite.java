@@ -0,0 +1,16 @@
+package trimble.jssi.interfaces.gnss.satellites;
+
+/**
+ * Benchmark stand-in for the Trimble SDK type of the same name, with the getters the
+ * event recorder keeps.
+ */
+public interface ISatellite {
+
+    char getSatelliteTypeChar();
+
+    boolean getEnabled();
+
+    boolean getUsed();
+
+    double getSNR1();
+}
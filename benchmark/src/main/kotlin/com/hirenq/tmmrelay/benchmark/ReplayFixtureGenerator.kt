@@ -0,0 +1,100 @@
+package com.hirenq.tmmrelay.benchmark
+
+import trimble.jssi.android.catalystfacade.CatalystEventRecorder
+import trimble.jssi.android.catalystfacade.ImuState
+import trimble.jssi.android.catalystfacade.PositionUpdate
+import trimble.jssi.android.catalystfacade.PowerSourceState
+import trimble.jssi.android.catalystfacade.SatelliteUpdate
+import trimble.jssi.android.catalystfacade.SensorStateEvent
+import trimble.jssi.android.catalystfacade.SurveyType
+import trimble.jssi.connection.ConnectionState
+import trimble.jssi.interfaces.gnss.positioning.GroundPositionType
+import trimble.jssi.interfaces.gnss.positioning.SolutionType
+import trimble.jssi.interfaces.gnss.satellites.ISatellite
+import java.io.File
+import java.util.Date
+import java.util.Random
+
+/**
+ * Writes `catalyst-1hz.cev` for `CatalystReplayBenchmark`: every tenth row of
+ * `track-10hz.csv` as a 1 Hz position update, each followed by a 24-satellite update,
+ * after a sensor, survey type and power event, with a power event every minute.
+ * Heights, satellite counts and arrival jitter come from a fixed seed, so the output
+ * only changes when the track or `CatalystEventLogFormat` does.
+ *
+ *   ./gradlew :benchmark:generateReplayFixture
+ */
+fun main(args: Array<String>) {
+    require(args.size == 2) { "usage: ReplayFixtureGenerator <track-10hz.csv> <catalyst-1hz.cev>" }
+    val rows = File(args[0]).readLines().drop(1)
+    val random = Random(17)
+    val recorder = CatalystEventRecorder(File(args[1]))
+    var positions = 0
+    recorder.use { rec ->
+        // Enqueue times as an SDK thread would have stamped them
+        var nanos = START_NANOS
+        rec.stampNextEvent(nanos)
+        rec.onSensorStateChanged(SensorStateEvent(rec, ConnectionState.Connected))
+        nanos += 40_000_000L
+        rec.stampNextEvent(nanos)
+        rec.onSurveyTypeUpdate(SurveyType.values()[0])
+        nanos += 30_000_000L
+        rec.stampNextEvent(nanos)
+        rec.onPowerUpdate(PowerSourceState(86, false))
+
+        for (row in rows.indices step 10) {
+            val n = positions++
+            val fields = rows[row].split(",")
+            val utcMillis = fields[0].toLong()
+            val fixed = fields[4] == "RTK_FIXED"
+            val hAcc = fields[3].toDouble()
+            val speed = fields[5].toDouble()
+            val heading = fields[6].toDouble()
+            val used = if (fixed) 19 + random.nextInt(3) else 14 + random.nextInt(3)
+            val epochNanos = START_NANOS + 200_000_000L + n * 1_000_000_000L
+            nanos = epochNanos + 8_000_000L + random.nextInt(6_000_000)
+
+            val update = PositionUpdate(
+                rec, if (fixed) SolutionType.RtkFixed else SolutionType.RtkFloat,
+                Math.toRadians(fields[1].toDouble()), Math.toRadians(fields[2].toDouble()),
+                61.2 + random.nextGaussian() * hAcc * 1.5, GroundPositionType.Ellipsoidal,
+                Math.toRadians(heading), speed, random.nextGaussian() * 0.02,
+                hAcc, hAcc * 1.6, hAcc * 1.1, hAcc * 0.9, 0.3,
+                ImuState.values()[0], 0.0, 0.0, 0.0, 0.0, 0.0, 0.0,
+                if (fixed) 1.4 else 2.1, if (fixed) 0.8 else 1.2, if (fixed) 1.1 else 1.7,
+                Date(utcMillis + GPS_UTC_OFFSET_MS), Date(utcMillis),
+                used, SYSTEMS.size, if (speed < 0.1) n % 1000 else 0,
+                1.0 + random.nextInt(2), n * 1800L, 1021, true, null, null, 8.4, "EGM2008"
+            )
+            rec.stampNextEvent(nanos)
+            rec.onPositionUpdate(update)
+
+            val satellites = SYSTEMS.indices.map { s ->
+                satellite(SYSTEMS[s], s < used, (32 + random.nextInt(18)).toDouble())
+            }
+            nanos += 3_000_000L + random.nextInt(2_000_000)
+            rec.stampNextEvent(nanos)
+            rec.onSatelliteUpdate(SatelliteUpdate(rec, satellites), satellites.size)
+
+            if (n % 60 == 59) {
+                nanos += 1_000_000L
+                rec.stampNextEvent(nanos)
+                rec.onPowerUpdate(PowerSourceState(86 - n / 60, false))
+            }
+        }
+    }
+    println("${recorder.recordedEvents} events, $positions positions")
+}
+
+private const val START_NANOS = 1_000_000_000L
+private const val GPS_UTC_OFFSET_MS = 18_000L
+
+// GPS, GLONASS, Galileo and BeiDou, in the order the receiver lists them
+private val SYSTEMS = "GGGGGGGGRRRRREEEEEECCCCC".toCharArray()
+
+private fun satellite(system: Char, used: Boolean, snr: Double) = object : ISatellite {
+    override fun getSatelliteTypeChar() = system
+    override fun getEnabled() = true
+    override fun getUsed() = used
+    override fun getSNR1() = snr
+}
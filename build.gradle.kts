@@ -1,4 +1,6 @@
 ﻿plugins {
     id("com.android.application") version "8.5.0" apply false
     id("org.jetbrains.kotlin.android") version "1.9.24" apply false
+    id("org.jetbrains.kotlin.jvm") version "1.9.24" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 }
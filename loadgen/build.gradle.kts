@@ -0,0 +1,61 @@
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    application
+}
+
+// Fleet load generator: simulates hundreds of relay devices posting to a backend
+// stand-in (or a real endpoint) on a plain JVM.
+//
+// The app sources below are compiled as-is, so payloads, wire encodings, reporting
+// decisions and retry timing are the app's own.
+//
+//   ./gradlew :loadgen:run --args="--devices 300 --duration 2h --time-scale 60 --restart-at 60m"
+//
+// See FleetLoad.kt or run with --help for all options.
+
+val appSources = listOf(
+    "com/hirenq/tmmrelay/model/TelemetryPayload.kt",
+    "com/hirenq/tmmrelay/model/WireFormat.kt",
+    "com/hirenq/tmmrelay/model/ReportingConfig.kt",
+    "com/hirenq/tmmrelay/model/HttpTransportConfig.kt",
+    "com/hirenq/tmmrelay/service/TelemetryHealth.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingEngine.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingSample.kt",
+    "com/hirenq/tmmrelay/reporting/ReportingTrigger.kt",
+    "com/hirenq/tmmrelay/outbox/CircuitBreaker.kt",
+    "com/hirenq/tmmrelay/outbox/RetryScheduler.kt",
+    "com/hirenq/tmmrelay/encoding/BufferRequestBody.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryJsonWriter.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryProtoWriter.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryDeltaEncoder.kt",
+    "com/hirenq/tmmrelay/encoding/TelemetryDeltaFormat.kt"
+)
+
+val sharedSources by tasks.registering(Sync::class) {
+    from(rootProject.file("app/src/main/java")) { include(appSources) }
+    into(layout.buildDirectory.dir("shared-src"))
+}
+
+sourceSets {
+    main {
+        kotlin.srcDir(sharedSources)
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+kotlin {
+    jvmToolchain(17)
+}
+
+dependencies {
+    implementation("com.squareup.okhttp3:okhttp:4.12.0")
+    implementation("com.google.protobuf:protobuf-java:3.25.1")
+}
+
+application {
+    mainClass.set("com.hirenq.tmmrelay.loadgen.FleetLoadKt")
+}
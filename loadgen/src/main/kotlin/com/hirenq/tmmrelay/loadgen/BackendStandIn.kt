@@ -0,0 +1,92 @@
+package com.hirenq.tmmrelay.loadgen
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.io.Closeable
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Local stand-in for the Device API: accepts any POST and answers 201 after a service
+ * time averaging [serviceMs], with at most [workers] requests served at once. Requests
+ * beyond that wait; once more than [maxQueue] are waiting, new ones get a 503 with
+ * `Retry-After: retryAfterSeconds`, the way an overloaded backend sheds load.
+ */
+class BackendStandIn(
+    private val workers: Int,
+    private val serviceMs: Long,
+    private val maxQueue: Int,
+    private val retryAfterSeconds: Int
+) : Closeable {
+
+    data class Stats(
+        val handled: Long,
+        val rejected: Long,
+        val maxWaiting: Int,
+        val bytesReceived: Long
+    )
+
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024)
+    private val executor = Executors.newCachedThreadPool { runnable ->
+        Thread(runnable, "stand-in").apply { isDaemon = true }
+    }
+    private val permits = Semaphore(workers, true)
+    private val waiting = AtomicInteger()
+    private val maxWaiting = AtomicInteger()
+    private val handled = AtomicLong()
+    private val rejected = AtomicLong()
+    private val bytesReceived = AtomicLong()
+
+    val url: String
+        get() = "http://${server.address.hostString}:${server.address.port}/api/Device/pushdata"
+
+    init {
+        server.executor = executor
+        server.createContext("/", ::handle)
+        server.start()
+    }
+
+    private fun handle(exchange: HttpExchange) {
+        // HttpExchange is only AutoCloseable from JDK 18
+        try {
+            bytesReceived.addAndGet(exchange.requestBody.readAllBytes().size.toLong())
+            val queued = waiting.incrementAndGet() - workers
+            try {
+                maxWaiting.accumulateAndGet(queued, ::maxOf)
+                if (queued > maxQueue) {
+                    rejected.incrementAndGet()
+                    exchange.responseHeaders.add("Retry-After", retryAfterSeconds.toString())
+                    exchange.sendResponseHeaders(503, -1)
+                    return
+                }
+                permits.acquire()
+                try {
+                    // Half fixed, half exponential: a long tail like a real backend
+                    val random = ThreadLocalRandom.current()
+                    val ms = serviceMs / 2.0 - serviceMs / 2.0 * Math.log(1.0 - random.nextDouble())
+                    Thread.sleep(ms.toLong())
+                } finally {
+                    permits.release()
+                }
+                handled.incrementAndGet()
+                exchange.sendResponseHeaders(201, -1)
+            } finally {
+                waiting.decrementAndGet()
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    fun stats(): Stats = Stats(handled.get(), rejected.get(), maxOf(0, maxWaiting.get()), bytesReceived.get())
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+}
@@ -0,0 +1,127 @@
+package com.hirenq.tmmrelay.loadgen
+
+import com.hirenq.tmmrelay.model.HttpTransportConfig
+import okhttp3.ConnectionPool
+import okhttp3.OkHttpClient
+import java.io.File
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+import kotlin.system.exitProcess
+
+/**
+ * Fleet load generator. Simulates [LoadConfig.devices] relays in accelerated time, each
+ * on its own thread and with its own connection pool like a separate tablet, against a
+ * [BackendStandIn] or `--url`, then prints the [LoadReport].
+ *
+ * As service times are real while device time runs [LoadConfig.timeScale] times faster,
+ * N simulated devices load the backend about as much as N x timeScale real ones.
+ */
+fun main(args: Array<String>) {
+    if (args.any { it == "--help" || it == "-h" }) {
+        println(LoadConfig.USAGE)
+        return
+    }
+    val config = try {
+        LoadConfig.parse(args)
+    } catch (e: IllegalArgumentException) {
+        System.err.println(e.message)
+        System.err.println(LoadConfig.USAGE)
+        exitProcess(2)
+    }
+
+    val standIn = if (config.url == null) {
+        BackendStandIn(config.backendWorkers, config.backendServiceMs, config.backendMaxQueue, config.retryAfterSeconds)
+    } else null
+    val url = config.url ?: standIn!!.url
+
+    println("Fleet load: ${config.devices} devices, ${SimClock.format(config.durationMs)} simulated at " +
+            "${config.timeScale}x (~${config.durationMs / config.timeScale.toLong() / 1000}s real), " +
+            "${config.reporting.name.lowercase()} reporting every ${config.heartbeatMs / 1000}s, ${config.format}, -> $url")
+
+    val clock = SimClock(config.timeScale)
+    val report = LoadReport(config)
+    val devices = createFleet(config, clock, url, report)
+    val threads = devices.map { device ->
+        Thread(device, device.deviceId).apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    val started = System.nanoTime()
+    val progressEveryMs = TimeUnit.SECONDS.toMillis(10)
+    for (thread in threads) {
+        while (thread.isAlive) {
+            thread.join(progressEveryMs)
+            if (thread.isAlive) {
+                println("  ${SimClock.format(clock.nowMs())} simulated, ${report.perMinute().sum()} requests")
+            }
+        }
+    }
+    val realMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+
+    println()
+    print(report.summary(realMs, standIn?.stats()))
+    config.timelineCsv?.let {
+        report.writeTimeline(File(it))
+        println("Timeline written to $it")
+    }
+    standIn?.close()
+}
+
+private fun createFleet(config: LoadConfig, clock: SimClock, url: String, report: LoadReport): List<SimulatedDevice> {
+    val transport = HttpTransportConfig()
+    val base = OkHttpClient.Builder()
+        .connectTimeout(transport.connectTimeoutMs, TimeUnit.MILLISECONDS)
+        .readTimeout(transport.readTimeoutMs, TimeUnit.MILLISECONDS)
+        .writeTimeout(transport.writeTimeoutMs, TimeUnit.MILLISECONDS)
+        .callTimeout(transport.callTimeoutMs, TimeUnit.MILLISECONDS)
+        .build()
+    // The app keeps connections a little longer than the gap between posts
+    val keepAliveRealMs = clock.realMs(config.heartbeatMs + 10_000L).coerceAtLeast(1L)
+
+    val mix = config.motionMix.entries.toList()
+    val totalShare = mix.sumOf { it.value }
+    return List(config.devices) { i ->
+        val random = Random(config.seed * 1_000_003L + i)
+        var pick = random.nextDouble(totalShare)
+        val model = mix.firstOrNull { pick -= it.value; pick < 0 }?.key ?: mix.last().key
+
+        val startMs = if (config.startSpreadMs > 0) random.nextLong(config.startSpreadMs) else 0L
+        val restartMs = config.restartAtMs?.takeIf { it > startMs }?.let {
+            it + if (config.bootJitterMs > 0) random.nextLong(config.bootJitterMs) else 0L
+        }
+        val offline = buildList {
+            config.restartAtMs?.let { at -> if (restartMs != null) add(at until restartMs) }
+            config.outageAtMs?.let { at -> add(at until at + config.outageMs) }
+            if (random.nextDouble() < config.offlineFraction) {
+                val at = random.nextLong((config.durationMs - config.offlineMs).coerceAtLeast(1L))
+                add(at until at + config.offlineMs)
+            }
+        }.sortedBy { it.first }
+
+        SimulatedDevice(
+            deviceId = "loadgen-%04d".format(i + 1),
+            motion = DeviceMotion(
+                model,
+                BASE_LATITUDE + random.nextDouble(-0.05, 0.05),
+                BASE_LONGITUDE + random.nextDouble(-0.05, 0.05),
+                random
+            ),
+            config = config,
+            clock = clock,
+            client = base.newBuilder()
+                .connectionPool(ConnectionPool(1, keepAliveRealMs, TimeUnit.MILLISECONDS))
+                .build(),
+            url = url,
+            report = report,
+            random = random,
+            startMs = startMs,
+            restartMs = restartMs,
+            offline = offline
+        )
+    }
+}
+
+private const val BASE_LATITUDE = 26.1445
+private const val BASE_LONGITUDE = 91.7362
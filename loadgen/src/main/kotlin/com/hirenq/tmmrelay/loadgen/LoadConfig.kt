@@ -0,0 +1,181 @@
+package com.hirenq.tmmrelay.loadgen
+
+import com.hirenq.tmmrelay.model.ReportingConfig
+import com.hirenq.tmmrelay.model.WireFormat
+
+/**
+ * Settings for one load run. Times are simulated milliseconds unless named `real`.
+ *
+ * Devices start spread over [startSpreadMs] (0: all boot together). With [restartAtMs]
+ * every relay restarts at that moment, as after a fleet-wide reboot that `BootReceiver`
+ * answers, and comes back within [bootJitterMs]. [outageAtMs] takes the whole fleet
+ * offline for [outageMs]; [offlineFraction] of the devices also each get one offline
+ * period of [offlineMs] at a random time. Records taken while offline wait in the
+ * device's outbox and are flushed when it reconnects.
+ */
+data class LoadConfig(
+    val devices: Int = 300,
+    val durationMs: Long = 2 * HOUR,
+    val timeScale: Double = 60.0,
+    val motionMix: Map<MotionModel, Double> = mapOf(
+        MotionModel.STATIONARY to 0.6,
+        MotionModel.WALK to 0.3,
+        MotionModel.DRIVE to 0.1
+    ),
+    val reporting: Reporting = Reporting.FIXED,
+    val heartbeatMs: Long = 5 * MINUTE,
+    val epochMs: Long = 1_000L,
+    val startSpreadMs: Long = heartbeatMs,
+    val restartAtMs: Long? = null,
+    val bootJitterMs: Long = 20_000L,
+    val outageAtMs: Long? = null,
+    val outageMs: Long = 10 * MINUTE,
+    val offlineFraction: Double = 0.0,
+    val offlineMs: Long = 30 * MINUTE,
+    val format: WireFormat = WireFormat.JSON,
+    val url: String? = null,
+    val backendWorkers: Int = 8,
+    val backendServiceMs: Long = 25L,
+    val backendMaxQueue: Int = 64,
+    val retryAfterSeconds: Int = 30,
+    val tenantId: String = "LOADGEN",
+    val seed: Long = 1L,
+    val timelineCsv: String? = null
+) {
+
+    enum class Reporting {
+        /** One post per heartbeat, the fleet's long-standing pattern */
+        FIXED,
+        /** The app's reporting engine defaults: motion triggers plus heartbeats */
+        ADAPTIVE
+    }
+
+    fun reportingConfig(): ReportingConfig = when (reporting) {
+        Reporting.ADAPTIVE -> ReportingConfig(heartbeatMs = heartbeatMs)
+        Reporting.FIXED -> ReportingConfig(
+            minDistanceMetres = 0.0,
+            minHeadingChangeDegrees = 0.0,
+            metresPerReport = 0.0,
+            heartbeatMs = heartbeatMs,
+            stationaryEpochs = Int.MAX_VALUE,
+            reportFixChanges = false
+        )
+    }
+
+    companion object {
+        const val MINUTE = 60_000L
+        const val HOUR = 60 * MINUTE
+
+        val USAGE = """
+            |Usage: loadgen [options]
+            |
+            |Fleet
+            |  --devices N               simulated relays (300)
+            |  --duration T              simulated run length (2h)
+            |  --time-scale X            simulated seconds per real second (60)
+            |  --motion MIX              e.g. stationary:0.6,walk:0.3,drive:0.1
+            |  --reporting MODE          fixed (one post per heartbeat) or adaptive (motion triggers)
+            |  --heartbeat T             reporting heartbeat (5m)
+            |  --epoch T                 receiver epoch interval (1s)
+            |  --start-spread T          devices start within this window (heartbeat); 0 = all at once
+            |  --restart-at T            restart every relay at this time, as after a fleet-wide reboot
+            |  --boot-jitter T           relays come back within this window after a restart (20s)
+            |  --outage-at T             take the whole fleet offline at this time
+            |  --outage T                length of that outage (10m)
+            |  --offline-fraction F      share of devices that also go offline once at random (0)
+            |  --offline T               length of those offline periods (30m)
+            |  --format F                json, protobuf or delta (json)
+            |  --tenant ID               tenant id of the payloads (LOADGEN)
+            |  --seed N                  random seed (1)
+            |
+            |Backend
+            |  --url URL                 post to this endpoint instead of the built-in stand-in
+            |  --backend-workers N       stand-in requests served in parallel (8)
+            |  --backend-service-ms N    stand-in mean service time (25)
+            |  --backend-max-queue N     stand-in answers 503 beyond this many waiting requests (64)
+            |  --retry-after S           Retry-After of those 503s, in simulated seconds (30)
+            |
+            |Output
+            |  --timeline FILE           write requests per simulated minute as CSV
+            |
+            |Times take ms, s, m or h suffixes (plain numbers are milliseconds).
+        """.trimMargin()
+
+        fun parse(args: Array<String>): LoadConfig {
+            var config = LoadConfig()
+            var startSpread: Long? = null
+            var i = 0
+            while (i < args.size) {
+                val arg = args[i]
+                val name = arg.substringBefore('=')
+                val value: () -> String = {
+                    if (arg.contains('=')) {
+                        arg.substringAfter('=')
+                    } else {
+                        require(i + 1 < args.size) { "$name needs a value" }
+                        args[++i]
+                    }
+                }
+                config = when (name) {
+                    "--devices" -> config.copy(devices = value().toInt())
+                    "--duration" -> config.copy(durationMs = duration(value()))
+                    "--time-scale" -> config.copy(timeScale = value().toDouble())
+                    "--motion" -> config.copy(motionMix = motionMix(value()))
+                    "--reporting" -> config.copy(reporting = Reporting.valueOf(value().uppercase()))
+                    "--heartbeat" -> config.copy(heartbeatMs = duration(value()))
+                    "--epoch" -> config.copy(epochMs = duration(value()))
+                    "--start-spread" -> {
+                        startSpread = duration(value())
+                        config
+                    }
+                    "--restart-at" -> config.copy(restartAtMs = duration(value()))
+                    "--boot-jitter" -> config.copy(bootJitterMs = duration(value()))
+                    "--outage-at" -> config.copy(outageAtMs = duration(value()))
+                    "--outage" -> config.copy(outageMs = duration(value()))
+                    "--offline-fraction" -> config.copy(offlineFraction = value().toDouble())
+                    "--offline" -> config.copy(offlineMs = duration(value()))
+                    "--format" -> config.copy(format = WireFormat.valueOf(value().uppercase()))
+                    "--tenant" -> config.copy(tenantId = value())
+                    "--seed" -> config.copy(seed = value().toLong())
+                    "--url" -> config.copy(url = value())
+                    "--backend-workers" -> config.copy(backendWorkers = value().toInt())
+                    "--backend-service-ms" -> config.copy(backendServiceMs = value().toLong())
+                    "--backend-max-queue" -> config.copy(backendMaxQueue = value().toInt())
+                    "--retry-after" -> config.copy(retryAfterSeconds = value().toInt())
+                    "--timeline" -> config.copy(timelineCsv = value())
+                    else -> throw IllegalArgumentException("Unknown option $arg")
+                }
+                i++
+            }
+            // The spread defaults to the heartbeat, which may have been set after it
+            config = config.copy(startSpreadMs = startSpread ?: config.heartbeatMs)
+            require(config.devices > 0) { "--devices must be positive" }
+            require(config.timeScale > 0) { "--time-scale must be positive" }
+            require(config.epochMs > 0) { "--epoch must be positive" }
+            require(config.offlineFraction in 0.0..1.0) { "--offline-fraction must be between 0 and 1" }
+            return config
+        }
+
+        fun duration(text: String): Long {
+            val value = text.trim().lowercase()
+            val unit = when {
+                value.endsWith("ms") -> 1L
+                value.endsWith("s") -> 1_000L
+                value.endsWith("m") -> MINUTE
+                value.endsWith("h") -> HOUR
+                else -> 1L
+            }
+            val number = value.trimEnd { it.isLetter() }
+            return (number.toDouble() * unit).toLong()
+        }
+
+        private fun motionMix(text: String): Map<MotionModel, Double> {
+            val mix = text.split(',').associate { part ->
+                val (model, share) = part.split(':').let { it[0] to it.getOrElse(1) { "1" } }
+                MotionModel.valueOf(model.trim().uppercase()) to share.toDouble()
+            }
+            require(mix.values.sum() > 0) { "--motion needs a positive share" }
+            return mix
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.hirenq.tmmrelay.loadgen
+
+import java.io.File
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Collects every request the simulated fleet makes and sums them up: outcomes, real
+ * throughput and latency percentiles, how long records took to be delivered, and the
+ * request rate per simulated minute, whose peaks show the thundering herds.
+ */
+class LoadReport(private val config: LoadConfig) {
+
+    /** @param delayMs simulated time from the epoch being taken to its delivery; -1 if not delivered */
+    class Request(
+        val simMs: Long,
+        val latencyNanos: Long,
+        val status: Int,
+        val reason: String,
+        val retried: Boolean,
+        val delayMs: Long
+    )
+
+    private val requests = ConcurrentLinkedQueue<Request>()
+    private val undelivered = AtomicLong()
+
+    fun onRequest(simMs: Long, latencyNanos: Long, status: Int, reason: String, retried: Boolean, delayMs: Long) {
+        requests += Request(simMs, latencyNanos, status, reason, retried, delayMs)
+    }
+
+    /** A device ran out of time with [backlog] records still in its outbox. */
+    fun onDeviceFinished(backlog: Int) {
+        undelivered.addAndGet(backlog.toLong())
+    }
+
+    /** Requests started in each simulated minute. */
+    fun perMinute(): IntArray {
+        val minutes = IntArray(((config.durationMs + MINUTE - 1) / MINUTE).toInt())
+        for (request in requests) {
+            val bucket = (request.simMs / MINUTE).toInt()
+            if (bucket in minutes.indices) minutes[bucket]++
+        }
+        return minutes
+    }
+
+    fun summary(realMs: Long, backend: BackendStandIn.Stats?): String = buildString {
+        val all = requests.toList()
+        val delivered = all.count { it.status in 200..299 }
+        val shed = all.count { it.status == 429 || it.status == 503 }
+        val ioErrors = all.count { it.status == IO_ERROR }
+        val otherErrors = all.size - delivered - shed - ioErrors
+        val realSeconds = realMs / 1000.0
+
+        appendLine("Requests:   ${all.size} sent (${all.count { it.retried }} retries), $delivered delivered, " +
+                "$shed shed (429/503), $otherErrors other errors, $ioErrors I/O errors; ${undelivered.get()} records left queued")
+        appendLine("Records:    " + all.filter { !it.retried }.groupingBy { it.reason }.eachCount()
+            .entries.sortedByDescending { it.value }.joinToString { "${it.key} ${it.value}" })
+        appendLine("Throughput: ${"%.1f".format(all.size / realSeconds)} req/s real over ${"%.1f".format(realSeconds)}s; " +
+                "peak ${peakPerRealSecond(all)} req/s in one real second")
+
+        val latencies = all.filter { it.status != IO_ERROR }.map { it.latencyNanos / 1e6 }.sorted()
+        appendLine("Latency:    " + percentiles(latencies) { "%.1f ms".format(it) })
+        val delays = all.filter { it.delayMs >= 0 }.map { it.delayMs.toDouble() }.sorted()
+        appendLine("Delivery:   " + percentiles(delays) { formatDuration(it.toLong()) } + " after the epoch (simulated)")
+
+        val minutes = perMinute()
+        val steady = steadyRate(minutes)
+        val peak = minutes.indices.maxByOrNull { minutes[it] } ?: 0
+        appendLine("Herd:       steady ${"%.1f".format(steady)} req/min, peak ${minutes.getOrElse(peak) { 0 }} req/min " +
+                "at ${SimClock.format(peak * MINUTE)} (${"%.1f".format(minutes.getOrElse(peak) { 0 } / steady.coerceAtLeast(1.0))}x)")
+        config.restartAtMs?.let { appendLine(burst("restart", it, it + config.bootJitterMs, minutes, steady)) }
+        config.outageAtMs?.let { appendLine(burst("outage", it, it + config.outageMs, minutes, steady)) }
+        backend?.let {
+            appendLine("Stand-in:   ${it.handled} handled, ${it.rejected} rejected, up to ${it.maxWaiting} waiting " +
+                    "for ${config.backendWorkers} workers, ${it.bytesReceived / 1024} KiB received")
+        }
+
+        appendLine()
+        appendLine("Requests per simulated minute:")
+        append(timeline(minutes))
+    }
+
+    fun writeTimeline(file: File) {
+        file.printWriter().use { out ->
+            out.println("minute,requests")
+            perMinute().forEachIndexed { minute, count -> out.println("$minute,$count") }
+        }
+    }
+
+    // Median of the minutes between start-up and the first restart or outage, so the
+    // bursts and whatever they leave behind do not set their own baseline
+    private fun steadyRate(minutes: IntArray): Double {
+        val from = minuteAfter(config.startSpreadMs).coerceAtMost(minutes.size - 1).coerceAtLeast(0)
+        val firstEvent = listOfNotNull(config.restartAtMs, config.outageAtMs).minOrNull()
+        val to = firstEvent?.let { (it / MINUTE).toInt() }?.takeIf { it - from >= heartbeatMinutes() } ?: minutes.size
+        val window = minutes.copyOfRange(from, to).sorted()
+        return if (window.isEmpty()) 0.0 else window[window.size / 2].toDouble()
+    }
+
+    private fun burst(name: String, startMs: Long, endMs: Long, minutes: IntArray, steady: Double): String {
+        val first = (endMs / MINUTE).toInt()
+        if (first !in minutes.indices) return "  $name at ${SimClock.format(startMs)}: after the end of the run"
+        val peak = (first until minOf(minutes.size, first + BURST_WINDOW_MINUTES)).maxByOrNull { minutes[it] }!!
+        val line = StringBuilder("  $name at ${SimClock.format(startMs)}: ${minutes[peak]} req/min at " +
+                "${SimClock.format(peak * MINUTE)} (${"%.1f".format(minutes[peak] / steady.coerceAtLeast(1.0))}x steady)")
+        if (minutes[peak] > steady * SETTLED_FACTOR) {
+            // Back to normal: the first minute after the peak within 1.5x of the steady rate
+            val settled = (peak + 1 until minutes.size).firstOrNull { minutes[it] <= steady * SETTLED_FACTOR }
+            line.append(settled?.let { ", settled by ${SimClock.format(it * MINUTE)}" } ?: ", not settled by the end")
+        }
+        // Devices that come back together also report together from then on
+        val before = peakShare(minutes, minuteAfter(config.startSpreadMs), (startMs / MINUTE).toInt())
+        val after = peakShare(minutes, minuteAfter(endMs), minutes.size)
+        if (before != null && after != null) {
+            line.append("; busiest minute per heartbeat carries ${percent(before)} of its requests before, " +
+                    "${percent(after)} after")
+        }
+        return line.toString()
+    }
+
+    /** Average share of each whole heartbeat period in `[from, to)` taken by its busiest minute. */
+    private fun peakShare(minutes: IntArray, from: Int, to: Int): Double? {
+        val period = heartbeatMinutes()
+        if (period < 2) return null
+        val shares = (from until minOf(to, minutes.size) - period + 1 step period).mapNotNull { start ->
+            val window = minutes.copyOfRange(start, start + period)
+            window.sum().takeIf { it > 0 }?.let { window.max().toDouble() / it }
+        }
+        return shares.takeIf { it.isNotEmpty() }?.average()
+    }
+
+    private fun heartbeatMinutes(): Int = (config.heartbeatMs / MINUTE).toInt()
+
+    private fun minuteAfter(ms: Long): Int = ((ms + MINUTE - 1) / MINUTE).toInt()
+
+    private fun percent(share: Double): String = "%.0f%%".format(share * 100)
+
+    private fun peakPerRealSecond(all: List<Request>): Int {
+        val seconds = HashMap<Long, Int>()
+        for (request in all) seconds.merge((request.simMs / config.timeScale / 1000).toLong(), 1, Int::plus)
+        return seconds.values.maxOrNull() ?: 0
+    }
+
+    private fun timeline(minutes: IntArray): String = buildString {
+        // At most 60 rows
+        val perRow = (minutes.size + 59) / 60
+        val rows = minutes.toList().chunked(perRow.coerceAtLeast(1)).map { it.sum() }
+        val max = rows.maxOrNull()?.coerceAtLeast(1) ?: 1
+        rows.forEachIndexed { i, count ->
+            append("  %s %6d ".format(SimClock.format(i * perRow * MINUTE), count))
+            appendLine("#".repeat((count * 50 + max - 1) / max))
+        }
+    }
+
+    private fun percentiles(sorted: List<Double>, format: (Double) -> String): String {
+        if (sorted.isEmpty()) return "no samples"
+        fun at(p: Double) = sorted[((sorted.size - 1) * p).toInt()]
+        return "p50 ${format(at(0.5))}, p90 ${format(at(0.9))}, p99 ${format(at(0.99))}, " +
+                "p99.9 ${format(at(0.999))}, max ${format(sorted.last())}"
+    }
+
+    private fun formatDuration(ms: Long): String = when {
+        ms < 1_000 -> "${ms}ms"
+        ms < MINUTE -> "${ms / 1000}s"
+        else -> "${ms / MINUTE}m${ms / 1000 % 60}s"
+    }
+
+    companion object {
+        /** Status recorded for a request that failed without a response */
+        const val IO_ERROR = -1
+
+        private const val MINUTE = LoadConfig.MINUTE
+        private const val BURST_WINDOW_MINUTES = 10
+        private const val SETTLED_FACTOR = 1.5
+    }
+}
@@ -0,0 +1,108 @@
+package com.hirenq.tmmrelay.loadgen
+
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.reporting.ReportingSample
+import com.hirenq.tmmrelay.service.TelemetryHealth
+import java.time.Instant
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.random.Random
+
+/**
+ * How a simulated receiver moves. [speedMps] varies by ±20% per epoch and the heading
+ * wanders by up to [turnDegrees]; the fix drops from RTK fixed to float about once per
+ * [fixLossEpochs] epochs, which the fix-change trigger reports.
+ */
+enum class MotionModel(val speedMps: Double, val turnDegrees: Double, val fixLossEpochs: Int) {
+    STATIONARY(0.0, 0.0, 3600),
+    WALK(1.4, 4.0, 600),
+    DRIVE(12.0, 2.0, 300)
+}
+
+/** One device's receiver state, advanced an epoch at a time. Not thread-safe. */
+class DeviceMotion(
+    val model: MotionModel,
+    private var latitude: Double,
+    private var longitude: Double,
+    private val random: Random
+) {
+
+    private var headingDegrees = random.nextDouble(0.0, 360.0)
+    private var speedMps = 0.0
+    private var staticEpochs = 0
+    private var floatEpochsLeft = 0
+    private var battery = random.nextInt(30, 101)
+    private var batteryDrainMs = 0L
+
+    private val fixType: String
+        get() = if (floatEpochsLeft > 0) "RTK_FLOAT" else "RTK_FIXED"
+
+    private val horizontalAccuracy: Double
+        get() = if (floatEpochsLeft > 0) 0.35 else 0.02
+
+    fun step(epochMs: Long) {
+        if (floatEpochsLeft > 0) {
+            floatEpochsLeft--
+        } else if (random.nextInt(model.fixLossEpochs) == 0) {
+            floatEpochsLeft = random.nextInt(5, 60)
+        }
+
+        if (model.speedMps > 0) {
+            headingDegrees = (headingDegrees + random.nextDouble(-model.turnDegrees, model.turnDegrees) + 360.0) % 360.0
+            speedMps = model.speedMps * random.nextDouble(0.8, 1.2)
+            val metres = speedMps * epochMs / 1000.0
+            val heading = Math.toRadians(headingDegrees)
+            latitude += metres * cos(heading) / METRES_PER_DEGREE
+            longitude += metres * sin(heading) / (METRES_PER_DEGREE * cos(Math.toRadians(latitude)))
+            staticEpochs = 0
+        } else {
+            staticEpochs++
+        }
+
+        // 1% per ten minutes, back to full once it reaches 15%
+        batteryDrainMs += epochMs
+        if (batteryDrainMs >= BATTERY_DRAIN_MS) {
+            batteryDrainMs = 0
+            battery = if (battery <= 15) 100 else battery - 1
+        }
+    }
+
+    fun sample(timeMillis: Long): ReportingSample = ReportingSample(
+        timeMillis = timeMillis,
+        latitude = latitude,
+        longitude = longitude,
+        fixType = fixType,
+        horizontalAccuracy = horizontalAccuracy,
+        headingDegrees = if (model.speedMps > 0) headingDegrees else Double.NaN,
+        speedMps = speedMps,
+        staticEpochs = staticEpochs
+    )
+
+    fun payload(tenantId: String, deviceId: String, epochMillis: Long): TelemetryPayload {
+        val satellites = if (floatEpochsLeft > 0) 9 else 18
+        val hdop = if (floatEpochsLeft > 0) 1.4 else 0.7
+        return TelemetryPayload(
+            tenantId = tenantId,
+            deviceId = deviceId,
+            latitude = latitude,
+            longitude = longitude,
+            battery = battery,
+            fixType = fixType,
+            timestamp = Instant.ofEpochMilli(epochMillis).toString(),
+            health = TelemetryHealth.tmmHealth(latitude, longitude, fixType),
+            horizontalAccuracy = horizontalAccuracy,
+            verticalAccuracy = horizontalAccuracy * 1.5,
+            satellites = satellites,
+            receiverBattery = battery,
+            pdop = hdop * 1.6,
+            hdop = hdop,
+            vdop = hdop * 1.3,
+            receiverHealth = TelemetryHealth.tmmReceiverHealth(fixType, satellites, hdop)
+        )
+    }
+
+    private companion object {
+        const val METRES_PER_DEGREE = 111_320.0
+        const val BATTERY_DRAIN_MS = 10 * 60_000L
+    }
+}
@@ -0,0 +1,33 @@
+package com.hirenq.tmmrelay.loadgen
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Simulated time, running [timeScale] times faster than the wall clock. Devices plan in
+ * simulated milliseconds since the start of the run; HTTP calls and the stand-in's
+ * service time stay real, so the backend sees the fleet's request rate times [timeScale].
+ */
+class SimClock(val timeScale: Double, val startEpochMillis: Long = System.currentTimeMillis()) {
+
+    private val startNanos = System.nanoTime()
+
+    fun nowMs(): Long = ((System.nanoTime() - startNanos) * timeScale / 1_000_000.0).toLong()
+
+    fun epochMillis(simMs: Long): Long = startEpochMillis + simMs
+
+    fun realMs(simMs: Long): Long = (simMs / timeScale).toLong()
+
+    /** Sleeps until simulated time [simMs]; returns at once if it has passed. */
+    fun sleepUntil(simMs: Long) {
+        val waitNanos = ((simMs - nowMs()) / timeScale * 1_000_000.0).toLong()
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos)
+    }
+
+    companion object {
+        /** Formats simulated time as h:mm:ss. */
+        fun format(simMs: Long): String {
+            val seconds = simMs / 1000
+            return "%d:%02d:%02d".format(seconds / 3600, seconds / 60 % 60, seconds % 60)
+        }
+    }
+}
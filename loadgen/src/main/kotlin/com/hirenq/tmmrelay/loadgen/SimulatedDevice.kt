@@ -0,0 +1,165 @@
+package com.hirenq.tmmrelay.loadgen
+
+import com.hirenq.tmmrelay.encoding.BufferRequestBody
+import com.hirenq.tmmrelay.encoding.TelemetryDeltaEncoder
+import com.hirenq.tmmrelay.encoding.TelemetryJsonWriter
+import com.hirenq.tmmrelay.encoding.TelemetryProtoWriter
+import com.hirenq.tmmrelay.model.TelemetryPayload
+import com.hirenq.tmmrelay.model.WireFormat
+import com.hirenq.tmmrelay.outbox.CircuitBreaker
+import com.hirenq.tmmrelay.outbox.RetryScheduler
+import com.hirenq.tmmrelay.reporting.ReportingEngine
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okio.Buffer
+import java.io.IOException
+import kotlin.random.Random
+
+/**
+ * One simulated relay. Steps its receiver an epoch at a time through the app's
+ * [ReportingEngine]; reported records go to an in-memory outbox that is uploaded one
+ * record at a time, in order, with the app's [RetryScheduler] and [CircuitBreaker]
+ * deciding when to retry, as `OutboxDrainer` does.
+ *
+ * [offline] periods hold uploads back; coming back online skips the pending backoff, like
+ * a validated network does in the app. A restart resets the reporting engine and the
+ * retry state but keeps the outbox, which lives on disk on a real device.
+ */
+class SimulatedDevice(
+    val deviceId: String,
+    private val motion: DeviceMotion,
+    private val config: LoadConfig,
+    private val clock: SimClock,
+    private val client: OkHttpClient,
+    private val url: String,
+    private val report: LoadReport,
+    private val random: Random,
+    private val startMs: Long,
+    private val restartMs: Long?,
+    private val offline: List<LongRange>
+) : Runnable {
+
+    private class Record(val payload: TelemetryPayload, val reason: String, val takenMs: Long) {
+        var attempts = 0
+    }
+
+    private val outbox = ArrayDeque<Record>()
+    private var engine = ReportingEngine(config.reportingConfig())
+    private var retry = newRetryScheduler()
+    private var wasOffline = false
+
+    override fun run() {
+        clock.sleepUntil(startMs)
+        var epochMs = startMs
+        var restartPending = restartMs != null
+        while (true) {
+            // Step the receiver without sleeping until an epoch is reported
+            var reason: String? = null
+            while (reason == null && epochMs < config.durationMs) {
+                val next = epochMs + config.epochMs
+                if (restartPending && next >= config.restartAtMs!!) break
+                epochMs = next
+                motion.step(config.epochMs)
+                reason = engine.evaluate(motion.sample(clock.epochMillis(epochMs)))
+            }
+
+            if (reason == null && restartPending && epochMs < config.durationMs) {
+                // Runs until the fleet goes down, then boots again a little later
+                drainUntil(config.restartAtMs!!)
+                restartPending = false
+                engine = ReportingEngine(config.reportingConfig())
+                retry = newRetryScheduler()
+                epochMs = restartMs!!
+                clock.sleepUntil(epochMs)
+                continue
+            }
+            if (reason == null) break
+
+            drainUntil(epochMs)
+            outbox.addLast(Record(motion.payload(config.tenantId, deviceId, clock.epochMillis(epochMs)), reason, epochMs))
+        }
+        drainUntil(config.durationMs)
+        report.onDeviceFinished(outbox.size)
+    }
+
+    /** Uploads queued records until simulated time [untilMs], then waits for it. */
+    private fun drainUntil(untilMs: Long) {
+        while (true) {
+            val now = clock.nowMs()
+            if (now >= untilMs) return
+            val offlineUntil = offline.firstOrNull { now in it }?.last
+            if (offlineUntil != null) {
+                wasOffline = true
+                clock.sleepUntil(minOf(offlineUntil + 1, untilMs))
+                continue
+            }
+            if (wasOffline) {
+                wasOffline = false
+                retry.skipBackoff()
+            }
+            val record = outbox.firstOrNull()
+            if (record == null) {
+                // Nothing queued: wake for the next offline period or the deadline
+                val nextOffline = offline.firstOrNull { it.first > now }?.first ?: Long.MAX_VALUE
+                clock.sleepUntil(minOf(nextOffline, untilMs))
+                continue
+            }
+            val waitMs = retry.delayBeforeAttempt()
+            if (waitMs > 0) {
+                clock.sleepUntil(minOf(now + waitMs, untilMs))
+                continue
+            }
+            val retryAfterMs = post(record)
+            if (retryAfterMs == null) {
+                outbox.removeFirst()
+                retry.onSuccess()
+            } else {
+                retry.onFailure(retryAfterMs.takeIf { it > 0 })
+            }
+        }
+    }
+
+    /** Posts [record]; returns null once delivered, else the backend's Retry-After (0 if none). */
+    private fun post(record: Record): Long? {
+        val body = Buffer()
+        val nowMs = clock.nowMs()
+        when (config.format) {
+            WireFormat.JSON -> TelemetryJsonWriter.write(record.payload, body, clock.epochMillis(nowMs))
+            WireFormat.PROTOBUF -> TelemetryProtoWriter.write(record.payload, body, clock.epochMillis(nowMs))
+            // A lone record is just a keyframe
+            WireFormat.DELTA -> TelemetryDeltaEncoder().encode(record.payload, body)
+        }
+        val request = Request.Builder()
+            .url(url)
+            .addHeader("Content-Type", config.format.contentType)
+            .post(BufferRequestBody(body, config.format.contentType.toMediaType()))
+            .build()
+
+        val retried = record.attempts++ > 0
+        val started = System.nanoTime()
+        return try {
+            client.newCall(request).execute().use { response ->
+                val latencyNanos = System.nanoTime() - started
+                val delivered = response.isSuccessful
+                report.onRequest(nowMs, latencyNanos, response.code, record.reason, retried,
+                    if (delivered) nowMs - record.takenMs else -1L)
+                when {
+                    delivered -> null
+                    response.code == 429 || response.code == 503 ->
+                        response.header("Retry-After")?.trim()?.toLongOrNull()?.times(1000) ?: 0L
+                    else -> 0L
+                }
+            }
+        } catch (e: IOException) {
+            report.onRequest(nowMs, System.nanoTime() - started, LoadReport.IO_ERROR, record.reason, retried, -1L)
+            0L
+        }
+    }
+
+    private fun newRetryScheduler() = RetryScheduler(
+        breaker = CircuitBreaker(clock = clock::nowMs),
+        clock = clock::nowMs,
+        random = random
+    )
+}
@@ -15,4 +15,4 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "TmmRelay"
-include(":app", ":CatalystFacade")
+include(":app", ":CatalystFacade", ":benchmark", ":loadgen")